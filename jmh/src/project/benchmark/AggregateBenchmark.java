@@ -0,0 +1,89 @@
+package project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import project.products.product.Product;
+import project.products.product_collection.ColumnarProductCollection;
+import project.products.product_collection.ProductAggregates;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры сводных характеристик коллекции, хранящей поля по столбцам: всех характеристик сразу
+ * ({@link ColumnarProductCollection#aggregate()}) и поиска товаров с наибольшей ценой и наибольшей суммой координат.
+ * Ядра на векторах включаются только ключом JVM, поэтому каждый замер есть в двух вариантах: scalar* выполняется в JVM
+ * без модуля jdk.incubator.vector, где работают скалярные циклы, а vector* - в JVM с ним.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class AggregateBenchmark {
+    private static final String HEAP = "-Xmx3g";
+    private static final String VECTOR_MODULE = "--add-modules=jdk.incubator.vector";
+
+    /**
+     * Количество товаров в коллекции.
+     */
+    @Param({"10000000"})
+    public int products;
+
+    private ColumnarProductCollection productCollection;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) {
+        boolean vector = params.getBenchmark().substring(params.getBenchmark().lastIndexOf('.') + 1)
+                .startsWith("vector");
+        if (vector != ProductAggregates.isVectorized())
+            throw new IllegalStateException("Ядра на векторах " + (vector ? "не загрузились." : "загрузились."));
+        productCollection = Fixtures.columnarCollection(products);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = HEAP)
+    public ProductAggregates scalarAggregate() {
+        return productCollection.aggregate();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {HEAP, VECTOR_MODULE})
+    public ProductAggregates vectorAggregate() {
+        return productCollection.aggregate();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = HEAP)
+    public Product scalarMaxByPrice() {
+        return productCollection.getMaxByPrice();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {HEAP, VECTOR_MODULE})
+    public Product vectorMaxByPrice() {
+        return productCollection.getMaxByPrice();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = HEAP)
+    public Product scalarMaxByCoordinates() {
+        return productCollection.getMaxByCoordinates();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {HEAP, VECTOR_MODULE})
+    public Product vectorMaxByCoordinates() {
+        return productCollection.getMaxByCoordinates();
+    }
+}
\ No newline at end of file
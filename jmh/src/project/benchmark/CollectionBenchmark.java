@@ -0,0 +1,97 @@
+package project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import project.parsing.tags.ParentTag;
+import project.products.product.Person;
+import project.products.product.PersonRegistry;
+import project.products.product.Product;
+import project.products.product_collection.ProductCollection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры операций над коллекцией: поиска товара по номеру, удаления товара с повторным добавлением и регистрации
+ * владельца по тегу ({@link PersonRegistry#newPerson(ParentTag)}). Номера товаров перебираются в случайном порядке.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CollectionBenchmark {
+    /**
+     * Количество товаров в коллекции; миллион товаров задаётся параметром -p products=1000000.
+     */
+    @Param({"1000", "100000"})
+    public int products;
+
+    /**
+     * Доля товаров, делящих владельца с другими.
+     */
+    @Param({"0.5"})
+    public double ownerSharing;
+
+    private ProductCollection productCollection;
+    private long[] ids;
+    private int next;
+    private ParentTag[] ownerTags;
+    private int nextOwner;
+    private PersonRegistry personRegistry;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        productCollection = Fixtures.collection(products, ownerSharing);
+        ids = Fixtures.shuffledIDs(productCollection);
+        List<ParentTag> tags = new ArrayList<>();
+        for (Product product: productCollection)
+            if (product.getOwner() != null)
+                tags.add(product.getOwner().getTag());
+        ownerTags = tags.toArray(new ParentTag[0]);
+    }
+
+    private long nextID() {
+        long id = ids[next];
+        next = next + 1 == ids.length ? 0 : next + 1;
+        return id;
+    }
+
+    @Benchmark
+    public Product getProductByID() {
+        return productCollection.getProductByID(nextID());
+    }
+
+    @Benchmark
+    public boolean removeProductByID() {
+        long id = nextID();
+        Product product = productCollection.getProductByID(id);
+        return productCollection.removeProductByID(id) && productCollection.addProduct(product);
+    }
+
+    /**
+     * Регистрирует владельцев товаров по их тегам в порядке следования товаров, как при загрузке; после прохода по
+     * всем тегам реестр создаётся заново.
+     */
+    @Benchmark
+    public Person personRegistryNewPerson() {
+        if (nextOwner == 0)
+            personRegistry = new PersonRegistry();
+        Person person = personRegistry.newPerson(ownerTags[nextOwner]);
+        nextOwner = nextOwner + 1 == ownerTags.length ? 0 : nextOwner + 1;
+        return person;
+    }
+}
\ No newline at end of file
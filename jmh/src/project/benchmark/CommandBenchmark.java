@@ -0,0 +1,81 @@
+package project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import project.commands.CommandException;
+import project.commands.command_map.CommandMap;
+import project.parsing.save.Saver;
+import project.products.product_collection.ProductCollection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры выполнения команд через {@link CommandMap#execute(String)}: разбор строки, выбор команды, блокировка
+ * коллекции и сама команда. Вывод команд отбрасывается.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CommandBenchmark {
+    /**
+     * Количество товаров в коллекции.
+     */
+    @Param({"1000", "100000"})
+    public int products;
+
+    /**
+     * Доля товаров, делящих владельца с другими.
+     */
+    @Param({"0.5"})
+    public double ownerSharing;
+
+    /**
+     * Строка команды; команды не должны изменять коллекцию.
+     */
+    @Param({"info", "head", "max_by_coordinates", "min_by_owner", "remove_by_id 0"})
+    public String command;
+
+    private CommandMap commandMap;
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ProductCollection productCollection = Fixtures.collection(products, ownerSharing);
+        File file = File.createTempFile("products", ".xml");
+        file.deleteOnExit();
+        commandMap = new CommandMap(productCollection, new Saver(file.getPath()));
+        out = System.out;
+        System.setOut(Fixtures.nullStream());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public void execute() {
+        try {
+            commandMap.execute(command);
+        } catch (CommandException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package project.benchmark;
+
+import project.parsing.load.Loader;
+import project.products.product.Coordinates;
+import project.products.product.Product;
+import project.products.product.UnitOfMeasure;
+import project.products.product_collection.ColumnarProductCollection;
+import project.products.product_collection.IProductCollection;
+import project.products.product_collection.ProductCollection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Общие для замеров данные: синтетические файлы коллекции ({@link ProductFileGenerator}) и выборки номеров товаров.
+ */
+final class Fixtures {
+    /**
+     * Начальное значение генератора синтетических коллекций: все замеры работают с одними и теми же товарами.
+     */
+    static final long SEED = 42;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Записывает синтетический файл коллекции во временный файл, удаляемый при завершении JVM.
+     * @param products количество товаров.
+     * @param ownerSharing доля товаров, делящих владельца с другими.
+     * @return файл коллекции.
+     * @throws IOException если файл не удалось записать.
+     */
+    static File writeCollection(int products, double ownerSharing) throws IOException {
+        File file = File.createTempFile("products", ".xml");
+        file.deleteOnExit();
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            ProductFileGenerator.withOwnerSharing(products, ownerSharing, SEED).generate(writer);
+        }
+        return file;
+    }
+
+    /**
+     * Создаёт синтетическую коллекцию.
+     * @param products количество товаров.
+     * @param ownerSharing доля товаров, делящих владельца с другими.
+     * @return коллекция.
+     * @throws IOException если не удалось записать промежуточный файл.
+     */
+    static ProductCollection collection(int products, double ownerSharing) throws IOException {
+        File file = writeCollection(products, ownerSharing);
+        try {
+            return Loader.load(file.getPath());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Создаёт синтетическую коллекцию, хранящую поля по столбцам, без промежуточного файла: так можно получить
+     * коллекцию из десятков миллионов товаров. Цены, координаты и единицы измерения распределены как в
+     * {@link ProductFileGenerator}; у товаров нет владельцев, а наименование и дата создания у всех общие.
+     * @param products количество товаров.
+     * @return коллекция.
+     */
+    static ColumnarProductCollection columnarCollection(int products) {
+        ColumnarProductCollection productCollection = new ColumnarProductCollection();
+        Random random = new Random(SEED);
+        UnitOfMeasure[] units = UnitOfMeasure.values();
+        LocalDateTime date = LocalDateTime.of(2020, 2, 20, 12, 0);
+        for (int n = 0; n < products; n++) {
+            Coordinates coordinates = new Coordinates(random.nextFloat() * 1000 - 200, random.nextDouble() * 1000);
+            productCollection.addProduct(new Product(n, "product", coordinates, date, 1 + random.nextDouble() * 10000,
+                    n % 5 == 0 ? null : units[n % units.length], null));
+        }
+        return productCollection;
+    }
+
+    /**
+     * Возвращает номера товаров коллекции в случайном порядке.
+     * @param productCollection коллекция.
+     * @return номера товаров.
+     */
+    static long[] shuffledIDs(IProductCollection productCollection) {
+        long[] ids = new long[productCollection.size()];
+        int i = 0;
+        for (Product product: productCollection)
+            ids[i++] = product.getID();
+        Random random = new Random(SEED);
+        for (int j = ids.length - 1; j > 0; j--) {
+            int k = random.nextInt(j + 1);
+            long id = ids[j];
+            ids[j] = ids[k];
+            ids[k] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Создаёт поток вывода, отбрасывающий всё, что в него пишут: команды выводят результат в стандартный поток.
+     * @return поток вывода.
+     */
+    static PrintStream nullStream() {
+        return new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+    }
+}
\ No newline at end of file
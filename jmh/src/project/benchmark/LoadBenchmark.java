@@ -0,0 +1,91 @@
+package project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import project.parsing.binary.BinaryLoader;
+import project.parsing.binary.BinarySaver;
+import project.parsing.load.Loader;
+import project.parsing.load.ParallelLoader;
+import project.parsing.load.PipelinedLoader;
+import project.parsing.tags.TagReader;
+import project.products.product_collection.ProductCollection;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры загрузки коллекции из файла: выбор способа по умолчанию ({@link Loader#load(String)}), последовательная,
+ * параллельная и конвейерная загрузка текстового файла и загрузка двоичного файла.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+    /**
+     * Количество товаров в файле; миллион товаров задаётся параметром -p products=1000000.
+     */
+    @Param({"1000", "100000"})
+    public int products;
+
+    /**
+     * Доля товаров, делящих владельца с другими.
+     */
+    @Param({"0.5"})
+    public double ownerSharing;
+
+    private File file;
+    private File binaryFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Fixtures.writeCollection(products, ownerSharing);
+        binaryFile = File.createTempFile("products", ".bin");
+        binaryFile.deleteOnExit();
+        BinarySaver.save(binaryFile, Loader.load(file.getPath()));
+    }
+
+    @Benchmark
+    public ProductCollection load() {
+        return Loader.load(file.getPath());
+    }
+
+    @Benchmark
+    public ProductCollection loadSequential() throws IOException {
+        try (TagReader tagReader = new TagReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8))) {
+            return Loader.load(tagReader);
+        }
+    }
+
+    @Benchmark
+    public ProductCollection loadParallel() throws IOException {
+        return ParallelLoader.load(file);
+    }
+
+    @Benchmark
+    public ProductCollection loadPipelined() {
+        return new PipelinedLoader(file.getPath()).load();
+    }
+
+    @Benchmark
+    public ProductCollection loadBinary() {
+        return BinaryLoader.load(binaryFile.getPath());
+    }
+}
\ No newline at end of file
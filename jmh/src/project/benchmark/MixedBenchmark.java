@@ -0,0 +1,132 @@
+package project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import project.products.product.Product;
+import project.products.product_collection.ConcurrentProductCollection;
+import project.products.product_collection.ProductCollection;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Замеры смешанной нагрузки из нескольких потоков: поиск по номеру и, в {@link #writePercent}% операций, удаление
+ * товара с повторным добавлением. Каждый поток изменяет только свою часть товаров, так что размер коллекции не
+ * меняется. Потокобезопасная коллекция сравнивается с обычной под блокировкой чтения-записи, как при выполнении команд.
+ * Число потоков задаётся параметром JMH -t.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class MixedBenchmark {
+    /**
+     * Количество товаров в коллекции.
+     */
+    @Param({"100000"})
+    public int products;
+
+    /**
+     * Доля товаров, делящих владельца с другими.
+     */
+    @Param({"0.5"})
+    public double ownerSharing;
+
+    /**
+     * Доля изменяющих операций в процентах.
+     */
+    @Param({"10"})
+    public int writePercent;
+
+    private ConcurrentProductCollection concurrentCollection;
+    private ProductCollection lockedCollection;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        lockedCollection = Fixtures.collection(products, ownerSharing);
+        concurrentCollection = new ConcurrentProductCollection();
+        for (Product product: lockedCollection)
+            concurrentCollection.addProduct(product);
+        ids = Fixtures.shuffledIDs(lockedCollection);
+    }
+
+    /**
+     * Состояние потока нагрузки: генератор случайных чисел и часть товаров, которую поток изменяет.
+     */
+    @State(Scope.Thread)
+    public static class Worker {
+        private Random random;
+        private int thread;
+        private int threads;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams threadParams) {
+            thread = threadParams.getThreadIndex();
+            threads = threadParams.getThreadCount();
+            random = new Random(thread);
+        }
+
+        private boolean nextIsWrite(int writePercent) {
+            return random.nextInt(100) < writePercent;
+        }
+
+        private long ownID(long[] ids) {
+            int slot = random.nextInt((ids.length + threads - 1 - thread) / threads);
+            return ids[slot * threads + thread];
+        }
+
+        private long anyID(long[] ids) {
+            return ids[random.nextInt(ids.length)];
+        }
+    }
+
+    @Benchmark
+    public boolean concurrentCollection(Worker worker) {
+        if (!worker.nextIsWrite(writePercent))
+            return concurrentCollection.getProductByID(worker.anyID(ids)) != null;
+        long id = worker.ownID(ids);
+        Product product = concurrentCollection.getProductByID(id);
+        return concurrentCollection.removeProductByID(id) && concurrentCollection.addProduct(product);
+    }
+
+    @Benchmark
+    public boolean lockedCollection(Worker worker) {
+        if (!worker.nextIsWrite(writePercent)) {
+            long id = worker.anyID(ids);
+            lock.readLock().lock();
+            try {
+                return lockedCollection.getProductByID(id) != null;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        long id = worker.ownID(ids);
+        lock.writeLock().lock();
+        try {
+            Product product = lockedCollection.getProductByID(id);
+            return lockedCollection.removeProductByID(id) && lockedCollection.addProduct(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import project.parsing.binary.BinarySaver;
+import project.parsing.save.Saver;
+import project.products.product_collection.ProductCollection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры сохранения коллекции в файл: текстовое сохранение с кэшем фрагментов и без него и двоичное сохранение.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SaveBenchmark {
+    /**
+     * Количество товаров в коллекции; миллион товаров задаётся параметром -p products=1000000.
+     */
+    @Param({"1000", "100000"})
+    public int products;
+
+    /**
+     * Доля товаров, делящих владельца с другими.
+     */
+    @Param({"0.5"})
+    public double ownerSharing;
+
+    private ProductCollection productCollection;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        productCollection = Fixtures.collection(products, ownerSharing);
+        file = File.createTempFile("products", ".out");
+        file.deleteOnExit();
+    }
+
+    @Benchmark
+    public long save() throws IOException {
+        Saver.save(file, productCollection);
+        return file.length();
+    }
+
+    @Benchmark
+    public long saveUncached() throws IOException {
+        Saver.save(file, productCollection, null);
+        return file.length();
+    }
+
+    @Benchmark
+    public long saveBinary() throws IOException {
+        BinarySaver.save(file, productCollection);
+        return file.length();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import project.parsing.tags.ParentTag;
+import project.parsing.tags.Tag;
+import project.parsing.tags.TagMatcher;
+import project.parsing.tags.TagParser;
+import project.products.product_collection.ProductCollection;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры работы с тегами: разбор текста файла однопроходным {@link TagParser} и старым {@link TagMatcher} и
+ * формирование текста коллекции методом {@link ParentTag#toText()}. Время старого анализатора растёт квадратично,
+ * поэтому по умолчанию файлы невелики.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TagBenchmark {
+    /**
+     * Количество товаров в тексте.
+     */
+    @Param({"1000", "10000"})
+    public int products;
+
+    /**
+     * Доля товаров, делящих владельца с другими.
+     */
+    @Param({"0.5"})
+    public double ownerSharing;
+
+    private String text;
+    private ProductCollection productCollection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        text = ProductFileGenerator.withOwnerSharing(products, ownerSharing, Fixtures.SEED).generate();
+        productCollection = Fixtures.collection(products, ownerSharing);
+    }
+
+    @Benchmark
+    public Tag tagParserParse() throws IOException {
+        return new TagParser(text).parse();
+    }
+
+    @Benchmark
+    public ParentTag tagMatcherFindTag() {
+        TagMatcher tagMatcher = new TagMatcher(text);
+        return tagMatcher.findTag() ? new ParentTag(tagMatcher) : null;
+    }
+
+    @Benchmark
+    public String parentTagToText() {
+        return productCollection.getTag().toText();
+    }
+}
\ No newline at end of file
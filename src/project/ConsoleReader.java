@@ -4,13 +4,71 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.util.function.Consumer;
 
 /**
- * Класс для построчного чтения из стандартного потока ввода.
+ * Класс для построчного чтения из стандартного потока ввода. Потоку выполнения можно назначить собственный источник
+ * строк ({@link Source}), например соединение с клиентом сервера; тогда команды, выполняемые в этом потоке, читают
+ * строки из него.
  */
 public class ConsoleReader {
     private static BufferedReader bufferedReader;
     private static Charset charset;
+    private static final ThreadLocal<Source> source = new ThreadLocal<>();
+
+    /**
+     * Источник строк, заменяющий стандартный поток ввода в отдельном потоке выполнения.
+     */
+    public interface Source {
+        /**
+         * Читает строку.
+         * @return прочитанная строка (не null).
+         * @throws IOException если строку не удалось получить.
+         */
+        String readLine() throws IOException;
+
+        /**
+         * Завершает работу с источником вместо завершения программы. Не возвращает управление обычным образом.
+         */
+        void exit();
+
+        /**
+         * Выводит сообщение, пришедшее из другого потока выполнения, например о завершении фонового сохранения.
+         * @param text текст сообщения.
+         */
+        void message(String text);
+    }
+
+    /**
+     * Назначает текущему потоку выполнения источник строк.
+     * @param threadSource источник или null, чтобы снова читать стандартный поток ввода.
+     */
+    public static void setSource(Source threadSource) {
+        if (threadSource == null)
+            source.remove();
+        else
+            source.set(threadSource);
+    }
+
+    /**
+     * Возвращает источник строк текущего потока выполнения.
+     * @return источник или null, если поток читает стандартный поток ввода.
+     */
+    public static Source getSource() {
+        return source.get();
+    }
+
+    /**
+     * Возвращает получателя сообщений для текущего потока выполнения: сообщения, переданные ему из любого потока,
+     * попадут туда же, куда выводят команды этого потока.
+     * @return получатель сообщений.
+     */
+    public static Consumer<String> reporter() {
+        Source threadSource = source.get();
+        if (threadSource == null)
+            return text -> System.out.println("\n" + text);
+        return threadSource::message;
+    }
 
     /**
      * Открывает стандартный поток ввода, определяет кодировку консоли.
@@ -41,6 +99,9 @@ public class ConsoleReader {
      * @throws IOException ошибка при попытке получения строки из стандартного потока ввода.
      */
     public static String readLine() throws IOException {
+        Source threadSource = source.get();
+        if (threadSource != null)
+            return threadSource.readLine();
         String line = bufferedReader.readLine();
         if (line == null) {
             System.out.println("\n");
@@ -2,40 +2,128 @@ package project;
 
 import project.commands.command_map.CommandMap;
 import project.commands.CommandException;
+import project.products.product_collection.ColumnarProductCollection;
+import project.products.product_collection.ConcurrentProductCollection;
 import project.products.product_collection.IProductCollection;
 import project.products.product_collection.ProductCollection;
+import project.parsing.FileFormat;
+import project.parsing.journal.Journal;
+import project.parsing.journal.JournaledProductCollection;
+import project.parsing.load.ILoader;
 import project.parsing.load.LoadException;
 import project.parsing.load.Loader;
+import project.parsing.load.PipelinedLoader;
+import project.parsing.save.AutoSaver;
+import project.parsing.save.ISaver;
+import project.parsing.save.SaveQueue;
 import project.parsing.save.Saver;
+import project.server.CommandServer;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Этот класс содержит метод main.
  * @see Loader
  * @see Saver
+ * @see FileFormat
+ * @see Journal
  * @see project.products.product_collection.ProductCollection
  * @see project.commands.command_map.CommandMap
  * @see ConsoleReader
+ * @see CommandServer
  * */
 public class Main {
     /**
-     * Обеспечивает загрузку коллекции из файла или создание новой в случае неудачи, содержит цикл ввода и исполнения команд.
-     * @param args аргументы командной строки; args[0] - адрес файла, из которого будет осуществляться загрузка коллекции.
+     * Обеспечивает загрузку коллекции из файла или создание новой в случае неудачи, восстановление изменений из журнала,
+     * содержит цикл ввода и исполнения команд.
+     * @param args аргументы командной строки: адрес файла, из которого будет осуществляться загрузка коллекции и в
+     *             который она будет сохраняться, и, возможно, параметр --format=text, --format=binary,
+     *             --format=mapped или --format=segmented. Без этого параметра формат определяется по расширению файла. Параметр
+     *             --load-stats включает загрузку текстового файла конвейером и вывод замеров её этапов. Параметр
+     *             --port=N запускает вместо консольного цикла сервер команд на порту N, --workers=N задаёт число
+     *             исполнителей его команд. Сервер работает с потокобезопасной копией коллекции
+     *             ({@link ConcurrentProductCollection}), если она хранится не в отображённом файле. Параметр
+     *             --columnar переводит коллекцию консольного режима в хранилище по столбцам
+     *             ({@link ColumnarProductCollection}), если она хранится не в отображённом файле; в остальных случаях
+     *             выводится предупреждение, что параметр не действует. Параметр
+     *             --autosave=N включает автосохранение ({@link AutoSaver}): изменённая коллекция сохраняется в фоне не
+     *             позже чем через N секунд после изменения или после --autosave-changes=N изменений (по умолчанию
+     *             {@value AutoSaver#DEFAULT_CHANGES}). Параметр --periodic-sync переводит журнал изменений в режим
+     *             периодической записи: изменения не ждут записи на диск, а при сбое теряются изменения последних
+     *             {@value Journal#SYNC_INTERVAL_MILLIS} мс.
      * @exception IOException если была ошибка при чтении подтверждения продолжения работы с новой пустой коллекцией.
      */
     public static void main(String[] args) throws IOException {
-        if (args.length == 0) {
+        String path = null;
+        FileFormat format = null;
+        boolean loadStatistics = false;
+        boolean columnar = false;
+        boolean periodicSync = false;
+        int port = -1;
+        int workers = CommandServer.DEFAULT_WORKERS;
+        int autosave = -1;
+        int autosaveChanges = AutoSaver.DEFAULT_CHANGES;
+        for (String arg: args) {
+            if (arg.equals("--load-stats"))
+                loadStatistics = true;
+            else if (arg.equals("--columnar"))
+                columnar = true;
+            else if (arg.equals("--periodic-sync"))
+                periodicSync = true;
+            else if (arg.startsWith("--port=") || arg.startsWith("--workers=") || arg.startsWith("--autosave")) {
+                int value = -1;
+                try {
+                    value = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+                } catch (NumberFormatException ignored) {
+                }
+                if (value <= 0 || arg.startsWith("--port=") && value > 65535) {
+                    System.out.println("Ошибка! Неверное значение параметра " + arg + ".");
+                    System.exit(1);
+                }
+                if (arg.startsWith("--port="))
+                    port = value;
+                else if (arg.startsWith("--workers="))
+                    workers = value;
+                else if (arg.startsWith("--autosave="))
+                    autosave = value;
+                else if (arg.startsWith("--autosave-changes="))
+                    autosaveChanges = value;
+                else {
+                    System.out.println("Ошибка! Неизвестный параметр " + arg + ".");
+                    System.exit(1);
+                }
+            } else if (arg.startsWith("--format=")) {
+                try {
+                    format = FileFormat.byName(arg.substring("--format=".length()));
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Ошибка! " + e.getMessage());
+                    System.exit(1);
+                }
+            } else if (path == null)
+                path = arg;
+        }
+        if (path == null) {
             System.out.println("Ошибка! Вы не указали файл в аргументе командной строки.");
             System.exit(1);
         }
+        if (format == null)
+            format = FileFormat.byPath(path);
 
         ConsoleReader.init();
 
         IProductCollection productCollection = new ProductCollection();
         try {
-            productCollection = Loader.load(args[0]);
+            ILoader loader = loadStatistics && format == FileFormat.TEXT ? new PipelinedLoader(path) : format.loader(path);
+            productCollection = loader.load();
             System.out.println("\nКоллекция загружена из файла.");
+            if (loader instanceof PipelinedLoader)
+                System.out.println(((PipelinedLoader) loader).getStatistics());
+            else if (loadStatistics)
+                System.out.println("Замеры загрузки доступны только для текстового формата.");
         } catch (LoadException e) {
             System.out.print(e.getMessage() +
                     "\n\nЖелаете ли вы начать работу с новым пустым списком товаров?\n" +
@@ -44,13 +132,46 @@ public class Main {
                 exit();
         }
 
-        CommandMap commands = new CommandMap(productCollection, new Saver(args[0]));
+        if (columnar && port > 0)
+            System.out.println("Параметр --columnar не действует в режиме сервера: сервер работает с " +
+                    "потокобезопасной коллекцией.");
+        else if (columnar && format == FileFormat.MAPPED)
+            System.out.println("Параметр --columnar не действует для коллекции в отображённом файле.");
+        if (port > 0 && format != FileFormat.MAPPED)
+            productCollection = new ConcurrentProductCollection(productCollection);
+        else if (columnar && format != FileFormat.MAPPED)
+            productCollection = new ColumnarProductCollection(productCollection);
+
+        ISaver saver = format.saver(path);
+        if (format != FileFormat.MAPPED) {
+            try {
+                Journal journal = Journal.open(path, format, productCollection, periodicSync);
+                productCollection = new JournaledProductCollection(productCollection, journal);
+                saver = journal;
+            } catch (IOException e) {
+                System.out.println("Не удалось открыть журнал изменений: " + e.getMessage() +
+                        "\nИзменения будут записываться в файл только командой save.");
+            }
+        }
+
+        ReadWriteLock lock = new ReentrantReadWriteLock();
+        if (autosave > 0)
+            saver = new AutoSaver(saver, productCollection, lock, autosave, autosaveChanges);
+
+        if (port > 0) {
+            serve(port, workers, productCollection, saver, lock);
+            return;
+        }
+
+        CommandMap commands = new CommandMap(productCollection, saver, lock);
         while (true) {
             try {
                 System.out.print("\nВведите команду: ");
                 commands.execute(ConsoleReader.readLine());
             } catch (IOException e) {
                 System.out.println("\nЧто-то пошло не так. Попробуйте ещё раз.");
+            } catch (UncheckedIOException e) {
+                System.out.println("\n" + e.getMessage());
             } catch (CommandException e) {
                 System.out.println(e.getMessage());
                 System.out.println("Повторите ввод команды.");
@@ -59,10 +180,41 @@ public class Main {
     }
 
     /**
-     * Закрывает стандартный поток ввода и завершает работу программы.
+     * Запускает сервер команд и ждёт его остановки.
+     * @param port порт сервера.
+     * @param workers число исполнителей команд.
+     * @param productCollection коллекция, над которой выполняются команды.
+     * @param saver объект класса сохранения.
+     * @param lock блокировка коллекции.
+     */
+    private static void serve(int port, int workers, IProductCollection productCollection, ISaver saver,
+                              ReadWriteLock lock) {
+        try (CommandServer server = new CommandServer(new InetSocketAddress(port), productCollection, saver, workers,
+                lock)) {
+            server.start();
+            System.out.println("Сервер принимает подключения на порту " + server.getPort() + ".");
+            server.await();
+            SaveQueue.awaitAll();
+        } catch (IOException e) {
+            System.out.println("Не удалось запустить сервер: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            System.out.println("Работа сервера прервана.");
+        }
+    }
+
+    /**
+     * Дожидается окончания фоновых сохранений, закрывает стандартный поток ввода и завершает работу программы. Если текущему потоку выполнения назначен
+     * собственный источник строк ({@link ConsoleReader.Source}), завершается только работа с ним.
      */
     public static void exit() {
+        ConsoleReader.Source source = ConsoleReader.getSource();
+        if (source != null) {
+            source.exit();
+            return;
+        }
         System.out.println("Завершение работы программы.");
+        SaveQueue.awaitAll();
         ConsoleReader.close();
         System.exit(0);
     }
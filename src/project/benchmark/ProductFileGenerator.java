@@ -0,0 +1,99 @@
+package project.benchmark;
+
+import project.products.product.UnitOfMeasure;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Генератор синтетических файлов коллекции в том же формате, в котором их записывает
+ * {@link project.parsing.save.Saver}. Используется для замеров загрузки и сохранения.
+ */
+public class ProductFileGenerator {
+    private final int productsNumber;
+    private final int ownersNumber;
+    private final long seed;
+
+    /**
+     * Создаёт генератор.
+     * @param productsNumber количество товаров в файле.
+     * @param ownersNumber количество различных владельцев (0 - у товаров нет владельцев). Товары распределяются между
+     *                     владельцами по кругу, так что один владелец приходится примерно на productsNumber / ownersNumber товаров.
+     * @param seed начальное значение генератора случайных чисел.
+     */
+    public ProductFileGenerator(int productsNumber, int ownersNumber, long seed) {
+        this.productsNumber = productsNumber;
+        this.ownersNumber = ownersNumber;
+        this.seed = seed;
+    }
+
+    /**
+     * Создаёт генератор, у которого доля товаров, делящих владельца с другими, равна ownerSharing.
+     * @param productsNumber количество товаров в файле.
+     * @param ownerSharing число от 0 (у каждого товара свой владелец) до 1 (один владелец на всех).
+     * @param seed начальное значение генератора случайных чисел.
+     * @return генератор.
+     */
+    public static ProductFileGenerator withOwnerSharing(int productsNumber, double ownerSharing, long seed) {
+        return new ProductFileGenerator(productsNumber,
+                Math.max(1, (int) Math.round(productsNumber * (1 - ownerSharing))), seed);
+    }
+
+    /**
+     * Записывает текст файла коллекции.
+     * @param out приёмник текста.
+     * @throws IOException если приёмник не смог принять текст.
+     */
+    public void generate(Appendable out) throws IOException {
+        Random random = new Random(seed);
+        UnitOfMeasure[] units = UnitOfMeasure.values();
+        LocalDateTime date = LocalDateTime.of(2020, 2, 20, 12, 0);
+        out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<productCollection>\n\t<products>");
+        for (int n = 0; n < productsNumber; n++) {
+            out.append("\n\t\t<product name=\"product").append(Integer.toString(n)).append("\">")
+                    .append("\n\t\t\t<coordinates>")
+                    .append("\n\t\t\t\t<x>").append(Float.toString(random.nextFloat() * 1000 - 200)).append("</x>")
+                    .append("\n\t\t\t\t<y>").append(Double.toString(random.nextDouble() * 1000)).append("</y>")
+                    .append("\n\t\t\t</coordinates>")
+                    .append("\n\t\t\t<creationDate>").append(date.plusSeconds(n).toString()).append("</creationDate>")
+                    .append("\n\t\t\t<price>").append(Double.toString(1 + random.nextDouble() * 10000)).append("</price>");
+            if (n % 5 != 0)
+                out.append("\n\t\t\t<unitOfMeasure>").append(units[n % units.length].toString()).append("</unitOfMeasure>");
+            if (ownersNumber > 0)
+                appendOwner(out, n % ownersNumber);
+            out.append("\n\t\t</product>");
+        }
+        out.append("\n\t</products>\n\t<initializationDate>2020-02-20</initializationDate>\n</productCollection>");
+    }
+
+    /**
+     * Возвращает текст файла коллекции в виде строки.
+     * @return текст файла.
+     */
+    public String generate() {
+        StringBuilder builder = new StringBuilder(productsNumber * 400);
+        try {
+            generate(builder);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return builder.toString();
+    }
+
+    private static void appendOwner(Appendable out, int k) throws IOException {
+        out.append("\n\t\t\t<owner passportID=\"pass").append(Integer.toString(k)).append("\">")
+                .append("\n\t\t\t\t<name>owner").append(Integer.toString(k)).append("</name>")
+                .append("\n\t\t\t\t<weight>").append(Float.toString(50 + k % 50)).append("</weight>");
+        if (k % 2 == 0)
+            out.append("\n\t\t\t\t<height>").append(Float.toString(1.5f + (k % 5) / 10f)).append("</height>");
+        if (k % 3 == 0)
+            out.append("\n\t\t\t\t<location>")
+                    .append("\n\t\t\t\t\t<name>location").append(Integer.toString(k)).append("</name>")
+                    .append("\n\t\t\t\t\t<x>").append(Float.toString(k % 100)).append("</x>")
+                    .append("\n\t\t\t\t\t<y>").append(Integer.toString(k % 1000)).append("</y>")
+                    .append("\n\t\t\t\t\t<z>").append(Long.toString(k)).append("</z>")
+                    .append("\n\t\t\t\t</location>");
+        out.append("\n\t\t\t</owner>");
+    }
+}
@@ -2,18 +2,42 @@ package project.commands.command_map;
 
 import project.commands.CommandException;
 import project.commands.commands.*;
+import project.metrics.CommandEvent;
+import project.metrics.Metrics;
+import project.metrics.OperationStats;
 import project.products.product_collection.IProductCollection;
 import project.parsing.save.ISaver;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * Класс, сопоставляющий названия команд и их реализации.
+ * Класс, сопоставляющий названия команд и их реализации. Команды выполняются под блокировкой чтения-записи: команды,
+ * только читающие коллекцию ({@link ICommand#isReadOnly()}), - под общей, так что несколько наборов команд, работающих с
+ * одной коллекцией из разных потоков (например, у разных клиентов сервера), выполняют их одновременно; остальные - под
+ * исключительной. Если коллекция потокобезопасна, под общей блокировкой выполняются и команды, делающие единственное
+ * изменение ({@link ICommand#isSingleOperation()}).
+ * <p>
+ * Выполнение учитывается в статистике {@link Metrics}: операция {@value #EXECUTE} охватывает разбор строки и ожидание
+ * блокировки, а операция "command.название" - выполнение самой команды. Ошибкой считается {@link CommandException}.
+ * Выполнение команды также отмечается событием JFR {@link CommandEvent}.
  * @see ICommand
  */
 public class CommandMap implements ICommandMap {
+    /**
+     * Название операции выполнения строковой команды в статистике.
+     */
+    public static final String EXECUTE = "CommandMap.execute";
+
+    private static final OperationStats executeStats = Metrics.get(EXECUTE);
+
     private HashMap<String, ICommand> commands;
+    private final HashMap<String, OperationStats> commandStats = new HashMap<>(32);
+    private final ReadWriteLock lock;
+    private final boolean concurrent;
 
     /**
      * Задаёт сопоставления команд и названий. Команды будут работать с коллекцией продуктов productCollection
@@ -22,6 +46,19 @@ public class CommandMap implements ICommandMap {
      * @param saver объект класса сохранения.
      */
     public CommandMap(IProductCollection productCollection, ISaver saver) {
+        this(productCollection, saver, new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Задаёт сопоставления команд и названий. Команды выполняются под переданной блокировкой, общей для всех наборов
+     * команд, работающих с той же коллекцией.
+     * @param productCollection обрабатываемый список товаров.
+     * @param saver объект класса сохранения.
+     * @param lock блокировка коллекции (повторно входимая: скрипт выполняет команды, уже удерживая исключительную).
+     */
+    public CommandMap(IProductCollection productCollection, ISaver saver, ReadWriteLock lock) {
+        this.lock = lock;
+        concurrent = productCollection.isConcurrent();
         commands = new HashMap<>(16);
         commands.put("help", new Help(commands));
         commands.put("info", new Info(productCollection));
@@ -35,10 +72,18 @@ public class CommandMap implements ICommandMap {
         commands.put("head", new Head(productCollection));
         commands.put("min_by_owner", new MinByOwner(productCollection));
         commands.put("max_by_coordinates", new MaxByCoordinates(productCollection));
-        commands.put("print_unique_owner", new PrintUniqueOwner());
+        commands.put("max_by_location", new MaxByLocation(productCollection));
+        commands.put("in_box", new InBox(productCollection));
+        commands.put("nearest", new Nearest(productCollection));
+        commands.put("print_unique_owner", new PrintUniqueOwner(productCollection));
         commands.put("add_if_max", new AddIfMax(productCollection));
         commands.put("execute_script", new ExecuteScript(this));
         commands.put("exit", new Exit());
+        commands.put("query", new Query(productCollection));
+        commands.put("aggregate", new Aggregate(productCollection));
+        commands.put("stats", new Stats());
+        for (String name: commands.keySet())
+            commandStats.put(name, Metrics.get("command." + name));
     }
 
     /**
@@ -47,15 +92,58 @@ public class CommandMap implements ICommandMap {
      * @exception CommandException если получена несуществующая команда или переданы неверные аргументы.
      */
     public void execute(String str) throws CommandException {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            dispatch(str);
+            completed = true;
+        } finally {
+            if (!completed)
+                executeStats.recordError();
+            executeStats.record(System.nanoTime() - start);
+        }
+    }
+
+    private void dispatch(String str) throws CommandException {
         System.out.println();
         if (str == null || str.equals(""))
             throw new CommandException("Пустая строка - не команда!");
         String[] words = str.split("\\s+");
-        if (commands.containsKey(words[0])) {
+        if (!commands.containsKey(words[0]))
+            throw new CommandException("Такой команды не существует!");
+        ICommand command = commands.get(words[0]);
+        OperationStats stats = commandStats.get(words[0]);
+        boolean shared = command.isReadOnly() || concurrent && command.isSingleOperation();
+        Lock commandLock = shared ? lock.readLock() : lock.writeLock();
+        commandLock.lock();
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
             if (words.length > 1)
-                commands.get(words[0]).execute(Arrays.copyOfRange(words, 1, words.length));
+                command.execute(Arrays.copyOfRange(words, 1, words.length));
             else
-                commands.get(words[0]).execute(null);
-        } else throw new CommandException("Такой команды не существует!");
+                command.execute(null);
+            completed = true;
+        } finally {
+            if (!completed)
+                stats.recordError();
+            stats.record(System.nanoTime() - start);
+            commandLock.unlock();
+            commit(event, words, !completed);
+        }
+    }
+
+    private static void commit(CommandEvent event, String[] words, boolean failed) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.command = words[0];
+            event.arguments = words.length - 1;
+            for (int i = 1; i < words.length; i++)
+                event.argumentsLength += words[i].length();
+            event.failed = failed;
+            event.commit();
+        }
     }
 }
\ No newline at end of file
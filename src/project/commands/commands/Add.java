@@ -26,7 +26,7 @@ public class Add implements ICommand {
      */
     @Override
     public void execute(String[] arguments) {
-        productCollection.getProducts().add(new Product());
+        productCollection.addProduct(new Product(productCollection.getPersonRegistry()));
     }
 
     /**
@@ -37,4 +37,13 @@ public class Add implements ICommand {
     public String[] description() {
         return new String[]{"добавить новый товар в коллекцию"};
     }
+
+    /**
+     * Команда изменяет коллекцию одним вызовом её метода.
+     * @return true.
+     */
+    @Override
+    public boolean isSingleOperation() {
+        return true;
+    }
 }
\ No newline at end of file
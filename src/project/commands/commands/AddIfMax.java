@@ -26,14 +26,14 @@ public class AddIfMax implements ICommand {
      */
     @Override
     public void execute(String[] arguments) {
-        Product newProduct = new Product();
-        for (Product product: productCollection)
-            if (newProduct.compareTo(product) <= 0) {
-                System.out.println("\nНовый товар оказался не самым большим по цене.");
-                return;
-            }
+        Product newProduct = new Product(productCollection.getPersonRegistry());
+        Product maxByPrice = productCollection.getMaxByPrice();
+        if (maxByPrice != null && newProduct.compareTo(maxByPrice) <= 0) {
+            System.out.println("\nНовый товар оказался не самым большим по цене.");
+            return;
+        }
         System.out.println("\nНовый товар добавлен в список.");
-        productCollection.getProducts().add(newProduct);
+        productCollection.addProduct(newProduct);
     }
 
     /**
@@ -0,0 +1,71 @@
+package project.commands.commands;
+
+import project.products.product.UnitOfMeasure;
+import project.products.product_collection.IProductCollection;
+import project.products.product_collection.ProductAggregates;
+
+/**
+ * Команда, выводящая сводные характеристики товаров коллекции.
+ * @see ProductAggregates
+ * @see project.commands.command_map.CommandMap
+ */
+public class Aggregate implements ICommand {
+    private static final String ROW = "%-14s %22s %22s %14s %20s%n";
+
+    private final IProductCollection productCollection;
+
+    /**
+     * Эта команда будет работать с товарами из переданной в конструктор коллекции.
+     * @param productCollection коллекция товаров.
+     */
+    public Aggregate(IProductCollection productCollection) {
+        this.productCollection = productCollection;
+    }
+
+    /**
+     * Выводит число товаров, наименьшее, наибольшее и среднее значения цены и координат, сумму цен, число товаров
+     * каждой единицы измерения и товар с наибольшей суммой координат. В случае отсутствия товаров сообщает об этом
+     * пользователю.
+     * @param arguments массив аргументов команды (не имеет значения).
+     */
+    @Override
+    public void execute(String[] arguments) {
+        ProductAggregates aggregates = productCollection.aggregate();
+        if (aggregates.getCount() == 0) {
+            System.out.println("Товаров в списке нет.");
+            return;
+        }
+        System.out.println("Товаров: " + aggregates.getCount() + ".");
+        System.out.printf(ROW, "Поле", "наименьшее", "наибольшее", "среднее", "сумма");
+        System.out.printf(ROW, "price", aggregates.getMinPrice(), aggregates.getMaxPrice(),
+                String.format("%.4f", aggregates.getMeanPrice()), String.format("%.4f", aggregates.getPriceSum()));
+        System.out.printf(ROW, "coordinates.x", aggregates.getMinX(), aggregates.getMaxX(),
+                String.format("%.4f", aggregates.getMeanX()), "");
+        System.out.printf(ROW, "coordinates.y", aggregates.getMinY(), aggregates.getMaxY(),
+                String.format("%.4f", aggregates.getMeanY()), "");
+        StringBuilder units = new StringBuilder("Единицы измерения:");
+        for (UnitOfMeasure unit: UnitOfMeasure.values())
+            units.append(' ').append(unit).append(" - ").append(aggregates.getUnitCount(unit)).append(',');
+        units.append(" не указана - ").append(aggregates.getUnitCount(null)).append('.');
+        System.out.println(units);
+        System.out.println("Наибольшая сумма координат - у товара №" + aggregates.getMaxByCoordinates().getID() + ".");
+    }
+
+    /**
+     * Возвращает описание команды в виде массива, содержащего одну строку с описанием. Используется в {@link Help}.
+     * @return массив строк.
+     */
+    @Override
+    public String[] description() {
+        return new String[]{"вывести сводные характеристики цен, координат и единиц измерения товаров"};
+    }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
\ No newline at end of file
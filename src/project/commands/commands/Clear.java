@@ -20,7 +20,7 @@ public class Clear implements ICommand {
     @Override
     public void execute(String[] arguments) {
         System.out.println("\nСписок очищен.");
-        productCollection.getProducts().clear();
+        productCollection.clear();
     }
 
     /**
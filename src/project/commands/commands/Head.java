@@ -25,7 +25,7 @@ public class Head implements ICommand {
     @Override
     public void execute(String[] arguments) {
         Product product;
-        if ((product = productCollection.getProducts().peek()) == null)
+        if ((product = productCollection.getFirst()) == null)
             System.out.println("Список товаров пуст.");
         else
             product.printInfo(0);
@@ -39,4 +39,13 @@ public class Head implements ICommand {
     public String[] description() {
         return new String[]{"вывести информацию о первом товаре"};
     }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -54,4 +54,13 @@ public class Help implements ICommand {
     public String[] description() {
         return new String[]{"вывести информацию о доступных командах"};
     }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -20,4 +20,23 @@ public interface ICommand {
      * @return массив строк.
      */
     String[] description();
+
+    /**
+     * Сообщает, только ли читает команда коллекцию. Такие команды могут выполняться одновременно друг с другом, а
+     * изменяющие коллекцию - только по одной.
+     * @return true, если команда не изменяет коллекцию и не сохраняет её; по умолчанию false.
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
+
+    /**
+     * Сообщает, изменяет ли команда коллекцию единственным вызовом её метода. Если коллекция потокобезопасна
+     * ({@link project.products.product_collection.IProductCollection#isConcurrent()}), такие команды выполняются
+     * одновременно друг с другом и с читающими командами: атомарность вызова обеспечивает сама коллекция.
+     * @return true, если команда делает единственное изменение; по умолчанию false.
+     */
+    default boolean isSingleOperation() {
+        return false;
+    }
 }
\ No newline at end of file
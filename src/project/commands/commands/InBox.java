@@ -0,0 +1,86 @@
+package project.commands.commands;
+
+import project.commands.CommandException;
+import project.products.product.Product;
+import project.products.product_collection.IProductCollection;
+import project.products.product_collection.SpatialIndex;
+
+import java.util.List;
+
+/**
+ * Команда, выводящая товары, точки которых попадают в прямоугольник (по координатам товара) или в параллелепипед (по
+ * локации владельца).
+ * @see SpatialIndex
+ * @see project.commands.command_map.CommandMap
+ */
+public class InBox implements ICommand {
+    private final IProductCollection productCollection;
+
+    /**
+     * Эта команда будет работать с товарами из переданной в конструктор коллекции.
+     * @param productCollection коллекция товаров.
+     */
+    public InBox(IProductCollection productCollection) {
+        this.productCollection = productCollection;
+    }
+
+    /**
+     * Выводит информацию о товарах, точки которых лежат между двумя углами (границы включаются), в порядке номеров.
+     * Если коллекция не ведёт пространственный индекс, он строится на время выполнения команды.
+     * @param arguments массив аргументов команды: arguments[0] - пространство (coordinates или location), затем
+     *                  координаты одного угла и координаты противоположного.
+     * @exception CommandException если аргументы отсутствуют или записаны некорректно.
+     */
+    @Override
+    public void execute(String[] arguments) throws CommandException {
+        SpatialIndex.Space space = arguments == null ? null : SpatialIndex.Space.byName(arguments[0]);
+        if (space == null)
+            throw new CommandException("Первый аргумент команды - пространство: coordinates или location.");
+        int dimensions = space.getDimensions();
+        if (arguments.length != 1 + 2 * dimensions)
+            throw new CommandException("После названия пространства " + space + " должны следовать "
+                    + 2 * dimensions + " числа: координаты двух противоположных углов.");
+        double[] min = new double[dimensions];
+        double[] max = new double[dimensions];
+        try {
+            for (int i = 0; i < dimensions; i++) {
+                double a = Double.parseDouble(arguments[1 + i]);
+                double b = Double.parseDouble(arguments[1 + dimensions + i]);
+                min[i] = Math.min(a, b);
+                max[i] = Math.max(a, b);
+            }
+        } catch (NumberFormatException e) {
+            throw new CommandException("Координаты углов - числа.");
+        }
+        SpatialIndex index = productCollection.getSpatialIndex(space);
+        if (index == null)
+            index = SpatialIndex.of(space, productCollection);
+        List<Product> products = index.inBox(min, max);
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0)
+                System.out.println();
+            products.get(i).printInfo(1);
+        }
+        System.out.println("Найдено товаров: " + products.size() + ".");
+    }
+
+    /**
+     * Возвращает описание команды в виде массива строк: первые элементы - названия аргументов, последний - строка,
+     * описывающая команду. Используется в {@link Help}.
+     * @return массив строк.
+     */
+    @Override
+    public String[] description() {
+        return new String[]{"coordinates x1 y1 x2 y2 | location x1 y1 z1 x2 y2 z2",
+                "вывести товары, координаты которых (или локации владельцев) лежат в заданных границах"};
+    }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
\ No newline at end of file
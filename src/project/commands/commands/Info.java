@@ -25,7 +25,7 @@ public class Info implements ICommand {
     public void execute(String[] arguments) {
         System.out.print("Коллекция товаров:\n" +
                 " Дата инициализации: " + productCollection.getInitializationDataString() + "\n" +
-                " Количетво элементов: " + productCollection.getProducts().size() + "\n");
+                " Количетво элементов: " + productCollection.size() + "\n");
     }
 
     /**
@@ -36,4 +36,13 @@ public class Info implements ICommand {
     public String[] description() {
         return new String[]{"вывести информацию о коллекции"};
     }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -26,14 +26,10 @@ public class MaxByCoordinates implements ICommand {
     @Override
     public void execute(String[] arguments) {
         Product maxByCoordinates;
-        if ((maxByCoordinates = productCollection.getProducts().peek()) == null)
+        if ((maxByCoordinates = productCollection.getMaxByCoordinates()) == null)
             System.out.println("Товаров в списке нет.");
-        else {
-            for (Product product: productCollection)
-                if (maxByCoordinates.getCoordinates().compareTo(product.getCoordinates()) < 0)
-                    maxByCoordinates = product;
+        else
             maxByCoordinates.printInfo(0);
-        }
     }
 
     /**
@@ -44,4 +40,13 @@ public class MaxByCoordinates implements ICommand {
     public String[] description() {
         return new String[]{"вывести информацию о товаре с наибольшей суммой координат"};
     }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
\ No newline at end of file
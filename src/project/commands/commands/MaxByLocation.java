@@ -0,0 +1,58 @@
+package project.commands.commands;
+
+import project.products.product.Product;
+import project.products.product_collection.IProductCollection;
+import project.products.product_collection.SpatialIndex;
+
+/**
+ * Команда, выводящая информацию о товаре, владелец которого находится в локации с наибольшей суммой координат.
+ * @see SpatialIndex
+ * @see project.commands.command_map.CommandMap
+ */
+public class MaxByLocation implements ICommand {
+    private final IProductCollection productCollection;
+
+    /**
+     * Эта команда будет работать с товарами из переданной в конструктор коллекции.
+     * @param productCollection коллекция товаров.
+     */
+    public MaxByLocation(IProductCollection productCollection) {
+        this.productCollection = productCollection;
+    }
+
+    /**
+     * Выводит информацию о товаре с наибольшей суммой координат локации владельца (при равных суммах - с наибольшим
+     * номером). В случае отсутствия товаров с локацией владельца сообщает об этом пользователю.
+     * @param arguments массив аргументов команды (не имеет значения).
+     */
+    @Override
+    public void execute(String[] arguments) {
+        SpatialIndex index = productCollection.getSpatialIndex(SpatialIndex.Space.LOCATION);
+        if (index == null)
+            index = SpatialIndex.of(SpatialIndex.Space.LOCATION, productCollection);
+        Product product = index.maxBySum();
+        if (product == null)
+            System.out.println("Товаров с локацией владельца в списке нет.");
+        else
+            product.printInfo(0);
+    }
+
+    /**
+     * Возвращает описание команды в виде массива, содержащего одну строку с описанием. Используется в {@link Help}.
+     * @return массив строк.
+     */
+    @Override
+    public String[] description() {
+        return new String[]{"вывести информацию о товаре, владелец которого находится в локации с наибольшей суммой "
+                + "координат"};
+    }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
\ No newline at end of file
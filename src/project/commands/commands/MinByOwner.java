@@ -1,10 +1,9 @@
 package project.commands.commands;
 
-import project.products.product.Person;
 import project.products.product.Product;
 import project.products.product_collection.IProductCollection;
 
-import java.util.Iterator;
+import java.util.List;
 
 /**
  * Команда, выводящая информацию о товаре, первом в порядке сортировки по владельцу.
@@ -28,30 +27,21 @@ public class MinByOwner implements ICommand {
      */
     @Override
     public void execute(String[] arguments) {
-        Iterator<Product> iterator = productCollection.iterator();
-        if (iterator.hasNext()) {
-            Person minOwner = iterator.next().getOwner();
-            while (iterator.hasNext()) {
-                Person owner = iterator.next().getOwner();
-                if (minOwner == null) {
-                    if (owner != null)
-                        minOwner = owner;
-                } else if (owner != null && minOwner.compareTo(owner) > 0)
-                    minOwner = owner;
-            }
-            if (minOwner == null)
-                System.out.println("Нет товаров, имеющих владельцев.");
-            else {
-                boolean first = true;
-                for (Product product: productCollection)
-                    if (product.getOwner() == minOwner) {
-                        if (first) first = false;
-                        else System.out.println();
-                        product.printInfo(0);
-                    }
-            }
-        } else
+        if (productCollection.size() == 0) {
             System.out.println("Товаров в списке нет.");
+            return;
+        }
+        List<Product> products = productCollection.getMinByOwner();
+        if (products.isEmpty())
+            System.out.println("Нет товаров, имеющих владельцев.");
+        else {
+            boolean first = true;
+            for (Product product: products) {
+                if (first) first = false;
+                else System.out.println();
+                product.printInfo(0);
+            }
+        }
     }
 
     /**
@@ -62,4 +52,13 @@ public class MinByOwner implements ICommand {
     public String[] description() {
         return new String[]{"вывести информацию о товарах, имя владельца которых идёт первым в алфавитном порядке"};
     }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
\ No newline at end of file
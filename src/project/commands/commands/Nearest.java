@@ -0,0 +1,90 @@
+package project.commands.commands;
+
+import project.commands.CommandException;
+import project.products.product.Product;
+import project.products.product_collection.IProductCollection;
+import project.products.product_collection.SpatialIndex;
+
+import java.util.List;
+
+/**
+ * Команда, выводящая товары, ближайшие к точке по координатам товара или по локации владельца.
+ * @see SpatialIndex
+ * @see project.commands.command_map.CommandMap
+ */
+public class Nearest implements ICommand {
+    private final IProductCollection productCollection;
+
+    /**
+     * Эта команда будет работать с товарами из переданной в конструктор коллекции.
+     * @param productCollection коллекция товаров.
+     */
+    public Nearest(IProductCollection productCollection) {
+        this.productCollection = productCollection;
+    }
+
+    /**
+     * Выводит информацию о k товарах, ближайших к точке, в порядке удаления от неё, с расстоянием до каждого. Если
+     * коллекция не ведёт пространственный индекс, он строится на время выполнения команды.
+     * @param arguments массив аргументов команды: arguments[0] - пространство (coordinates или location),
+     *                  arguments[1] - число товаров k, затем координаты точки.
+     * @exception CommandException если аргументы отсутствуют или записаны некорректно.
+     */
+    @Override
+    public void execute(String[] arguments) throws CommandException {
+        SpatialIndex.Space space = arguments == null ? null : SpatialIndex.Space.byName(arguments[0]);
+        if (space == null)
+            throw new CommandException("Первый аргумент команды - пространство: coordinates или location.");
+        int dimensions = space.getDimensions();
+        if (arguments.length != 2 + dimensions)
+            throw new CommandException("После названия пространства " + space + " должны следовать число товаров и "
+                    + dimensions + " координаты точки.");
+        int count;
+        try {
+            count = Integer.parseInt(arguments[1]);
+        } catch (NumberFormatException e) {
+            count = -1;
+        }
+        if (count <= 0)
+            throw new CommandException("Число товаров - натуральное число.");
+        double[] point = new double[dimensions];
+        try {
+            for (int i = 0; i < dimensions; i++)
+                point[i] = Double.parseDouble(arguments[2 + i]);
+        } catch (NumberFormatException e) {
+            throw new CommandException("Координаты точки - числа.");
+        }
+        SpatialIndex index = productCollection.getSpatialIndex(space);
+        if (index == null)
+            index = SpatialIndex.of(space, productCollection);
+        List<Product> products = index.nearest(point, count);
+        if (products.isEmpty())
+            System.out.println("Товаров в списке нет.");
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0)
+                System.out.println();
+            System.out.println("Расстояние: " + index.distance(products.get(i), point));
+            products.get(i).printInfo(1);
+        }
+    }
+
+    /**
+     * Возвращает описание команды в виде массива строк: первые элементы - названия аргументов, последний - строка,
+     * описывающая команду. Используется в {@link Help}.
+     * @return массив строк.
+     */
+    @Override
+    public String[] description() {
+        return new String[]{"coordinates k x y | location k x y z",
+                "вывести k товаров, ближайших к точке по координатам (или по локации владельца)"};
+    }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
\ No newline at end of file
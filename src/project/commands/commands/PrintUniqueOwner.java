@@ -1,26 +1,36 @@
 package project.commands.commands;
 
 import project.products.product.Person;
-import project.products.product.Product;
 import project.products.product_collection.IProductCollection;
 
-import java.util.HashSet;
+import java.util.List;
 
 /**
  * Команда, выводящая список всех владельцев.
  * @see project.commands.command_map.CommandMap
  */
 public class PrintUniqueOwner implements ICommand {
+    IProductCollection productCollection;
+
+    /**
+     * Эта команда будет выводить владельцев товаров из переданной в конструктор коллекции.
+     * @param productCollection коллеция товаров.
+     */
+    public PrintUniqueOwner(IProductCollection productCollection) {
+        this.productCollection = productCollection;
+    }
+
     /**
      * Выводит имена и номера паспорта людей, являющихся владельцами тех или иных товаров.
      * @param arguments массив аргументов команды (не имеет значения).
      */
     @Override
     public void execute(String[] arguments) {
-        if (Person.getPersons().size() == 0)
+        List<Person> owners = productCollection.getOwners();
+        if (owners.size() == 0)
             System.out.println("Владельцев нет.");
         else
-            for (Person person: Person.getPersons())
+            for (Person person: owners)
                 System.out.println(person.toString());
     }
 
@@ -32,4 +42,13 @@ public class PrintUniqueOwner implements ICommand {
     public String[] description() {
         return new String[]{"вывести всех владельцев"};
     }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package project.commands.commands;
+
+import project.commands.CommandException;
+import project.products.product.Product;
+import project.products.product_collection.IProductCollection;
+import project.query.Field;
+import project.query.QueryException;
+import project.query.QueryParser;
+import project.query.QueryPlan;
+
+import java.util.List;
+
+/**
+ * Команда выборки товаров запросом с условием, порядком и ограничением числа товаров.
+ * @see QueryParser
+ * @see QueryPlan
+ * @see project.commands.command_map.CommandMap
+ */
+public class Query implements ICommand {
+    private final IProductCollection productCollection;
+
+    /**
+     * Эта команда будет отбирать товары переданной в конструктор коллекции.
+     * @param productCollection коллекция товаров.
+     */
+    public Query(IProductCollection productCollection) {
+        this.productCollection = productCollection;
+    }
+
+    /**
+     * Выполняет запрос и выводит отобранные товары: целиком или только поля из части select. Если запрос начинается со
+     * слова explain, выводит план его выполнения, не выполняя его. Слова запроса соединяются через один пробел, так что
+     * повторяющиеся пробелы внутри строк в кавычках не сохраняются.
+     * @param arguments слова запроса (см. {@link QueryParser}).
+     * @exception CommandException если запрос записан с ошибкой.
+     */
+    @Override
+    public void execute(String[] arguments) throws CommandException {
+        boolean explain = arguments != null && arguments[0].equalsIgnoreCase("explain");
+        String text = arguments == null ? "" : String.join(" ", arguments);
+        if (explain)
+            text = text.substring("explain".length());
+        project.query.Query query;
+        try {
+            query = QueryParser.parse(text);
+        } catch (QueryException e) {
+            throw new CommandException(e.getMessage());
+        }
+        QueryPlan plan = QueryPlan.plan(query, productCollection);
+        if (explain) {
+            System.out.println("План запроса:");
+            for (String line: plan.explain())
+                System.out.println(" " + line);
+            return;
+        }
+        List<Product> products = plan.execute();
+        List<Field> selection = query.getSelection();
+        for (int i = 0; i < products.size(); i++) {
+            if (selection.isEmpty()) {
+                if (i > 0)
+                    System.out.println();
+                products.get(i).printInfo(1);
+            } else
+                System.out.println(" " + row(products.get(i), selection));
+        }
+        System.out.println("Найдено товаров: " + products.size() + " (просмотрено " + plan.getExamined() + ").");
+    }
+
+    private static String row(Product product, List<Field> selection) {
+        StringBuilder builder = new StringBuilder();
+        for (Field field: selection) {
+            if (builder.length() > 0)
+                builder.append("; ");
+            Object value = field.get(product);
+            builder.append(field.getPath()).append(": ").append(value == null ? "-" : value);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Возвращает описание команды в виде массива строк: первые элементы - названия аргументов, последний - строка,
+     * описывающая команду. Используется в {@link Help}.
+     * @return массив строк.
+     */
+    @Override
+    public String[] description() {
+        return new String[]{"[explain] [select поля] [where условие] [order by поля] [limit N]",
+                "вывести товары, отобранные запросом, или план его выполнения"};
+    }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
\ No newline at end of file
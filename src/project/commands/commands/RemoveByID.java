@@ -46,4 +46,13 @@ public class RemoveByID implements ICommand {
     public String[] description() {
         return new String[]{"номер товара", "удалить элемент с заданным номером"};
     }
+
+    /**
+     * Команда изменяет коллекцию одним вызовом её метода.
+     * @return true.
+     */
+    @Override
+    public boolean isSingleOperation() {
+        return true;
+    }
 }
\ No newline at end of file
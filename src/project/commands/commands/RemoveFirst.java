@@ -23,7 +23,7 @@ public class RemoveFirst implements ICommand {
      */
     @Override
     public void execute(String[] arguments) {
-        if (productCollection.getProducts().poll() == null)
+        if (productCollection.removeFirst() == null)
             System.out.println("\nСписок и так был пуст.");
         else
             System.out.println("\nПервый товар удалён.");
@@ -37,4 +37,13 @@ public class RemoveFirst implements ICommand {
     public String[] description() {
         return new String[]{"удалить первый товар в списке"};
     }
+
+    /**
+     * Команда изменяет коллекцию одним вызовом её метода.
+     * @return true.
+     */
+    @Override
+    public boolean isSingleOperation() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -1,10 +1,12 @@
 package project.commands.commands;
 
+import project.ConsoleReader;
 import project.commands.CommandException;
 import project.products.product_collection.IProductCollection;
 import project.parsing.save.ISaver;
 
-import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Команда сохранения списка товаров в файл.
@@ -26,17 +28,22 @@ public class Save implements ICommand {
     }
 
     /**
-     * Сохраняет коллекцию товаров с файл. При возникновении ошибок, сообщает о них пользователю.
+     * Снимает снимок коллекции и сохраняет его в файл в фоне, не дожидаясь окончания записи. О завершении сохранения
+     * или об ошибке сообщает пользователю, запустившему команду, когда запись закончится.
      * @param arguments массив аргументов команды (не имеет значения).
      */
     @Override
     public void execute(String[] arguments) throws CommandException {
-        try {
-            saver.save(productCollection);
-            System.out.println("Коллекция сохранена.");
-        } catch (IOException e) {
-            throw new CommandException(e.getMessage());
-        }
+        Consumer<String> reporter = ConsoleReader.reporter();
+        saver.saveInBackground(productCollection).whenComplete((result, e) -> {
+            if (e == null)
+                reporter.accept("Коллекция сохранена.");
+            else {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                reporter.accept("Не удалось сохранить коллекцию: " + cause.getMessage());
+            }
+        });
+        System.out.println("Сохранение коллекции начато в фоне.");
     }
 
     /**
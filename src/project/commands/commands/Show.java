@@ -26,7 +26,7 @@ public class Show implements ICommand {
      */
     @Override
     public void execute(String[] arguments) {
-        if (productCollection.getProducts().size() == 0)
+        if (productCollection.size() == 0)
             System.out.println("Товаров нет.");
         else {
             System.out.println("Список товаров:");
@@ -47,4 +47,13 @@ public class Show implements ICommand {
     public String[] description() {
         return new String[]{"вывести список всех товаров"};
     }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
\ No newline at end of file
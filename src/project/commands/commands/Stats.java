@@ -0,0 +1,60 @@
+package project.commands.commands;
+
+import project.metrics.Metrics;
+import project.metrics.OperationStats;
+import project.parsing.save.FragmentCache;
+
+import java.util.List;
+
+/**
+ * Команда, выводящая статистику выполнения команд, загрузок и сохранений коллекции.
+ * @see Metrics
+ * @see project.commands.command_map.CommandMap
+ */
+public class Stats implements ICommand {
+    private static final String ROW = "%-26s %9s %7s %11s %10s %10s %11s %10s%n";
+
+    /**
+     * Выводит для каждой выполнявшейся операции число вызовов и ошибок и длительности (среднюю, медиану, 99-й и
+     * 99,9-й процентили, наибольшую) в микросекундах, затем объём данных, обработанных загрузками и сохранениями, и
+     * состояние кэша фрагментов сохранения.
+     * @param arguments массив аргументов команды (не имеет значения).
+     */
+    @Override
+    public void execute(String[] arguments) {
+        List<OperationStats> operations = Metrics.all();
+        System.out.printf(ROW, "Операция", "вызовов", "ошибок", "сред., мкс", "p50, мкс", "p99, мкс", "p99.9, мкс",
+                "макс, мкс");
+        for (OperationStats stats: operations)
+            if (stats.getInvocations() > 0)
+                System.out.printf(ROW, stats.getName(), stats.getInvocations(), stats.getErrors(),
+                        String.format("%.1f", stats.getMeanMicros()), stats.getP50Micros(), stats.getP99Micros(),
+                        stats.getP999Micros(), stats.getMaxMicros());
+        for (OperationStats stats: operations)
+            if (stats.getBytes() > 0 || stats.getProducts() > 0)
+                System.out.println(stats.getName() + ": обработано " + stats.getBytes() + " байт, "
+                        + stats.getProducts() + " товаров.");
+        FragmentCache cache = FragmentCache.getShared();
+        System.out.println("Кэш фрагментов сохранения: попаданий " + cache.getHits() + ", промахов "
+                + cache.getMisses() + ", вытеснено " + cache.getEvictions() + ", занято " + (cache.getSize() >> 10)
+                + " из " + (cache.getCapacity() >> 10) + " КБ.");
+    }
+
+    /**
+     * Возвращает описание команды в виде массива, содержащего одну строку с описанием. Используется в {@link Help}.
+     * @return массив строк.
+     */
+    @Override
+    public String[] description() {
+        return new String[]{"вывести статистику выполнения команд, загрузок и сохранений"};
+    }
+
+    /**
+     * Команда только читает коллекцию.
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
\ No newline at end of file
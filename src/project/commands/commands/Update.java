@@ -30,11 +30,10 @@ public class Update implements ICommand {
         if (arguments == null || arguments.length == 0)
             throw new CommandException("После этой команды должен следовать аргумент с номером товара.");
         try {
-            productCollection.getProductByID(Long.parseLong(arguments[0])).update();
+            if (!productCollection.updateProductByID(Long.parseLong(arguments[0])))
+                System.out.println("Товара с таким индексом не существует.");
         } catch (NumberFormatException e) {
             throw new CommandException("Аргумент номера товара - натуральное число.");
-        } catch (NullPointerException e) {
-            System.out.println("Товара с таким индексом не существует.");
         }
     }
 
@@ -47,4 +46,13 @@ public class Update implements ICommand {
     public String[] description() {
         return new String[]{"номер товара", "заменить товар с указанным номером новым"};
     }
+
+    /**
+     * Команда изменяет коллекцию одним вызовом её метода.
+     * @return true.
+     */
+    @Override
+    public boolean isSingleOperation() {
+        return true;
+    }
 }
\ No newline at end of file
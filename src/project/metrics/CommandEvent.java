@@ -0,0 +1,32 @@
+package project.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Событие JFR: выполнение команды. Длительность события - время выполнения самой команды, без ожидания блокировки
+ * коллекции.
+ * @see project.commands.command_map.CommandMap
+ */
+@Name("project.Command")
+@Label("Выполнение команды")
+@Category({"Project", "Команды"})
+@Description("Выполнение команды под блокировкой коллекции")
+public class CommandEvent extends jdk.jfr.Event {
+    @Label("Команда")
+    public String command;
+
+    @Label("Число аргументов")
+    public int arguments;
+
+    @Label("Длина аргументов")
+    @DataAmount(DataAmount.BYTES)
+    public int argumentsLength;
+
+    @Label("Ошибка")
+    @Description("Команда завершилась исключением")
+    public boolean failed;
+}
\ No newline at end of file
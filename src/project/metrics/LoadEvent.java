@@ -0,0 +1,32 @@
+package project.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Событие JFR: загрузка коллекции из файла в формате XML. Неудачная загрузка тоже записывается, с признаком
+ * {@link #failed}.
+ * @see project.parsing.load.Loader
+ */
+@Name("project.Load")
+@Label("Загрузка коллекции")
+@Category({"Project", "Файлы"})
+@Description("Чтение коллекции из файла: разбор тегов и построение товаров")
+public class LoadEvent extends jdk.jfr.Event {
+    @Label("Файл")
+    public String path;
+
+    @Label("Прочитано байтов")
+    @DataAmount
+    public long bytes;
+
+    @Label("Загружено товаров")
+    public long products;
+
+    @Label("Ошибка")
+    @Description("Загрузка завершилась исключением")
+    public boolean failed;
+}
\ No newline at end of file
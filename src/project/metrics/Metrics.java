@@ -0,0 +1,63 @@
+package project.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр статистики операций программы. Статистика операции создаётся при первом обращении и тогда же регистрируется
+ * на платформенном сервере MBean под именем {@value #DOMAIN}:type=Operation,name="название", так что её можно
+ * наблюдать по JMX, не останавливая программу. Её же выводит команда stats.
+ */
+public class Metrics {
+    /**
+     * Домен имён MBean программы.
+     */
+    public static final String DOMAIN = "project";
+
+    private static final ConcurrentHashMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    /**
+     * Возвращает статистику операции, создавая её при первом обращении.
+     * @param name название операции.
+     * @return статистика операции.
+     */
+    public static OperationStats get(String name) {
+        OperationStats stats = operations.get(name);
+        if (stats != null)
+            return stats;
+        return operations.computeIfAbsent(name, key -> {
+            OperationStats created = new OperationStats(key);
+            register(created);
+            return created;
+        });
+    }
+
+    /**
+     * @return статистика всех операций, упорядоченная по названию.
+     */
+    public static List<OperationStats> all() {
+        ArrayList<OperationStats> list = new ArrayList<>(operations.values());
+        list.sort(Comparator.comparing(OperationStats::getName));
+        return list;
+    }
+
+    /**
+     * Регистрирует статистику на платформенном сервере MBean. Статистика, которую зарегистрировать не удалось,
+     * по-прежнему ведётся и выводится командой stats.
+     */
+    private static void register(OperationStats stats) {
+        try {
+            ObjectName objectName =
+                    new ObjectName(DOMAIN + ":type=Operation,name=" + ObjectName.quote(stats.getName()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats, objectName);
+        } catch (JMException | SecurityException ignored) {
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+package project.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика одной операции: число выполнений и ошибок, распределение длительностей и объём обработанных данных.
+ * Счётчики - {@link LongAdder}, а длительности записываются в {@link LatencyHistogram}, поэтому учёт не требует
+ * блокировок, не выделяет памяти и почти не замедляет операцию даже при частых вызовах из многих потоков.
+ * @see Metrics
+ */
+public class OperationStats implements OperationStatsMBean {
+    private final String name;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder products = new LongAdder();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * Создаёт пустую статистику.
+     * @param name название операции.
+     */
+    public OperationStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return название операции.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Учитывает выполнение операции.
+     * @param nanos длительность выполнения в наносекундах.
+     */
+    public void record(long nanos) {
+        invocations.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        histogram.record(nanos);
+    }
+
+    /**
+     * Учитывает выполнение операции, завершившееся ошибкой. Длительность такого выполнения учитывается отдельно через
+     * {@link #record(long)}.
+     */
+    public void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Учитывает обработанные данные.
+     * @param bytes число байтов.
+     * @param products число товаров.
+     */
+    public void addProcessed(long bytes, long products) {
+        this.bytes.add(bytes);
+        this.products.add(products);
+    }
+
+    @Override
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long count = invocations.sum();
+        return count == 0 ? 0 : totalNanos.sum() / 1000.0 / count;
+    }
+
+    @Override
+    public long getP50Micros() {
+        return percentile(0.5);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public long getP999Micros() {
+        return percentile(0.999);
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return micros(maxNanos.get());
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getProducts() {
+        return products.sum();
+    }
+
+    @Override
+    public void reset() {
+        invocations.reset();
+        errors.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        bytes.reset();
+        products.reset();
+        histogram.reset();
+    }
+
+    /**
+     * Возвращает процентиль в микросекундах. Гистограмма даёт верхнюю границу корзины, которая может превышать
+     * наибольшее записанное значение, поэтому результат ограничивается им.
+     */
+    private long percentile(double quantile) {
+        return micros(Math.min(histogram.percentile(quantile), maxNanos.get()));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
\ No newline at end of file
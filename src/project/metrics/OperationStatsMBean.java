@@ -0,0 +1,58 @@
+package project.metrics;
+
+/**
+ * Интерфейс управления статистикой операции, через который она доступна по JMX (например, в jconsole). Длительности
+ * возвращаются в микросекундах.
+ * @see OperationStats
+ */
+public interface OperationStatsMBean {
+    /**
+     * @return число выполнений операции.
+     */
+    long getInvocations();
+
+    /**
+     * @return число выполнений, завершившихся ошибкой.
+     */
+    long getErrors();
+
+    /**
+     * @return средняя длительность выполнения.
+     */
+    double getMeanMicros();
+
+    /**
+     * @return медиана длительности выполнения.
+     */
+    long getP50Micros();
+
+    /**
+     * @return 99-й процентиль длительности выполнения.
+     */
+    long getP99Micros();
+
+    /**
+     * @return 99,9-й процентиль длительности выполнения.
+     */
+    long getP999Micros();
+
+    /**
+     * @return наибольшая длительность выполнения.
+     */
+    long getMaxMicros();
+
+    /**
+     * @return число обработанных байтов.
+     */
+    long getBytes();
+
+    /**
+     * @return число обработанных товаров.
+     */
+    long getProducts();
+
+    /**
+     * Обнуляет статистику.
+     */
+    void reset();
+}
\ No newline at end of file
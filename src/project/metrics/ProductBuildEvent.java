@@ -0,0 +1,24 @@
+package project.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Событие JFR: построение товара по тегу product при загрузке. Возникает для каждого товара, поэтому по умолчанию
+ * выключено; профиль project.jfc включает его с порогом, чтобы записывались только медленные товары.
+ * @see project.products.product_collection.ProductTagLoader
+ */
+@Name("project.ProductBuild")
+@Label("Построение товара")
+@Category({"Project", "Файлы"})
+@Description("Создание товара и его владельца по тегу product")
+@Enabled(false)
+@Threshold("1 ms")
+public class ProductBuildEvent extends jdk.jfr.Event {
+    @Label("Номер товара")
+    public long id;
+}
\ No newline at end of file
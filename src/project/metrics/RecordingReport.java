@@ -0,0 +1,220 @@
+package project.metrics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Сводка записи JFR по этапам работы программы. Для каждого этапа (загрузка, сохранение, разбор тега, построение
+ * товара, выполнение команды с конкретным названием) выводит число событий, суммарную и наибольшую длительность,
+ * медиану и 99-й процентиль, объём обработанных данных и память, выделенную потоком этапа за время его выполнения.
+ * Выделение памяти определяется по событиям jdk.ObjectAllocationSample или, на старых JVM,
+ * jdk.ObjectAllocationInNewTLAB и jdk.ObjectAllocationOutsideTLAB; память, выделенная во время вложенного этапа
+ * (например, разбора тега при загрузке), учитывается и в объемлющем. Отдельно выводится время пауз сборщика мусора,
+ * пришедшихся на этапы. События этапов, завершившихся ошибкой, сводятся отдельно, чтобы быстрые отказы не искажали
+ * распределение длительностей.
+ */
+public class RecordingReport {
+    private static final String PREFIX = "project.";
+    private static final String ROW = "%-34s %8s %12s %10s %10s %10s %12s %10s %12s %10s%n";
+
+    private final TreeMap<String, Phase> phases = new TreeMap<>();
+    private final HashMap<Long, List<Interval>> intervals = new HashMap<>();
+    private final HashMap<Long, List<Allocation>> allocations = new HashMap<>();
+    private final ArrayList<Interval> pauses = new ArrayList<>();
+
+    /**
+     * Читает запись и выводит сводку.
+     * @param args путь к файлу записи.
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.out.println("Использование: RecordingReport файл_записи.jfr");
+            System.exit(1);
+        }
+        RecordingReport report = new RecordingReport();
+        try {
+            report.read(args[0]);
+        } catch (IOException e) {
+            System.out.println("Не удалось прочитать запись: " + e.getMessage());
+            System.exit(1);
+        }
+        report.print();
+    }
+
+    private void read(String path) throws IOException {
+        try (RecordingFile recording = new RecordingFile(Paths.get(path))) {
+            while (recording.hasMoreEvents())
+                accept(recording.readEvent());
+        }
+    }
+
+    private void accept(RecordedEvent event) {
+        String name = event.getEventType().getName();
+        long start = nanos(event, true);
+        long end = nanos(event, false);
+        if (name.startsWith(PREFIX)) {
+            String key = event.getEventType().getLabel();
+            if (event.hasField("command"))
+                key += " " + event.getString("command");
+            if (event.hasField("failed") && event.getBoolean("failed"))
+                key += " (ошибка)";
+            Phase phase = phases.computeIfAbsent(key, Phase::new);
+            phase.add(end - start, field(event, "bytes"), field(event, "products"));
+            RecordedThread thread = event.getThread();
+            if (thread != null)
+                intervals.computeIfAbsent(thread.getJavaThreadId(), id -> new ArrayList<>())
+                        .add(new Interval(start, end, phase));
+        } else if (name.startsWith("jdk.ObjectAllocation")) {
+            long size = event.hasField("weight") ? event.getLong("weight")
+                    : event.hasField("tlabSize") ? event.getLong("tlabSize") : field(event, "allocationSize");
+            RecordedThread thread = event.getThread();
+            if (thread != null)
+                allocations.computeIfAbsent(thread.getJavaThreadId(), id -> new ArrayList<>())
+                        .add(new Allocation(start, size));
+        } else if (name.equals("jdk.GarbageCollection"))
+            pauses.add(new Interval(start, start + event.getDuration("sumOfPauses").toNanos(), null));
+    }
+
+    private void print() {
+        attributeAllocations();
+        attributePauses();
+        System.out.printf(ROW, "Этап", "событий", "всего, мс", "p50, мс", "p99, мс", "макс, мс", "байтов", "товаров",
+                "выделено", "GC, мс");
+        for (Phase phase: phases.values())
+            System.out.printf(ROW, phase.name, phase.count, millis(phase.totalNanos),
+                    millis(phase.percentile(0.5)), millis(phase.percentile(0.99)),
+                    millis(phase.maxNanos), phase.bytes, phase.products, amount(phase.allocated),
+                    millis(phase.pauseNanos));
+        if (phases.isEmpty())
+            System.out.println("В записи нет событий программы. Запустите запись с профилем project.jfc.");
+    }
+
+    /**
+     * Относит выделения памяти к этапам, выполнявшимся в том же потоке. Этапы одного потока вложены друг в друга,
+     * поэтому выделения и этапы просматриваются одним проходом по времени со стеком открытых этапов.
+     */
+    private void attributeAllocations() {
+        for (Map.Entry<Long, List<Allocation>> entry: allocations.entrySet()) {
+            List<Interval> threadIntervals = intervals.get(entry.getKey());
+            if (threadIntervals == null)
+                continue;
+            threadIntervals.sort(Comparator.comparingLong(interval -> interval.start));
+            List<Allocation> threadAllocations = entry.getValue();
+            threadAllocations.sort(Comparator.comparingLong(allocation -> allocation.time));
+            ArrayList<Interval> open = new ArrayList<>();
+            int next = 0;
+            for (Allocation allocation: threadAllocations) {
+                while (next < threadIntervals.size() && threadIntervals.get(next).start <= allocation.time)
+                    open.add(threadIntervals.get(next++));
+                open.removeIf(interval -> interval.end < allocation.time);
+                for (Interval interval: open)
+                    interval.phase.allocated += allocation.size;
+            }
+        }
+    }
+
+    /**
+     * Относит к каждому этапу время пауз сборщика мусора, пересекающихся с его событиями.
+     */
+    private void attributePauses() {
+        if (pauses.isEmpty())
+            return;
+        pauses.sort(Comparator.comparingLong(pause -> pause.start));
+        for (List<Interval> threadIntervals: intervals.values())
+            for (Interval interval: threadIntervals) {
+                Iterator<Interval> iterator = pauses.iterator();
+                while (iterator.hasNext()) {
+                    Interval pause = iterator.next();
+                    if (pause.start >= interval.end)
+                        break;
+                    long overlap = Math.min(pause.end, interval.end) - Math.max(pause.start, interval.start);
+                    if (overlap > 0)
+                        interval.phase.pauseNanos += overlap;
+                }
+            }
+    }
+
+    private static long nanos(RecordedEvent event, boolean start) {
+        Instant instant = start ? event.getStartTime() : event.getEndTime();
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    private static long field(RecordedEvent event, String name) {
+        return event.hasField(name) ? event.getLong(name) : 0;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+
+    private static String amount(long bytes) {
+        if (bytes < 10L << 10)
+            return bytes + " Б";
+        if (bytes < 10L << 20)
+            return (bytes >> 10) + " КБ";
+        return (bytes >> 20) + " МБ";
+    }
+
+    private static class Phase {
+        private final String name;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long bytes;
+        private long products;
+        private long allocated;
+        private long pauseNanos;
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        private void add(long nanos, long bytes, long products) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            histogram.record(nanos);
+            this.bytes += bytes;
+            this.products += products;
+        }
+
+        private long percentile(double quantile) {
+            return Math.min(histogram.percentile(quantile), maxNanos);
+        }
+    }
+
+    private static class Interval {
+        private final long start;
+        private final long end;
+        private final Phase phase;
+
+        private Interval(long start, long end, Phase phase) {
+            this.start = start;
+            this.end = end;
+            this.phase = phase;
+        }
+    }
+
+    private static class Allocation {
+        private final long time;
+        private final long size;
+
+        private Allocation(long time, long size) {
+            this.time = time;
+            this.size = size;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package project.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Событие JFR: сохранение коллекции в файл в формате XML. Неудачное сохранение тоже записывается, с признаком
+ * {@link #failed}.
+ * @see project.parsing.save.Saver
+ */
+@Name("project.Save")
+@Label("Сохранение коллекции")
+@Category({"Project", "Файлы"})
+@Description("Запись коллекции в файл, включая формирование тегов товаров")
+public class SaveEvent extends jdk.jfr.Event {
+    @Label("Файл")
+    public String path;
+
+    @Label("Записано байтов")
+    @DataAmount
+    public long bytes;
+
+    @Label("Сохранено товаров")
+    public long products;
+
+    @Label("Ошибка")
+    @Description("Сохранение завершилось исключением")
+    public boolean failed;
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package project.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Событие JFR: построение дерева одного тега верхнего уровня (обычно тега product) при загрузке. Возникает для каждого
+ * товара, поэтому по умолчанию выключено; профиль project.jfc включает его с порогом, чтобы записывались только
+ * медленные теги.
+ * @see project.parsing.tags.TagParser#parseOpened()
+ */
+@Name("project.TagParse")
+@Label("Разбор тега")
+@Category({"Project", "Файлы"})
+@Description("Построение дерева тега со всеми вложенными тегами")
+@Enabled(false)
+@Threshold("1 ms")
+public class TagParseEvent extends jdk.jfr.Event {
+    @Label("Тег")
+    public String tag;
+
+    @Label("Вложенных тегов")
+    public int nestedTags;
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+package project.parsing;
+
+import project.ConsoleReader;
+import project.parsing.load.LoadException;
+import project.products.product_collection.IProductCollection;
+
+import java.io.IOException;
+
+/**
+ * Преобразует файл коллекции из одного формата в другой, например из текстового в двоичный и обратно. Форматы
+ * определяются по расширениям файлов ({@link FileFormat#byPath(String)}) или задаются явно параметрами
+ * --from=формат и --to=формат.
+ */
+public class Converter {
+    /**
+     * Загружает коллекцию из исходного файла и сохраняет её в целевой.
+     * @param args путь к исходному файлу, путь к целевому файлу и, возможно, параметры --from и --to.
+     */
+    public static void main(String[] args) {
+        String source = null;
+        String target = null;
+        FileFormat from = null;
+        FileFormat to = null;
+        try {
+            for (String arg: args) {
+                if (arg.startsWith("--from="))
+                    from = FileFormat.byName(arg.substring("--from=".length()));
+                else if (arg.startsWith("--to="))
+                    to = FileFormat.byName(arg.substring("--to=".length()));
+                else if (source == null)
+                    source = arg;
+                else if (target == null)
+                    target = arg;
+                else
+                    throw new IllegalArgumentException("Лишний аргумент: " + arg + ".");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+        if (target == null) {
+            System.out.println("Использование: Converter исходный_файл целевой_файл [--from=формат] [--to=формат]");
+            System.exit(1);
+        }
+        if (from == null)
+            from = FileFormat.byPath(source);
+        if (to == null)
+            to = FileFormat.byPath(target);
+
+        ConsoleReader.init();
+        try {
+            IProductCollection productCollection = from.loader(source).load();
+            to.saver(target).save(productCollection);
+            System.out.println("Коллекция из " + productCollection.size() + " товаров сохранена в файл " + target + ".");
+        } catch (LoadException | IOException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+package project.parsing;
+
+import project.parsing.binary.BinaryFormat;
+import project.parsing.binary.BinaryLoader;
+import project.parsing.binary.BinarySaver;
+import project.parsing.load.ILoader;
+import project.parsing.load.Loader;
+import project.parsing.mapped.MappedLoader;
+import project.parsing.mapped.MappedSaver;
+import project.parsing.save.ISaver;
+import project.parsing.save.Saver;
+import project.parsing.segmented.SegmentedFormat;
+import project.parsing.segmented.SegmentedLoader;
+import project.parsing.segmented.SegmentedSaver;
+
+/**
+ * Перечисление форматов файла коллекции. Позволяет по пути к файлу или по названию формата получить подходящие
+ * объекты загрузки и сохранения.
+ * @see ILoader
+ * @see ISaver
+ */
+public enum FileFormat {
+    /**
+     * Текстовый формат XML ({@link Loader}, {@link Saver}).
+     */
+    TEXT,
+    /**
+     * Двоичный формат снимка ({@link BinaryLoader}, {@link BinarySaver}).
+     */
+    BINARY,
+    /**
+     * Хранилище из отображённых в память файлов ({@link MappedLoader}, {@link MappedSaver}).
+     */
+    MAPPED,
+    /**
+     * Сегментированный формат: манифест и файлы сегментов ({@link SegmentedLoader}, {@link SegmentedSaver}).
+     */
+    SEGMENTED;
+
+    /**
+     * Расширение файла записей хранилища из отображённых в память файлов.
+     */
+    public static final String MAPPED_EXTENSION = ".map";
+
+    /**
+     * Определяет формат по расширению файла: файлы с расширением {@link BinaryFormat#EXTENSION} считаются двоичными,
+     * с расширением {@link #MAPPED_EXTENSION} - хранилищами из отображённых в память файлов, с расширением
+     * {@link SegmentedFormat#EXTENSION} - манифестами сегментированного формата, остальные - текстовыми.
+     * @param path путь к файлу.
+     * @return формат файла.
+     */
+    public static FileFormat byPath(String path) {
+        String lowerCasePath = path.toLowerCase();
+        if (lowerCasePath.endsWith(BinaryFormat.EXTENSION))
+            return BINARY;
+        if (lowerCasePath.endsWith(MAPPED_EXTENSION))
+            return MAPPED;
+        if (lowerCasePath.endsWith(SegmentedFormat.EXTENSION))
+            return SEGMENTED;
+        return TEXT;
+    }
+
+    /**
+     * Возвращает формат по его названию без учёта регистра: text, binary, mapped или segmented.
+     * @param name название формата.
+     * @return формат.
+     * @exception IllegalArgumentException если формата с таким названием нет.
+     */
+    public static FileFormat byName(String name) {
+        for (FileFormat format: values())
+            if (format.name().equalsIgnoreCase(name))
+                return format;
+        throw new IllegalArgumentException("Неизвестный формат файла: " + name + ". Допустимы text, binary, mapped" +
+                " и segmented.");
+    }
+
+    /**
+     * Создаёт объект загрузки коллекции из файла этого формата.
+     * @param path путь к файлу.
+     * @return объект загрузки.
+     */
+    public ILoader loader(String path) {
+        switch (this) {
+            case BINARY:
+                return new BinaryLoader(path);
+            case MAPPED:
+                return new MappedLoader(path);
+            case SEGMENTED:
+                return new SegmentedLoader(path);
+            default:
+                return new Loader(path);
+        }
+    }
+
+    /**
+     * Создаёт объект сохранения коллекции в файл этого формата.
+     * @param path путь к файлу.
+     * @return объект сохранения.
+     */
+    public ISaver saver(String path) {
+        switch (this) {
+            case BINARY:
+                return new BinarySaver(path);
+            case MAPPED:
+                return new MappedSaver(path);
+            case SEGMENTED:
+                return new SegmentedSaver(path);
+            default:
+                return new Saver(path);
+        }
+    }
+}
\ No newline at end of file
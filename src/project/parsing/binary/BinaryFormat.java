@@ -0,0 +1,141 @@
+package project.parsing.binary;
+
+import project.products.product.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Описание двоичного формата снимка коллекции товаров. Файл начинается с сигнатуры и номера версии формата, за ними
+ * следуют:
+ * <ul>
+ *     <li>дата инициализации коллекции (номер дня от эпохи, long);</li>
+ *     <li>таблица локаций без повторений: количество, затем для каждой название, x (float), y (int) и z (long);</li>
+ *     <li>таблица владельцев без повторений: количество, затем для каждого номер паспорта, имя, масса (float),
+ *     признак наличия роста и рост (float), номер локации в таблице или -1;</li>
+ *     <li>товары в порядке коллекции: количество, затем для каждого наименование, координаты x (float) и y (double),
+ *     дата и время создания (номер дня и наносекунда дня, long), цена (double), порядковый номер единицы измерения
+ *     (byte, -1 - нет единицы измерения) и номер владельца в таблице или -1.</li>
+ * </ul>
+ * Строки записываются как длина в байтах (int) и байты в кодировке UTF-8. Числа записываются в порядке байтов
+ * {@link java.io.DataOutput}. Номера товаров, как и в текстовом формате, не сохраняются и назначаются при загрузке.
+ * @see BinarySaver
+ * @see BinaryLoader
+ */
+public class BinaryFormat {
+    /**
+     * Сигнатура файла: символы "PCOL".
+     */
+    public static final int MAGIC = 0x50434F4C;
+    /**
+     * Текущая версия формата.
+     */
+    public static final short VERSION = 1;
+    /**
+     * Расширение файлов в этом формате.
+     */
+    public static final String EXTENSION = ".bin";
+
+    private BinaryFormat() {}
+
+    /**
+     * Записывает строку в виде длины в байтах и байтов в кодировке UTF-8.
+     * @param output поток записи.
+     * @param string строка (не null).
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public static void writeString(DataOutput output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Читает строку, записанную методом {@link #writeString(DataOutput, String)}.
+     * @param input поток чтения.
+     * @return прочитанная строка.
+     * @throws IOException если произошла ошибка чтения, файл закончился или длина строки некорректна.
+     */
+    public static String readString(DataInput input) throws IOException {
+        int length = input.readInt();
+        if (length < 0)
+            throw new IOException("Некорректная длина строки: " + length + ".");
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Записывает товар вместе с данными владельца и его локации, без ссылок на таблицы. Используется там, где товары
+     * записываются по одному, например в журнале изменений.
+     * @param output поток записи.
+     * @param product товар.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public static void writeProduct(DataOutput output, Product product) throws IOException {
+        writeString(output, product.getName());
+        output.writeFloat(product.getCoordinates().getX());
+        output.writeDouble(product.getCoordinates().getY());
+        output.writeLong(product.getCreationDate().toLocalDate().toEpochDay());
+        output.writeLong(product.getCreationDate().toLocalTime().toNanoOfDay());
+        output.writeDouble(product.getPrice());
+        output.writeByte(product.getUnitOfMeasure() == null ? -1 : product.getUnitOfMeasure().ordinal());
+        Person owner = product.getOwner();
+        output.writeBoolean(owner != null);
+        if (owner == null)
+            return;
+        writeString(output, owner.getPassportID());
+        writeString(output, owner.getName());
+        output.writeFloat(owner.getWeight());
+        output.writeBoolean(owner.getHeight() != null);
+        output.writeFloat(owner.getHeight() == null ? 0 : owner.getHeight());
+        Location location = owner.getLocation();
+        output.writeBoolean(location != null);
+        if (location == null)
+            return;
+        writeString(output, location.getName());
+        output.writeFloat(location.getX());
+        output.writeInt(location.getY());
+        output.writeLong(location.getZ());
+    }
+
+    /**
+     * Читает товар, записанный методом {@link #writeProduct(DataOutput, Product)}. Владелец ищется или регистрируется
+     * в реестре. Товар получает новый номер.
+     * @param input поток чтения.
+     * @param personRegistry реестр людей.
+     * @return новый товар.
+     * @exception IllegalArgumentException если данные товара некорректны.
+     * @exception NotUniquePassportIDException если в реестре уже есть человек с номером паспорта владельца, но другими
+     * характеристиками.
+     * @throws IOException если произошла ошибка чтения или поток закончился раньше времени.
+     */
+    public static Product readProduct(DataInput input, PersonRegistry personRegistry) throws IOException {
+        String name = readString(input);
+        Coordinates coordinates = new Coordinates(input.readFloat(), input.readDouble());
+        LocalDateTime creationDate = LocalDateTime.of(
+                LocalDate.ofEpochDay(input.readLong()), LocalTime.ofNanoOfDay(input.readLong()));
+        double price = input.readDouble();
+        byte unit = input.readByte();
+        if (unit < -1 || unit >= UnitOfMeasure.values().length)
+            throw new IllegalArgumentException("Некорректная единица измерения товара.");
+        Person owner = null;
+        if (input.readBoolean()) {
+            String passportID = readString(input);
+            String ownerName = readString(input);
+            float weight = input.readFloat();
+            boolean hasHeight = input.readBoolean();
+            float height = input.readFloat();
+            Location location = input.readBoolean() ? Location.newLocation(
+                    readString(input), input.readFloat(), input.readInt(), input.readLong()) : null;
+            owner = personRegistry.newPerson(passportID, ownerName, hasHeight ? height : null, weight, location);
+        }
+        return new Product(name, coordinates, creationDate, price,
+                unit == -1 ? null : UnitOfMeasure.values()[unit], owner);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,140 @@
+package project.parsing.binary;
+
+import project.parsing.load.ILoader;
+import project.parsing.load.LoadException;
+import project.products.product.*;
+import project.products.product_collection.ProductCollection;
+
+import java.io.*;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Класс для чтения списка товаров из файла двоичного формата {@link BinaryFormat}.
+ */
+public class BinaryLoader implements ILoader {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final UnitOfMeasure[] UNITS = UnitOfMeasure.values();
+
+    private final String path;
+
+    /**
+     * Конструктор, позволяющий создать объект класса для работы с конкретным файлом.
+     * @param path путь к файлу для чтения.
+     */
+    public BinaryLoader(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Возвращает коллекцию товаров, созданную из файла, указанного в конструкторе.
+     * @return коллекция продуктов.
+     * @exception LoadException если файл не найден или имеет некорректное содержимое.
+     */
+    @Override
+    public ProductCollection load() {
+        return load(path);
+    }
+
+    /**
+     * Возвращает коллекцию товаров, созданную из файла по указанному пути.
+     * @param path файл для чтения.
+     * @return коллекция продуктов.
+     * @exception LoadException если файл не найден или имеет некорректное содержимое.
+     */
+    public static ProductCollection load(String path) {
+        File file = new File(path);
+        if (!file.exists())
+            throw new LoadException("Ошибка загрузки! Файл не найден.");
+        if (!file.canRead())
+            throw new LoadException("Ошибка загрузки! Нет прав на чтение файла.");
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            return read(input);
+        } catch (FileNotFoundException e) {
+            throw new LoadException("Ошибка загрузки! Файл не найден.");
+        } catch (EOFException e) {
+            throw new LoadException("Ошибка загрузки! Файл обрезан.");
+        } catch (IOException e) {
+            throw new LoadException("Ошибка загрузки! Не удалось прочитать файл.");
+        }
+    }
+
+    /**
+     * Читает снимок коллекции, записанный методом {@link BinarySaver#write(DataOutput,
+     * project.products.product_collection.IProductCollection)}.
+     * @param input поток чтения, стоящий в начале снимка.
+     * @return коллекция продуктов.
+     * @exception LoadException если сигнатура или версия формата не подходят или данные некорректны.
+     * @throws IOException если произошла ошибка чтения или поток закончился раньше времени.
+     */
+    public static ProductCollection read(DataInput input) throws IOException {
+        if (input.readInt() != BinaryFormat.MAGIC)
+            throw new LoadException("Ошибка загрузки! Файл не является двоичным снимком коллекции.");
+        short version = input.readShort();
+        if (version != BinaryFormat.VERSION)
+            throw new LoadException("Ошибка загрузки! Неподдерживаемая версия формата: " + version + ".");
+
+        ProductCollection productCollection = new ProductCollection();
+        try {
+            productCollection.setInitializationDate(LocalDate.ofEpochDay(input.readLong()));
+
+            Location[] locations = new Location[readCount(input)];
+            for (int i = 0; i < locations.length; i++)
+                locations[i] = Location.newLocation(
+                        BinaryFormat.readString(input), input.readFloat(), input.readInt(), input.readLong());
+
+            PersonRegistry personRegistry = productCollection.getPersonRegistry();
+            Person[] owners = new Person[readCount(input)];
+            for (int i = 0; i < owners.length; i++) {
+                String passportID = BinaryFormat.readString(input);
+                String name = BinaryFormat.readString(input);
+                float weight = input.readFloat();
+                boolean hasHeight = input.readBoolean();
+                float height = input.readFloat();
+                owners[i] = personRegistry.newPerson(passportID, name, hasHeight ? height : null, weight,
+                        element(locations, input.readInt()));
+            }
+
+            int productsNumber = readCount(input);
+            for (int i = 0; i < productsNumber; i++) {
+                String name = BinaryFormat.readString(input);
+                Coordinates coordinates = new Coordinates(input.readFloat(), input.readDouble());
+                LocalDateTime creationDate = LocalDateTime.of(
+                        LocalDate.ofEpochDay(input.readLong()), LocalTime.ofNanoOfDay(input.readLong()));
+                double price = input.readDouble();
+                UnitOfMeasure unitOfMeasure = element(UNITS, input.readByte());
+                productCollection.addProduct(new Product(
+                        name, coordinates, creationDate, price, unitOfMeasure, element(owners, input.readInt())));
+            }
+        } catch (NotUniquePassportIDException e) {
+            throw new LoadException("Ошибка загрузки! В таблице владельцев повторяется номер паспорта "
+                    + e.getPassportID() + ".");
+        } catch (IllegalArgumentException | NullPointerException | DateTimeException e) {
+            throw new LoadException("Ошибка загрузки! Файл содержит некорректные данные.");
+        }
+        return productCollection;
+    }
+
+    private static int readCount(DataInput input) throws IOException {
+        int count = input.readInt();
+        if (count < 0)
+            throw new LoadException("Ошибка загрузки! Файл содержит некорректные данные.");
+        return count;
+    }
+
+    /**
+     * Возвращает элемент таблицы по номеру, записанному в файле.
+     * @return элемент или null, если номер равен -1.
+     * @exception LoadException если номер выходит за пределы таблицы.
+     */
+    private static <T> T element(T[] table, int number) {
+        if (number == -1)
+            return null;
+        if (number < 0 || number >= table.length)
+            throw new LoadException("Ошибка загрузки! Файл содержит некорректные данные.");
+        return table[number];
+    }
+}
\ No newline at end of file
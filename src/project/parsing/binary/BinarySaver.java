@@ -0,0 +1,115 @@
+package project.parsing.binary;
+
+import project.parsing.save.ISaver;
+import project.products.product.Location;
+import project.products.product.Person;
+import project.products.product.Product;
+import project.products.product_collection.IProductCollection;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Класс для сохранения списка товаров в двоичном формате {@link BinaryFormat}. Каждый владелец и каждая локация
+ * записываются один раз, а товары ссылаются на них по номеру в таблице.
+ */
+public class BinarySaver implements ISaver {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private File file;
+
+    /**
+     * Конструктор, позволяющий создать объект класса для работы с конкретным файлом.
+     * @param path путь к файлу для записи.
+     */
+    public BinarySaver(String path) {
+        file = new File(path);
+    }
+
+    /**
+     * Сохраняет переданный список в файл.
+     * @param productCollection коллекция товаров.
+     * @throws IOException если файл не был найден или произошла ошибка при записи.
+     */
+    public void save(IProductCollection productCollection) throws IOException {
+        save(file, productCollection);
+    }
+
+    /**
+     * Сохраняет переданный список в указанный файл.
+     * @param file файл для сохранения коллекции.
+     * @param productCollection коллекция товаров.
+     * @throws IOException если файл не был найден или произошла ошибка при записи.
+     */
+    public static void save(File file, IProductCollection productCollection) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))) {
+            write(output, productCollection);
+        } catch (FileNotFoundException e) {
+            throw new FileNotFoundException("Ошибка при сохранении коллекции! Файл не найден.");
+        } catch (IOException e) {
+            throw new IOException("Ошибка при сохранении коллекции! Не удалось записать данные в файл.");
+        }
+    }
+
+    /**
+     * Записывает снимок коллекции: заголовок, дату инициализации, таблицы локаций и владельцев и товары.
+     * @param output поток записи.
+     * @param productCollection коллекция товаров.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public static void write(DataOutput output, IProductCollection productCollection) throws IOException {
+        ArrayList<Person> owners = new ArrayList<>();
+        HashMap<String, Integer> ownerNumbers = new HashMap<>();
+        ArrayList<Location> locations = new ArrayList<>();
+        HashMap<Location, Integer> locationNumbers = new HashMap<>();
+        for (Product product: productCollection) {
+            Person owner = product.getOwner();
+            if (owner == null || ownerNumbers.containsKey(owner.getPassportID()))
+                continue;
+            ownerNumbers.put(owner.getPassportID(), owners.size());
+            owners.add(owner);
+            Location location = owner.getLocation();
+            if (location != null && !locationNumbers.containsKey(location)) {
+                locationNumbers.put(location, locations.size());
+                locations.add(location);
+            }
+        }
+
+        output.writeInt(BinaryFormat.MAGIC);
+        output.writeShort(BinaryFormat.VERSION);
+        output.writeLong(LocalDate.parse(productCollection.getInitializationDataString()).toEpochDay());
+
+        output.writeInt(locations.size());
+        for (Location location: locations) {
+            BinaryFormat.writeString(output, location.getName());
+            output.writeFloat(location.getX());
+            output.writeInt(location.getY());
+            output.writeLong(location.getZ());
+        }
+
+        output.writeInt(owners.size());
+        for (Person owner: owners) {
+            BinaryFormat.writeString(output, owner.getPassportID());
+            BinaryFormat.writeString(output, owner.getName());
+            output.writeFloat(owner.getWeight());
+            output.writeBoolean(owner.getHeight() != null);
+            output.writeFloat(owner.getHeight() == null ? 0 : owner.getHeight());
+            output.writeInt(owner.getLocation() == null ? -1 : locationNumbers.get(owner.getLocation()));
+        }
+
+        output.writeInt(productCollection.size());
+        for (Product product: productCollection) {
+            BinaryFormat.writeString(output, product.getName());
+            output.writeFloat(product.getCoordinates().getX());
+            output.writeDouble(product.getCoordinates().getY());
+            output.writeLong(product.getCreationDate().toLocalDate().toEpochDay());
+            output.writeLong(product.getCreationDate().toLocalTime().toNanoOfDay());
+            output.writeDouble(product.getPrice());
+            output.writeByte(product.getUnitOfMeasure() == null ? -1 : product.getUnitOfMeasure().ordinal());
+            output.writeInt(product.getOwner() == null ? -1 : ownerNumbers.get(product.getOwner().getPassportID()));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,702 @@
+package project.parsing.journal;
+
+import project.parsing.FileFormat;
+import project.parsing.binary.BinaryFormat;
+import project.parsing.save.ISaver;
+import project.parsing.save.SaveQueue;
+import project.products.product.Location;
+import project.products.product.NotUniquePassportIDException;
+import project.products.product.Person;
+import project.products.product.Product;
+import project.products.product_collection.CollectionSnapshot;
+import project.products.product_collection.IProductCollection;
+import project.products.product_collection.LongHashMap;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений коллекции товаров, который ведётся рядом с файлом коллекции (снимком). Каждое изменение коллекции
+ * дописывается в конец журнала компактной двоичной записью, так что после сбоя изменения с последнего сохранения не
+ * теряются. Записи накапливаются в памяти, и каждая получает номер - позицию своего конца в журнале. Изменивший
+ * коллекцию поток ждёт ({@link #sync(long)}), пока его запись не окажется на диске: первый из ждущих записывает все
+ * накопленные к этому моменту записи и вызывает fsync, а потоки, добавившие записи за время этого вызова, ждут его
+ * окончания и следующий вызов делают одним на всех (групповая запись). Поэтому подтверждённое изменение переживает
+ * сбой, а число вызовов fsync при многих параллельных изменениях растёт медленнее числа изменений.
+ * <p>
+ * В режиме периодической записи потоки не ждут, а записи сбрасываются на диск фоновым потоком не реже чем раз в
+ * {@value #SYNC_INTERVAL_MILLIS} мс; при сбое теряются изменения последнего интервала.
+ * <p>
+ * Журнал состоит из сегментов - файлов с именем файла коллекции и суффиксом ".journal.N", где N - номер поколения.
+ * Каждый сегмент начинается записью BEGIN с отпечатком состояния коллекции и номерами её товаров: номера товаров
+ * не сохраняются между запусками, поэтому остальные записи сегмента ссылаются на товары по номерам того запуска, в
+ * котором они сделаны, а при восстановлении эти номера сопоставляются с новыми по порядку товаров. При запуске
+ * сегменты применяются к загруженному снимку по порядку; сегмент, отпечаток которого не совпадает с состоянием
+ * коллекции, пропускается, если с ним совпадает один из следующих сегментов (значит, снимок уже содержит его
+ * изменения), и откладывается в файл с суффиксом ".rejected" в противном случае. Оборванная или повреждённая
+ * последняя запись сегмента остаётся от сбоя во время записи и отрезается; повреждённая запись, за которой в сегменте
+ * есть ещё данные, означает порчу файла, и такой сегмент целиком откладывается, не применяясь.
+ * <p>
+ * Сохранение коллекции (команда save) и уплотнение журнала записывают новый снимок во временный файл и атомарно
+ * заменяют им старый, после чего удаляют сегменты, изменения которых вошли в снимок. Уплотнение запускается, когда
+ * текущий сегмент превышает {@value #COMPACTION_THRESHOLD} байт. И команда save, и уплотнение лишь начинают новый
+ * сегмент и снимают снимок коллекции, а записывают его в очереди фоновых сохранений ({@link SaveQueue}). Снимок в
+ * сегментированном формате записывается его собственным объектом сохранения: тот переписывает только изменённые
+ * сегменты и сам атомарно заменяет манифест.
+ * <p>
+ * Записи можно добавлять из нескольких потоков: каждая собирается в собственном буфере, и общим остаётся лишь её
+ * добавление в очередь на запись. Снимок снимается и новый сегмент начинается под исключительной блокировкой журнала
+ * ({@link #getLock()}), а изменения коллекции вместе с их записью выполняются под общей, так что каждое изменение
+ * попадает либо в снимок, либо в новый сегмент.
+ * @see JournaledProductCollection
+ */
+public class Journal implements ISaver, Closeable {
+    private static final byte BEGIN = 1;
+    private static final byte ADD = 2;
+    private static final byte UPDATE = 3;
+    private static final byte REMOVE = 4;
+    private static final byte CLEAR = 5;
+
+    private static final String SEGMENT_SUFFIX = ".journal.";
+    private static final String REJECTED_SUFFIX = ".rejected";
+    private static final int MAX_RECORD_SIZE = 1 << 26;
+    /**
+     * Наибольшее время в миллисекундах, которое запись может провести в памяти, прежде чем попасть на диск, в режиме
+     * периодической записи.
+     */
+    public static final long SYNC_INTERVAL_MILLIS = 100;
+    /**
+     * Размер сегмента в байтах, после которого журнал уплотняется.
+     */
+    public static final long COMPACTION_THRESHOLD = 4 << 20;
+
+    private final File snapshotFile;
+    private final FileFormat format;
+    private final ISaver snapshotSaver;
+    private final Object segmentLock = new Object();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final boolean periodicSync;
+    private long appended;
+    private volatile long durable;
+    private volatile IOException failure;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long generation;
+    private FileOutputStream segment;
+    private volatile long segmentSize;
+    private Thread syncThread;
+    private volatile boolean closed;
+
+    private Journal(File snapshotFile, FileFormat format, boolean periodicSync) {
+        this.snapshotFile = snapshotFile;
+        this.format = format;
+        this.periodicSync = periodicSync;
+        snapshotSaver = format == FileFormat.SEGMENTED ? format.saver(snapshotFile.getPath()) : null;
+    }
+
+    /**
+     * Применяет к коллекции, загруженной из снимка, изменения из сегментов журнала и начинает новый сегмент, в который
+     * будут записываться дальнейшие изменения. Сообщает пользователю о восстановленных и отложенных изменениях.
+     * @param path путь к файлу коллекции (снимку).
+     * @param format формат снимка; в нём же записываются новые снимки.
+     * @param productCollection коллекция, загруженная из снимка, или пустая коллекция, если снимка нет.
+     * @return журнал с групповой записью.
+     * @throws IOException если не удалось прочитать сегменты или создать новый.
+     */
+    public static Journal open(String path, FileFormat format, IProductCollection productCollection) throws IOException {
+        return open(path, format, productCollection, false);
+    }
+
+    /**
+     * Применяет к коллекции изменения из сегментов журнала и начинает новый сегмент, как
+     * {@link #open(String, FileFormat, IProductCollection)}, с выбором режима записи.
+     * @param path путь к файлу коллекции (снимку).
+     * @param format формат снимка; в нём же записываются новые снимки.
+     * @param productCollection коллекция, загруженная из снимка, или пустая коллекция, если снимка нет.
+     * @param periodicSync true, если записи сбрасываются на диск фоновым потоком раз в
+     *                     {@value #SYNC_INTERVAL_MILLIS} мс и изменения не ждут записи; false для групповой записи.
+     * @return журнал.
+     * @throws IOException если не удалось прочитать сегменты или создать новый.
+     */
+    public static Journal open(String path, FileFormat format, IProductCollection productCollection,
+                               boolean periodicSync) throws IOException {
+        Journal journal = new Journal(new File(path).getAbsoluteFile(), format, periodicSync);
+        TreeMap<Long, File> segments = journal.findSegments();
+        int replayed = 0;
+        ArrayList<File> segmentList = new ArrayList<>(segments.values());
+        for (int i = 0; i < segmentList.size(); i++) {
+            File segment = segmentList.get(i);
+            try {
+                Long fingerprint = readBeginFingerprint(segment);
+                long current = fingerprint(productCollection);
+                if (fingerprint == null)
+                    continue;
+                if (fingerprint != current) {
+                    if (laterSegmentMatches(segmentList, i + 1, current))
+                        continue;
+                    for (int j = i; j < segmentList.size(); j++)
+                        reject(segmentList.get(j));
+                    System.out.println("Журнал изменений не соответствует файлу коллекции; необработанные сегменты " +
+                            "журнала сохранены с суффиксом " + REJECTED_SUFFIX + ".");
+                    break;
+                }
+                replayed += replay(segment, productCollection);
+            } catch (JournalException e) {
+                for (int j = i; j < segmentList.size(); j++)
+                    reject(segmentList.get(j));
+                System.out.println("Ошибка при восстановлении изменений из журнала: " + e.getMessage() +
+                        " Необработанные сегменты журнала сохранены с суффиксом " + REJECTED_SUFFIX + ".");
+                break;
+            }
+        }
+        if (replayed > 0)
+            System.out.println("Из журнала восстановлено изменений: " + replayed + ".");
+
+        journal.generation = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        journal.openSegment(productCollection);
+        journal.flush();
+        journal.startSyncThread();
+        return journal;
+    }
+
+    /**
+     * Записывает добавление товара.
+     * @param product добавленный товар.
+     * @return номер записи для {@link #sync(long)}.
+     */
+    public long add(Product product) {
+        return endRecord(ADD, productRecord(product));
+    }
+
+    /**
+     * Записывает новые значения полей товара.
+     * @param product изменённый товар.
+     * @return номер записи для {@link #sync(long)}.
+     */
+    public long update(Product product) {
+        return endRecord(UPDATE, productRecord(product));
+    }
+
+    /**
+     * Записывает удаление товара.
+     * @param id номер удалённого товара.
+     * @return номер записи для {@link #sync(long)}.
+     */
+    public long remove(long id) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(8);
+        try {
+            new DataOutputStream(record).writeLong(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return endRecord(REMOVE, record.toByteArray());
+    }
+
+    /**
+     * Записывает удаление всех товаров.
+     * @return номер записи для {@link #sync(long)}.
+     */
+    public long clear() {
+        return endRecord(CLEAR, new byte[0]);
+    }
+
+    /**
+     * Ждёт, пока запись с указанным номером не окажется на диске. Если никто не записывает журнал, записывает все
+     * накопленные записи сам; иначе ждёт окончания текущей записи, после которой записи, добавленные за это время,
+     * записываются одним вызовом fsync. В режиме периодической записи сразу возвращается. Вызывающий поток не должен
+     * удерживать блокировку журнала, чтобы не задерживать изменения других потоков.
+     * @param ticket номер записи, возвращённый {@link #add}, {@link #update}, {@link #remove} или {@link #clear}.
+     * @throws IOException если журнал не удалось записать; после такой ошибки изменения больше не записываются.
+     */
+    public void sync(long ticket) throws IOException {
+        if (periodicSync)
+            return;
+        while (durable < ticket) {
+            synchronized (segmentLock) {
+                if (failure != null)
+                    throw new IOException(failure.getMessage(), failure);
+                if (durable < ticket)
+                    flush();
+            }
+        }
+    }
+
+    /**
+     * Возвращает блокировку журнала. Изменение коллекции и его запись выполняются под общей блокировкой (read lock),
+     * снятие снимка и начало нового сегмента - под исключительной. Исключительную блокировку нельзя взять, удерживая
+     * общую, поэтому {@link #compactIfNeeded} вызывается после её снятия.
+     * @return блокировка.
+     */
+    public ReadWriteLock getLock() {
+        return lock;
+    }
+
+    /**
+     * Сбрасывает на диск накопленные записи и дожидается их физической записи.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public void flush() throws IOException {
+        synchronized (segmentLock) {
+            if (failure != null)
+                throw new IOException(failure.getMessage(), failure);
+            byte[] bytes;
+            long end;
+            synchronized (pending) {
+                if (pending.size() == 0)
+                    return;
+                bytes = pending.toByteArray();
+                end = appended;
+                pending.reset();
+            }
+            try {
+                segment.write(bytes);
+                segment.getChannel().force(false);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            durable = end;
+        }
+    }
+
+    /**
+     * Сохраняет коллекцию в новый снимок и удаляет сегменты журнала, изменения которых в него вошли. Дожидается
+     * фоновых сохранений и уплотнений, начатых раньше.
+     * @param productCollection коллекция товаров.
+     * @throws IOException если не удалось записать снимок или начать новый сегмент.
+     */
+    @Override
+    public void save(IProductCollection productCollection) throws IOException {
+        SaveQueue.awaitAll();
+        CollectionSnapshot snapshot;
+        long firstKeptGeneration;
+        lock.writeLock().lock();
+        try {
+            snapshot = productCollection.snapshot();
+            rotate(snapshot);
+            firstKeptGeneration = generation;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        writeSnapshot(snapshot);
+        deleteSegmentsBefore(firstKeptGeneration);
+    }
+
+    /**
+     * Начинает новый сегмент журнала и ставит запись снимка коллекции в очередь фоновых сохранений. Пока снимок не
+     * записан, старые сегменты остаются на диске, так что сбой во время записи не теряет изменений. Используется
+     * командой save.
+     * @param productCollection коллекция товаров.
+     * @return результат, который завершится после записи снимка или с ошибкой {@link IOException}.
+     */
+    @Override
+    public CompletableFuture<Void> saveInBackground(IProductCollection productCollection) {
+        lock.writeLock().lock();
+        try {
+            CollectionSnapshot snapshot = productCollection.snapshot();
+            rotate(snapshot);
+            return writeInBackground(snapshot);
+        } catch (IOException e) {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Запускает уплотнение журнала, если текущий сегмент превысил {@value #COMPACTION_THRESHOLD} байт и в очереди
+     * фоновых сохранений нет невыполненных. Снимок коллекции снимается сразу, а записывается в фоне. Вызывающий поток
+     * не должен удерживать блокировку журнала.
+     * @param productCollection коллекция товаров.
+     */
+    public void compactIfNeeded(IProductCollection productCollection) {
+        if (segmentSize < COMPACTION_THRESHOLD || SaveQueue.isBusy())
+            return;
+        CompletableFuture<Void> written;
+        lock.writeLock().lock();
+        try {
+            if (segmentSize < COMPACTION_THRESHOLD)
+                return;
+            CollectionSnapshot snapshot = productCollection.snapshot();
+            rotate(snapshot);
+            written = writeInBackground(snapshot);
+        } catch (IOException e) {
+            System.out.println("\nНе удалось начать новый сегмент журнала: " + e.getMessage());
+            return;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        written.whenComplete((result, e) -> {
+            if (e != null)
+                System.out.println("\nНе удалось уплотнить журнал изменений: " + e.getCause().getMessage());
+        });
+    }
+
+    /**
+     * Ставит в очередь запись снимка и удаление сегментов, предшествующих текущему.
+     */
+    private CompletableFuture<Void> writeInBackground(CollectionSnapshot snapshot) {
+        long firstKeptGeneration = generation;
+        return SaveQueue.submit(() -> {
+            writeSnapshot(snapshot);
+            deleteSegmentsBefore(firstKeptGeneration);
+        });
+    }
+
+    /**
+     * Сбрасывает на диск накопленные записи и закрывает текущий сегмент.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        if (syncThread != null)
+            syncThread.interrupt();
+        synchronized (segmentLock) {
+            flush();
+            segment.close();
+        }
+    }
+
+    /**
+     * Вычисляет отпечаток состояния коллекции: число, зависящее от количества, порядка и значений полей товаров, но не
+     * от их номеров.
+     * @param productCollection коллекция товаров.
+     * @return отпечаток.
+     */
+    public static long fingerprint(IProductCollection productCollection) {
+        long hash = productCollection.size();
+        for (Product product: productCollection)
+            hash = 31 * hash + hash(product);
+        return hash;
+    }
+
+    private static long hash(Product product) {
+        long hash = product.getName().hashCode();
+        hash = 31 * hash + Float.hashCode(product.getCoordinates().getX());
+        hash = 31 * hash + Double.hashCode(product.getCoordinates().getY());
+        hash = 31 * hash + product.getCreationDate().hashCode();
+        hash = 31 * hash + Double.hashCode(product.getPrice());
+        hash = 31 * hash + (product.getUnitOfMeasure() == null ? 0 : product.getUnitOfMeasure().ordinal() + 1);
+        Person owner = product.getOwner();
+        if (owner == null)
+            return hash;
+        hash = 31 * hash + owner.getPassportID().hashCode();
+        hash = 31 * hash + owner.getName().hashCode();
+        hash = 31 * hash + Float.hashCode(owner.getWeight());
+        hash = 31 * hash + (owner.getHeight() == null ? 0 : Float.hashCode(owner.getHeight()));
+        Location location = owner.getLocation();
+        if (location == null)
+            return hash;
+        hash = 31 * hash + location.getName().hashCode();
+        hash = 31 * hash + Float.hashCode(location.getX());
+        hash = 31 * hash + location.getY();
+        return 31 * hash + Long.hashCode(location.getZ());
+    }
+
+    private TreeMap<Long, File> findSegments() {
+        TreeMap<Long, File> segments = new TreeMap<>();
+        String prefix = snapshotFile.getName() + SEGMENT_SUFFIX;
+        File[] files = snapshotFile.getParentFile().listFiles();
+        if (files == null)
+            return segments;
+        for (File file: files) {
+            if (!file.getName().startsWith(prefix))
+                continue;
+            try {
+                segments.put(Long.parseLong(file.getName().substring(prefix.length())), file);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return segments;
+    }
+
+    private File segmentFile(long generation) {
+        return new File(snapshotFile.getPath() + SEGMENT_SUFFIX + generation);
+    }
+
+    private void openSegment(IProductCollection productCollection) throws IOException {
+        segment = new FileOutputStream(segmentFile(generation));
+        segmentSize = 0;
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        DataOutputStream recordOutput = new DataOutputStream(record);
+        recordOutput.writeLong(fingerprint(productCollection));
+        ArrayList<long[]> runs = new ArrayList<>();
+        long[] run = null;
+        for (Product product: productCollection) {
+            if (run != null && product.getID() == run[0] + run[1])
+                run[1]++;
+            else
+                runs.add(run = new long[]{product.getID(), 1});
+        }
+        recordOutput.writeInt(runs.size());
+        for (long[] idRun: runs) {
+            recordOutput.writeLong(idRun[0]);
+            recordOutput.writeInt((int) idRun[1]);
+        }
+        endRecord(BEGIN, record.toByteArray());
+    }
+
+    /**
+     * Закрывает текущий сегмент и начинает следующий с записью BEGIN для снимка, который будет записан. Отпечаток и
+     * номера товаров берутся из снимка, а не из коллекции: иначе изменение, сделанное между снятием снимка и началом
+     * сегмента, попало бы в отпечаток, но не в снимок, и при запуске сегмент не совпал бы со снимком.
+     */
+    private void rotate(CollectionSnapshot snapshot) throws IOException {
+        synchronized (segmentLock) {
+            flush();
+            segment.close();
+            generation++;
+            openSegment(snapshot);
+            flush();
+        }
+    }
+
+    private void writeSnapshot(IProductCollection productCollection) throws IOException {
+        if (snapshotSaver != null) {
+            snapshotSaver.save(productCollection);
+            return;
+        }
+        File temporaryFile = new File(snapshotFile.getPath() + ".tmp");
+        format.saver(temporaryFile.getPath()).save(productCollection);
+        try (FileChannel channel = FileChannel.open(temporaryFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        try {
+            Files.move(temporaryFile.toPath(), snapshotFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteSegmentsBefore(long firstKeptGeneration) {
+        for (File file: findSegments().headMap(firstKeptGeneration).values())
+            if (!file.delete())
+                System.out.println("\nНе удалось удалить сегмент журнала " + file.getName() + ".");
+    }
+
+    private void startSyncThread() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                System.out.println("Ошибка записи журнала изменений: " + e.getMessage());
+            }
+        }, "journal-shutdown"));
+        if (!periodicSync)
+            return;
+        syncThread = new Thread(() -> {
+            while (!closed) {
+                try {
+                    Thread.sleep(SYNC_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    flush();
+                } catch (IOException e) {
+                    System.out.println("\nОшибка записи журнала изменений: " + e.getMessage());
+                }
+            }
+        }, "journal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    private static byte[] productRecord(Product product) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(128);
+        DataOutputStream recordOutput = new DataOutputStream(record);
+        try {
+            recordOutput.writeLong(product.getID());
+            BinaryFormat.writeProduct(recordOutput, product);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return record.toByteArray();
+    }
+
+    /**
+     * Обрамляет собранную запись длиной и контрольной суммой и добавляет её в очередь на запись.
+     * @return номер записи: позиция её конца среди всех записей журнала.
+     */
+    private long endRecord(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        synchronized (pending) {
+            DataOutputStream output = new DataOutputStream(pending);
+            try {
+                output.writeInt(payload.length);
+                output.writeByte(type);
+                output.write(payload);
+                output.writeInt((int) crc.getValue());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            segmentSize += payload.length + 9;
+            appended += payload.length + 9;
+            return appended;
+        }
+    }
+
+    private static void reject(File segment) {
+        File rejected = new File(segment.getPath() + REJECTED_SUFFIX);
+        if (!segment.renameTo(rejected))
+            System.out.println("Не удалось переименовать сегмент журнала " + segment.getName() + ".");
+    }
+
+    private static boolean laterSegmentMatches(ArrayList<File> segments, int from, long fingerprint) throws IOException {
+        for (int i = from; i < segments.size(); i++) {
+            Long segmentFingerprint;
+            try {
+                segmentFingerprint = readBeginFingerprint(segments.get(i));
+            } catch (JournalException e) {
+                continue;
+            }
+            if (segmentFingerprint != null && segmentFingerprint == fingerprint)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Возвращает отпечаток из записи BEGIN в начале сегмента.
+     * @return отпечаток или null, если сегмент пуст или его первая и единственная запись оборвана.
+     * @exception JournalException если первая запись повреждена, а за ней есть ещё данные.
+     */
+    private static Long readBeginFingerprint(File segment) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+            byte[] payload = readRecord(input, segment);
+            if (payload == null || payload[0] != BEGIN)
+                return null;
+            return new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1)).readLong();
+        }
+    }
+
+    /**
+     * Читает запись. Оборванная запись и повреждённая запись, за которой до конца сегмента идут только нулевые байты,
+     * считаются хвостом, оставшимся от сбоя во время записи.
+     * @return тип записи и её данные или null, если сегмент закончился или его хвост оборван либо повреждён.
+     * @exception JournalException если запись повреждена, а за ней в сегменте есть ещё данные.
+     */
+    private static byte[] readRecord(DataInputStream input, File segment) throws IOException {
+        try {
+            int length = input.readInt();
+            if (length >= 0 && length <= MAX_RECORD_SIZE) {
+                byte[] record = new byte[length + 1];
+                input.readFully(record);
+                CRC32 crc = new CRC32();
+                crc.update(record);
+                if (input.readInt() == (int) crc.getValue())
+                    return record;
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+        int next;
+        while ((next = input.read()) == 0);
+        if (next >= 0)
+            throw new JournalException("Сегмент " + segment.getName() + " повреждён: за повреждённой записью следуют " +
+                    "другие.");
+        return null;
+    }
+
+    /**
+     * Применяет записи сегмента к коллекции. Сначала читаются и проверяются все записи, так что повреждённый сегмент не
+     * применяется даже частично. Оборванный или повреждённый хвост сегмента, оставшийся после сбоя, отрезается.
+     * @return количество применённых изменений.
+     * @exception JournalException если сегмент повреждён или записи не соответствуют коллекции.
+     */
+    private static int replay(File segment, IProductCollection productCollection) throws IOException {
+        ArrayList<byte[]> records = new ArrayList<>();
+        long validLength = 0;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+            byte[] record;
+            while ((record = readRecord(input, segment)) != null) {
+                records.add(record);
+                validLength += record.length + 8;
+            }
+        }
+        LongHashMap<Long> ids = new LongHashMap<>();
+        int applied = 0;
+        for (byte[] record: records) {
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1));
+            try {
+                if (apply(record[0], data, productCollection, ids))
+                    applied++;
+            } catch (NotUniquePassportIDException | IllegalArgumentException | DateTimeException e) {
+                throw new JournalException("Некорректные данные товара в сегменте " + segment.getName() + ".");
+            }
+        }
+        if (validLength < segment.length()) {
+            try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+                file.setLength(validLength);
+            }
+            System.out.println("Последняя запись журнала была записана не полностью и отброшена.");
+        }
+        return applied;
+    }
+
+    /**
+     * Применяет одну запись.
+     * @return true, если запись описывает изменение коллекции.
+     */
+    private static boolean apply(byte type, DataInputStream data, IProductCollection productCollection,
+                                 LongHashMap<Long> ids) throws IOException {
+        switch (type) {
+            case BEGIN:
+                data.readLong();
+                Iterator<Product> products = productCollection.iterator();
+                int runs = data.readInt();
+                for (int i = 0; i < runs; i++) {
+                    long firstID = data.readLong();
+                    int length = data.readInt();
+                    for (long id = firstID; id < firstID + length; id++) {
+                        if (!products.hasNext())
+                            throw new JournalException("Количество товаров не совпадает с записанным в журнале.");
+                        ids.put(id, products.next().getID());
+                    }
+                }
+                return false;
+            case ADD:
+                long addedID = data.readLong();
+                Product product = BinaryFormat.readProduct(data, productCollection.getPersonRegistry());
+                productCollection.addProduct(product);
+                ids.put(addedID, product.getID());
+                return true;
+            case UPDATE:
+                Long updatedID = ids.get(data.readLong());
+                if (updatedID == null || !productCollection.updateProductByID(updatedID,
+                        BinaryFormat.readProduct(data, productCollection.getPersonRegistry())))
+                    throw new JournalException("Изменяемый товар не найден.");
+                return true;
+            case REMOVE:
+                Long removedID = ids.remove(data.readLong());
+                if (removedID == null || !productCollection.removeProductByID(removedID))
+                    throw new JournalException("Удаляемый товар не найден.");
+                return true;
+            case CLEAR:
+                productCollection.clear();
+                ids.clear();
+                return true;
+            default:
+                throw new JournalException("Неизвестный тип записи: " + type + ".");
+        }
+    }
+}
\ No newline at end of file
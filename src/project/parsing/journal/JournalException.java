@@ -0,0 +1,14 @@
+package project.parsing.journal;
+
+/**
+ * Исключение при восстановлении изменений из журнала: записи журнала повреждены или не соответствуют коллекции.
+ */
+public class JournalException extends RuntimeException {
+    /**
+     * Конструктор, создающий исключение с указанным сообщением.
+     * @param message сообщение ошибки.
+     */
+    public JournalException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,332 @@
+package project.parsing.journal;
+
+import project.parsing.tags.ParentTag;
+import project.products.product.Person;
+import project.products.product.PersonRegistry;
+import project.products.product.Product;
+import project.products.product_collection.CollectionSnapshot;
+import project.products.product_collection.IProductCollection;
+import project.products.product_collection.ProductAggregates;
+import project.products.product_collection.SpatialIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Коллекция товаров, записывающая каждое своё изменение в журнал. Все операции выполняются вложенной коллекцией.
+ * <p>
+ * Если вложенная коллекция потокобезопасна ({@link IProductCollection#isConcurrent()}), изменения разных товаров
+ * выполняются параллельно: изменение и его запись идут под общей блокировкой журнала ({@link Journal#getLock()}) и под
+ * одной из {@value #STRIPES} блокировок, выбираемой по номеру товара, так что записи об одном товаре следуют в
+ * журнале в порядке изменений, а общей для всех потоков остаётся лишь постановка записи в очередь журнала. Добавления
+ * вдобавок выполняются по одному: порядок записей о них должен совпадать с порядком товаров в коллекции, по которому
+ * журнал сопоставляет номера при восстановлении. Очистка, как и снятие снимка, идёт под исключительной блокировкой
+ * журнала. Изменения непотокобезопасной коллекции всегда выполняются под исключительной блокировкой.
+ * <p>
+ * Изменение возвращает управление только после того, как его запись окажется на диске ({@link Journal#sync(long)}).
+ * Записи ждут уже после снятия блокировок, так что за время одного вызова fsync другие потоки успевают добавить свои
+ * записи, и они сбрасываются на диск следующим вызовом вместе. Если журнал не удалось записать, изменение остаётся в
+ * коллекции, но метод бросает {@link UncheckedIOException}.
+ * <p>
+ * Новые значения товара пользователь вводит без блокировок, а применяются они к коллекции так же, как остальные
+ * изменения.
+ * @see Journal
+ */
+public class JournaledProductCollection implements IProductCollection {
+    private static final int STRIPES = 64;
+
+    private final IProductCollection productCollection;
+    private final Journal journal;
+    private final Lock changeLock;
+    private final Object addLock = new Object();
+    private final Object[] stripes = new Object[STRIPES];
+
+    /**
+     * Конструктор, оборачивающий коллекцию.
+     * @param productCollection коллекция товаров, изменения которой нужно записывать.
+     * @param journal журнал, открытый для этой коллекции.
+     */
+    public JournaledProductCollection(IProductCollection productCollection, Journal journal) {
+        this.productCollection = productCollection;
+        this.journal = journal;
+        changeLock = productCollection.isConcurrent() ? journal.getLock().readLock() : journal.getLock().writeLock();
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Object();
+    }
+
+    @Override
+    public boolean addProduct(Product product) {
+        long ticket;
+        changeLock.lock();
+        try {
+            synchronized (addLock) {
+                synchronized (stripe(product.getID())) {
+                    if (!productCollection.addProduct(product))
+                        return false;
+                    ticket = journal.add(product);
+                }
+            }
+        } finally {
+            changeLock.unlock();
+        }
+        sync(ticket);
+        journal.compactIfNeeded(productCollection);
+        return true;
+    }
+
+    @Override
+    public Product getFirst() {
+        return productCollection.getFirst();
+    }
+
+    /**
+     * Удаляет первый товар коллекции. Если первый товар одновременно удаляет или изменяет другой поток, удаляется
+     * первый товар после этого изменения.
+     * @return удалённый товар или null, если коллекция была пуста.
+     */
+    @Override
+    public Product removeFirst() {
+        Product product;
+        long ticket;
+        changeLock.lock();
+        try {
+            while (true) {
+                product = productCollection.getFirst();
+                if (product == null)
+                    return null;
+                long id = product.getID();
+                synchronized (stripe(id)) {
+                    if (productCollection.getProductByID(id) == product && productCollection.removeProductByID(id)) {
+                        ticket = journal.remove(id);
+                        break;
+                    }
+                }
+            }
+        } finally {
+            changeLock.unlock();
+        }
+        sync(ticket);
+        journal.compactIfNeeded(productCollection);
+        return product;
+    }
+
+    @Override
+    public Product getProductByID(long id) {
+        return productCollection.getProductByID(id);
+    }
+
+    @Override
+    public boolean removeProductByID(long id) {
+        long ticket;
+        changeLock.lock();
+        try {
+            synchronized (stripe(id)) {
+                if (!productCollection.removeProductByID(id))
+                    return false;
+                ticket = journal.remove(id);
+            }
+        } finally {
+            changeLock.unlock();
+        }
+        sync(ticket);
+        journal.compactIfNeeded(productCollection);
+        return true;
+    }
+
+    /**
+     * Запрашивает у пользователя новые значения полей товара с указанным номером. Значения вводятся в копию товара, а
+     * к коллекции применяются вместе с записью в журнал ({@link #updateProductByID(long, Product)}).
+     * @param id номер (ID) товара.
+     * @return true, если такой товар есть и не был удалён, пока вводились значения, иначе false.
+     */
+    @Override
+    public boolean updateProductByID(long id) {
+        Product product = productCollection.getProductByID(id);
+        if (product == null)
+            return false;
+        Product values = product.copy(id);
+        values.update(productCollection.getPersonRegistry());
+        return updateProductByID(id, values);
+    }
+
+    @Override
+    public boolean updateProductByID(long id, Product values) {
+        long ticket;
+        changeLock.lock();
+        try {
+            synchronized (stripe(id)) {
+                if (!productCollection.updateProductByID(id, values))
+                    return false;
+                ticket = journal.update(productCollection.getProductByID(id));
+            }
+        } finally {
+            changeLock.unlock();
+        }
+        sync(ticket);
+        journal.compactIfNeeded(productCollection);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        long ticket;
+        Lock lock = journal.getLock().writeLock();
+        lock.lock();
+        try {
+            productCollection.clear();
+            ticket = journal.clear();
+        } finally {
+            lock.unlock();
+        }
+        sync(ticket);
+    }
+
+    @Override
+    public Product getMaxByPrice() {
+        return productCollection.getMaxByPrice();
+    }
+
+    @Override
+    public Product getMaxByCoordinates() {
+        return productCollection.getMaxByCoordinates();
+    }
+
+    @Override
+    public List<Product> getMinByOwner() {
+        return productCollection.getMinByOwner();
+    }
+
+    @Override
+    public List<Person> getOwners() {
+        return productCollection.getOwners();
+    }
+
+    @Override
+    public Iterable<Product> getByPrice(double min, double max, boolean descending) {
+        return productCollection.getByPrice(min, max, descending);
+    }
+
+    @Override
+    public Collection<Product> getByOwner(String passportID) {
+        return productCollection.getByOwner(passportID);
+    }
+
+    @Override
+    public SpatialIndex getSpatialIndex(SpatialIndex.Space space) {
+        return productCollection.getSpatialIndex(space);
+    }
+
+    @Override
+    public ProductAggregates aggregate() {
+        return productCollection.aggregate();
+    }
+
+    @Override
+    public int size() {
+        return productCollection.size();
+    }
+
+    @Override
+    public PersonRegistry getPersonRegistry() {
+        return productCollection.getPersonRegistry();
+    }
+
+    @Override
+    public String getInitializationDataString() {
+        return productCollection.getInitializationDataString();
+    }
+
+    @Override
+    public long getModificationCount() {
+        return productCollection.getModificationCount();
+    }
+
+    @Override
+    public ParentTag getTag() {
+        return productCollection.getTag();
+    }
+
+    /**
+     * Возвращает снимок вложенной коллекции, снятый под исключительной блокировкой журнала: в него входят все
+     * записанные изменения и только они.
+     * @return снимок коллекции.
+     */
+    @Override
+    public CollectionSnapshot snapshot() {
+        Lock lock = journal.getLock().writeLock();
+        lock.lock();
+        try {
+            return productCollection.snapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return productCollection.isConcurrent();
+    }
+
+    @Override
+    public boolean keepsProducts() {
+        return productCollection.keepsProducts();
+    }
+
+    @Override
+    public Iterator<Product> iterator() {
+        Iterator<Product> iterator = productCollection.iterator();
+        return new Iterator<Product>() {
+            private Product current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Product next() {
+                return current = iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                if (current == null)
+                    throw new IllegalStateException();
+                long id = current.getID();
+                changeLock.lock();
+                try {
+                    synchronized (stripe(id)) {
+                        boolean present = productCollection.getProductByID(id) != null;
+                        iterator.remove();
+                        if (present)
+                            journal.remove(id);
+                    }
+                } finally {
+                    changeLock.unlock();
+                }
+                current = null;
+                journal.compactIfNeeded(productCollection);
+            }
+        };
+    }
+
+    private Object stripe(long id) {
+        return stripes[(int) (id ^ id >>> 32) & STRIPES - 1];
+    }
+
+    /**
+     * Дожидается записи изменения на диск.
+     * @exception UncheckedIOException если журнал не удалось записать.
+     */
+    private void sync(long ticket) {
+        try {
+            journal.sync(ticket);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Изменение не записано в журнал: " + e.getMessage(), e);
+        }
+    }
+}
\ No newline at end of file
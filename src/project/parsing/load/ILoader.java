@@ -0,0 +1,16 @@
+package project.parsing.load;
+
+import project.products.product_collection.IProductCollection;
+
+/**
+ * Класс, реализующий этот интерфейс, может загрузить список товаров из некоторого заранее определённого файла.
+ * @see project.parsing.save.ISaver
+ */
+public interface ILoader {
+    /**
+     * Загружает коллекцию товаров из файла.
+     * @return коллекция товаров.
+     * @exception LoadException если файл не найден или имеет некорректное содержимое.
+     */
+    IProductCollection load();
+}
\ No newline at end of file
@@ -1,46 +1,234 @@
 package project.parsing.load;
 
+import project.metrics.LoadEvent;
+import project.metrics.Metrics;
+import project.metrics.OperationStats;
 import project.parsing.tags.InvalidTagException;
-import project.products.product_collection.ProductCollection;
 import project.parsing.tags.ParentTag;
-import project.parsing.tags.TagMatcher;
+import project.parsing.tags.Tag;
+import project.parsing.tags.TagParser;
+import project.parsing.tags.TagReader;
+import project.parsing.tags.TextTag;
+import project.products.product_collection.ProductCollection;
+import project.products.product_collection.ProductTagLoader;
 
 import java.io.*;
-import java.util.Iterator;
+import java.nio.charset.StandardCharsets;
 
 /**
- * Класс для чтения списка товаров из файла формата XML.
+ * Класс для чтения списка товаров из файла формата XML. Файл читается потоково: в памяти одновременно находятся теги
+ * лишь одного товара, а сам товар создаётся сразу после того, как закрылся его тег. На многоядерных машинах большие
+ * файлы загружаются параллельно ({@link ParallelLoader}).
  */
-public class Loader {
+public class Loader implements ILoader {
+    private static final OperationStats stats = Metrics.get("Loader.load");
+
+    private final String path;
+
+    /**
+     * Конструктор, позволяющий создать объект класса для работы с конкретным файлом.
+     * @param path путь к файлу для чтения.
+     */
+    public Loader(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Возвращает коллекцию товаров, созданную из файла, указанного в конструкторе.
+     * @return коллекция продуктов.
+     * @exception LoadException если файл не найден или имеет некорректное содержимое.
+     */
+    @Override
+    public ProductCollection load() {
+        return load(path);
+    }
+
     /**
-     * Возвращает коллекцию товаров, созданную из файла по указанному пути.
+     * Возвращает коллекцию товаров, созданную из файла по указанному пути. Большие файлы на многоядерных машинах
+     * загружаются параллельно ({@link ParallelLoader}), если в куче хватает памяти для частей, находящихся в обработке,
+     * остальные - последовательно. Загрузка конвейером ({@link PipelinedLoader}) включается явно.
      * @param path файл для чтения.
      * @return коллекция продуктов.
      * @exception LoadException если файл не найден или имеет некорректное содержимое.
      */
     public static ProductCollection load(String path) {
+        return load(path, file -> {
+            if (ParallelLoader.isWorthwhile(file))
+                return ParallelLoader.load(file);
+            try (TagReader tagReader = new TagReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                return load(tagReader);
+            }
+        });
+    }
+
+    /**
+     * Проверяет доступность файла и загружает из него коллекцию указанным способом, превращая ошибки в
+     * {@link LoadException} с сообщением для пользователя. Загрузка учитывается в статистике {@link Metrics} и
+     * отмечается событием JFR {@link LoadEvent}.
+     */
+    static ProductCollection load(String path, FileParser fileParser) {
+        File file = new File(path);
+        LoadEvent event = new LoadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        ProductCollection productCollection = null;
         try {
-            File file = new File(path);
-            if (!file.exists())
-                throw new LoadException("Ошибка загрузки! Файл не найден.");
-            if (!file.canRead())
-                throw new LoadException("Ошибка загрузки! Нет прав на чтение файла.");
-            Iterator<String> iterator = new BufferedReader(new FileReader(file)).lines().iterator();
-            String result = "";
-            while (iterator.hasNext())
-                result += iterator.next() + "\n";
-            TagMatcher tagMatcher = new TagMatcher(result);
-            if (tagMatcher.findTag()) {
-                if (tagMatcher.haveTag())
-                    return new ProductCollection(new ParentTag(tagMatcher));
-                else
-                    throw new LoadException("Ошибка загрузки! Корневой тег не имеет должного содержимого.");
-            } else
-                throw new LoadException("Ошибка загрузки! Файл не содержит корневого тега.");
+            productCollection = parse(file, fileParser);
+            stats.addProcessed(file.length(), productCollection.size());
+            return productCollection;
+        } finally {
+            if (productCollection == null)
+                stats.recordError();
+            stats.record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = path;
+                event.failed = productCollection == null;
+                if (productCollection != null) {
+                    event.bytes = file.length();
+                    event.products = productCollection.size();
+                }
+                event.commit();
+            }
+        }
+    }
+
+    private static ProductCollection parse(File file, FileParser fileParser) {
+        if (!file.exists())
+            throw new LoadException("Ошибка загрузки! Файл не найден.");
+        if (!file.canRead())
+            throw new LoadException("Ошибка загрузки! Нет прав на чтение файла.");
+        try {
+            return fileParser.parse(file);
         } catch (FileNotFoundException e) {
             throw new LoadException("Ошибка загрузки! Файл не найден.");
+        } catch (IOException e) {
+            throw new LoadException("Ошибка загрузки! Не удалось прочитать файл.");
         } catch (InvalidTagException e) {
             throw new LoadException(e.getMessage());
         }
     }
+
+    /**
+     * Возвращает коллекцию товаров, созданную по событиям потокового анализатора. Корневой тег должен содержать теги
+     * initializationDate и products; товары из тега products добавляются в коллекцию по одному.
+     * @param tagReader источник событий, стоящий перед корневым тегом.
+     * @return коллекция продуктов.
+     * @exception LoadException если в тексте нет корневого тега или он пуст.
+     * @exception InvalidTagException если теги перекрываются, не закрыты или содержат некорректные данные.
+     * @throws IOException если произошла ошибка чтения.
+     */
+    public static ProductCollection load(TagReader tagReader) throws IOException {
+        return load(tagReader, Loader::readProducts);
+    }
+
+    /**
+     * Возвращает коллекцию товаров, созданную по событиям потокового анализатора; содержимое тега products читается
+     * указанным способом.
+     */
+    static ProductCollection load(TagReader tagReader, ProductsReader productsReader) throws IOException {
+        TagParser tagParser = new TagParser(tagReader);
+        if (!skipToBeginTag(tagReader))
+            throw new LoadException("Ошибка загрузки! Файл не содержит корневого тега.");
+        String rootName = tagReader.getName();
+
+        ProductCollection productCollection = new ProductCollection();
+        ProductTagLoader productTagLoader = new ProductTagLoader(productCollection);
+        String initializationDate = null;
+        boolean haveNestedTags = false;
+        boolean haveProducts = false;
+        while (nextNestedTag(tagReader, rootName)) {
+            haveNestedTags = true;
+            if (tagReader.getName().equals("products")) {
+                if (haveProducts)
+                    throw new InvalidTagException("ProductCollection", "Дублируется тег products.");
+                haveProducts = true;
+                productsReader.read(tagReader, productTagLoader);
+            } else {
+                Tag tag = tagParser.parseOpened();
+                if (tag instanceof TextTag && tag.getName().equals("initializationDate")) {
+                    if (initializationDate != null)
+                        throw new InvalidTagException("ProductCollection", "Дублируется тег initializationDate.");
+                    initializationDate = ((TextTag) tag).getContent();
+                }
+            }
+        }
+        if (!haveNestedTags)
+            throw new LoadException("Ошибка загрузки! Корневой тег не имеет должного содержимого.");
+        productCollection.setInitializationDate(ProductCollection.parseInitializationDate(initializationDate));
+        return productCollection;
+    }
+
+    /**
+     * Последовательно читает товары из тега products и добавляет их в коллекцию по одному.
+     * @param tagReader источник событий, стоящий на открывающем теге products; после чтения стоит сразу за закрывающим.
+     * @param productTagLoader объект, добавляющий товары в коллекцию.
+     * @exception InvalidTagException если теги перекрываются, не закрыты или содержат некорректные данные.
+     * @throws IOException если произошла ошибка чтения.
+     */
+    static void readProducts(TagReader tagReader, ProductTagLoader productTagLoader) throws IOException {
+        TagParser tagParser = new TagParser(tagReader);
+        while (nextNestedTag(tagReader, "products")) {
+            Tag tag = tagParser.parseOpened();
+            if (tag instanceof ParentTag && tag.getName().equals("product"))
+                productTagLoader.addProduct((ParentTag) tag);
+        }
+    }
+
+    private static boolean skipToBeginTag(TagReader tagReader) throws IOException {
+        TagReader.Event event;
+        while ((event = tagReader.next()) != TagReader.Event.END_OF_TEXT)
+            if (event == TagReader.Event.BEGIN_TAG)
+                return true;
+        return false;
+    }
+
+    /**
+     * Переходит к следующему тегу, вложенному в открытый тег с указанным именем.
+     * @return true, если источник стоит на открывающем вложенном теге; false, если открытый тег закрылся.
+     */
+    static boolean nextNestedTag(TagReader tagReader, String parentName) throws IOException {
+        while (true) {
+            switch (tagReader.next()) {
+                case BEGIN_TAG:
+                    return true;
+                case END_TAG:
+                    if (!tagReader.getName().equals(parentName))
+                        throw new InvalidTagException("Закрывающий тег </" + tagReader.getName()
+                                + "> не соответствует открытому тегу <" + parentName + ">.");
+                    return false;
+                case END_OF_TEXT:
+                    throw new InvalidTagException("Тег <" + parentName + "> не закрыт.");
+                case TEXT:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Способ чтения содержимого тега products.
+     */
+    interface ProductsReader {
+        /**
+         * Читает товары из тега products и добавляет их в коллекцию.
+         * @param tagReader источник событий, стоящий на открывающем теге products; после чтения должен стоять сразу за
+         *                  закрывающим.
+         * @param productTagLoader объект, добавляющий товары в коллекцию.
+         * @throws IOException если произошла ошибка чтения.
+         */
+        void read(TagReader tagReader, ProductTagLoader productTagLoader) throws IOException;
+    }
+
+    /**
+     * Способ загрузки коллекции из файла.
+     */
+    interface FileParser {
+        /**
+         * Загружает коллекцию из файла.
+         * @param file существующий файл, доступный для чтения.
+         * @return коллекция продуктов.
+         * @throws IOException если произошла ошибка чтения.
+         */
+        ProductCollection parse(File file) throws IOException;
+    }
 }
\ No newline at end of file
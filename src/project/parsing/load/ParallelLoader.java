@@ -0,0 +1,297 @@
+package project.parsing.load;
+
+import project.parsing.tags.InvalidTagException;
+import project.parsing.tags.ParentTag;
+import project.parsing.tags.Tag;
+import project.parsing.tags.TagParser;
+import project.parsing.tags.TagReader;
+import project.products.product.Product;
+import project.products.product_collection.ProductCollection;
+import project.products.product_collection.ProductTagLoader;
+import project.products.product_collection.ProductTagLoader.PreparedProduct;
+
+import java.io.CharArrayReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Параллельная загрузка коллекции товаров из файла формата XML. Файл читается потоково, как в {@link Loader}; по мере
+ * чтения содержимое тега products делится на части по границам тегов product, и части разбираются, а товары из них
+ * строятся в потоках {@link ForkJoinPool}. Одновременно в обработке находится не больше {@link #MAX_CHUNKS_IN_FLIGHT}
+ * частей, поэтому объём занятой загрузкой памяти, кроме самой коллекции, не зависит от размера файла. Владельцы товаров
+ * регистрируются, а товары добавляются в коллекцию в одном потоке в порядке следования в файле, так что порядок
+ * товаров, сообщения об ошибках и разрешение конфликтов номеров паспортов те же, что и при последовательной загрузке.
+ * Номера товарам назначаются подряд в порядке следования в файле.
+ * <p>
+ * Границей частей считается тег product, с которого начинается строка после закрывающего тега. Если какая-то часть не
+ * разбирается как последовательность целых тегов (например, граница попала внутрь значения или файл содержит ошибку)
+ * или тег products не закрыт, товары предыдущих частей добавляются в коллекцию, а остаток тега products, начиная с этой
+ * части, читается последовательно, как в {@link Loader}, и ошибки сообщаются так же.
+ * @see ProductTagLoader#prepare(long, ParentTag)
+ */
+public class ParallelLoader {
+    /**
+     * Размер части содержимого тега products в символах, после которого часть заканчивается на ближайшей границе.
+     */
+    public static final int CHUNK_SIZE = 1 << 18;
+    /**
+     * Наибольшее число частей, которые одновременно разбираются, строятся или ждут добавления в коллекцию.
+     */
+    public static final int MAX_CHUNKS_IN_FLIGHT = ForkJoinPool.getCommonPoolParallelism() * 2 + 2;
+    /**
+     * Оценка памяти в байтах, которую занимает один символ части вместе с деревом тегов и построенными товарами.
+     */
+    private static final int BYTES_PER_CHAR = 16;
+    private static final String PRODUCTS_END = "</products>";
+    private static final String PRODUCT_BEGIN = "<product";
+
+    private ParallelLoader() {
+    }
+
+    /**
+     * Проверяет, имеет ли смысл загружать файл параллельно: доступно больше одного процессора, файл достаточно велик,
+     * чтобы разделиться хотя бы на две части, а части, находящиеся в обработке одновременно, займут не больше половины
+     * свободной памяти кучи.
+     * @param file файл коллекции.
+     * @return true, если стоит использовать {@link #load(File)}.
+     */
+    public static boolean isWorthwhile(File file) {
+        Runtime runtime = Runtime.getRuntime();
+        long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return runtime.availableProcessors() > 1 && file.length() >= 2L * CHUNK_SIZE
+                && (long) MAX_CHUNKS_IN_FLIGHT * CHUNK_SIZE * BYTES_PER_CHAR <= freeHeap / 2;
+    }
+
+    /**
+     * Возвращает коллекцию товаров, созданную из файла.
+     * @param file файл для чтения.
+     * @return коллекция продуктов.
+     * @exception LoadException если в тексте нет корневого тега или он пуст.
+     * @exception InvalidTagException если теги перекрываются, не закрыты или содержат некорректные данные.
+     * @throws IOException если произошла ошибка чтения.
+     */
+    public static ProductCollection load(File file) throws IOException {
+        InputStreamReader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+        try (TagReader tagReader = new TagReader(reader)) {
+            return load(tagReader);
+        }
+    }
+
+    /**
+     * Возвращает коллекцию товаров, созданную по событиям потокового анализатора.
+     * @param tagReader источник событий, стоящий перед корневым тегом.
+     * @return коллекция продуктов.
+     * @exception LoadException если в тексте нет корневого тега или он пуст.
+     * @exception InvalidTagException если теги перекрываются, не закрыты или содержат некорректные данные.
+     * @throws IOException если произошла ошибка чтения.
+     */
+    public static ProductCollection load(TagReader tagReader) throws IOException {
+        return Loader.load(tagReader, new ParallelLoader()::readProducts);
+    }
+
+    /**
+     * Читает содержимое тега products частями. Часть отправляется на разбор, как только прочитано не меньше
+     * {@link #CHUNK_SIZE} символов и найдена граница; когда в обработке {@link #MAX_CHUNKS_IN_FLIGHT} частей, чтение
+     * ждёт, пока товары первой из них будут добавлены в коллекцию.
+     */
+    private void readProducts(TagReader tagReader, ProductTagLoader productTagLoader) throws IOException {
+        ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+        char[] window = new char[2 * CHUNK_SIZE];
+        int length = 0;
+        int scanned = 0;
+        while (true) {
+            if (length == window.length)
+                window = Arrays.copyOf(window, window.length * 2);
+            int read = tagReader.readRaw(window, length, window.length - length);
+            if (read < 0) {
+                while (!chunks.isEmpty() && addFirst(chunks, productTagLoader));
+                readSequentially(tagReader, productTagLoader, chunks, Arrays.copyOf(window, length));
+                return;
+            }
+            length += read;
+            int end = indexOf(window, PRODUCTS_END, Math.max(0, scanned - PRODUCTS_END.length() + 1), length);
+            if (end >= 0) {
+                tagReader.unread(window, end, length - end);
+                chunks.add(new Chunk(Arrays.copyOf(window, end)));
+                break;
+            }
+            scanned = length;
+            int boundary = length < CHUNK_SIZE ? -1 : lastBoundary(window, length);
+            if (boundary <= 0)
+                continue;
+            chunks.add(new Chunk(Arrays.copyOf(window, boundary)));
+            System.arraycopy(window, boundary, window, 0, length - boundary);
+            length -= boundary;
+            scanned = length;
+            while (chunks.size() >= MAX_CHUNKS_IN_FLIGHT)
+                if (!addFirst(chunks, productTagLoader)) {
+                    readSequentially(tagReader, productTagLoader, chunks, Arrays.copyOf(window, length));
+                    return;
+                }
+        }
+        while (!chunks.isEmpty())
+            if (!addFirst(chunks, productTagLoader)) {
+                readSequentially(tagReader, productTagLoader, chunks, new char[0]);
+                return;
+            }
+        Loader.nextNestedTag(tagReader, "products");
+    }
+
+    /**
+     * Запускает построение товаров для первых разобранных частей, ждёт, пока будут построены товары первой части, и
+     * добавляет их в коллекцию. Номера товаров резервируются в порядке частей.
+     * @return false, если первая часть не разбирается отдельно от остального текста; тогда очередь не изменяется.
+     */
+    private static boolean addFirst(ArrayDeque<Chunk> chunks, ProductTagLoader productTagLoader) {
+        Chunk first = chunks.peekFirst();
+        for (Chunk chunk: chunks) {
+            if (chunk.building != null)
+                continue;
+            if (chunk != first && !chunk.parsing.isDone() || !chunk.startBuilding())
+                break;
+        }
+        if (first.building == null)
+            return false;
+        chunks.pollFirst();
+        for (PreparedProduct preparedProduct: first.building.join())
+            productTagLoader.addProduct(preparedProduct);
+        return true;
+    }
+
+    /**
+     * Возвращает текст необработанных частей и ещё не поделённый остаток в анализатор и дочитывает тег products
+     * последовательно.
+     */
+    private static void readSequentially(TagReader tagReader, ProductTagLoader productTagLoader,
+                                         ArrayDeque<Chunk> chunks, char[] rest) throws IOException {
+        int length = rest.length;
+        for (Chunk chunk: chunks) {
+            chunk.parsing.cancel(false);
+            length += chunk.text.length;
+        }
+        char[] text = new char[length];
+        int position = 0;
+        for (Chunk chunk: chunks) {
+            System.arraycopy(chunk.text, 0, text, position, chunk.text.length);
+            position += chunk.text.length;
+        }
+        System.arraycopy(rest, 0, text, position, rest.length);
+        chunks.clear();
+        tagReader.unread(text, 0, text.length);
+        Loader.readProducts(tagReader, productTagLoader);
+    }
+
+    /**
+     * Ищет с конца текста открывающий тег product, перед которым в той же строке нет ничего, кроме пробелов, а
+     * предыдущая непустая строка заканчивается символом '&gt;'.
+     * @return позиция тега или -1, если такого нет.
+     */
+    private static int lastBoundary(char[] text, int length) {
+        for (int i = length - PRODUCT_BEGIN.length() - 1; i > 0; i--) {
+            if (text[i] != '<' || !startsWith(text, i, PRODUCT_BEGIN))
+                continue;
+            char next = text[i + PRODUCT_BEGIN.length()];
+            if (!(next == '>' || Character.isWhitespace(next)))
+                continue;
+            int j = i - 1;
+            boolean newLine = false;
+            while (j >= 0 && Character.isWhitespace(text[j]))
+                newLine |= text[j--] == '\n';
+            if (newLine && j >= 0 && text[j] == '>')
+                return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(char[] text, String string, int from, int to) {
+        int last = to - string.length();
+        for (int i = from; i <= last; i++)
+            if (text[i] == string.charAt(0) && startsWith(text, i, string))
+                return i;
+        return -1;
+    }
+
+    private static boolean startsWith(char[] text, int position, String string) {
+        for (int j = 1; j < string.length(); j++)
+            if (text[position + j] != string.charAt(j))
+                return false;
+        return true;
+    }
+
+    /**
+     * Разбирает текст части в теги product.
+     * @return теги или null, если текст не разбирается как последовательность целых тегов.
+     */
+    private static List<ParentTag> parseTags(char[] text) {
+        List<ParentTag> tags = new ArrayList<>();
+        TagReader tagReader = new TagReader(new CharArrayReader(text));
+        TagParser tagParser = new TagParser(tagReader);
+        try {
+            while (true) {
+                switch (tagReader.next()) {
+                    case BEGIN_TAG:
+                        Tag tag = tagParser.parseOpened();
+                        if (tag instanceof ParentTag && tag.getName().equals("product"))
+                            tags.add((ParentTag) tag);
+                        break;
+                    case TEXT:
+                        if (!tagReader.getText().trim().isEmpty())
+                            return null;
+                        break;
+                    case END_TAG:
+                        return null;
+                    case END_OF_TEXT:
+                        return tags;
+                }
+            }
+        } catch (InvalidTagException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Часть содержимого тега products. Разбор её текста запускается сразу при создании, а построение товаров - после
+     * того, как зарезервированы их номера.
+     */
+    private static class Chunk {
+        private char[] text;
+        private final ForkJoinTask<List<ParentTag>> parsing;
+        private ForkJoinTask<List<PreparedProduct>> building;
+
+        private Chunk(char[] text) {
+            this.text = text;
+            parsing = ForkJoinPool.commonPool().submit(() -> parseTags(text));
+        }
+
+        /**
+         * Ждёт окончания разбора, резервирует номера товаров и запускает их построение.
+         * @return false, если текст части не разбирается отдельно от остального текста.
+         */
+        private boolean startBuilding() {
+            List<ParentTag> productTags = parsing.join();
+            if (productTags == null)
+                return false;
+            long firstID = Product.reserveIDs(productTags.size());
+            text = null;
+            building = ForkJoinPool.commonPool().submit(() -> {
+                List<PreparedProduct> preparedProducts = new ArrayList<>(productTags.size());
+                for (int i = 0; i < productTags.size(); i++)
+                    preparedProducts.add(ProductTagLoader.prepare(firstID + i, productTags.get(i)));
+                return preparedProducts;
+            });
+            return true;
+        }
+    }
+}
\ No newline at end of file
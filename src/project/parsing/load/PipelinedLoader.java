@@ -0,0 +1,587 @@
+package project.parsing.load;
+
+import project.parsing.tags.ParentTag;
+import project.parsing.tags.Tag;
+import project.parsing.tags.TagParser;
+import project.parsing.tags.TagReader;
+import project.products.product_collection.ProductCollection;
+import project.products.product_collection.ProductTagLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузка коллекции товаров из файла формата XML конвейером из трёх этапов, работающих в разных потоках:
+ * <ol>
+ *     <li>чтение - файл читается через {@link FileChannel} блоками по {@value #BUFFER_SIZE} байт в прямые буферы;</li>
+ *     <li>разбор - байты декодируются из UTF-8, и по ним строятся теги product (поток, вызвавший загрузку);</li>
+ *     <li>создание товаров - по тегам создаются товары и владельцы, и товары добавляются в коллекцию.</li>
+ * </ol>
+ * Этапы передают друг другу блоки и пачки по {@value #BATCH_SIZE} тегов через очереди ограниченной длины
+ * {@value #QUEUE_CAPACITY}, так что чтение с диска, декодирование и создание объектов идут одновременно, а в памяти
+ * находится лишь несколько блоков и пачек. Товары добавляются в коллекцию в порядке следования в файле одним потоком,
+ * поэтому результат, сообщения об ошибках и разрешение конфликтов номеров паспортов те же, что и у {@link Loader}.
+ * <p>
+ * Для каждого этапа замеряется время работы и время ожидания соседних этапов, для каждой очереди - её длина; по этим
+ * данным ({@link #getStatistics()}) видно, какой этап ограничивает скорость загрузки. Конвейер предназначен для таких
+ * замеров и включается явно (параметр --load-stats); {@link Loader} его не использует.
+ * <p>
+ * Ошибка любого этапа, в том числе {@link Error}, прерывает загрузку и выбрасывается в потоке, вызвавшем её.
+ */
+public class PipelinedLoader implements ILoader {
+    /**
+     * Размер блока чтения в байтах.
+     */
+    public static final int BUFFER_SIZE = 1 << 20;
+    /**
+     * Наибольшая длина очередей между этапами.
+     */
+    public static final int QUEUE_CAPACITY = 4;
+    /**
+     * Количество тегов product в одной пачке.
+     */
+    public static final int BATCH_SIZE = 256;
+    /**
+     * Период в миллисекундах, с которым этап разбора, ожидающий места в очереди, проверяет, жив ли поток создания
+     * товаров.
+     */
+    private static final long LIVENESS_CHECK_MILLIS = 100;
+
+    private static final ByteBuffer END_OF_FILE = ByteBuffer.allocate(0);
+    private static final List<ParentTag> END_OF_PRODUCTS = new ArrayList<>(0);
+
+    private final String path;
+    private Statistics statistics;
+
+    /**
+     * Конструктор, позволяющий создать объект класса для работы с конкретным файлом.
+     * @param path путь к файлу для чтения.
+     */
+    public PipelinedLoader(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Возвращает коллекцию товаров, созданную из файла, указанного в конструкторе.
+     * @return коллекция продуктов.
+     * @exception LoadException если файл не найден или имеет некорректное содержимое.
+     */
+    @Override
+    public ProductCollection load() {
+        return Loader.load(path, this::read);
+    }
+
+    /**
+     * Возвращает замеры последней загрузки.
+     * @return замеры или null, если загрузки ещё не было.
+     */
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    ProductCollection read(File file) throws IOException {
+        Statistics statistics = new Statistics();
+        this.statistics = statistics;
+        long start = System.nanoTime();
+        ReadStage readStage = new ReadStage(file, statistics);
+        Thread readThread = new Thread(readStage, "loader-read");
+        readThread.setDaemon(true);
+        readThread.start();
+        try (TagReader tagReader = new TagReader(new BlockReader(readStage, statistics.parse))) {
+            return Loader.load(tagReader, (reader, productTagLoader) ->
+                    readProducts(reader, productTagLoader, statistics));
+        } finally {
+            readThread.interrupt();
+            join(readThread);
+            statistics.totalNanos = System.nanoTime() - start;
+            statistics.parse.workNanos = statistics.totalNanos - statistics.parse.inputWaitNanos
+                    - statistics.parse.outputWaitNanos;
+        }
+    }
+
+    private static void readProducts(TagReader tagReader, ProductTagLoader productTagLoader, Statistics statistics)
+            throws IOException {
+        BuildStage buildStage = new BuildStage(productTagLoader, statistics);
+        Thread buildThread = new Thread(buildStage, "loader-build");
+        buildThread.setDaemon(true);
+        buildThread.start();
+        Stage parse = statistics.parse;
+        try {
+            TagParser tagParser = new TagParser(tagReader);
+            List<ParentTag> batch = new ArrayList<>(BATCH_SIZE);
+            while (Loader.nextNestedTag(tagReader, "products")) {
+                Tag tag = tagParser.parseOpened();
+                if (!(tag instanceof ParentTag && tag.getName().equals("product")))
+                    continue;
+                batch.add((ParentTag) tag);
+                parse.items++;
+                if (batch.size() == BATCH_SIZE) {
+                    if (!offer(buildStage, buildThread, batch, parse, statistics.batchQueue)
+                            || buildStage.error != null)
+                        break;
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty() && buildStage.error == null)
+                offer(buildStage, buildThread, batch, parse, statistics.batchQueue);
+        } finally {
+            if (offer(buildStage, buildThread, END_OF_PRODUCTS, parse, statistics.batchQueue)) {
+                long waitStart = System.nanoTime();
+                join(buildThread);
+                parse.outputWaitNanos += System.nanoTime() - waitStart;
+            }
+        }
+        buildStage.rethrow();
+    }
+
+    /**
+     * Передаёт пачку этапу создания товаров, ожидая места в очереди, пока жив его поток.
+     * @return false, если поток создания товаров завершился и пачку некому передать.
+     */
+    private static boolean offer(BuildStage buildStage, Thread buildThread, List<ParentTag> batch, Stage stage,
+                                 QueueStatistics queueStatistics) throws InterruptedIOException {
+        long waitStart = System.nanoTime();
+        try {
+            while (!buildStage.batches.offer(batch, LIVENESS_CHECK_MILLIS, TimeUnit.MILLISECONDS))
+                if (!buildThread.isAlive())
+                    return false;
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Загрузка прервана.");
+        } finally {
+            stage.outputWaitNanos += System.nanoTime() - waitStart;
+        }
+        queueStatistics.sample(buildStage.batches.size());
+        return true;
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item, Stage stage, QueueStatistics queueStatistics)
+            throws InterruptedIOException {
+        long waitStart = System.nanoTime();
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Загрузка прервана.");
+        }
+        stage.outputWaitNanos += System.nanoTime() - waitStart;
+        queueStatistics.sample(queue.size());
+    }
+
+    private static <T> T take(BlockingQueue<T> queue, Stage stage) throws InterruptedIOException {
+        long waitStart = System.nanoTime();
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Загрузка прервана.");
+        } finally {
+            stage.inputWaitNanos += System.nanoTime() - waitStart;
+        }
+    }
+
+    private static void join(Thread thread) throws InterruptedIOException {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Загрузка прервана.");
+        }
+    }
+
+    /**
+     * Этап чтения: заполняет блоки из файла и передаёт их этапу разбора. Блоки возвращаются этапом разбора после
+     * использования, так что их не больше, чем помещается в очередь, плюс два.
+     */
+    private static class ReadStage implements Runnable {
+        private final File file;
+        private final Stage stage;
+        private final QueueStatistics queueStatistics;
+        private final BlockingQueue<ByteBuffer> blocks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final BlockingQueue<ByteBuffer> freeBlocks = new ArrayBlockingQueue<>(QUEUE_CAPACITY + 2);
+        private final int blockSize;
+        private int allocatedBlocks;
+        private volatile Throwable error;
+
+        private ReadStage(File file, Statistics statistics) {
+            this.file = file;
+            stage = statistics.read;
+            queueStatistics = statistics.blockQueue;
+            blockSize = (int) Math.max(1, Math.min(BUFFER_SIZE, file.length()));
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                while (true) {
+                    ByteBuffer block = freeBlocks.poll();
+                    if (block == null && allocatedBlocks < QUEUE_CAPACITY + 2) {
+                        block = ByteBuffer.allocateDirect(blockSize);
+                        allocatedBlocks++;
+                    } else if (block == null)
+                        block = take(freeBlocks, stage);
+                    block.clear();
+                    while (block.hasRemaining())
+                        if (channel.read(block) < 0)
+                            break;
+                    block.flip();
+                    if (!block.hasRemaining())
+                        break;
+                    stage.items++;
+                    put(blocks, block, stage, queueStatistics);
+                }
+            } catch (InterruptedIOException e) {
+                return;
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                stage.workNanos = System.nanoTime() - start - stage.inputWaitNanos - stage.outputWaitNanos;
+            }
+            try {
+                blocks.put(END_OF_FILE);
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Источник символов для этапа разбора: берёт блоки у этапа чтения и декодирует их из UTF-8. Символ, байты которого
+     * попали в два соседних блока, собирается в отдельном маленьком буфере. Некорректные последовательности байтов
+     * заменяются, как и в {@link java.io.InputStreamReader}.
+     */
+    private static class BlockReader extends Reader {
+        private final ReadStage readStage;
+        private final Stage stage;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer carry = ByteBuffer.allocate(8);
+        private ByteBuffer block;
+        private boolean endOfFile;
+        private char leftover;
+        private boolean hasLeftover;
+
+        private BlockReader(ReadStage readStage, Stage stage) {
+            this.readStage = readStage;
+            this.stage = stage;
+        }
+
+        @Override
+        public int read(char[] chars, int offset, int length) throws IOException {
+            if (length == 0)
+                return 0;
+            if (hasLeftover) {
+                chars[offset] = leftover;
+                hasLeftover = false;
+                return 1;
+            }
+            if (length == 1) {
+                char[] pair = new char[2];
+                int read = read(pair, 0, 2);
+                if (read <= 0)
+                    return read;
+                chars[offset] = pair[0];
+                if (read == 2) {
+                    leftover = pair[1];
+                    hasLeftover = true;
+                }
+                return 1;
+            }
+            CharBuffer output = CharBuffer.wrap(chars, offset, length);
+            while (output.position() == offset) {
+                if (block == null || !block.hasRemaining()) {
+                    if (endOfFile)
+                        return -1;
+                    if (block != null)
+                        readStage.freeBlocks.offer(block);
+                    block = take(readStage.blocks, stage);
+                    if (block == END_OF_FILE) {
+                        if (readStage.error instanceof IOException)
+                            throw (IOException) readStage.error;
+                        if (readStage.error != null)
+                            throw rethrown(readStage.error);
+                        endOfFile = true;
+                        block = null;
+                        carry.flip();
+                        decoder.decode(carry, output, true);
+                        decoder.flush(output);
+                        carry.clear();
+                    }
+                    continue;
+                }
+                if (carry.position() > 0) {
+                    carry.put(block.get());
+                    carry.flip();
+                    decoder.decode(carry, output, false);
+                    carry.compact();
+                    continue;
+                }
+                CoderResult result = decoder.decode(block, output, false);
+                if (result.isUnderflow())
+                    while (block.hasRemaining())
+                        carry.put(block.get());
+            }
+            return output.position() - offset;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Возвращает ошибку этапа в виде непроверяемого исключения, чтобы выбросить её в потоке разбора.
+     */
+    private static RuntimeException rethrown(Throwable error) {
+        if (error instanceof Error)
+            throw (Error) error;
+        if (error instanceof RuntimeException)
+            return (RuntimeException) error;
+        return new IllegalStateException(error);
+    }
+
+    /**
+     * Этап создания товаров: получает пачки тегов и добавляет товары в коллекцию. После любой ошибки, включая
+     * {@link Error}, запоминает её и продолжает забирать пачки до конца списка, чтобы этап разбора не остановился на
+     * заполненной очереди; этап разбора, заметив ошибку, перестаёт передавать пачки и выбрасывает её.
+     */
+    private static class BuildStage implements Runnable {
+        private final ProductTagLoader productTagLoader;
+        private final Stage stage;
+        private final BlockingQueue<List<ParentTag>> batches = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile Throwable error;
+        private volatile boolean finished;
+
+        private BuildStage(ProductTagLoader productTagLoader, Statistics statistics) {
+            this.productTagLoader = productTagLoader;
+            stage = statistics.build;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                List<ParentTag> batch;
+                while ((batch = take(batches, stage)) != END_OF_PRODUCTS) {
+                    if (error != null)
+                        continue;
+                    try {
+                        for (ParentTag productTag: batch)
+                            productTagLoader.addProduct(productTag);
+                        stage.items += batch.size();
+                    } catch (Throwable e) {
+                        error = e;
+                    }
+                }
+                finished = true;
+            } catch (InterruptedIOException ignored) {
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                stage.workNanos = System.nanoTime() - start - stage.inputWaitNanos;
+            }
+        }
+
+        /**
+         * Выбрасывает ошибку этапа, если она была или если поток завершился, не дойдя до конца списка.
+         */
+        private void rethrow() {
+            if (error != null)
+                throw rethrown(error);
+            if (!finished)
+                throw new IllegalStateException("Этап создания товаров завершился, не обработав все товары.");
+        }
+    }
+
+    /**
+     * Замеры одного этапа конвейера.
+     */
+    public static class Stage {
+        private final String name;
+        private long workNanos;
+        private long inputWaitNanos;
+        private long outputWaitNanos;
+        private long items;
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Возвращает название этапа.
+         * @return название.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Возвращает время работы этапа без учёта ожидания соседних этапов.
+         * @return время в наносекундах.
+         */
+        public long getWorkNanos() {
+            return workNanos;
+        }
+
+        /**
+         * Возвращает время ожидания данных от предыдущего этапа.
+         * @return время в наносекундах.
+         */
+        public long getInputWaitNanos() {
+            return inputWaitNanos;
+        }
+
+        /**
+         * Возвращает время ожидания места в очереди следующего этапа.
+         * @return время в наносекундах.
+         */
+        public long getOutputWaitNanos() {
+            return outputWaitNanos;
+        }
+
+        /**
+         * Возвращает количество обработанных этапом элементов: блоков для чтения, тегов product для разбора и создания
+         * товаров.
+         * @return количество элементов.
+         */
+        public long getItems() {
+            return items;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: работа %.1f мс, ожидание входа %.1f мс, ожидание выхода %.1f мс," +
+                    " элементов %d", name, workNanos / 1e6, inputWaitNanos / 1e6, outputWaitNanos / 1e6, items);
+        }
+    }
+
+    /**
+     * Замеры длины очереди между этапами. Длина замеряется после каждого добавления в очередь.
+     */
+    public static class QueueStatistics {
+        private final String name;
+        private long samples;
+        private long totalDepth;
+        private int maxDepth;
+
+        private QueueStatistics(String name) {
+            this.name = name;
+        }
+
+        private void sample(int depth) {
+            samples++;
+            totalDepth += depth;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        /**
+         * Возвращает название очереди.
+         * @return название.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Возвращает среднюю длину очереди.
+         * @return средняя длина или 0, если в очередь ничего не добавлялось.
+         */
+        public double getAverageDepth() {
+            return samples == 0 ? 0 : (double) totalDepth / samples;
+        }
+
+        /**
+         * Возвращает наибольшую длину очереди.
+         * @return наибольшая длина.
+         */
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: средняя длина %.2f, наибольшая %d из %d",
+                    name, getAverageDepth(), maxDepth, QUEUE_CAPACITY);
+        }
+    }
+
+    /**
+     * Замеры одной загрузки конвейером.
+     */
+    public static class Statistics {
+        private final Stage read = new Stage("Чтение");
+        private final Stage parse = new Stage("Разбор");
+        private final Stage build = new Stage("Создание товаров");
+        private final QueueStatistics blockQueue = new QueueStatistics("Очередь блоков");
+        private final QueueStatistics batchQueue = new QueueStatistics("Очередь тегов");
+        private long totalNanos;
+
+        private Statistics() {}
+
+        /**
+         * Возвращает замеры этапов в порядке следования.
+         * @return список этапов.
+         */
+        public List<Stage> getStages() {
+            List<Stage> stages = new ArrayList<>();
+            stages.add(read);
+            stages.add(parse);
+            stages.add(build);
+            return stages;
+        }
+
+        /**
+         * Возвращает замеры очередей в порядке следования.
+         * @return список очередей.
+         */
+        public List<QueueStatistics> getQueues() {
+            List<QueueStatistics> queues = new ArrayList<>();
+            queues.add(blockQueue);
+            queues.add(batchQueue);
+            return queues;
+        }
+
+        /**
+         * Возвращает этап, дольше всех занятый работой: он и ограничивает скорость загрузки.
+         * @return этап.
+         */
+        public Stage getBottleneck() {
+            Stage bottleneck = read;
+            for (Stage stage: getStages())
+                if (stage.workNanos > bottleneck.workNanos)
+                    bottleneck = stage;
+            return bottleneck;
+        }
+
+        /**
+         * Возвращает общее время загрузки.
+         * @return время в наносекундах.
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(String.format(Locale.ROOT, "Загрузка: %.1f мс", totalNanos / 1e6));
+            for (Stage stage: getStages())
+                builder.append('\n').append(stage);
+            for (QueueStatistics queue: getQueues())
+                builder.append('\n').append(queue);
+            return builder.append("\nУзкое место: ").append(getBottleneck().name).toString();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package project.parsing.mapped;
+
+import project.parsing.load.ILoader;
+import project.parsing.load.LoadException;
+import project.products.product_collection.MappedProductCollection;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * Класс для открытия коллекции товаров, хранящейся в отображённых в память файлах. Товары не читаются при открытии, а
+ * создаются по мере обращения к ним.
+ * @see MappedProductCollection
+ */
+public class MappedLoader implements ILoader {
+    private final String path;
+
+    /**
+     * Конструктор, позволяющий создать объект класса для работы с конкретным файлом.
+     * @param path путь к файлу записей хранилища.
+     */
+    public MappedLoader(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Открывает хранилище, указанное в конструкторе.
+     * @return коллекция товаров.
+     * @exception LoadException если файлы не найдены или не являются хранилищем коллекции.
+     */
+    @Override
+    public MappedProductCollection load() {
+        try {
+            return MappedProductCollection.open(path);
+        } catch (FileNotFoundException e) {
+            throw new LoadException("Ошибка загрузки! Файл не найден.");
+        } catch (IOException e) {
+            throw new LoadException("Ошибка загрузки! " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package project.parsing.mapped;
+
+import project.parsing.save.ISaver;
+import project.products.product_collection.IProductCollection;
+import project.products.product_collection.MappedProductCollection;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Класс для сохранения коллекции товаров в хранилище из отображённых в память файлов. Если сохраняется коллекция,
+ * открытая из этого же хранилища, на диск сбрасываются только изменённые страницы; иначе хранилище записывается заново.
+ * @see MappedProductCollection
+ */
+public class MappedSaver implements ISaver {
+    private File file;
+
+    /**
+     * Конструктор, позволяющий создать объект класса для работы с конкретным файлом.
+     * @param path путь к файлу записей хранилища.
+     */
+    public MappedSaver(String path) {
+        file = new File(path);
+    }
+
+    /**
+     * Сохраняет переданный список в хранилище.
+     * @param productCollection коллекция товаров.
+     * @throws IOException если файл не был найден или произошла ошибка при записи.
+     */
+    public void save(IProductCollection productCollection) throws IOException {
+        try {
+            if (isOpenedFrom(productCollection))
+                ((MappedProductCollection) productCollection).force();
+            else
+                MappedProductCollection.write(file, productCollection);
+        } catch (FileNotFoundException e) {
+            throw new FileNotFoundException("Ошибка при сохранении коллекции! Файл не найден.");
+        } catch (IOException e) {
+            throw new IOException("Ошибка при сохранении коллекции! Не удалось записать данные в файл.");
+        }
+    }
+
+    /**
+     * Коллекцию, открытую из этого же хранилища, сохраняет сразу: на диск сбрасываются только изменённые страницы, и
+     * снимок для этого не нужен. Другие коллекции сохраняются в фоне, как обычно.
+     * @param productCollection коллекция товаров.
+     * @return результат сохранения.
+     */
+    @Override
+    public CompletableFuture<Void> saveInBackground(IProductCollection productCollection) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            if (!isOpenedFrom(productCollection))
+                return ISaver.super.saveInBackground(productCollection);
+            save(productCollection);
+            result.complete(null);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private boolean isOpenedFrom(IProductCollection productCollection) throws IOException {
+        return productCollection instanceof MappedProductCollection && ((MappedProductCollection) productCollection)
+                .getFile().getCanonicalFile().equals(file.getCanonicalFile());
+    }
+}
\ No newline at end of file
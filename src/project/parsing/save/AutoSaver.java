@@ -0,0 +1,133 @@
+package project.parsing.save;
+
+import project.products.product_collection.IProductCollection;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Автосохранение коллекции. Обёртка над объектом сохранения, которая запоминает, какое состояние коллекции (её счётчик
+ * изменений, {@link IProductCollection#getModificationCount()}) было сохранено последним, и раз в секунду проверяет,
+ * не пора ли сохранить коллекцию снова. Коллекция сохраняется в фоне, если она изменилась и с тех пор прошёл заданный
+ * интервал или накопилось заданное число изменений. Пока коллекция не меняется, проверка лишь сравнивает два числа и
+ * ничего не пишет.
+ * <p>
+ * Снимок для сохранения снимается под исключительной блокировкой коллекции, причём только если её удаётся взять сразу.
+ * Скрипт (execute_script) выполняется под той же блокировкой целиком, поэтому все его изменения сохраняются одной
+ * записью после его окончания. Сохранения выполняются в очереди фоновых сохранений ({@link SaveQueue}), и пока в ней
+ * есть невыполненное, новое автосохранение не начинается. Команда save тоже сохраняет через эту обёртку, так что после
+ * неё автосохранение не повторяет запись.
+ */
+public class AutoSaver implements ISaver, Closeable {
+    /**
+     * Число изменений, после которого коллекция сохраняется, не дожидаясь интервала, по умолчанию.
+     */
+    public static final int DEFAULT_CHANGES = 1000;
+    private static final long CHECK_PERIOD_MILLIS = 1000;
+
+    private final ISaver saver;
+    private final IProductCollection productCollection;
+    private final Lock lock;
+    private final long intervalNanos;
+    private final long changes;
+    private final ScheduledExecutorService scheduler;
+    private long savedModificationCount;
+    private long dirtySince = -1;
+
+    /**
+     * Создаёт автосохранение и запускает его проверки.
+     * @param saver объект, сохраняющий коллекцию в файл.
+     * @param productCollection сохраняемая коллекция; считается сохранённой в момент создания.
+     * @param lock блокировка коллекции, под которой выполняются команды.
+     * @param intervalSeconds наибольшее время в секундах, которое изменения могут оставаться несохранёнными.
+     * @param changes число изменений, после которого коллекция сохраняется, не дожидаясь интервала.
+     */
+    public AutoSaver(ISaver saver, IProductCollection productCollection, ReadWriteLock lock, int intervalSeconds,
+                     int changes) {
+        this.saver = saver;
+        this.productCollection = productCollection;
+        this.lock = lock.writeLock();
+        intervalNanos = TimeUnit.SECONDS.toNanos(intervalSeconds);
+        this.changes = changes;
+        savedModificationCount = productCollection.getModificationCount();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.min(CHECK_PERIOD_MILLIS, TimeUnit.SECONDS.toMillis(intervalSeconds));
+        scheduler.scheduleWithFixedDelay(this::check, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Сохраняет коллекцию и запоминает сохранённое состояние.
+     * @param productCollection коллекция товаров, сохраняемая в файл.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    @Override
+    public void save(IProductCollection productCollection) throws IOException {
+        long modificationCount = productCollection.getModificationCount();
+        saver.save(productCollection);
+        saved(modificationCount);
+    }
+
+    /**
+     * Сохраняет коллекцию в фоне и после записи запоминает сохранённое состояние.
+     * @param productCollection коллекция товаров; во время вызова её не должны изменять.
+     * @return результат, который завершится после записи или с ошибкой {@link IOException}.
+     */
+    @Override
+    public CompletableFuture<Void> saveInBackground(IProductCollection productCollection) {
+        long modificationCount = productCollection.getModificationCount();
+        return saver.saveInBackground(productCollection).thenRun(() -> saved(modificationCount));
+    }
+
+    /**
+     * Останавливает проверки. Уже начатое сохранение завершается в очереди фоновых сохранений.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private synchronized void saved(long modificationCount) {
+        savedModificationCount = Math.max(savedModificationCount, modificationCount);
+    }
+
+    private synchronized long getSavedModificationCount() {
+        return savedModificationCount;
+    }
+
+    /**
+     * Проверяет, пора ли сохранить коллекцию, и начинает сохранение. Выполняется только потоком автосохранения.
+     */
+    private void check() {
+        long unsaved = productCollection.getModificationCount() - getSavedModificationCount();
+        if (unsaved == 0) {
+            dirtySince = -1;
+            return;
+        }
+        long now = System.nanoTime();
+        if (dirtySince < 0)
+            dirtySince = now;
+        if (now - dirtySince < intervalNanos && unsaved < changes || SaveQueue.isBusy() || !lock.tryLock())
+            return;
+        try {
+            saveInBackground(productCollection).whenComplete((result, e) -> {
+                if (e != null)
+                    System.out.println("\nАвтосохранение не удалось: " + e.getCause().getMessage());
+            });
+            dirtySince = -1;
+        } catch (RuntimeException e) {
+            System.out.println("\nАвтосохранение не удалось: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
\ No newline at end of file
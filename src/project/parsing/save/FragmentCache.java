@@ -0,0 +1,224 @@
+package project.parsing.save;
+
+import project.products.product.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * Кэш XML-представлений товаров для сохранения в текстовом формате. Представление товара (фрагмент) - байты тега
+ * product в кодировке UTF-8 с отступами, которые он имеет в файле коллекции. Фрагмент хранится в самом товаре и
+ * сбрасывается его методами изменения полей, так что при повторном сохранении неизменённые товары не формируются
+ * заново, а их байты копируются в файл как есть. Вложенные объекты товара (координаты, владелец, локация) после
+ * создания не меняются, а замена любого из них проходит через методы товара.
+ * <p>
+ * Суммарный размер фрагментов ограничен. Вытесняются давно не использованные фрагменты: кэш перебирает фрагменты по
+ * кругу в порядке создания, и фрагмент, использованный после прошлого обхода, получает ещё один круг (алгоритм CLOCK).
+ * Кэш ссылается на товары слабыми ссылками и не удерживает их в памяти: фрагменты товаров, удалённых из коллекции или
+ * заменённых копиями, перестают учитываться в размере, как только сборщик мусора освобождает сами товары.
+ * <p>
+ * Кэш полезен только для коллекций, которые отдают одни и те же объекты неизменённых товаров
+ * ({@link project.products.product_collection.IProductCollection#keepsProducts()}); для остальных {@link Saver}
+ * формирует теги заново, не обращаясь к кэшу.
+ */
+public class FragmentCache {
+    /**
+     * Учитываемый расход памяти на один фрагмент сверх его байтов: заголовки массива и служебных объектов.
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final FragmentCache shared =
+            new FragmentCache(Math.max(16L << 20, Runtime.getRuntime().maxMemory() / 8));
+
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final ReferenceQueue<Product> collected = new ReferenceQueue<>();
+    private int released;
+    private long capacity;
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Фрагмент товара: байты его тега и признак использования после прошлого обхода вытеснения.
+     */
+    public static class Fragment {
+        private final byte[] bytes;
+        private boolean used;
+
+        private Fragment(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Создаёт пустой кэш.
+     * @param capacity наибольший суммарный размер фрагментов в байтах.
+     */
+    public FragmentCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Возвращает общий кэш, которым пользуется {@link Saver}. По умолчанию он занимает не больше восьмой части
+     * доступной программе памяти.
+     * @return общий кэш.
+     */
+    public static FragmentCache getShared() {
+        return shared;
+    }
+
+    /**
+     * Возвращает фрагмент товара: закэшированный, если он есть, иначе формирует и запоминает новый.
+     * @param product товар.
+     * @return байты тега товара; массив нельзя изменять.
+     */
+    public synchronized byte[] fragment(Product product) {
+        expunge();
+        Fragment fragment = product.getFragment();
+        if (fragment != null) {
+            fragment.used = true;
+            hits++;
+            return fragment.bytes;
+        }
+        misses++;
+        byte[] bytes = render(product);
+        if (cost(bytes) > capacity)
+            return bytes;
+        fragment = new Fragment(bytes);
+        product.setFragment(fragment);
+        entries.add(new Entry(product, fragment, collected));
+        size += cost(bytes);
+        evict();
+        return bytes;
+    }
+
+    /**
+     * Меняет наибольший суммарный размер фрагментов, при необходимости вытесняя лишние.
+     * @param capacity новый размер в байтах.
+     */
+    public synchronized void setCapacity(long capacity) {
+        this.capacity = capacity;
+        expunge();
+        evict();
+    }
+
+    /**
+     * @return число обращений, для которых фрагмент уже был в кэше.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return число обращений, для которых фрагмент пришлось сформировать.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return число вытесненных фрагментов.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return суммарный учитываемый размер фрагментов в байтах.
+     */
+    public synchronized long getSize() {
+        expunge();
+        return size;
+    }
+
+    /**
+     * @return наибольший суммарный размер фрагментов в байтах.
+     */
+    public synchronized long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Формирует фрагмент товара: тег product с отступом, который он имеет внутри тегов productCollection и products.
+     * @param product товар.
+     * @return байты тега в кодировке UTF-8.
+     */
+    public static byte[] render(Product product) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (TagWriter tagWriter = new TagWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8),
+                "productCollection", "products")) {
+            product.writeTag(tagWriter);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Вытесняет фрагменты, пока их суммарный размер превышает допустимый. Записи о фрагментах, которые товар уже
+     * сбросил или заменил, просто удаляются.
+     */
+    private void evict() {
+        while (size > capacity && !entries.isEmpty()) {
+            Entry entry = entries.poll();
+            if (entry.fragment == null) {
+                released--;
+                continue;
+            }
+            Product product = entry.get();
+            if (product != null && product.getFragment() == entry.fragment) {
+                if (entry.fragment.used) {
+                    entry.fragment.used = false;
+                    entries.add(entry);
+                    continue;
+                }
+                product.setFragment(null);
+                evictions++;
+            }
+            entry.clear();
+            size -= cost(entry.fragment.bytes);
+            entry.fragment = null;
+        }
+    }
+
+    /**
+     * Освобождает фрагменты товаров, собранных сборщиком мусора. Записи о них остаются в очереди вытеснения без
+     * фрагментов и удаляются из неё разом, когда таких записей становится больше половины.
+     */
+    private void expunge() {
+        Entry entry;
+        while ((entry = (Entry) collected.poll()) != null) {
+            if (entry.fragment == null)
+                continue;
+            size -= cost(entry.fragment.bytes);
+            entry.fragment = null;
+            released++;
+        }
+        if (released > entries.size() / 2) {
+            entries.removeIf(candidate -> candidate.fragment == null);
+            released = 0;
+        }
+    }
+
+    private static long cost(byte[] bytes) {
+        return bytes.length + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Запись очереди вытеснения: слабая ссылка на товар и его фрагмент (null, если фрагмент уже освобождён).
+     */
+    private static class Entry extends WeakReference<Product> {
+        private Fragment fragment;
+
+        private Entry(Product product, Fragment fragment, ReferenceQueue<Product> queue) {
+            super(product, queue);
+            this.fragment = fragment;
+        }
+    }
+}
\ No newline at end of file
@@ -3,6 +3,7 @@ package project.parsing.save;
 import project.products.product_collection.IProductCollection;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Класс, реализующий этот интерфейс, может сохранить список товаров в некоторый заранее определённый файл.
@@ -14,4 +15,15 @@ public interface ISaver {
      * @throws IOException если файл не был найден или произошла ошибка при записи.
      */
     void save(IProductCollection productCollection) throws IOException;
+
+    /**
+     * Снимает снимок коллекции ({@link IProductCollection#snapshot()}) и ставит его сохранение в очередь фоновых
+     * сохранений ({@link SaveQueue}), не дожидаясь записи. Коллекцию можно изменять сразу после возврата из метода.
+     * @param productCollection коллекция товаров, сохраняемая в файл; во время вызова её не должны изменять.
+     * @return результат, который завершится после записи или с ошибкой {@link IOException}.
+     */
+    default CompletableFuture<Void> saveInBackground(IProductCollection productCollection) {
+        IProductCollection snapshot = productCollection.snapshot();
+        return SaveQueue.submit(() -> save(snapshot));
+    }
 }
\ No newline at end of file
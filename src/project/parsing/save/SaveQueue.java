@@ -0,0 +1,74 @@
+package project.parsing.save;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Очередь фоновых сохранений. Сохранения выполняются одним фоновым потоком строго по очереди, так что два сохранения
+ * никогда не пишут одновременно, а более позднее не может закончиться раньше более раннего.
+ * @see ISaver#saveInBackground(project.products.product_collection.IProductCollection)
+ */
+public class SaveQueue {
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "background-save");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+
+    /**
+     * Действие сохранения.
+     */
+    public interface Action {
+        /**
+         * Выполняет сохранение.
+         * @throws IOException если произошла ошибка при записи.
+         */
+        void run() throws IOException;
+    }
+
+    private SaveQueue() {}
+
+    /**
+     * Ставит сохранение в очередь.
+     * @param action действие сохранения.
+     * @return результат, который завершится после выполнения действия или с его ошибкой.
+     */
+    public static synchronized CompletableFuture<Void> submit(Action action) {
+        CompletableFuture<Void> result = CompletableFuture.runAsync(() -> {
+            try {
+                action.run();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+        last = result;
+        return result;
+    }
+
+    /**
+     * Сообщает, есть ли в очереди невыполненные сохранения.
+     * @return true, если последнее поставленное сохранение ещё не завершилось.
+     */
+    public static synchronized boolean isBusy() {
+        return !last.isDone();
+    }
+
+    /**
+     * Ждёт завершения всех поставленных в очередь сохранений. Ошибки сохранений при этом не бросаются: о них сообщает
+     * результат каждого сохранения.
+     */
+    public static void awaitAll() {
+        CompletableFuture<Void> pending;
+        synchronized (SaveQueue.class) {
+            pending = last;
+        }
+        try {
+            pending.join();
+        } catch (RuntimeException ignored) {
+        }
+    }
+}
\ No newline at end of file
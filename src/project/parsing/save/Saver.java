@@ -1,16 +1,29 @@
 package project.parsing.save;
 
+import project.metrics.Metrics;
+import project.metrics.SaveEvent;
+import project.metrics.OperationStats;
+import project.products.product.Product;
 import project.products.product_collection.IProductCollection;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 
 /**
- * Класс для сохранения списка товаров в формате XML.
+ * Класс для сохранения списка товаров в формате XML. Документ пишется потоково в кодировке UTF-8 через
+ * {@link TagWriter}, без построения его текста целиком. Теги товаров берутся из кэша фрагментов ({@link FragmentCache}),
+ * поэтому при повторном сохранении заново формируются только теги изменённых и новых товаров.
  */
 public class Saver implements ISaver {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final OperationStats stats = Metrics.get("Saver.save");
+
     private File file;
 
     /**
@@ -31,24 +44,83 @@ public class Saver implements ISaver {
     }
 
     /**
-     * Сохраняет переданный список в указанный файл.
+     * Сохраняет переданный список в указанный файл, используя общий кэш фрагментов ({@link FragmentCache#getShared()}).
      * @param file файл для сохранения коллекции.
      * @param productCollection коллекция товаров.
      * @throws IOException если файл не был найден или произошла ошибка при записи.
      */
     public static void save(File file, IProductCollection productCollection) throws IOException {
+        save(file, productCollection, FragmentCache.getShared());
+    }
+
+    /**
+     * Сохраняет переданный список в указанный файл. Сохранение учитывается в статистике {@link Metrics} и
+     * отмечается событием JFR {@link SaveEvent}.
+     * @param file файл для сохранения коллекции.
+     * @param productCollection коллекция товаров.
+     * @param fragmentCache кэш фрагментов или null, чтобы формировать теги всех товаров заново.
+     * @throws IOException если файл не был найден или произошла ошибка при записи.
+     */
+    public static void save(File file, IProductCollection productCollection, FragmentCache fragmentCache)
+            throws IOException {
+        SaveEvent event = new SaveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean saved = false;
         try {
-            FileOutputStream fileOutputStream = new FileOutputStream(file);
-            fileOutputStream.write(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + productCollection.getTag().toText()).getBytes());
-            try {
-                fileOutputStream.close();
-            } catch (IOException e) {
-                System.out.println("Чего-то поток записи не закрылся...");
+            try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)) {
+                write(output, productCollection, fragmentCache);
             }
+            saved = true;
         } catch (FileNotFoundException e) {
             throw new FileNotFoundException("Ошибка при сохранении коллекции! Файл не найден.");
         } catch (IOException e) {
             throw new IOException("Ошибка при сохранении коллекции! Не удалось записать данные в файл.");
+        } finally {
+            if (!saved)
+                stats.recordError();
+            stats.record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = file.getPath();
+                event.failed = !saved;
+                if (saved) {
+                    event.bytes = file.length();
+                    event.products = productCollection.size();
+                }
+                event.commit();
+            }
+        }
+        stats.addProcessed(file.length(), productCollection.size());
+    }
+
+    /**
+     * Записывает документ с коллекцией товаров: заголовок и тег productCollection с вложенными тегами
+     * initializationDate и products. Товары записываются по одному, без построения дерева тегов; если передан кэш и
+     * коллекция не пересоздаёт объекты товаров ({@link IProductCollection#keepsProducts()}), в поток копируются готовые
+     * фрагменты товаров.
+     * @param output поток записи.
+     * @param productCollection коллекция товаров.
+     * @param fragmentCache кэш фрагментов или null.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public static void write(OutputStream output, IProductCollection productCollection, FragmentCache fragmentCache)
+            throws IOException {
+        TagWriter tagWriter = new TagWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        tagWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        tagWriter.beginTag("productCollection");
+        tagWriter.textTag("initializationDate", productCollection.getInitializationDataString());
+        tagWriter.beginTag("products");
+        if (fragmentCache == null || !productCollection.keepsProducts())
+            for (Product product: productCollection)
+                product.writeTag(tagWriter);
+        else {
+            tagWriter.flush();
+            for (Product product: productCollection)
+                output.write(fragmentCache.fragment(product));
         }
+        tagWriter.endTag();
+        tagWriter.endTag();
+        tagWriter.flush();
     }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package project.parsing.save;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+
+/**
+ * Потоковая запись тегов. Теги сразу пишутся в {@link Writer}, дерево тегов и текст всего документа не строятся.
+ * Отступ каждого тега определяется глубиной вложенности, так что результат совпадает по формату с
+ * {@link project.parsing.tags.ParentTag#toText()}: каждый вложенный тег начинается с новой строки и сдвинут табуляцией
+ * относительно родительского.
+ */
+public class TagWriter implements Closeable, Flushable {
+    private final Writer writer;
+    private final ArrayDeque<String> openedTags;
+
+    /**
+     * Создаёт объект, пишущий теги в указанный поток.
+     * @param writer поток записи (желательно буферизованный).
+     */
+    public TagWriter(Writer writer) {
+        this.writer = writer;
+        openedTags = new ArrayDeque<>();
+    }
+
+    /**
+     * Создаёт объект, пишущий теги так, будто указанные теги уже открыты: отступы записываемых тегов соответствуют их
+     * месту внутри этих тегов. Используется для записи части документа отдельно от остального.
+     * @param writer поток записи.
+     * @param enclosingTags имена открытых тегов от внешнего к внутреннему; закрывать их не нужно.
+     */
+    public TagWriter(Writer writer, String... enclosingTags) {
+        this(writer);
+        for (String name: enclosingTags)
+            openedTags.push(name);
+    }
+
+    /**
+     * Записывает строку как есть. Используется для заголовка документа.
+     * @param text строка.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public void write(String text) throws IOException {
+        writer.write(text);
+    }
+
+    /**
+     * Открывает тег без аргументов.
+     * @param name имя тега.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public void beginTag(String name) throws IOException {
+        indent();
+        writer.write('<');
+        writer.write(name);
+        writer.write('>');
+        openedTags.push(name);
+    }
+
+    /**
+     * Открывает тег с одним аргументом.
+     * @param name имя тега.
+     * @param argumentName имя аргумента.
+     * @param argumentValue значение аргумента.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public void beginTag(String name, String argumentName, String argumentValue) throws IOException {
+        indent();
+        writer.write('<');
+        writer.write(name);
+        writer.write(' ');
+        writer.write(argumentName);
+        writer.write("=\"");
+        writer.write(argumentValue);
+        writer.write("\">");
+        openedTags.push(name);
+    }
+
+    /**
+     * Записывает тег с текстовым содержимым.
+     * @param name имя тега.
+     * @param content содержимое.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public void textTag(String name, String content) throws IOException {
+        indent();
+        writer.write('<');
+        writer.write(name);
+        writer.write('>');
+        writer.write(content);
+        writer.write("</");
+        writer.write(name);
+        writer.write('>');
+    }
+
+    /**
+     * Закрывает последний открытый тег.
+     * @throws IOException если произошла ошибка при записи.
+     * @exception java.util.NoSuchElementException если открытых тегов нет.
+     */
+    public void endTag() throws IOException {
+        String name = openedTags.pop();
+        writer.write('\n');
+        for (int i = openedTags.size(); i > 0; i--)
+            writer.write('\t');
+        writer.write("</");
+        writer.write(name);
+        writer.write('>');
+    }
+
+    /**
+     * Возвращает текущую глубину вложенности - количество открытых тегов.
+     * @return глубина вложенности.
+     */
+    public int getDepth() {
+        return openedTags.size();
+    }
+
+    /**
+     * Сбрасывает буфер потока записи.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Закрывает поток записи.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void indent() throws IOException {
+        int depth = openedTags.size();
+        if (depth == 0)
+            return;
+        writer.write('\n');
+        for (int i = depth; i > 0; i--)
+            writer.write('\t');
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package project.parsing.segmented;
+
+import project.products.product.Product;
+import project.products.product_collection.LongHashMap;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Раскладка коллекции по сегментам, записанная в манифесте, вместе с товарами каждого сегмента. Сохранение сравнивает
+ * товары коллекции с товарами сегментов по ссылкам: коллекции не изменяют хранимые товары, а заменяют их копиями,
+ * поэтому сегмент, все товары которого остались теми же объектами, переписывать не нужно.
+ * <p>
+ * Раскладку, сохранённую последней, хранит объект сохранения {@link SegmentedSaver}. Раскладка, прочитанная при
+ * загрузке, передаётся ему через {@link #remember(File, SegmentLayout)} и {@link #take(File)}: после этого статическая
+ * таблица на неё не ссылается, и товары старых снимков не удерживаются в памяти дольше, чем живёт объект сохранения.
+ */
+class SegmentLayout {
+    private static final HashMap<File, SegmentLayout> layouts = new HashMap<>();
+
+    final LocalDate initializationDate;
+    final long nextNumber;
+    final List<Segment> segments;
+    private final LongHashMap<Segment> segmentByID;
+
+    /**
+     * Создаёт раскладку.
+     * @param initializationDate дата инициализации, записанная в манифесте.
+     * @param nextNumber номер, который получит следующий записанный сегмент.
+     * @param segments сегменты в порядке манифеста.
+     */
+    SegmentLayout(LocalDate initializationDate, long nextNumber, List<Segment> segments) {
+        this.initializationDate = initializationDate;
+        this.nextNumber = nextNumber;
+        this.segments = segments;
+        int size = 0;
+        for (Segment segment: segments)
+            size += segment.products.length;
+        segmentByID = new LongHashMap<>(size);
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            segment.index = i;
+            for (Product product: segment.products)
+                segmentByID.put(product.getID(), segment);
+        }
+    }
+
+    /**
+     * Возвращает сегмент, в котором записан товар с указанным номером.
+     * @param id номер товара.
+     * @return сегмент или null, если такого товара в раскладке нет.
+     */
+    Segment segmentOf(long id) {
+        return segmentByID.get(id);
+    }
+
+    /**
+     * Проверяет, что манифест на диске записан именно с этой раскладкой: с теми же датой инициализации, номером
+     * следующего сегмента, номерами и размерами сегментов. Раскладка, которую держит объект сохранения, устаревает,
+     * если манифест тем временем переписал другой объект сохранения.
+     * @param manifest файл манифеста.
+     * @return true, если манифест соответствует раскладке.
+     */
+    boolean describes(File manifest) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)))) {
+            if (input.readInt() != SegmentedFormat.MAGIC || input.readShort() != SegmentedFormat.VERSION
+                    || initializationDate == null || input.readLong() != initializationDate.toEpochDay()
+                    || input.readLong() != nextNumber || input.readInt() != segments.size())
+                return false;
+            for (Segment segment: segments)
+                if (input.readLong() != segment.number || input.readInt() != segment.products.length)
+                    return false;
+            return input.read() < 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Передаёт раскладку, прочитанную при загрузке, следующему объекту сохранения в этот манифест. Раскладка,
+     * переданная ранее и ещё не забранная, заменяется.
+     * @param manifest файл манифеста.
+     * @param layout раскладка.
+     */
+    static synchronized void remember(File manifest, SegmentLayout layout) {
+        layouts.put(manifest.getAbsoluteFile(), layout);
+    }
+
+    /**
+     * Забирает раскладку манифеста, переданную при загрузке.
+     * @param manifest файл манифеста.
+     * @return раскладка или null, если её нет или её уже забрали.
+     */
+    static synchronized SegmentLayout take(File manifest) {
+        return layouts.remove(manifest.getAbsoluteFile());
+    }
+
+    /**
+     * Сегмент: номер его файла и записанные в нём товары.
+     */
+    static class Segment {
+        final long number;
+        final Product[] products;
+        private int index;
+
+        Segment(long number, Product[] products) {
+            this.number = number;
+            this.products = products;
+        }
+
+        /**
+         * @return положение сегмента в манифесте.
+         */
+        int index() {
+            return index;
+        }
+    }
+}
\ No newline at end of file
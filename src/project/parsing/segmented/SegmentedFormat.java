@@ -0,0 +1,110 @@
+package project.parsing.segmented;
+
+import project.parsing.binary.BinaryFormat;
+import project.products.product.PersonRegistry;
+import project.products.product.Product;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Описание сегментированного формата коллекции товаров. Товары разбиты на сегменты не более чем по
+ * {@value #SEGMENT_SIZE} штук, каждый сегмент хранится в отдельном файле, а файл коллекции (манифест) перечисляет
+ * действующие сегменты в порядке коллекции. Сохранение переписывает только сегменты, в которых товары добавлены,
+ * изменены или удалены, и затем атомарно заменяет манифест, поэтому его стоимость зависит от числа изменений, а не от
+ * размера коллекции.
+ * <p>
+ * Манифест начинается с сигнатуры {@value #MAGIC} и номера версии формата, за ними следуют дата инициализации
+ * коллекции (номер дня от эпохи, long), номер, который получит следующий записанный сегмент (long), и список сегментов:
+ * количество, затем для каждого номер (long) и число товаров (int). Сегмент с номером N хранится в файле, путь к которому
+ * - путь к манифесту с суффиксом ".N". Файл сегмента начинается с сигнатуры {@value #SEGMENT_MAGIC} и номера версии,
+ * затем идут число товаров (int) и сами товары в формате {@link BinaryFormat#writeProduct}. Файл сегмента никогда не
+ * переписывается: изменённый сегмент записывается в файл с новым номером, а старый удаляется после замены манифеста.
+ * Номера товаров, как и в других форматах, не сохраняются и назначаются при загрузке.
+ * @see SegmentedLoader
+ * @see SegmentedSaver
+ */
+public class SegmentedFormat {
+    /**
+     * Сигнатура манифеста: символы "PSEG".
+     */
+    public static final int MAGIC = 0x50534547;
+    /**
+     * Сигнатура файла сегмента: символы "PSGF".
+     */
+    public static final int SEGMENT_MAGIC = 0x50534746;
+    /**
+     * Текущая версия формата.
+     */
+    public static final short VERSION = 1;
+    /**
+     * Расширение манифеста в этом формате.
+     */
+    public static final String EXTENSION = ".seg";
+    /**
+     * Наибольшее число товаров в сегменте.
+     */
+    public static final int SEGMENT_SIZE = 4096;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private SegmentedFormat() {}
+
+    /**
+     * Возвращает файл сегмента.
+     * @param manifest файл манифеста.
+     * @param number номер сегмента.
+     * @return файл сегмента.
+     */
+    public static File segmentFile(File manifest, long number) {
+        return new File(manifest.getPath() + "." + number);
+    }
+
+    /**
+     * Записывает сегмент в новый файл и сбрасывает его на диск.
+     * @param file файл сегмента.
+     * @param products товары сегмента.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    static void writeSegment(File file, Product[] products) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+            output.writeInt(SEGMENT_MAGIC);
+            output.writeShort(VERSION);
+            output.writeInt(products.length);
+            for (Product product: products)
+                BinaryFormat.writeProduct(output, product);
+            output.flush();
+            stream.getFD().sync();
+        }
+    }
+
+    /**
+     * Читает товары сегмента.
+     * @param file файл сегмента.
+     * @param size число товаров, указанное для сегмента в манифесте.
+     * @param personRegistry реестр людей, в котором ищутся и регистрируются владельцы товаров.
+     * @return товары сегмента.
+     * @throws IOException если произошла ошибка чтения, файл обрезан или не является сегментом коллекции.
+     */
+    static List<Product> readSegment(File file, int size, PersonRegistry personRegistry) throws IOException {
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            if (input.readInt() != SEGMENT_MAGIC || input.readShort() != VERSION)
+                throw new IOException("файл " + file.getName() + " не является сегментом коллекции");
+            if (input.readInt() != size)
+                throw new IOException("число товаров в сегменте " + file.getName() + " не совпадает с манифестом");
+            ArrayList<Product> products = new ArrayList<>(size);
+            for (int i = 0; i < size; i++)
+                products.add(BinaryFormat.readProduct(input, personRegistry));
+            return products;
+        }
+    }
+}
\ No newline at end of file
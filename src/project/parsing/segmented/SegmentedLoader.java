@@ -0,0 +1,104 @@
+package project.parsing.segmented;
+
+import project.parsing.load.ILoader;
+import project.parsing.load.LoadException;
+import project.products.product.NotUniquePassportIDException;
+import project.products.product.Product;
+import project.products.product_collection.ProductCollection;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Класс для чтения коллекции товаров в сегментированном формате {@link SegmentedFormat}. Запоминает раскладку
+ * прочитанных сегментов, чтобы следующее сохранение в тот же манифест переписало только изменённые сегменты.
+ */
+public class SegmentedLoader implements ILoader {
+    private final String path;
+
+    /**
+     * Конструктор, позволяющий создать объект класса для работы с конкретным файлом.
+     * @param path путь к манифесту.
+     */
+    public SegmentedLoader(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Возвращает коллекцию товаров, созданную из манифеста, указанного в конструкторе, и его сегментов.
+     * @return коллекция продуктов.
+     * @exception LoadException если манифест или сегмент не найден или имеет некорректное содержимое.
+     */
+    @Override
+    public ProductCollection load() {
+        File manifest = new File(path);
+        if (!manifest.exists())
+            throw new LoadException("Ошибка загрузки! Файл не найден.");
+        if (!manifest.canRead())
+            throw new LoadException("Ошибка загрузки! Нет прав на чтение файла.");
+        try {
+            return read(manifest);
+        } catch (FileNotFoundException e) {
+            throw new LoadException("Ошибка загрузки! Не найден файл " + e.getMessage() + ".");
+        } catch (EOFException e) {
+            throw new LoadException("Ошибка загрузки! Файл обрезан.");
+        } catch (IOException e) {
+            throw new LoadException("Ошибка загрузки! Не удалось прочитать файл: " + e.getMessage() + ".");
+        } catch (NotUniquePassportIDException e) {
+            throw new LoadException("Ошибка загрузки! У разных владельцев совпадает номер паспорта "
+                    + e.getPassportID() + ".");
+        } catch (IllegalArgumentException | NullPointerException | DateTimeException e) {
+            throw new LoadException("Ошибка загрузки! Файл содержит некорректные данные.");
+        }
+    }
+
+    private static ProductCollection read(File manifest) throws IOException {
+        LocalDate initializationDate;
+        long nextNumber;
+        long[] numbers;
+        int[] sizes;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)))) {
+            if (input.readInt() != SegmentedFormat.MAGIC)
+                throw new LoadException("Ошибка загрузки! Файл не является манифестом сегментированной коллекции.");
+            short version = input.readShort();
+            if (version != SegmentedFormat.VERSION)
+                throw new LoadException("Ошибка загрузки! Неподдерживаемая версия формата: " + version + ".");
+            initializationDate = LocalDate.ofEpochDay(input.readLong());
+            nextNumber = input.readLong();
+            int count = input.readInt();
+            if (count < 0)
+                throw new LoadException("Ошибка загрузки! Файл содержит некорректные данные.");
+            numbers = new long[count];
+            sizes = new int[count];
+            for (int i = 0; i < count; i++) {
+                numbers[i] = input.readLong();
+                sizes[i] = input.readInt();
+                if (numbers[i] < 0 || numbers[i] >= nextNumber || sizes[i] <= 0
+                        || sizes[i] > SegmentedFormat.SEGMENT_SIZE)
+                    throw new LoadException("Ошибка загрузки! Файл содержит некорректные данные.");
+            }
+        }
+
+        ProductCollection productCollection = new ProductCollection();
+        productCollection.setInitializationDate(initializationDate);
+        ArrayList<SegmentLayout.Segment> segments = new ArrayList<>(numbers.length);
+        for (int i = 0; i < numbers.length; i++) {
+            List<Product> products = SegmentedFormat.readSegment(SegmentedFormat.segmentFile(manifest, numbers[i]),
+                    sizes[i], productCollection.getPersonRegistry());
+            for (Product product: products)
+                productCollection.addProduct(product);
+            segments.add(new SegmentLayout.Segment(numbers[i], products.toArray(new Product[0])));
+        }
+        SegmentLayout.remember(manifest, new SegmentLayout(initializationDate, nextNumber, segments));
+        return productCollection;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,275 @@
+package project.parsing.segmented;
+
+import project.parsing.save.ISaver;
+import project.products.product.Product;
+import project.products.product_collection.IProductCollection;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Класс для сохранения коллекции товаров в сегментированном формате {@link SegmentedFormat}. Если для манифеста
+ * известна раскладка (коллекция загружена из него или уже сохранялась в него), переписываются только сегменты, товары
+ * которых добавлены, изменены или удалены; новые товары дописываются в последний сегмент и в новые. Если порядок
+ * товаров разошёлся с раскладкой (например, коллекцию отсортировали), раскладка неизвестна или коллекция создаёт
+ * объекты товаров заново ({@link IProductCollection#keepsProducts()}), все сегменты записываются заново. Файлы
+ * сегментов, которых больше нет в манифесте, удаляются после его замены.
+ * <p>
+ * Переписываемый сегмент, в котором осталось меньше половины {@link SegmentedFormat#SEGMENT_SIZE} товаров, сливается
+ * с соседним, если вместе они помещаются в один сегмент; опустевшие сегменты из манифеста убираются. Так удаления не
+ * дробят коллекцию на множество мелких файлов.
+ * <p>
+ * Раскладку последнего сохранения хранит сам объект сохранения; раскладку, прочитанную при загрузке, он забирает при
+ * первом сохранении. Перед сохранением раскладка сверяется с манифестом на диске, и если его переписал кто-то другой,
+ * все сегменты записываются заново.
+ */
+public class SegmentedSaver implements ISaver {
+    private static final int MIN_SEGMENT_SIZE = SegmentedFormat.SEGMENT_SIZE / 2;
+
+    private final File manifest;
+    private SegmentLayout layout;
+
+    /**
+     * Конструктор, позволяющий создать объект класса для работы с конкретным файлом.
+     * @param path путь к манифесту.
+     */
+    public SegmentedSaver(String path) {
+        manifest = new File(path);
+    }
+
+    /**
+     * Сохраняет переданный список, переписывая только изменившиеся сегменты.
+     * @param productCollection коллекция товаров.
+     * @throws IOException если файл не был найден или произошла ошибка при записи.
+     */
+    @Override
+    public void save(IProductCollection productCollection) throws IOException {
+        synchronized (SegmentedSaver.class) {
+            try {
+                write(productCollection);
+            } catch (FileNotFoundException e) {
+                throw new FileNotFoundException("Ошибка при сохранении коллекции! Файл не найден.");
+            } catch (IOException e) {
+                throw new IOException("Ошибка при сохранении коллекции! Не удалось записать данные в файл.");
+            }
+        }
+    }
+
+    private void write(IProductCollection productCollection) throws IOException {
+        boolean keepsProducts = productCollection.keepsProducts();
+        SegmentLayout saved = layout != null ? layout : SegmentLayout.take(manifest);
+        layout = null;
+        if (saved != null && (!keepsProducts || !manifest.exists() || !saved.describes(manifest)))
+            saved = null;
+        SegmentLayout base = saved;
+        boolean rewrite = base == null;
+        if (rewrite)
+            base = new SegmentLayout(null, firstFreeNumber(), new ArrayList<>());
+        ArrayList<Product> added = new ArrayList<>();
+        List<ArrayList<Product>> kept = distribute(base, productCollection, added);
+        if (kept == null) {
+            rewrite = true;
+            base = new SegmentLayout(null, base.nextNumber, new ArrayList<>());
+            added.clear();
+            kept = distribute(base, productCollection, added);
+        }
+
+        ArrayList<Part> parts = new ArrayList<>();
+        int addedPosition = 0;
+        for (int i = 0; i < kept.size(); i++) {
+            ArrayList<Product> products = kept.get(i);
+            if (i == kept.size() - 1)
+                while (products.size() < SegmentedFormat.SEGMENT_SIZE && addedPosition < added.size())
+                    products.add(added.get(addedPosition++));
+            add(parts, new Part(base.segments.get(i), products));
+        }
+        while (addedPosition < added.size()) {
+            int end = Math.min(added.size(), addedPosition + SegmentedFormat.SEGMENT_SIZE);
+            add(parts, new Part(null, new ArrayList<>(added.subList(addedPosition, end))));
+            addedPosition = end;
+        }
+
+        long nextNumber = base.nextNumber;
+        ArrayList<SegmentLayout.Segment> segments = new ArrayList<>(parts.size());
+        ArrayList<SegmentLayout.Segment> written = new ArrayList<>();
+        for (Part part: parts) {
+            SegmentLayout.Segment segment = part.segment;
+            if (part.isDirty()) {
+                segment = new SegmentLayout.Segment(nextNumber++, part.products.toArray(new Product[0]));
+                written.add(segment);
+            }
+            segments.add(segment);
+        }
+
+        LocalDate initializationDate = LocalDate.parse(productCollection.getInitializationDataString());
+        if (!rewrite && written.isEmpty() && segments.size() == base.segments.size()
+                && initializationDate.equals(base.initializationDate)) {
+            layout = saved;
+            return;
+        }
+
+        for (SegmentLayout.Segment segment: written)
+            SegmentedFormat.writeSegment(SegmentedFormat.segmentFile(manifest, segment.number), segment.products);
+        writeManifest(initializationDate, nextNumber, segments);
+        HashSet<Long> live = new HashSet<>();
+        for (SegmentLayout.Segment segment: segments)
+            live.add(segment.number);
+        if (rewrite)
+            deleteSegmentFiles(live);
+        else
+            for (SegmentLayout.Segment segment: base.segments)
+                if (!live.contains(segment.number))
+                    deleteSegmentFile(SegmentedFormat.segmentFile(manifest, segment.number));
+        if (keepsProducts)
+            layout = new SegmentLayout(initializationDate, nextNumber, segments);
+    }
+
+    /**
+     * Добавляет часть в конец списка. Пустая часть пропускается, а переписываемая часть сливается с предыдущей, если
+     * одна из них меньше {@link #MIN_SEGMENT_SIZE} и вместе они помещаются в сегмент.
+     */
+    private static void add(ArrayList<Part> parts, Part part) {
+        if (part.products.isEmpty())
+            return;
+        Part previous = parts.isEmpty() ? null : parts.get(parts.size() - 1);
+        if (previous != null && (previous.isDirty() || part.isDirty())
+                && Math.min(previous.products.size(), part.products.size()) < MIN_SEGMENT_SIZE
+                && previous.products.size() + part.products.size() <= SegmentedFormat.SEGMENT_SIZE) {
+            previous.products.addAll(part.products);
+            previous.segment = null;
+            return;
+        }
+        parts.add(part);
+    }
+
+    /**
+     * Раскладывает товары коллекции по сегментам раскладки. Товары, которых в раскладке нет, попадают в added.
+     * @return товары каждого сегмента раскладки или null, если порядок товаров коллекции не согласуется с раскладкой.
+     */
+    private static List<ArrayList<Product>> distribute(SegmentLayout layout, IProductCollection productCollection,
+                                                       ArrayList<Product> added) {
+        ArrayList<ArrayList<Product>> kept = new ArrayList<>(layout.segments.size());
+        for (SegmentLayout.Segment segment: layout.segments)
+            kept.add(new ArrayList<>(segment.products.length));
+        int lastIndex = 0;
+        for (Product product: productCollection) {
+            SegmentLayout.Segment segment = layout.segmentOf(product.getID());
+            if (segment == null) {
+                added.add(product);
+                continue;
+            }
+            if (!added.isEmpty() || segment.index() < lastIndex)
+                return null;
+            lastIndex = segment.index();
+            kept.get(lastIndex).add(product);
+        }
+        return kept;
+    }
+
+    private static boolean sameProducts(Product[] saved, List<Product> products) {
+        if (saved.length != products.size())
+            return false;
+        for (int i = 0; i < saved.length; i++)
+            if (saved[i] != products.get(i))
+                return false;
+        return true;
+    }
+
+    /**
+     * Товары будущего сегмента и сегмент раскладки, из которого они взяты. Часть переписывается, если она новая или
+     * её товары отличаются от товаров сегмента.
+     */
+    private static class Part {
+        private SegmentLayout.Segment segment;
+        private final ArrayList<Product> products;
+
+        Part(SegmentLayout.Segment segment, ArrayList<Product> products) {
+            this.segment = segment;
+            this.products = products;
+        }
+
+        boolean isDirty() {
+            return segment == null || !sameProducts(segment.products, products);
+        }
+    }
+
+    private void writeManifest(LocalDate initializationDate, long nextNumber, List<SegmentLayout.Segment> segments)
+            throws IOException {
+        File temporaryFile = new File(manifest.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporaryFile)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+            output.writeInt(SegmentedFormat.MAGIC);
+            output.writeShort(SegmentedFormat.VERSION);
+            output.writeLong(initializationDate.toEpochDay());
+            output.writeLong(nextNumber);
+            output.writeInt(segments.size());
+            for (SegmentLayout.Segment segment: segments) {
+                output.writeLong(segment.number);
+                output.writeInt(segment.products.length);
+            }
+            output.flush();
+            stream.getFD().sync();
+        }
+        try {
+            Files.move(temporaryFile.toPath(), manifest.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Возвращает номер, больший номеров всех файлов сегментов этого манифеста, которые есть на диске.
+     */
+    private long firstFreeNumber() {
+        long next = 0;
+        for (long number: segmentFileNumbers())
+            next = Math.max(next, number + 1);
+        return next;
+    }
+
+    /**
+     * Удаляет файлы сегментов этого манифеста, кроме действующих, в том числе оставшиеся от прерванных сохранений.
+     */
+    private void deleteSegmentFiles(HashSet<Long> live) {
+        for (long number: segmentFileNumbers())
+            if (!live.contains(number))
+                deleteSegmentFile(SegmentedFormat.segmentFile(manifest, number));
+    }
+
+    private static void deleteSegmentFile(File file) {
+        if (!file.delete() && file.exists())
+            System.out.println("\nНе удалось удалить файл сегмента " + file.getName() + ".");
+    }
+
+    private List<Long> segmentFileNumbers() {
+        ArrayList<Long> numbers = new ArrayList<>();
+        File directory = manifest.getAbsoluteFile().getParentFile();
+        String prefix = manifest.getName() + ".";
+        String[] names = directory == null ? null : directory.list();
+        if (names == null)
+            return numbers;
+        for (String name: names) {
+            if (!name.startsWith(prefix) || name.length() == prefix.length())
+                continue;
+            try {
+                long number = Long.parseLong(name.substring(prefix.length()));
+                if (number >= 0)
+                    numbers.add(number);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return numbers;
+    }
+}
\ No newline at end of file
@@ -44,12 +44,36 @@ public class ParentTag extends Tag {
      * @return текстовый тег.
      */
     public String toText() {
-        String result = beginTag();
-        for (ParentTag parentTag: parentTags)
-            result += "\n\t" + parentTag.toText().replaceAll("\n", "\n\t");
-        for (TextTag textTag: textTags)
-            result += "\n\t" + textTag.toText().replaceAll("\n", "\n\t");
-        return result + "\n" + endTag();
+        StringBuilder builder = new StringBuilder();
+        appendText(builder, 0);
+        return builder.toString();
+    }
+
+    private void appendText(StringBuilder builder, int depth) {
+        builder.append(beginTag());
+        for (ParentTag parentTag: parentTags) {
+            appendIndent(builder, depth + 1);
+            parentTag.appendText(builder, depth + 1);
+        }
+        for (TextTag textTag: textTags) {
+            appendIndent(builder, depth + 1);
+            String text = textTag.toText();
+            builder.append(text.indexOf('\n') < 0 ? text : text.replace("\n", indent(depth + 1)));
+        }
+        appendIndent(builder, depth);
+        builder.append(endTag());
+    }
+
+    private static void appendIndent(StringBuilder builder, int depth) {
+        builder.append('\n');
+        for (int i = 0; i < depth; i++)
+            builder.append('\t');
+    }
+
+    private static String indent(int depth) {
+        StringBuilder builder = new StringBuilder();
+        appendIndent(builder, depth);
+        return builder.toString();
     }
 
     /**
@@ -5,7 +5,8 @@ import java.util.regex.Pattern;
 
 /**
  * Этот класс позволяет анализировать текст на наличие тегов, а также выделять области имени, аргументов и содержимого в
- * найденных тегах.
+ * найденных тегах. Для разбора целых файлов используется {@link TagParser}, который не выделяет подстроки и не
+ * компилирует регулярные выражения для каждого тега.
  */
 public class TagMatcher {
     public final static Pattern beginTagPattern = Pattern.compile("<\\s*(?<name>\\w*)(?<args>(\\s+\\w+\\s*=\\s*\"[^\"]*\")*)\\s*>");
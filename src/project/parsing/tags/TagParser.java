@@ -0,0 +1,141 @@
+package project.parsing.tags;
+
+import project.metrics.TagParseEvent;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * Однопроходный анализатор текста с тегами. В отличие от {@link TagMatcher} просматривает текст ровно один раз, храня
+ * открытые теги в явном стеке, и сразу строит дерево из объектов {@link ParentTag} и {@link TextTag}. Тег, внутри
+ * которого есть другие теги, становится {@link ParentTag}, остальные - {@link TextTag}; текст между вложенными тегами
+ * игнорируется, как и прежде. События берутся из {@link TagReader}, поэтому можно строить не всё дерево, а лишь
+ * отдельные его ветви (см. {@link #parseOpened()}).
+ */
+public class TagParser {
+    private final TagReader tagReader;
+
+    /**
+     * Создаёт анализатор для указанного текста.
+     * @param text обрабатываемый текст.
+     */
+    public TagParser(CharSequence text) {
+        this(new TagReader(new StringReader(text.toString())));
+    }
+
+    /**
+     * Создаёт анализатор, получающий события от указанного объекта.
+     * @param tagReader источник событий.
+     */
+    public TagParser(TagReader tagReader) {
+        this.tagReader = tagReader;
+    }
+
+    /**
+     * Находит в тексте следующий тег верхнего уровня и строит его вместе со всеми вложенными.
+     * @return объект {@link ParentTag}, если внутри тега есть другие теги, объект {@link TextTag}, если нет,
+     * или null, если тегов в оставшемся тексте нет.
+     * @exception InvalidTagException если теги перекрываются или какой-то из них не закрыт.
+     * @throws IOException если произошла ошибка чтения.
+     */
+    public Tag parse() throws IOException {
+        TagReader.Event event;
+        while ((event = tagReader.next()) != TagReader.Event.END_OF_TEXT)
+            if (event == TagReader.Event.BEGIN_TAG)
+                return parseOpened();
+        return null;
+    }
+
+    /**
+     * Строит тег, открывающий тег которого был последним событием источника, вместе со всеми вложенными тегами.
+     * После возвращения источник стоит сразу за закрывающим тегом. Построение отмечается событием JFR
+     * {@link TagParseEvent}.
+     * @return объект {@link ParentTag} или {@link TextTag}.
+     * @exception InvalidTagException если теги перекрываются или какой-то из них не закрыт.
+     * @throws IOException если произошла ошибка чтения.
+     */
+    public Tag parseOpened() throws IOException {
+        TagParseEvent event = new TagParseEvent();
+        event.begin();
+        ArrayDeque<Element> stack = new ArrayDeque<>();
+        stack.push(new Element(tagReader.getName(), tagReader.getArguments()));
+        int nestedTags = 0;
+        while (true) {
+            switch (tagReader.next()) {
+                case BEGIN_TAG:
+                    stack.push(new Element(tagReader.getName(), tagReader.getArguments()));
+                    nestedTags++;
+                    break;
+                case TEXT:
+                    stack.peek().addText(tagReader.getText());
+                    break;
+                case END_TAG:
+                    Element element = stack.pop();
+                    if (!element.name.equals(tagReader.getName()))
+                        throw new InvalidTagException("Закрывающий тег </" + tagReader.getName()
+                                + "> не соответствует открытому тегу <" + element.name + ">.");
+                    Tag tag = element.toTag();
+                    if (stack.isEmpty()) {
+                        event.end();
+                        if (event.shouldCommit()) {
+                            event.tag = element.name;
+                            event.nestedTags = nestedTags;
+                            event.commit();
+                        }
+                        return tag;
+                    }
+                    stack.peek().addNestedTag(tag);
+                    break;
+                case END_OF_TEXT:
+                    throw new InvalidTagException("Тег <" + stack.getLast().name + "> не закрыт.");
+            }
+        }
+    }
+
+    /**
+     * Открытый, но ещё не закрытый тег. Объект {@link ParentTag} создаётся только при появлении первого вложенного тега,
+     * после чего текст внутри тега больше не накапливается.
+     */
+    private static class Element {
+        private final String name;
+        private final HashMap<String, String> arguments;
+        private StringBuilder content;
+        private ParentTag parentTag;
+
+        private Element(String name, HashMap<String, String> arguments) {
+            this.name = name;
+            this.arguments = arguments;
+            content = new StringBuilder();
+        }
+
+        private void addText(String text) {
+            if (parentTag == null)
+                content.append(text);
+        }
+
+        private void addNestedTag(Tag tag) {
+            if (parentTag == null) {
+                parentTag = withArguments(new ParentTag(name));
+                content = null;
+            }
+            if (tag instanceof ParentTag)
+                parentTag.addParentTag((ParentTag) tag);
+            else
+                parentTag.addTextTag((TextTag) tag);
+        }
+
+        private Tag toTag() {
+            if (parentTag != null)
+                return parentTag;
+            return withArguments(new TextTag(name, content.toString()));
+        }
+
+        private <T extends Tag> T withArguments(T tag) {
+            for (String key: arguments.keySet())
+                tag.addArgument(key, arguments.get(key));
+            return tag;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,328 @@
+package project.parsing.tags;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+
+/**
+ * Потоковый анализатор текста с тегами. Читает текст из {@link Reader} небольшими порциями и по запросу выдаёт
+ * очередное событие: открывающий тег, закрывающий тег, текст между тегами или конец текста. Дерево тегов при этом
+ * не строится, поэтому объём занимаемой памяти не зависит от размера текста. Объявления вида &lt;?...?&gt; и
+ * &lt;!...&gt; пропускаются.
+ * @see TagParser
+ */
+public class TagReader implements Closeable {
+    /**
+     * Виды событий, выдаваемых методом {@link #next()}.
+     */
+    public enum Event {
+        BEGIN_TAG,
+        END_TAG,
+        TEXT,
+        END_OF_TEXT
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private long bufferOffset;
+    private boolean endOfStream;
+
+    private final StringBuilder text;
+    private Event pendingEvent;
+    private String name;
+    private HashMap<String, String> arguments;
+    private String content;
+
+    /**
+     * Создаёт анализатор, читающий текст из указанного источника.
+     * @param reader источник текста.
+     */
+    public TagReader(Reader reader) {
+        this.reader = reader;
+        buffer = new char[BUFFER_SIZE];
+        text = new StringBuilder();
+    }
+
+    /**
+     * Читает текст до следующего события.
+     * @return вид события. Для {@link Event#BEGIN_TAG} и {@link Event#END_TAG} имя тега доступно через
+     * {@link #getName()}, а для {@link Event#TEXT} текст - через {@link #getText()}.
+     * @throws IOException если произошла ошибка чтения.
+     */
+    public Event next() throws IOException {
+        if (pendingEvent != null) {
+            Event event = pendingEvent;
+            pendingEvent = null;
+            return event;
+        }
+        text.setLength(0);
+        while (true) {
+            if (position == limit && !fill())
+                return text.length() > 0 ? textEvent() : Event.END_OF_TEXT;
+            if (buffer[position] != '<') {
+                int begin = position;
+                while (position < limit && buffer[position] != '<')
+                    position++;
+                text.append(buffer, begin, position - begin);
+                continue;
+            }
+            int tagEnd = findTagEnd();
+            Event event = tagEnd < 0 ? null : readTag(tagEnd);
+            if (event == null) {
+                text.append('<');
+                position++;
+            } else if (event != Event.TEXT) {
+                if (text.length() == 0)
+                    return event;
+                pendingEvent = event;
+                return textEvent();
+            }
+        }
+    }
+
+    /**
+     * Имя тега из последнего события {@link Event#BEGIN_TAG} или {@link Event#END_TAG}.
+     * @return имя тега.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Аргументы тега из последнего события {@link Event#BEGIN_TAG}.
+     * @return карта аргументов.
+     */
+    public HashMap<String, String> getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Текст из последнего события {@link Event#TEXT}.
+     * @return текст между тегами.
+     */
+    public String getText() {
+        return content;
+    }
+
+    /**
+     * Позиция в тексте сразу за последним прочитанным тегом. Имеет смысл после событий {@link Event#BEGIN_TAG} и
+     * {@link Event#END_TAG}.
+     * @return количество символов от начала текста.
+     */
+    public long getOffset() {
+        return bufferOffset + position;
+    }
+
+    /**
+     * Пропускает текст до указанной позиции, не разбирая его. Следующее событие будет прочитано начиная с этой позиции.
+     * @param offset позиция в тексте, не меньшая {@link #getOffset()}.
+     * @throws IOException если произошла ошибка чтения.
+     */
+    public void skipTo(long offset) throws IOException {
+        pendingEvent = null;
+        while (bufferOffset + limit < offset) {
+            bufferOffset += limit;
+            position = limit = 0;
+            if (!fill())
+                return;
+        }
+        position = (int) (offset - bufferOffset);
+    }
+
+    /**
+     * Читает текст с текущей позиции, не разбирая его на события. Имеет смысл после событий {@link Event#BEGIN_TAG} и
+     * {@link Event#END_TAG}; следующее событие будет прочитано сразу за прочитанным текстом.
+     * @param target массив для текста.
+     * @param offset позиция в массиве, с которой записывается текст.
+     * @param length наибольшее число символов.
+     * @return число прочитанных символов или -1, если текст закончился.
+     * @throws IOException если произошла ошибка чтения.
+     */
+    public int readRaw(char[] target, int offset, int length) throws IOException {
+        pendingEvent = null;
+        if (position < limit) {
+            int count = Math.min(length, limit - position);
+            System.arraycopy(buffer, position, target, offset, count);
+            position += count;
+            return count;
+        }
+        if (endOfStream)
+            return -1;
+        int read = reader.read(target, offset, length);
+        if (read < 0) {
+            endOfStream = true;
+            return -1;
+        }
+        bufferOffset += read;
+        return read;
+    }
+
+    /**
+     * Возвращает текст в начало непрочитанной части: следующие события будут прочитаны сначала из него, затем из
+     * остального текста. Позиции ({@link #getOffset()}) отсчитываются так, будто возвращённый текст стоит на месте
+     * последних прочитанных символов.
+     * @param source массив с текстом.
+     * @param offset позиция текста в массиве.
+     * @param length длина текста.
+     */
+    public void unread(char[] source, int offset, int length) {
+        pendingEvent = null;
+        if (position < length) {
+            int remaining = limit - position;
+            char[] target = length + remaining > buffer.length ? new char[length + remaining] : buffer;
+            System.arraycopy(buffer, position, target, length, remaining);
+            buffer = target;
+            bufferOffset += position - length;
+            position = length;
+            limit = length + remaining;
+        }
+        position -= length;
+        System.arraycopy(source, offset, buffer, position, length);
+    }
+
+    /**
+     * Закрывает источник текста.
+     * @throws IOException если источник не удалось закрыть.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Event textEvent() {
+        content = text.toString();
+        return Event.TEXT;
+    }
+
+    /**
+     * Дочитывает данные в буфер, сдвигая непрочитанную часть в начало и при необходимости увеличивая буфер.
+     * @return false, если новых данных нет.
+     */
+    private boolean fill() throws IOException {
+        if (endOfStream)
+            return false;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            bufferOffset += position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            char[] newBuffer = new char[buffer.length * 2];
+            System.arraycopy(buffer, 0, newBuffer, 0, limit);
+            buffer = newBuffer;
+        }
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfStream = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Ищет символ '&gt;', завершающий тег, который начинается в текущей позиции. Внутри кавычек открывающего тега
+     * '&gt;' и '&lt;' не учитываются.
+     * @return индекс символа '&gt;' в буфере или -1, если до него встретился '&lt;' или текст закончился.
+     */
+    private int findTagEnd() throws IOException {
+        int offset = 1;
+        boolean quoted = false;
+        boolean beginTag = true;
+        boolean firstChar = true;
+        while (true) {
+            if (position + offset >= limit && !fill())
+                return -1;
+            char c = buffer[position + offset];
+            if (firstChar && !Character.isWhitespace(c)) {
+                firstChar = false;
+                beginTag = c != '/' && c != '?' && c != '!';
+            }
+            if (c == '"' && beginTag)
+                quoted = !quoted;
+            else if (!quoted) {
+                if (c == '>')
+                    return position + offset;
+                if (c == '<')
+                    return -1;
+            }
+            offset++;
+        }
+    }
+
+    /**
+     * Разбирает тег между текущей позицией и tagEnd. В случае успеха сдвигает позицию за тег.
+     * @return вид тега, {@link Event#TEXT} для пропущенного объявления или null, если это не тег.
+     */
+    private Event readTag(int tagEnd) {
+        int j = skipSpaces(position + 1);
+        char c = buffer[j];
+        if (c == '?' || c == '!') {
+            position = tagEnd + 1;
+            return Event.TEXT;
+        }
+        if (c == '/') {
+            j = skipSpaces(j + 1);
+            int nameEnd = skipWord(j);
+            if (skipSpaces(nameEnd) != tagEnd)
+                return null;
+            name = new String(buffer, j, nameEnd - j);
+            position = tagEnd + 1;
+            return Event.END_TAG;
+        }
+        int nameEnd = skipWord(j);
+        String tagName = new String(buffer, j, nameEnd - j);
+        HashMap<String, String> tagArguments = new HashMap<>();
+        j = nameEnd;
+        while (true) {
+            int argBegin = skipSpaces(j);
+            if (argBegin == j)
+                break;
+            int argNameEnd = skipWord(argBegin);
+            if (argNameEnd == argBegin)
+                break;
+            int k = skipSpaces(argNameEnd);
+            if (buffer[k] != '=')
+                break;
+            k = skipSpaces(k + 1);
+            if (buffer[k] != '"')
+                break;
+            int valueEnd = k + 1;
+            while (valueEnd < tagEnd && buffer[valueEnd] != '"')
+                valueEnd++;
+            if (valueEnd >= tagEnd)
+                break;
+            tagArguments.put(new String(buffer, argBegin, argNameEnd - argBegin),
+                    new String(buffer, k + 1, valueEnd - k - 1));
+            j = valueEnd + 1;
+        }
+        if (skipSpaces(j) != tagEnd)
+            return null;
+        name = tagName;
+        arguments = tagArguments;
+        position = tagEnd + 1;
+        return Event.BEGIN_TAG;
+    }
+
+    private int skipSpaces(int j) {
+        while (Character.isWhitespace(buffer[j]))
+            j++;
+        return j;
+    }
+
+    private int skipWord(int j) {
+        while (isWordChar(buffer[j]))
+            j++;
+        return j;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
\ No newline at end of file
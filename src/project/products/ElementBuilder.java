@@ -1,6 +1,6 @@
 package project.products;
 
-import com.sun.istack.internal.NotNull;
+import org.jetbrains.annotations.NotNull;
 import project.ConsoleReader;
 import project.Main;
 import project.products.product.*;
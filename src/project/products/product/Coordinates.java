@@ -1,9 +1,12 @@
 package project.products.product;
 
-import com.sun.istack.internal.NotNull;
+import org.jetbrains.annotations.NotNull;
 import project.parsing.tags.InvalidTagException;
 import project.parsing.tags.ParentTag;
 import project.parsing.tags.TextTag;
+import project.parsing.save.TagWriter;
+
+import java.io.IOException;
 
 import static project.products.ElementBuilder.setField;
 
@@ -23,6 +26,17 @@ public class Coordinates implements Comparable<Coordinates> {
         setField("Введите вещественную координату y", str -> setY(Double.parseDouble(str)));
     }
 
+    /**
+     * Создаёт пару координат с указанными значениями.
+     * @param x координата x (не null).
+     * @param y координата y.
+     * @exception IllegalArgumentException если x равен null.
+     */
+    public Coordinates(Float x, double y) {
+        setX(x);
+        setY(y);
+    }
+
     /**
      * Получает значения координат x и y из соответствующего тега.
      * @param coordinatesTag тег с вложенными тегами x и y.
@@ -55,6 +69,18 @@ public class Coordinates implements Comparable<Coordinates> {
         return parentTag;
     }
 
+    /**
+     * Записывает тег с координатами, не создавая объектов тегов.
+     * @param tagWriter объект потоковой записи тегов.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public void writeTag(TagWriter tagWriter) throws IOException {
+        tagWriter.beginTag("coordinates");
+        tagWriter.textTag("x", x + "");
+        tagWriter.textTag("y", y + "");
+        tagWriter.endTag();
+    }
+
     /**
      * Задаёт координату x.
      * @param x вещественная координата.
@@ -90,13 +116,13 @@ public class Coordinates implements Comparable<Coordinates> {
     }
 
     /**
-     * Сравнивает с другим объектом класса координат. Возвращает разницу сумм коодинат.
+     * Сравнивает с другим объектом класса координат по сумме координат.
      * @param coordinates другая пара координат.
-     * @return округлённая разница сумм координат.
+     * @return число меньше нуля, если сумма координат меньше; равное нулю, если равна; больше нуля, если больше.
      */
     @Override
     public int compareTo(Coordinates coordinates) {
-        return (int)(x + y - (coordinates.x + coordinates.y));
+        return Double.compare(x + y, coordinates.x + coordinates.y);
     }
 
     /**
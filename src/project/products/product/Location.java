@@ -1,10 +1,12 @@
 package project.products.product;
 
-import com.sun.istack.internal.NotNull;
+import org.jetbrains.annotations.NotNull;
 import project.parsing.tags.InvalidTagException;
 import project.parsing.tags.ParentTag;
 import project.parsing.tags.TextTag;
+import project.parsing.save.TagWriter;
 
+import java.io.IOException;
 import java.util.Objects;
 
 import static project.products.ElementBuilder.getLine;
@@ -41,6 +43,24 @@ public class Location {
         return location;
     }
 
+    /**
+     * Создаёт локацию с указанными значениями полей.
+     * @param name название локации.
+     * @param x координата x.
+     * @param y координата y.
+     * @param z координата z.
+     * @exception NullPointerException если одно из значений null.
+     * @return новая локация.
+     */
+    public static Location newLocation(String name, float x, Integer y, Long z) {
+        Location location = new Location();
+        location.setName(name);
+        location.setX(x);
+        location.setY(y);
+        location.setZ(z);
+        return location;
+    }
+
     /**
      * Получает значения характеристик локации из тега.
      * @param locationTag тег с вложенными тегами name, x, y, z.
@@ -82,6 +102,20 @@ public class Location {
         return parentTag;
     }
 
+    /**
+     * Записывает тег, описывающий эту локацию, не создавая объектов тегов.
+     * @param tagWriter объект потоковой записи тегов.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public void writeTag(TagWriter tagWriter) throws IOException {
+        tagWriter.beginTag("location");
+        tagWriter.textTag("name", name);
+        tagWriter.textTag("x", x + "");
+        tagWriter.textTag("y", y + "");
+        tagWriter.textTag("z", z + "");
+        tagWriter.endTag();
+    }
+
     /**
      * Возвращает координату x.
      * @return вещественная координата.
@@ -165,4 +199,13 @@ public class Location {
                 z.equals(location.z) &&
                 name.equals(location.name);
     }
+
+    /**
+     * Возвращает хеш-код, согласованный с {@link #equals(Object)}. Позволяет хранить локации в хеш-таблицах.
+     * @return хеш-код.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(x, y, z, name);
+    }
 }
\ No newline at end of file
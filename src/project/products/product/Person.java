@@ -1,22 +1,22 @@
 package project.products.product;
 
-import com.sun.istack.internal.NotNull;
+import org.jetbrains.annotations.NotNull;
 
 import project.parsing.tags.InvalidTagException;
 import project.parsing.tags.ParentTag;
 import project.parsing.tags.TextTag;
+import project.parsing.save.TagWriter;
 
-import java.util.HashSet;
-import java.util.Iterator;
+import java.io.IOException;
 import java.util.Objects;
 
 import static project.products.ElementBuilder.setField;
-import static project.products.ElementBuilder.getLine;
 
 /**
  * Класс, содержащий информацию о человеке: имя, номер паспорта, рост (если он имеет значение), масса и место нахождения (если оно имеет значение).
  * @see Product
  * @see Location
+ * @see PersonRegistry
  */
 public class Person implements Comparable<Person> {
     private String name;
@@ -25,54 +25,34 @@ public class Person implements Comparable<Person> {
     private String passportID;
     private Location location;
 
-    private static boolean lastIsNew;
-    private final static HashSet<Person> persons = new HashSet<>();
-
-    private Person() {}
+    Person() {}
 
     /**
-     * Поочерёдно запрашивает значения всех полей у пользователя и возвращает нового человека или ссылку на существующего.
-     * Устанавливает флаг lastIsNew.
-     * @param status существительное в родительном падеже, которым следует назвать человека при запросе номера паспорта.
-     * @return null, если пользователь не стал вводить номер паспорта, ссылка на существующего человека с указанным
-     * номером паспорта или новый человек.
+     * Поочерёдно запрашивает у пользователя значения всех полей, кроме номера паспорта, и создаёт нового человека.
+     * @param passportID номер паспорта нового человека.
+     * @return новый человек.
      */
-    public static Person newPerson(String status) {
-        String passportID = getLine(
-                "Введите номер паспорта " + status + " или оставьте строку пустой",
-                str -> str.equals("") ? null : requireValidPassportID(str));
-
-        if (passportID == null) return null;
-
-        for (Person existingPerson: persons)
-            if (existingPerson.getPassportID().equals(passportID)) {
-                lastIsNew = false;
-                return existingPerson;
-            }
-
+    static Person read(String passportID) {
         Person newPerson = new Person();
+        newPerson.passportID = passportID;
+        setField("Введите имя владельца", newPerson::setName);
         setField("Введите рост владельца или оставьте строку пустой",
                 str -> newPerson.setHeight(str.equals("") ? null : Float.valueOf(str)));
         setField("Введите вес владельца",
                 str -> newPerson.setWeight(Float.parseFloat(str)));
         newPerson.setLocation(Location.newLocation());
-        lastIsNew = true;
-        persons.add(newPerson);
         return newPerson;
     }
 
     /**
-     * Получает значения характеристик личности из тега. Создаёт нового человека или возвращает ссылку на уже существующего.
-     * Устанавливает флаг lastIsNew.
+     * Получает значения характеристик личности из тега и создаёт нового человека. Проверка уникальности номера паспорта
+     * выполняется реестром {@link PersonRegistry}.
      * @param personTag тег с вложенными тегами name, passportID, weight и, возможно, height и location.
      * @exception InvalidTagException если тег не содержит необходимых вложенных тегов или
      * если в них содержатся некорректные данные.
-     * @exception NotUniquePassportIDException если уже существует человек с таким номером паспорта, но другими характеристиками.
-     * @return ссылка на нового или уже существовавшего человека или null, если в качестве тега был передан null.
+     * @return новый человек.
      */
-    public static Person newPerson(ParentTag personTag) {
-        if (personTag == null)
-            return null;
+    public static Person fromTag(ParentTag personTag) {
         String className = "Person";
         try {
             if (!personTag.getArguments().containsKey("passportID"))
@@ -103,17 +83,6 @@ public class Person implements Comparable<Person> {
                 throw new InvalidTagException(className, e.getMessage());
             }
             newPerson.setLocation(Location.newLocation(locationTag));
-
-            for (Person existingPerson: persons)
-                if (existingPerson.getPassportID().equals(newPerson.passportID))
-                    if (existingPerson.equals(newPerson)) {
-                        lastIsNew = false;
-                        return existingPerson;
-                    }
-                    else
-                        throw new NotUniquePassportIDException(newPerson.passportID);
-            lastIsNew = true;
-            persons.add(newPerson);
             return newPerson;
         } catch (IllegalArgumentException e) {
             throw new InvalidTagException(className, e.getMessage());
@@ -122,15 +91,6 @@ public class Person implements Comparable<Person> {
         }
     }
 
-    /**
-     * Возвращает текущее значение флага lastIsNew.
-     * @return true, если при последнем вызове newPerson() был создан новый человек; false, если была возвращена лишь
-     * ссылка на существующего.
-     */
-    public static boolean lastIsNew() {
-        return lastIsNew;
-    }
-
     /**
      * Метод для получения тега, описывающего этого человека.
      * @return тег person, содержащий теги, соответствующие каждому непустому полю класса.
@@ -148,11 +108,19 @@ public class Person implements Comparable<Person> {
     }
 
     /**
-     * Возвращает ссылку на множество всех известных людей.
-     * @return множество созданных объектов Person.
+     * Записывает тег, описывающий этого человека, не создавая объектов тегов.
+     * @param tagWriter объект потоковой записи тегов.
+     * @throws IOException если произошла ошибка при записи.
      */
-    public static HashSet<Person> getPersons() {
-        return persons;
+    public void writeTag(TagWriter tagWriter) throws IOException {
+        tagWriter.beginTag("owner", "passportID", passportID);
+        tagWriter.textTag("name", name);
+        tagWriter.textTag("weight", weight + "");
+        if (!(height == null))
+            tagWriter.textTag("height", height + "");
+        if (!(location == null))
+            location.writeTag(tagWriter);
+        tagWriter.endTag();
     }
 
     /**
@@ -190,6 +158,15 @@ public class Person implements Comparable<Person> {
         this.weight = weight;
     }
 
+    /**
+     * Задаёт номер паспорта. Номер паспорта не меняется после регистрации человека в {@link PersonRegistry}.
+     * @param passportID номер паспорта.
+     * @throws IllegalArgumentException бросает, если номер паспорта короче 4 символов.
+     */
+    void setPassportID(String passportID) throws IllegalArgumentException {
+        this.passportID = requireValidPassportID(passportID);
+    }
+
     /**
      * Требует соблюдения правил для номера паспорта (более 3 символов).
      * @param passportID проверяемая строка.
@@ -249,17 +226,6 @@ public class Person implements Comparable<Person> {
         return location;
     }
 
-    public static boolean removePerson(String passportID) {
-        Iterator<Person> iterator = persons.iterator();
-        while (iterator.hasNext()) {
-            if (iterator.next().getPassportID().equals(passportID)) {
-                iterator.remove();
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Переопределяет toString() класса Object. Возвращает строку с именем и номером паспорта.
      * @return имя и номер паспорта.
@@ -0,0 +1,230 @@
+package project.products.product;
+
+import project.parsing.tags.ParentTag;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static project.products.ElementBuilder.getLine;
+
+/**
+ * Реестр людей, известных коллекции товаров. Хранит людей в таблице по номеру паспорта и, кроме того, для каждого
+ * владельца - множество его товаров, так что поиск человека, проверка уникальности номера паспорта и получение товаров
+ * владельца не требуют просмотра всех людей или всех товаров. Связи владельцев с товарами поддерживает коллекция,
+ * которой принадлежит реестр. Методы реестра потокобезопасны: таблица людей защищена монитором реестра, а ввод данных
+ * пользователем выполняется вне его. Связи владельцев с товарами хранятся в {@link ConcurrentHashMap} и меняются без
+ * общей блокировки, так что потоки, изменяющие товары разных владельцев, не ждут друг друга.
+ * @see Person
+ * @see project.products.product_collection.IProductCollection
+ */
+public class PersonRegistry {
+    private final HashMap<String, Person> persons;
+    private final ConcurrentHashMap<String, Set<Product>> ownedProducts;
+    private boolean lastIsNew;
+
+    /**
+     * Создаёт пустой реестр.
+     */
+    public PersonRegistry() {
+        persons = new HashMap<>();
+        ownedProducts = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Запрашивает у пользователя номер паспорта и возвращает человека с таким номером, если он уже известен; иначе
+     * поочерёдно запрашивает значения остальных полей и регистрирует нового человека. Устанавливает флаг lastIsNew.
+     * @param status существительное в родительном падеже, которым следует назвать человека при запросе номера паспорта.
+     * @return null, если пользователь не стал вводить номер паспорта, ссылка на существующего человека с указанным
+     * номером паспорта или новый человек.
+     */
+    public Person newPerson(String status) {
+        String passportID = getLine(
+                "Введите номер паспорта " + status + " или оставьте строку пустой",
+                str -> str.equals("") ? null : Person.requireValidPassportID(str));
+
+        if (passportID == null) return null;
+
+        synchronized (this) {
+            Person existingPerson = persons.get(passportID);
+            if (existingPerson != null) {
+                lastIsNew = false;
+                return existingPerson;
+            }
+        }
+
+        Person newPerson = Person.read(passportID);
+        synchronized (this) {
+            Person existingPerson = persons.get(passportID);
+            if (existingPerson != null) {
+                lastIsNew = false;
+                return existingPerson;
+            }
+            lastIsNew = true;
+            persons.put(passportID, newPerson);
+            return newPerson;
+        }
+    }
+
+    /**
+     * Получает значения характеристик личности из тега. Регистрирует нового человека или возвращает ссылку на уже
+     * существующего. Устанавливает флаг lastIsNew.
+     * @param personTag тег с вложенными тегами name, passportID, weight и, возможно, height и location.
+     * @exception project.parsing.tags.InvalidTagException если тег не содержит необходимых вложенных тегов или
+     * если в них содержатся некорректные данные.
+     * @exception NotUniquePassportIDException если уже существует человек с таким номером паспорта, но другими характеристиками.
+     * @return ссылка на нового или уже существовавшего человека или null, если в качестве тега был передан null.
+     */
+    public Person newPerson(ParentTag personTag) {
+        if (personTag == null)
+            return null;
+        return register(Person.fromTag(personTag));
+    }
+
+    /**
+     * Регистрирует человека с указанными характеристиками или возвращает ссылку на уже существующего. Устанавливает
+     * флаг lastIsNew.
+     * @param passportID номер паспорта.
+     * @param name имя.
+     * @param height рост или null.
+     * @param weight масса.
+     * @param location локация или null.
+     * @exception IllegalArgumentException если какое-то из значений недопустимо.
+     * @exception NotUniquePassportIDException если уже существует человек с таким номером паспорта, но другими характеристиками.
+     * @return ссылка на нового или уже существовавшего человека.
+     */
+    public Person newPerson(String passportID, String name, Float height, float weight, Location location) {
+        Person newPerson = new Person();
+        newPerson.setPassportID(passportID);
+        newPerson.setName(name);
+        newPerson.setHeight(height);
+        newPerson.setWeight(weight);
+        newPerson.setLocation(location);
+        return register(newPerson);
+    }
+
+    /**
+     * Регистрирует созданного, но ещё не зарегистрированного человека или возвращает ссылку на уже существующего с
+     * тем же номером паспорта. Устанавливает флаг lastIsNew.
+     * @param newPerson новый человек.
+     * @exception NotUniquePassportIDException если уже существует человек с таким номером паспорта, но другими характеристиками.
+     * @return ссылка на переданного или уже существовавшего человека.
+     */
+    public synchronized Person register(Person newPerson) {
+        Person existingPerson = persons.get(newPerson.getPassportID());
+        if (existingPerson != null) {
+            if (!existingPerson.equals(newPerson))
+                throw new NotUniquePassportIDException(newPerson.getPassportID());
+            lastIsNew = false;
+            return existingPerson;
+        }
+        lastIsNew = true;
+        persons.put(newPerson.getPassportID(), newPerson);
+        return newPerson;
+    }
+
+    /**
+     * Возвращает текущее значение флага lastIsNew.
+     * @return true, если при последнем вызове newPerson() был создан новый человек; false, если была возвращена лишь
+     * ссылка на существующего.
+     */
+    public synchronized boolean lastIsNew() {
+        return lastIsNew;
+    }
+
+    /**
+     * Возвращает человека с указанным номером паспорта.
+     * @param passportID номер паспорта.
+     * @return человек или null, если такого нет.
+     */
+    public synchronized Person getPerson(String passportID) {
+        return persons.get(passportID);
+    }
+
+    /**
+     * Удаляет человека с указанным номером паспорта из реестра. Связи с товарами при этом не затрагиваются.
+     * @param passportID номер паспорта.
+     * @return true, если такой человек был.
+     */
+    public synchronized boolean removePerson(String passportID) {
+        return persons.remove(passportID) != null;
+    }
+
+    /**
+     * Возвращает всех известных людей.
+     * @return неизменяемый список людей на момент вызова.
+     */
+    public synchronized Collection<Person> getPersons() {
+        return Collections.unmodifiableList(new ArrayList<>(persons.values()));
+    }
+
+    /**
+     * Запоминает, что товар принадлежит своему текущему владельцу. Ничего не делает, если владельца нет. Блокируется
+     * только запись таблицы для этого владельца.
+     * @param product товар.
+     */
+    public void addOwnership(Product product) {
+        Person owner = product.getOwner();
+        if (owner == null)
+            return;
+        ownedProducts.compute(owner.getPassportID(), (passportID, products) -> {
+            if (products == null)
+                products = ConcurrentHashMap.newKeySet();
+            products.add(product);
+            return products;
+        });
+    }
+
+    /**
+     * Забывает связь товара с его текущим владельцем. Ничего не делает, если владельца нет. Блокируется только запись
+     * таблицы для этого владельца; опустевшее множество товаров удаляется из таблицы в той же операции.
+     * @param product товар.
+     */
+    public void removeOwnership(Product product) {
+        Person owner = product.getOwner();
+        if (owner == null)
+            return;
+        ownedProducts.computeIfPresent(owner.getPassportID(), (passportID, products) -> {
+            products.remove(product);
+            return products.isEmpty() ? null : products;
+        });
+    }
+
+    /**
+     * Забывает все связи владельцев с товарами. Сами люди остаются в реестре.
+     */
+    public void clearOwnership() {
+        ownedProducts.clear();
+    }
+
+    /**
+     * Возвращает товары владельца с указанным номером паспорта.
+     * @param passportID номер паспорта.
+     * @return неизменяемое множество товаров на момент вызова (пустое, если товаров нет).
+     */
+    public Set<Product> getProducts(String passportID) {
+        Set<Product> products = ownedProducts.get(passportID);
+        return products == null ? Collections.<Product>emptySet()
+                : Collections.unmodifiableSet(new HashSet<>(products));
+    }
+
+    /**
+     * Возвращает людей, которым принадлежит хотя бы один товар.
+     * @return список владельцев без повторений.
+     */
+    public List<Person> getOwners() {
+        ArrayList<Person> owners = new ArrayList<>(ownedProducts.size());
+        for (Set<Product> products: ownedProducts.values()) {
+            Iterator<Product> iterator = products.iterator();
+            if (iterator.hasNext())
+                owners.add(iterator.next().getOwner());
+        }
+        return owners;
+    }
+}
\ No newline at end of file
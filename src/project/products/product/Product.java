@@ -1,14 +1,19 @@
 package project.products.product;
 
-import com.sun.istack.internal.NotNull;
+import org.jetbrains.annotations.NotNull;
 import project.parsing.tags.DuplicateTagException;
 import project.parsing.tags.InvalidTagException;
 import project.parsing.tags.ParentTag;
 import project.parsing.tags.TextTag;
+import project.parsing.save.FragmentCache;
+import project.parsing.save.TagWriter;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 import static java.util.Objects.requireNonNull;
 import static project.products.ElementBuilder.setField;
@@ -29,40 +34,98 @@ public class Product implements Comparable<Product> {
     private double price;
     private UnitOfMeasure unitOfMeasure;
     private Person owner;
+    private volatile FragmentCache.Fragment fragment;
 
-    private static long nextID = 1;
+    private static final AtomicLong nextID = new AtomicLong(1);
 
     {
-        ID = nextID++;
         creationDate = LocalDateTime.now();
     }
 
     /**
      * Поочерёдно запрашивает значения всех полей у пользователя.
+     * @param personRegistry реестр, в котором ищется или регистрируется владелец.
      */
-    public Product() {
-        update();
+    public Product(PersonRegistry personRegistry) {
+        ID = nextID.getAndIncrement();
+        update(personRegistry);
     }
 
     /**
      * Поочерёдно запрашивает значения всех полей у пользователя и заменяет ими старые.
+     * @param personRegistry реестр, в котором ищется или регистрируется владелец.
      */
-    public void update() {
+    public void update(PersonRegistry personRegistry) {
         setField("Введите наименование товара", this::setName);
         Coordinates coordinates = new Coordinates();
         setCoordinates(coordinates);
         setField("Введите цену на товар", str -> setPrice(Double.parseDouble(str)));
         setField("Введите единицу измерения (KILOGRAMS / SQUARE_METERS / LITERS / GRAMS) или оставьте строку пустой",
                 str -> setUnitOfMeasure(str.equals("") ? null : UnitOfMeasure.valueOf(str)));
-        setOwner(Person.newPerson("владельца"));
+        setOwner(personRegistry.newPerson("владельца"));
+    }
+
+    /**
+     * Создаёт товар с указанными значениями полей. Номер товару назначается, как и при других способах создания.
+     * @param name наименование.
+     * @param coordinates координаты.
+     * @param creationDate дата и время создания.
+     * @param price цена.
+     * @param unitOfMeasure единица измерения или null.
+     * @param owner владелец или null.
+     * @exception IllegalArgumentException если какое-то из значений недопустимо.
+     */
+    public Product(String name, Coordinates coordinates, LocalDateTime creationDate, double price,
+                   UnitOfMeasure unitOfMeasure, Person owner) {
+        this(nextID.getAndIncrement(), name, coordinates, creationDate, price, unitOfMeasure, owner);
+    }
+
+    /**
+     * Создаёт товар с указанным номером и значениями полей. Номер должен быть заранее получен методом
+     * {@link #reserveIDs(int)}, иначе он может совпасть с номером другого товара.
+     * @param ID номер товара.
+     * @param name наименование.
+     * @param coordinates координаты.
+     * @param creationDate дата и время создания.
+     * @param price цена.
+     * @param unitOfMeasure единица измерения или null.
+     * @param owner владелец или null.
+     * @exception IllegalArgumentException если какое-то из значений недопустимо.
+     */
+    public Product(long ID, String name, Coordinates coordinates, LocalDateTime creationDate, double price,
+                   UnitOfMeasure unitOfMeasure, Person owner) {
+        this.ID = ID;
+        setName(name);
+        setCoordinates(coordinates);
+        setCreationDate(creationDate);
+        setPrice(price);
+        setUnitOfMeasure(unitOfMeasure);
+        setOwner(owner);
     }
 
     /**
      * Получает значения характеристик товара из тега.
      * @param productTag тег с вложенными тегами name, coordinates, creationDate, price и, возможно, unitOfMeasure и owner.
+     * @param personRegistry реестр, в котором ищется или регистрируется владелец.
      * @exception InvalidTagException если тег не содержит необходимых вложенных тегов или если в них некорректные данные.
+     * @exception NotUniquePassportIDException если в реестре уже есть человек с номером паспорта владельца, но другими
+     * характеристиками.
      */
-    public Product(ParentTag productTag) {
+    public Product(ParentTag productTag, PersonRegistry personRegistry) {
+        this(nextID.getAndIncrement(), productTag, personRegistry::newPerson);
+    }
+
+    /**
+     * Получает значения характеристик товара с указанным номером из тега. Владелец создаётся переданной функцией, так
+     * что товар можно построить, не обращаясь к реестру людей, например в параллельно работающих потоках. Номер должен
+     * быть заранее получен методом {@link #reserveIDs(int)}.
+     * @param ID номер товара.
+     * @param productTag тег с вложенными тегами name, coordinates, creationDate, price и, возможно, unitOfMeasure и owner.
+     * @param ownerFactory функция, создающая владельца по тегу owner или по null, если такого тега нет.
+     * @exception InvalidTagException если тег не содержит необходимых вложенных тегов или если в них некорректные данные.
+     */
+    public Product(long ID, ParentTag productTag, Function<ParentTag, Person> ownerFactory) {
+        this.ID = ID;
         String className = "Product";
         try {
             String fieldName;
@@ -74,7 +137,7 @@ public class Product implements Comparable<Product> {
                 setCoordinates(new Coordinates(requireNonNull(productTag.getNestedParentTag(fieldName = "coordinates"), fieldName)));
                 setCreationDate(LocalDateTime.parse(requireNonNull(productTag.getNestedTagContent(fieldName = "creationDate"), fieldName)));
                 setPrice(Double.parseDouble(requireNonNull(productTag.getNestedTagContent(fieldName = "price"), fieldName)));
-                setOwner(Person.newPerson(productTag.getNestedParentTag("owner")));
+                setOwner(ownerFactory.apply(productTag.getNestedParentTag("owner")));
             } catch (NullPointerException e) {
                 throw new InvalidTagException(className, "Отсутствует тег для поля " + e.getMessage() + ".");
             } catch (DateTimeParseException | NumberFormatException e) {
@@ -94,6 +157,27 @@ public class Product implements Comparable<Product> {
         }
     }
 
+    /**
+     * Создаёт товар с указанным номером и значениями полей этого товара. Коллекции заменяют хранимый товар такой копией
+     * вместо изменения его полей, чтобы ранее снятые снимки не менялись.
+     * @param ID номер копии.
+     * @return новый товар.
+     */
+    public Product copy(long ID) {
+        return new Product(ID, name, coordinates, creationDate, price, unitOfMeasure, owner);
+    }
+
+    /**
+     * Резервирует непрерывный диапазон номеров, которые не будут выданы товарам, создаваемым без явного номера.
+     * Позволяет хранилищу назначать номера товарам, не создавая их объектов. Номера, как и при создании товаров, выдаются
+     * одной атомарной операцией, так что товары можно создавать из нескольких потоков одновременно.
+     * @param count количество номеров.
+     * @return первый номер диапазона.
+     */
+    public static long reserveIDs(int count) {
+        return nextID.getAndAdd(count);
+    }
+
     /**
      * Метод для получения тега, описывающего этот товар.
      * @return тег product, содержащий теги, соответствующие каждому непустому полю класса.
@@ -111,6 +195,40 @@ public class Product implements Comparable<Product> {
         return parentTag;
     }
 
+    /**
+     * Записывает тег, описывающий этот товар, не создавая объектов тегов.
+     * @param tagWriter объект потоковой записи тегов.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public void writeTag(TagWriter tagWriter) throws IOException {
+        tagWriter.beginTag("product", "name", name);
+        coordinates.writeTag(tagWriter);
+        tagWriter.textTag("creationDate", creationDate.toString());
+        tagWriter.textTag("price", price + "");
+        if (!(unitOfMeasure == null))
+            tagWriter.textTag("unitOfMeasure", unitOfMeasure.toString());
+        if (!(owner == null))
+            owner.writeTag(tagWriter);
+        tagWriter.endTag();
+    }
+
+    /**
+     * Возвращает закэшированное XML-представление товара. Сбрасывается при изменении любого поля.
+     * @return фрагмент или null, если его нет.
+     * @see FragmentCache
+     */
+    public FragmentCache.Fragment getFragment() {
+        return fragment;
+    }
+
+    /**
+     * Запоминает XML-представление товара. Вызывается только {@link FragmentCache}.
+     * @param fragment фрагмент или null, чтобы забыть его.
+     */
+    public void setFragment(FragmentCache.Fragment fragment) {
+        this.fragment = fragment;
+    }
+
     /**
      * Задаёт наименование товара.
      * @param name новое название.
@@ -119,6 +237,7 @@ public class Product implements Comparable<Product> {
     public void setName(@NotNull String name) throws IllegalArgumentException {
         if (name == null || name.isEmpty()) throw new IllegalArgumentException("Наименование продукта должно быть представлено непустой строкой!");
         this.name = name;
+        fragment = null;
     }
 
     /**
@@ -129,6 +248,7 @@ public class Product implements Comparable<Product> {
     public void setPrice(double price) throws IllegalArgumentException {
         if (price <= 0) throw new IllegalArgumentException("Цена должна быть положительным числом!");
         this.price = price;
+        fragment = null;
     }
 
     /**
@@ -137,6 +257,7 @@ public class Product implements Comparable<Product> {
      */
     public void setUnitOfMeasure(UnitOfMeasure unitOfMeasure) {
         this.unitOfMeasure = unitOfMeasure;
+        fragment = null;
     }
 
     /**
@@ -145,6 +266,7 @@ public class Product implements Comparable<Product> {
      */
     public void setOwner(Person owner) {
         this.owner = owner;
+        fragment = null;
     }
 
     /**
@@ -155,6 +277,7 @@ public class Product implements Comparable<Product> {
         if (coordinates == null)
             throw new IllegalArgumentException("null - недопустимое значение координат товара!");
         this.coordinates = coordinates;
+        fragment = null;
     }
 
     /**
@@ -165,6 +288,7 @@ public class Product implements Comparable<Product> {
         if (creationDate == null)
             throw new IllegalArgumentException("null - недопустимое значение даты производства товара!");
         this.creationDate = creationDate;
+        fragment = null;
     }
 
     /**
@@ -249,6 +373,6 @@ public class Product implements Comparable<Product> {
      */
     @Override
     public int compareTo(Product other) {
-        return (int) (price - other.getPrice());
+        return Double.compare(price, other.getPrice());
     }
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+package project.products.product_collection;
+
+import project.parsing.tags.ParentTag;
+import project.parsing.tags.TextTag;
+import project.products.product.Person;
+import project.products.product.PersonRegistry;
+import project.products.product.Product;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Неизменяемый снимок коллекции товаров: товары в порядке коллекции на момент снятия и дата инициализации. Снимок
+ * разделяет объекты товаров с коллекцией, поэтому снимается быстро; коллекции, отдающие такие снимки, заменяют товары
+ * копиями вместо изменения их полей. Используется для сохранения коллекции в фоновом потоке. Методы, изменяющие
+ * коллекцию, бросают {@link UnsupportedOperationException}; запросы, для которых у коллекции есть индексы, здесь
+ * выполняются просмотром всех товаров.
+ * @see IProductCollection#snapshot()
+ */
+public class CollectionSnapshot implements IProductCollection {
+    private final Product[] products;
+    private final LocalDate initializationDate;
+    private final PersonRegistry personRegistry;
+    private final boolean keepsProducts;
+
+    /**
+     * Создаёт снимок, разделяющий объекты товаров с коллекцией.
+     * @param products товары в порядке коллекции; массив не копируется и не должен изменяться.
+     * @param initializationDate дата инициализации коллекции.
+     * @param personRegistry реестр людей коллекции.
+     */
+    public CollectionSnapshot(Product[] products, LocalDate initializationDate, PersonRegistry personRegistry) {
+        this(products, initializationDate, personRegistry, true);
+    }
+
+    /**
+     * Создаёт снимок.
+     * @param products товары в порядке коллекции; массив не копируется и не должен изменяться.
+     * @param initializationDate дата инициализации коллекции.
+     * @param personRegistry реестр людей коллекции.
+     * @param keepsProducts true, если товары снимка - объекты, которые коллекция отдаёт и при следующих обращениях;
+     * false, если они созданы для этого снимка ({@link IProductCollection#keepsProducts()}).
+     */
+    public CollectionSnapshot(Product[] products, LocalDate initializationDate, PersonRegistry personRegistry,
+                              boolean keepsProducts) {
+        this.products = products;
+        this.initializationDate = initializationDate;
+        this.personRegistry = personRegistry;
+        this.keepsProducts = keepsProducts;
+    }
+
+    @Override
+    public boolean addProduct(Product product) {
+        throw unsupported();
+    }
+
+    @Override
+    public Product getFirst() {
+        return products.length == 0 ? null : products[0];
+    }
+
+    @Override
+    public Product removeFirst() {
+        throw unsupported();
+    }
+
+    @Override
+    public Product getProductByID(long id) {
+        for (Product product: products)
+            if (product.getID() == id)
+                return product;
+        return null;
+    }
+
+    @Override
+    public boolean removeProductByID(long id) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean updateProductByID(long id) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean updateProductByID(long id, Product values) {
+        throw unsupported();
+    }
+
+    @Override
+    public void clear() {
+        throw unsupported();
+    }
+
+    @Override
+    public Product getMaxByPrice() {
+        Product max = null;
+        for (Product product: products)
+            if (max == null || Double.compare(product.getPrice(), max.getPrice()) >= 0)
+                max = product;
+        return max;
+    }
+
+    @Override
+    public Product getMaxByCoordinates() {
+        Product max = null;
+        for (Product product: products)
+            if (max == null || product.getCoordinates().compareTo(max.getCoordinates()) >= 0)
+                max = product;
+        return max;
+    }
+
+    @Override
+    public List<Product> getMinByOwner() {
+        ArrayList<Product> result = new ArrayList<>();
+        Person minOwner = null;
+        for (Product product: products) {
+            Person owner = product.getOwner();
+            if (owner == null)
+                continue;
+            int comparison = minOwner == null ? -1 : owner.compareTo(minOwner);
+            if (comparison == 0)
+                comparison = owner.getPassportID().compareTo(minOwner.getPassportID());
+            if (comparison < 0) {
+                result.clear();
+                minOwner = owner;
+            }
+            if (comparison <= 0)
+                result.add(product);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Person> getOwners() {
+        LinkedHashMap<String, Person> owners = new LinkedHashMap<>();
+        for (Product product: products)
+            if (product.getOwner() != null)
+                owners.putIfAbsent(product.getOwner().getPassportID(), product.getOwner());
+        return new ArrayList<>(owners.values());
+    }
+
+    @Override
+    public int size() {
+        return products.length;
+    }
+
+    @Override
+    public PersonRegistry getPersonRegistry() {
+        return personRegistry;
+    }
+
+    @Override
+    public String getInitializationDataString() {
+        return initializationDate.toString();
+    }
+
+    /**
+     * Снимок не меняется, поэтому его счётчик изменений всегда равен нулю.
+     * @return 0.
+     */
+    @Override
+    public long getModificationCount() {
+        return 0;
+    }
+
+    @Override
+    public ParentTag getTag() {
+        ParentTag productCollectionTag = new ParentTag("productCollection");
+        productCollectionTag.addTextTag(new TextTag("initializationDate", initializationDate.toString()));
+        ParentTag productsTag = new ParentTag("products");
+        for (Product product: products)
+            productsTag.addParentTag(product.getTag());
+        productCollectionTag.addParentTag(productsTag);
+        return productCollectionTag;
+    }
+
+    /**
+     * Снимок не меняется, поэтому сам является своим снимком.
+     * @return этот снимок.
+     */
+    @Override
+    public CollectionSnapshot snapshot() {
+        return this;
+    }
+
+    @Override
+    public boolean keepsProducts() {
+        return keepsProducts;
+    }
+
+    /**
+     * Снимок не меняется, поэтому его можно читать из нескольких потоков.
+     * @return true.
+     */
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    /**
+     * Возвращает итератор по товарам снимка. Удаление не поддерживается.
+     * @return итератор.
+     */
+    @Override
+    public Iterator<Product> iterator() {
+        return Arrays.asList(products).iterator();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Снимок коллекции нельзя изменить.");
+    }
+}
\ No newline at end of file
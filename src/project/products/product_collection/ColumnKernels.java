@@ -0,0 +1,35 @@
+package project.products.product_collection;
+
+/**
+ * Ядра сводных характеристик по непрерывным отрезкам занятых ячеек столбцов {@link ColumnarProductCollection}.
+ * Методы совпадают по смыслу со скалярными циклами {@link ProductAggregates}, которые работают, если других ядер нет.
+ * Ядра записывают результаты прямо в поля {@link ProductAggregates}, доступные пакету.
+ * <p>
+ * Реализация на векторах {@code jdk.incubator.vector} (класс {@code VectorColumnKernels}) требует JDK 17 и
+ * компилируется отдельно от остального кода, написанного на Java 8: её исходный код лежит в каталоге vector.
+ * {@link ProductAggregates} загружает её через отражение, только если JVM запущена с ключом
+ * {@code --add-modules jdk.incubator.vector}.
+ */
+interface ColumnKernels {
+    /**
+     * Добавляет к характеристикам отрезок столбцов с from по to (не включая), все ячейки которого заняты товарами, и
+     * запоминает ячейку с наибольшей суммой координат.
+     * @see ProductAggregates#addColumns
+     */
+    void addColumns(ProductAggregates aggregates, long[] ids, double[] prices, float[] xs, double[] ys, byte[] units,
+                    long[] hasUnit, int from, int to);
+
+    /**
+     * Возвращает ячейку отрезка с наибольшим значением, если оно не меньше значения в ячейке best; при равных
+     * значениях - ячейку товара с наибольшим номером.
+     * @see ProductAggregates#argMax
+     */
+    int argMax(double[] values, long[] ids, int from, int to, int best);
+
+    /**
+     * Возвращает ячейку отрезка с наибольшей суммой координат, если она не меньше суммы в ячейке best; при равных
+     * суммах - ячейку товара с наибольшим номером.
+     * @see ProductAggregates#argMaxSum
+     */
+    int argMaxSum(float[] xs, double[] ys, long[] ids, int from, int to, int best);
+}
\ No newline at end of file
@@ -0,0 +1,626 @@
+package project.products.product_collection;
+
+import project.parsing.tags.ParentTag;
+import project.parsing.tags.TextTag;
+import project.products.product.Coordinates;
+import project.products.product.Person;
+import project.products.product.PersonRegistry;
+import project.products.product.Product;
+import project.products.product.UnitOfMeasure;
+
+import java.lang.ref.SoftReference;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Коллекция товаров, хранящая поля товаров по столбцам: номера, цены, координаты, единицы измерения и ссылки на
+ * владельцев лежат в массивах примитивов ({@code long[]}, {@code double[]}, {@code float[]}, {@code byte[]},
+ * {@code int[]}), а наименования и даты создания - в массивах ссылок. Отсутствие единицы измерения и владельца
+ * отмечается битовыми масками, владельцы хранятся в таблице людей, на номер в которой ссылается столбец владельцев.
+ * Поэтому поиск самого дорогого товара, товара с наибольшей суммой координат и товаров первого по алфавиту владельца, а
+ * также сводные характеристики ({@link #aggregate()}) - это проходы по соседним ячейкам массивов, без переходов по
+ * ссылкам от товара к координатам, владельцу и упакованным числам. Непрерывные отрезки занятых ячеек обрабатываются
+ * ядрами {@link ProductAggregates} без проверки каждой ячейки по маске.
+ * <p>
+ * Объект {@link Product} товара создаётся по его ячейкам при первом обращении и запоминается мягкой ссылкой
+ * ({@link SoftReference}): пока товар не изменён, коллекция отдаёт один и тот же объект, и на это могут опираться кэш
+ * фрагментов и сохранение только изменившихся сегментов ({@link #keepsProducts()}), а при нехватке памяти объекты,
+ * которые больше нигде не используются, освобождаются сборщиком мусора. Изменение товара записывается в его ячейки, а
+ * запомненный объект заменяется новым, так что ранее отданные объекты не меняются. Порядок товаров - порядок ячеек;
+ * удалённые ячейки помечаются в битовой маске живых товаров и выбрасываются уплотнением, когда их становится больше,
+ * чем живых. Номеру товара его ячейку сопоставляет {@link LongHashMap}.
+ * <p>
+ * Коллекция не потокобезопасна. Итератор бросает {@link ConcurrentModificationException}, если коллекция была
+ * уплотнена во время обхода не через него.
+ * @see ProductCollection
+ */
+public class ColumnarProductCollection implements IProductCollection {
+    private static final int MIN_CAPACITY = 64;
+    private static final UnitOfMeasure[] UNITS = UnitOfMeasure.values();
+
+    private long[] ids;
+    private String[] names;
+    private float[] xs;
+    private double[] ys;
+    private LocalDateTime[] creationDates;
+    private double[] prices;
+    private byte[] units;
+    private int[] owners;
+    private long[] live;
+    private long[] hasUnit;
+    private long[] hasOwner;
+    private Object[] views;
+    private int slots;
+    private int liveCount;
+    private int firstLive;
+    private int compactions;
+    private final LongHashMap<Integer> index;
+    private final ArrayList<Person> persons;
+    private final IdentityHashMap<Person, Integer> personSlots;
+    private int[] personReferences;
+    private final PersonRegistry personRegistry;
+    private LocalDate initializationDate;
+    private long modificationCount;
+
+    /**
+     * Создаёт пустую коллекцию и устанавливает текущее время в качестве даты создания.
+     */
+    public ColumnarProductCollection() {
+        this(new PersonRegistry(), LocalDate.now(), MIN_CAPACITY);
+    }
+
+    /**
+     * Создаёт коллекцию с товарами, датой инициализации и реестром людей другой коллекции. Товары добавляются в порядке
+     * переданной коллекции.
+     * @param productCollection исходная коллекция; после копирования её не следует изменять.
+     */
+    public ColumnarProductCollection(IProductCollection productCollection) {
+        this(productCollection.getPersonRegistry(),
+                ProductCollection.parseInitializationDate(productCollection.getInitializationDataString()),
+                Math.max(MIN_CAPACITY, productCollection.size()));
+        for (Product product: productCollection)
+            addProduct(product);
+    }
+
+    private ColumnarProductCollection(PersonRegistry personRegistry, LocalDate initializationDate, int capacity) {
+        this.personRegistry = personRegistry;
+        this.initializationDate = initializationDate;
+        index = new LongHashMap<>(capacity);
+        persons = new ArrayList<>();
+        personSlots = new IdentityHashMap<>();
+        personReferences = new int[MIN_CAPACITY];
+        allocate(capacity);
+    }
+
+    /**
+     * Добавляет товар в конец коллекции.
+     * @param product новый товар.
+     * @return true, если товар добавлен; false, если товар с таким номером уже есть.
+     */
+    @Override
+    public boolean addProduct(Product product) {
+        if (index.containsKey(product.getID()))
+            return false;
+        if (slots == ids.length) {
+            if (slots - liveCount > liveCount)
+                compact();
+            else
+                allocate(ids.length * 2);
+        }
+        int slot = slots++;
+        write(slot, product);
+        setBit(live, slot, true);
+        liveCount++;
+        index.put(product.getID(), slot);
+        modificationCount++;
+        return true;
+    }
+
+    /**
+     * Возвращает первый товар коллекции.
+     * @return объект класса {@link Product}, созданный по ячейкам товара, или null, если коллекция пуста.
+     */
+    @Override
+    public Product getFirst() {
+        return liveCount == 0 ? null : materialize(firstLive);
+    }
+
+    /**
+     * Удаляет первый товар коллекции.
+     * @return удалённый товар или null, если коллекция была пуста.
+     */
+    @Override
+    public Product removeFirst() {
+        if (liveCount == 0)
+            return null;
+        Product product = materialize(firstLive);
+        release(firstLive);
+        compactIfSparse();
+        return product;
+    }
+
+    /**
+     * Возвращает товар с переданным номером или null, если такого нет.
+     * @param id номер (ID) товара.
+     * @return объект класса {@link Product}, созданный по ячейкам товара, или null.
+     */
+    @Override
+    public Product getProductByID(long id) {
+        Integer slot = index.get(id);
+        return slot == null ? null : materialize(slot);
+    }
+
+    /**
+     * Удаляет товар с указанным номером.
+     * @param id номер (ID) товара.
+     * @return true, если такой товар был и удалён, иначе false.
+     */
+    @Override
+    public boolean removeProductByID(long id) {
+        Integer slot = index.get(id);
+        if (slot == null)
+            return false;
+        release(slot);
+        compactIfSparse();
+        return true;
+    }
+
+    /**
+     * Запрашивает у пользователя новые значения полей товара с указанным номером.
+     * @param id номер (ID) товара.
+     * @return true, если такой товар есть, иначе false.
+     */
+    @Override
+    public boolean updateProductByID(long id) {
+        Integer slot = index.get(id);
+        if (slot == null)
+            return false;
+        Product product = materialize(slot).copy(id);
+        product.update(personRegistry);
+        replace(slot, product);
+        return true;
+    }
+
+    /**
+     * Заменяет значения полей товара с указанным номером значениями полей другого товара. Номер и положение товара в
+     * коллекции не меняются.
+     * @param id номер (ID) товара.
+     * @param values товар, значения полей которого нужно перенести.
+     * @return true, если такой товар есть, иначе false.
+     */
+    @Override
+    public boolean updateProductByID(long id, Product values) {
+        Integer slot = index.get(id);
+        if (slot == null)
+            return false;
+        replace(slot, values.copy(id));
+        return true;
+    }
+
+    /**
+     * Удаляет все товары.
+     */
+    @Override
+    public void clear() {
+        index.clear();
+        persons.clear();
+        personSlots.clear();
+        personReferences = new int[MIN_CAPACITY];
+        slots = 0;
+        allocate(MIN_CAPACITY);
+        liveCount = 0;
+        firstLive = 0;
+        compactions++;
+        modificationCount++;
+    }
+
+    /**
+     * Возвращает самый дорогой товар; при равных ценах - товар с наибольшим номером, как и упорядоченный индекс цен
+     * других коллекций.
+     * @return товар или null, если коллекция пуста.
+     */
+    @Override
+    public Product getMaxByPrice() {
+        int best = -1;
+        for (int from = nextLive(firstLive), to; from < slots; from = nextLive(to)) {
+            to = nextDead(from);
+            best = ProductAggregates.argMax(prices, ids, from, to, best);
+        }
+        return best < 0 ? null : materialize(best);
+    }
+
+    /**
+     * Возвращает товар с наибольшей суммой координат; при равных суммах - товар с наибольшим номером.
+     * @return товар или null, если коллекция пуста.
+     */
+    @Override
+    public Product getMaxByCoordinates() {
+        int best = -1;
+        for (int from = nextLive(firstLive), to; from < slots; from = nextLive(to)) {
+            to = nextDead(from);
+            best = ProductAggregates.argMaxSum(xs, ys, ids, from, to, best);
+        }
+        return best < 0 ? null : materialize(best);
+    }
+
+    /**
+     * Вычисляет сводные характеристики товаров ядрами {@link ProductAggregates} по отрезкам занятых ячеек.
+     * @return характеристики.
+     */
+    @Override
+    public ProductAggregates aggregate() {
+        ProductAggregates aggregates = new ProductAggregates();
+        for (int from = nextLive(firstLive), to; from < slots; from = nextLive(to)) {
+            to = nextDead(from);
+            aggregates.addColumns(ids, prices, xs, ys, units, hasUnit, from, to);
+        }
+        if (aggregates.getMaxSlot() >= 0)
+            aggregates.setMaxByCoordinates(materialize(aggregates.getMaxSlot()));
+        return aggregates;
+    }
+
+    /**
+     * Возвращает товары владельца, имя которого идёт первым в алфавитном порядке. Если таких владельцев несколько,
+     * выбирается владелец с меньшим номером паспорта. Владелец выбирается по таблице людей, товары - проходом по
+     * столбцу владельцев.
+     * @return товары в порядке номеров; пустой список, если ни у одного товара нет владельца.
+     */
+    @Override
+    public List<Product> getMinByOwner() {
+        ArrayList<Product> result = new ArrayList<>();
+        int min = -1;
+        for (int person = 0; person < persons.size(); person++) {
+            if (personReferences[person] == 0)
+                continue;
+            if (min < 0 || compareOwners(persons.get(person), persons.get(min)) < 0)
+                min = person;
+        }
+        if (min < 0)
+            return result;
+        for (int slot = firstLive; slot < slots; slot++)
+            if (owners[slot] == min && (live[slot >>> 6] & hasOwner[slot >>> 6] & 1L << slot) != 0)
+                result.add(materialize(slot));
+        result.sort(Comparator.comparingLong(Product::getID));
+        return result;
+    }
+
+    /**
+     * Возвращает владельцев товаров коллекции.
+     * @return список владельцев без повторений.
+     */
+    @Override
+    public List<Person> getOwners() {
+        ArrayList<Person> owners = new ArrayList<>();
+        for (int person = 0; person < persons.size(); person++)
+            if (personReferences[person] > 0)
+                owners.add(persons.get(person));
+        return owners;
+    }
+
+    /**
+     * Возвращает количество товаров.
+     * @return размер коллекции.
+     */
+    @Override
+    public int size() {
+        return liveCount;
+    }
+
+    /**
+     * Возвращает реестр людей, в котором ищутся и регистрируются владельцы товаров этой коллекции.
+     * @return реестр людей.
+     */
+    @Override
+    public PersonRegistry getPersonRegistry() {
+        return personRegistry;
+    }
+
+    /**
+     * Возвращает дату инициализации в виде строки.
+     * @return строковое представление даты.
+     */
+    @Override
+    public String getInitializationDataString() {
+        return initializationDate.toString();
+    }
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Метод для получения тега, описывающего эту коллекцию. Создаёт объекты всех товаров.
+     * @return тег productCollection, содержащий теги initializationDate и products.
+     */
+    @Override
+    public ParentTag getTag() {
+        ParentTag productCollectionTag = new ParentTag("productCollection");
+        productCollectionTag.addTextTag(new TextTag("initializationDate", initializationDate.toString()));
+        ParentTag productsTag = new ParentTag("products");
+        for (Product product: this)
+            productsTag.addParentTag(product.getTag());
+        productCollectionTag.addParentTag(productsTag);
+        return productCollectionTag;
+    }
+
+    /**
+     * Возвращает снимок коллекции. Снимок разделяет с коллекцией объекты товаров: изменения товаров их не затрагивают.
+     * @return снимок коллекции.
+     */
+    @Override
+    public CollectionSnapshot snapshot() {
+        Product[] products = new Product[liveCount];
+        int i = 0;
+        for (int slot = firstLive; slot < slots; slot++)
+            if (isLive(slot))
+                products[i++] = materialize(slot);
+        return new CollectionSnapshot(products, initializationDate, personRegistry);
+    }
+
+    /**
+     * Метод, позволяющий получить итератор по списку товаров. Товары, объектов которых нет, создаются по ячейкам при
+     * переходе к ним. Итератор поддерживает удаление.
+     * @return итератор.
+     */
+    @Override
+    public Iterator<Product> iterator() {
+        return new Iterator<Product>() {
+            private final int expectedCompactions = compactions;
+            private int next = firstLive;
+            private int current = -1;
+
+            @Override
+            public boolean hasNext() {
+                check();
+                while (next < slots && !isLive(next))
+                    next++;
+                return next < slots;
+            }
+
+            @Override
+            public Product next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                current = next++;
+                return materialize(current);
+            }
+
+            @Override
+            public void remove() {
+                check();
+                if (current < 0 || !isLive(current))
+                    throw new IllegalStateException();
+                release(current);
+                current = -1;
+            }
+
+            private void check() {
+                if (compactions != expectedCompactions)
+                    throw new ConcurrentModificationException();
+            }
+        };
+    }
+
+    /**
+     * Возвращает запомненный объект товара ячейки или создаёт его по ячейкам и запоминает.
+     */
+    @SuppressWarnings("unchecked")
+    private Product materialize(int slot) {
+        SoftReference<Product> view = (SoftReference<Product>) views[slot];
+        Product product = view == null ? null : view.get();
+        if (product == null) {
+            product = new Product(ids[slot], names[slot], new Coordinates(xs[slot], ys[slot]), creationDates[slot],
+                    prices[slot], getBit(hasUnit, slot) ? UNITS[units[slot]] : null,
+                    getBit(hasOwner, slot) ? persons.get(owners[slot]) : null);
+            views[slot] = new SoftReference<>(product);
+        }
+        return product;
+    }
+
+    private void write(int slot, Product product) {
+        ids[slot] = product.getID();
+        names[slot] = product.getName();
+        xs[slot] = product.getCoordinates().getX();
+        ys[slot] = product.getCoordinates().getY();
+        creationDates[slot] = product.getCreationDate();
+        prices[slot] = product.getPrice();
+        UnitOfMeasure unit = product.getUnitOfMeasure();
+        units[slot] = unit == null ? 0 : (byte) unit.ordinal();
+        setBit(hasUnit, slot, unit != null);
+        Person owner = product.getOwner();
+        owners[slot] = owner == null ? 0 : reference(owner);
+        setBit(hasOwner, slot, owner != null);
+        views[slot] = new SoftReference<>(product);
+    }
+
+    private void replace(int slot, Product product) {
+        if (getBit(hasOwner, slot))
+            personReferences[owners[slot]]--;
+        write(slot, product);
+        modificationCount++;
+    }
+
+    /**
+     * Помечает ячейку товара удалённой; уплотнение не выполняется, чтобы не сдвинуть ячейки под итератором.
+     */
+    private void release(int slot) {
+        index.remove(ids[slot]);
+        setBit(live, slot, false);
+        if (getBit(hasOwner, slot))
+            personReferences[owners[slot]]--;
+        names[slot] = null;
+        creationDates[slot] = null;
+        views[slot] = null;
+        liveCount--;
+        while (firstLive < slots && !isLive(firstLive))
+            firstLive++;
+        modificationCount++;
+    }
+
+    /**
+     * Возвращает номер человека в таблице людей, добавляя его при необходимости, и увеличивает число ссылок на него.
+     */
+    private int reference(Person owner) {
+        Integer person = personSlots.get(owner);
+        if (person == null) {
+            person = persons.size();
+            persons.add(owner);
+            personSlots.put(owner, person);
+            if (person == personReferences.length)
+                personReferences = Arrays.copyOf(personReferences, person * 2);
+        }
+        personReferences[person]++;
+        return person;
+    }
+
+    private void compactIfSparse() {
+        if (slots >= MIN_CAPACITY && slots - liveCount > liveCount)
+            compact();
+    }
+
+    /**
+     * Сдвигает живые товары в начало столбцов, сохраняя их порядок, и выбрасывает из таблицы людей тех, на кого не
+     * осталось ссылок.
+     */
+    private void compact() {
+        int[] personRemap = new int[persons.size()];
+        ArrayList<Person> keptPersons = new ArrayList<>();
+        for (int person = 0; person < persons.size(); person++) {
+            personRemap[person] = keptPersons.size();
+            if (personReferences[person] > 0) {
+                personReferences[keptPersons.size()] = personReferences[person];
+                keptPersons.add(persons.get(person));
+            }
+        }
+        Arrays.fill(personReferences, keptPersons.size(), persons.size(), 0);
+        persons.clear();
+        persons.addAll(keptPersons);
+        personSlots.clear();
+        for (int person = 0; person < persons.size(); person++)
+            personSlots.put(persons.get(person), person);
+
+        int to = 0;
+        for (int from = firstLive; from < slots; from++) {
+            if (!isLive(from))
+                continue;
+            ids[to] = ids[from];
+            names[to] = names[from];
+            xs[to] = xs[from];
+            ys[to] = ys[from];
+            creationDates[to] = creationDates[from];
+            prices[to] = prices[from];
+            units[to] = units[from];
+            owners[to] = getBit(hasOwner, from) ? personRemap[owners[from]] : 0;
+            setBit(hasUnit, to, getBit(hasUnit, from));
+            setBit(hasOwner, to, getBit(hasOwner, from));
+            views[to] = views[from];
+            index.put(ids[to], to);
+            to++;
+        }
+        Arrays.fill(names, to, slots, null);
+        Arrays.fill(creationDates, to, slots, null);
+        Arrays.fill(views, to, slots, null);
+        Arrays.fill(live, 0);
+        for (int slot = 0; slot < to; slot++)
+            setBit(live, slot, true);
+        slots = to;
+        firstLive = 0;
+        compactions++;
+    }
+
+    /**
+     * Увеличивает столбцы до указанной вместимости, сохраняя занятые ячейки, или создаёт пустые столбцы, если занятых
+     * ячеек нет.
+     */
+    private void allocate(int capacity) {
+        int words = (capacity + 63) >>> 6;
+        if (ids == null || slots == 0) {
+            ids = new long[capacity];
+            names = new String[capacity];
+            xs = new float[capacity];
+            ys = new double[capacity];
+            creationDates = new LocalDateTime[capacity];
+            prices = new double[capacity];
+            units = new byte[capacity];
+            owners = new int[capacity];
+            live = new long[words];
+            hasUnit = new long[words];
+            hasOwner = new long[words];
+            views = new Object[capacity];
+            return;
+        }
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        creationDates = Arrays.copyOf(creationDates, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        units = Arrays.copyOf(units, capacity);
+        owners = Arrays.copyOf(owners, capacity);
+        live = Arrays.copyOf(live, words);
+        hasUnit = Arrays.copyOf(hasUnit, words);
+        hasOwner = Arrays.copyOf(hasOwner, words);
+        views = Arrays.copyOf(views, capacity);
+    }
+
+    /**
+     * Возвращает первую занятую ячейку, начиная с указанной, или slots, если таких нет.
+     */
+    private int nextLive(int from) {
+        if (from >= slots)
+            return slots;
+        int word = from >>> 6;
+        long bits = live[word] & -1L << from;
+        while (bits == 0) {
+            if (++word == live.length)
+                return slots;
+            bits = live[word];
+        }
+        return Math.min(slots, (word << 6) + Long.numberOfTrailingZeros(bits));
+    }
+
+    /**
+     * Возвращает первую освободившуюся или ещё не занятую ячейку, начиная с указанной, или slots, если таких нет.
+     */
+    private int nextDead(int from) {
+        if (from >= slots)
+            return slots;
+        int word = from >>> 6;
+        long bits = ~live[word] & -1L << from;
+        while (bits == 0) {
+            if (++word == live.length)
+                return slots;
+            bits = ~live[word];
+        }
+        return Math.min(slots, (word << 6) + Long.numberOfTrailingZeros(bits));
+    }
+
+    private boolean isLive(int slot) {
+        return getBit(live, slot);
+    }
+
+    private static boolean getBit(long[] bits, int slot) {
+        return (bits[slot >>> 6] & 1L << slot) != 0;
+    }
+
+    private static void setBit(long[] bits, int slot, boolean value) {
+        if (value)
+            bits[slot >>> 6] |= 1L << slot;
+        else
+            bits[slot >>> 6] &= ~(1L << slot);
+    }
+
+    private static int compareOwners(Person a, Person b) {
+        int comparison = a.compareTo(b);
+        return comparison != 0 ? comparison : a.getPassportID().compareTo(b.getPassportID());
+    }
+}
\ No newline at end of file
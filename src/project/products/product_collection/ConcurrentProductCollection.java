@@ -0,0 +1,518 @@
+package project.products.product_collection;
+
+import project.parsing.tags.ParentTag;
+import project.parsing.tags.TextTag;
+import project.products.product.Person;
+import project.products.product.PersonRegistry;
+import project.products.product.Product;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Потокобезопасная коллекция товаров. Порядок добавления хранится в неблокирующем списке с пропусками по порядковому
+ * номеру добавления, а номеру товара его звено сопоставляет {@link ConcurrentHashMap}; упорядоченные индексы по цене,
+ * по сумме координат и по владельцу - тоже списки с пропусками. Чтение не берёт блокировок, кроме поиска по
+ * пространственным индексам {@link SpatialIndex}, который применяет накопленные изменения под блокировкой индекса.
+ * Изменения одного товара выполняются под одной из {@value #STRIPES} блокировок, выбираемой по номеру товара, а все
+ * индексы, включая связи владельцев с товарами в {@link PersonRegistry} и пространственные индексы, изменяются без
+ * общих блокировок, так что изменения разных товаров идут параллельно.
+ * <p>
+ * Товары, хранящиеся в коллекции, не изменяются: изменение заменяет товар новым объектом с тем же номером. Поэтому
+ * ключи индексов не меняются, пока товар в них лежит, а читающий поток всегда видит товар целиком - старым или новым.
+ * Итераторы и поиск по индексам слабо согласованы: они не бросают {@link java.util.ConcurrentModificationException}
+ * и могут как увидеть, так и не увидеть изменения, сделанные во время обхода.
+ * @see ProductCollection
+ */
+public class ConcurrentProductCollection implements IProductCollection {
+    private static final int STRIPES = 64;
+    /*
+     * Порядки индексов записаны отдельными сравнениями, а не цепочками Comparator.comparing(...).thenComparing(...):
+     * списки с пропусками сравнивают ключи через один общий вызов, и цепочки лямбд в нём не встраиваются.
+     */
+    private static final Comparator<Product> PRICE_ORDER = (a, b) -> {
+        int comparison = Double.compare(a.getPrice(), b.getPrice());
+        return comparison != 0 ? comparison : Long.compare(a.getID(), b.getID());
+    };
+    private static final Comparator<Product> COORDINATES_ORDER = (a, b) -> {
+        int comparison = a.getCoordinates().compareTo(b.getCoordinates());
+        return comparison != 0 ? comparison : Long.compare(a.getID(), b.getID());
+    };
+    private static final Comparator<Product> OWNER_ORDER = (a, b) -> {
+        int comparison = a.getOwner().compareTo(b.getOwner());
+        if (comparison == 0)
+            comparison = a.getOwner().getPassportID().compareTo(b.getOwner().getPassportID());
+        return comparison != 0 ? comparison : Long.compare(a.getID(), b.getID());
+    };
+
+    private final ConcurrentSkipListMap<Long, Node> order = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Long, Node> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Product, Boolean> priceIndex = new ConcurrentSkipListMap<>(PRICE_ORDER);
+    private final ConcurrentSkipListMap<Product, Boolean> coordinatesIndex =
+            new ConcurrentSkipListMap<>(COORDINATES_ORDER);
+    private final ConcurrentSkipListMap<Product, Boolean> ownerIndex = new ConcurrentSkipListMap<>(OWNER_ORDER);
+    private final SpatialIndex coordinatesSpace = new SpatialIndex(SpatialIndex.Space.COORDINATES);
+    private final SpatialIndex locationSpace = new SpatialIndex(SpatialIndex.Space.LOCATION);
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong modificationCount = new AtomicLong();
+    private final Object[] stripes = new Object[STRIPES];
+    private final PersonRegistry personRegistry;
+    private final LocalDate initializationDate;
+
+    /**
+     * Создаёт пустую коллекцию и устанавливает текущее время в качестве даты создания.
+     */
+    public ConcurrentProductCollection() {
+        this(new PersonRegistry(), LocalDate.now());
+    }
+
+    /**
+     * Создаёт коллекцию с товарами, датой инициализации и реестром людей другой коллекции. Товары добавляются в порядке
+     * переданной коллекции.
+     * @param productCollection исходная коллекция; после копирования её не следует изменять.
+     */
+    public ConcurrentProductCollection(IProductCollection productCollection) {
+        this(productCollection.getPersonRegistry(),
+                ProductCollection.parseInitializationDate(productCollection.getInitializationDataString()));
+        for (Product product: productCollection)
+            addProduct(product);
+    }
+
+    private ConcurrentProductCollection(PersonRegistry personRegistry, LocalDate initializationDate) {
+        this.personRegistry = personRegistry;
+        this.initializationDate = initializationDate;
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Object();
+    }
+
+    /**
+     * Добавляет товар в конец коллекции.
+     * @param product новый товар.
+     * @return true, если товар добавлен; false, если товар с таким номером уже есть.
+     */
+    @Override
+    public boolean addProduct(Product product) {
+        synchronized (stripe(product.getID())) {
+            if (index.containsKey(product.getID()))
+                return false;
+            Node node = new Node(nextSequence.getAndIncrement(), product);
+            index.put(product.getID(), node);
+            order.put(node.sequence, node);
+            addToIndexes(product);
+            modificationCount.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Возвращает первый товар коллекции.
+     * @return объект класса {@link Product} или null, если коллекция пуста.
+     */
+    @Override
+    public Product getFirst() {
+        Map.Entry<Long, Node> entry = order.firstEntry();
+        return entry == null ? null : entry.getValue().product;
+    }
+
+    /**
+     * Удаляет первый товар коллекции. Если первый товар одновременно удаляет другой поток, удаляется следующий.
+     * @return удалённый товар или null, если коллекция была пуста.
+     */
+    @Override
+    public Product removeFirst() {
+        while (true) {
+            Map.Entry<Long, Node> entry = order.firstEntry();
+            if (entry == null)
+                return null;
+            long id = entry.getValue().product.getID();
+            synchronized (stripe(id)) {
+                Node node = index.get(id);
+                if (node != null && node.sequence == entry.getKey()) {
+                    unlink(node);
+                    return node.product;
+                }
+            }
+        }
+    }
+
+    /**
+     * Возвращает товар с переданным номером или null, если такого нет.
+     * @param id номер (ID) товара.
+     * @return объект класса {@link Product} или null.
+     */
+    @Override
+    public Product getProductByID(long id) {
+        Node node = index.get(id);
+        return node == null ? null : node.product;
+    }
+
+    /**
+     * Удаляет товар с указанным номером.
+     * @param id номер (ID) товара.
+     * @return true, если такой товар был и удалён, иначе false.
+     */
+    @Override
+    public boolean removeProductByID(long id) {
+        synchronized (stripe(id)) {
+            Node node = index.get(id);
+            if (node == null)
+                return false;
+            unlink(node);
+            return true;
+        }
+    }
+
+    /**
+     * Запрашивает у пользователя новые значения полей товара с указанным номером. Значения вводятся в копию товара без
+     * блокировок, после чего копия заменяет товар.
+     * @param id номер (ID) товара.
+     * @return true, если такой товар есть и не был удалён за время ввода, иначе false.
+     */
+    @Override
+    public boolean updateProductByID(long id) {
+        Product product = getProductByID(id);
+        if (product == null)
+            return false;
+        Product values = product.copy(id);
+        values.update(personRegistry);
+        return updateProductByID(id, values);
+    }
+
+    /**
+     * Заменяет значения полей товара с указанным номером значениями полей другого товара. Номер и положение товара в
+     * коллекции не меняются.
+     * @param id номер (ID) товара.
+     * @param values товар, значения полей которого нужно перенести.
+     * @return true, если такой товар есть, иначе false.
+     */
+    @Override
+    public boolean updateProductByID(long id, Product values) {
+        Product product = values.copy(id);
+        synchronized (stripe(id)) {
+            Node node = index.get(id);
+            if (node == null)
+                return false;
+            Node replacement = new Node(node.sequence, product);
+            removeFromIndexes(node.product);
+            index.put(id, replacement);
+            order.put(node.sequence, replacement);
+            addToIndexes(product);
+            modificationCount.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Удаляет все товары. Товары, добавляемые одновременно с очисткой, могут остаться в коллекции.
+     */
+    @Override
+    public void clear() {
+        clear(0);
+    }
+
+    private void clear(int stripe) {
+        if (stripe == STRIPES) {
+            personRegistry.clearOwnership();
+            priceIndex.clear();
+            coordinatesIndex.clear();
+            ownerIndex.clear();
+            coordinatesSpace.clear();
+            locationSpace.clear();
+            index.clear();
+            order.clear();
+            modificationCount.incrementAndGet();
+            return;
+        }
+        synchronized (stripes[stripe]) {
+            clear(stripe + 1);
+        }
+    }
+
+    /**
+     * Возвращает самый дорогой товар.
+     * @return товар или null, если коллекция пуста.
+     */
+    @Override
+    public Product getMaxByPrice() {
+        Map.Entry<Product, Boolean> entry = priceIndex.lastEntry();
+        return entry == null ? null : entry.getKey();
+    }
+
+    /**
+     * Возвращает товар с наибольшей суммой координат.
+     * @return товар или null, если коллекция пуста.
+     */
+    @Override
+    public Product getMaxByCoordinates() {
+        Map.Entry<Product, Boolean> entry = coordinatesIndex.lastEntry();
+        return entry == null ? null : entry.getKey();
+    }
+
+    /**
+     * Возвращает товары владельца, имя которого идёт первым в алфавитном порядке. Если таких владельцев несколько,
+     * выбирается владелец с меньшим номером паспорта.
+     * @return товары в порядке номеров; пустой список, если ни у одного товара нет владельца.
+     */
+    @Override
+    public List<Product> getMinByOwner() {
+        ArrayList<Product> result = new ArrayList<>();
+        Iterator<Product> iterator = ownerIndex.keySet().iterator();
+        if (!iterator.hasNext())
+            return result;
+        Product product = iterator.next();
+        Person minOwner = product.getOwner();
+        do {
+            result.add(product);
+        } while (iterator.hasNext() && (product = iterator.next()).getOwner() == minOwner);
+        return result;
+    }
+
+    /**
+     * Возвращает владельцев товаров коллекции.
+     * @return список владельцев без повторений.
+     */
+    @Override
+    public List<Person> getOwners() {
+        return personRegistry.getOwners();
+    }
+
+    /**
+     * Возвращает товары с ценой в указанных границах по индексу цен.
+     * @param min наименьшая цена.
+     * @param max наибольшая цена.
+     * @param descending true для порядка убывания цены.
+     * @return слабо согласованное представление индекса.
+     */
+    @Override
+    public Iterable<Product> getByPrice(double min, double max, boolean descending) {
+        return PriceRange.select(priceIndex.keySet(), min, max, descending);
+    }
+
+    /**
+     * Возвращает товары владельца с указанным номером паспорта, найденные через реестр людей.
+     * @param passportID номер паспорта.
+     * @return товары владельца, хранящиеся в этой коллекции.
+     */
+    @Override
+    public Collection<Product> getByOwner(String passportID) {
+        ArrayList<Product> products = new ArrayList<>();
+        for (Product product: personRegistry.getProducts(passportID))
+            if (getProductByID(product.getID()) == product)
+                products.add(product);
+        return products;
+    }
+
+    /**
+     * Возвращает пространственный индекс коллекции.
+     * @param space пространство индекса.
+     * @return индекс, который коллекция обновляет при каждом изменении.
+     */
+    @Override
+    public SpatialIndex getSpatialIndex(SpatialIndex.Space space) {
+        return space == SpatialIndex.Space.COORDINATES ? coordinatesSpace : locationSpace;
+    }
+
+    /**
+     * Возвращает количество товаров.
+     * @return размер коллекции.
+     */
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Возвращает реестр людей, в котором ищутся и регистрируются владельцы товаров этой коллекции.
+     * @return реестр людей.
+     */
+    @Override
+    public PersonRegistry getPersonRegistry() {
+        return personRegistry;
+    }
+
+    /**
+     * Возвращает дату инициализации в виде строки.
+     * @return строковое представление даты.
+     */
+    @Override
+    public String getInitializationDataString() {
+        return initializationDate.toString();
+    }
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    /**
+     * Метод для получения тега, описывающего эту коллекцию.
+     * @return тег productCollection, содержащий теги initializationDate и products.
+     */
+    @Override
+    public ParentTag getTag() {
+        ParentTag productCollectionTag = new ParentTag("productCollection");
+        productCollectionTag.addTextTag(new TextTag("initializationDate", initializationDate.toString()));
+        ParentTag productsTag = new ParentTag("products");
+        for (Product product: this)
+            productsTag.addParentTag(product.getTag());
+        productCollectionTag.addParentTag(productsTag);
+        return productCollectionTag;
+    }
+
+    /**
+     * Возвращает снимок коллекции. Снимок согласован, если коллекцию в это время не изменяют; изменения, сделанные во
+     * время снятия, могут попасть в снимок частично.
+     * @return снимок, разделяющий с коллекцией объекты товаров.
+     */
+    @Override
+    public CollectionSnapshot snapshot() {
+        ArrayList<Product> products = new ArrayList<>(size());
+        for (Node node: order.values())
+            products.add(node.product);
+        return new CollectionSnapshot(products.toArray(new Product[0]), initializationDate, personRegistry);
+    }
+
+    /**
+     * Коллекция потокобезопасна.
+     * @return true.
+     */
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    /**
+     * Возвращает слабо согласованный итератор по товарам в порядке добавления. Итератор поддерживает удаление.
+     * @return итератор.
+     */
+    @Override
+    public Iterator<Product> iterator() {
+        Iterator<Node> nodes = order.values().iterator();
+        return new Iterator<Product>() {
+            private Product current;
+
+            @Override
+            public boolean hasNext() {
+                return nodes.hasNext();
+            }
+
+            @Override
+            public Product next() {
+                return current = nodes.next().product;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null)
+                    throw new IllegalStateException();
+                removeProductByID(current.getID());
+                current = null;
+            }
+        };
+    }
+
+    /**
+     * Проверяет согласованность коллекции: каждый товар списка добавления есть в индексе номеров, во всех упорядоченных
+     * и пространственных индексах и среди товаров своего владельца в реестре людей, а размеры индексов совпадают с
+     * числом товаров. Вызывается, когда коллекцию не изменяют; используется тестами.
+     * @exception IllegalStateException если индексы расходятся.
+     */
+    void checkIndexes() {
+        HashMap<String, Set<Product>> ownedProducts = new HashMap<>();
+        int registered = 0;
+        for (Person owner: personRegistry.getOwners()) {
+            Set<Product> products = personRegistry.getProducts(owner.getPassportID());
+            ownedProducts.put(owner.getPassportID(), products);
+            registered += products.size();
+        }
+        int owned = 0;
+        int located = 0;
+        for (Node node: order.values()) {
+            Product product = node.product;
+            if (index.get(product.getID()) != node)
+                throw missing(product, "индексе номеров");
+            if (!priceIndex.containsKey(product) || !coordinatesIndex.containsKey(product))
+                throw missing(product, "упорядоченных индексах");
+            if (!contains(coordinatesSpace, product))
+                throw missing(product, "пространственном индексе координат");
+            if (SpatialIndex.Space.LOCATION.point(product) != null) {
+                located++;
+                if (!contains(locationSpace, product))
+                    throw missing(product, "пространственном индексе локаций");
+            }
+            if (product.getOwner() != null) {
+                owned++;
+                Set<Product> products = ownedProducts.get(product.getOwner().getPassportID());
+                if (!ownerIndex.containsKey(product) || products == null || !products.contains(product))
+                    throw missing(product, "индексе владельцев");
+            }
+        }
+        if (index.size() != order.size() || priceIndex.size() != order.size() || coordinatesIndex.size() != order.size()
+                || coordinatesSpace.size() != order.size() || locationSpace.size() != located
+                || ownerIndex.size() != owned || registered != owned)
+            throw new IllegalStateException("Размеры индексов не совпадают с числом товаров.");
+    }
+
+    private static IllegalStateException missing(Product product, String where) {
+        return new IllegalStateException("Товар №" + product.getID() + " не найден в " + where + ".");
+    }
+
+    private static boolean contains(SpatialIndex spatialIndex, Product product) {
+        double[] point = spatialIndex.getSpace().point(product);
+        return spatialIndex.inBox(point, point).contains(product);
+    }
+
+    private Object stripe(long id) {
+        return stripes[(int) (id ^ id >>> 32) & STRIPES - 1];
+    }
+
+    private void addToIndexes(Product product) {
+        personRegistry.addOwnership(product);
+        priceIndex.put(product, Boolean.TRUE);
+        coordinatesIndex.put(product, Boolean.TRUE);
+        if (product.getOwner() != null)
+            ownerIndex.put(product, Boolean.TRUE);
+        coordinatesSpace.add(product);
+        locationSpace.add(product);
+    }
+
+    private void removeFromIndexes(Product product) {
+        personRegistry.removeOwnership(product);
+        priceIndex.remove(product);
+        coordinatesIndex.remove(product);
+        if (product.getOwner() != null)
+            ownerIndex.remove(product);
+        coordinatesSpace.remove(product);
+        locationSpace.remove(product);
+    }
+
+    private void unlink(Node node) {
+        index.remove(node.product.getID());
+        order.remove(node.sequence);
+        removeFromIndexes(node.product);
+        modificationCount.incrementAndGet();
+    }
+
+    /**
+     * Звено списка товаров: товар и порядковый номер его добавления.
+     */
+    private static class Node {
+        private final long sequence;
+        private final Product product;
+
+        private Node(long sequence, Product product) {
+            this.sequence = sequence;
+            this.product = product;
+        }
+    }
+}
\ No newline at end of file
@@ -1,20 +1,36 @@
 package project.products.product_collection;
 
+import project.products.product.Person;
+import project.products.product.PersonRegistry;
 import project.products.product.Product;
 import project.parsing.tags.ParentTag;
 
-import java.util.ArrayDeque;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Класс, реализующий этот интерфейс, должен хранить в себе коллекцию продуктов, быть итерируемым, обеспечивать взаимодействие с продуктами по их номеру и хранить дату инициализации списка.
+ * Итерирование идёт в порядке добавления товаров.
  * @see Product
  */
 public interface IProductCollection extends Iterable<Product> {
     /**
-     * Возвращает ссылку на коллекцию товаров.
-     * @return коллекция (двусторонняя очередь).
+     * Добавляет товар в конец коллекции.
+     * @param product новый товар.
+     * @return true, если товар добавлен; false, если товар с таким номером уже есть.
      */
-    ArrayDeque<Product> getProducts();
+    boolean addProduct(Product product);
+    /**
+     * Возвращает первый товар коллекции.
+     * @return объект класса {@link Product} или null, если коллекция пуста.
+     */
+    Product getFirst();
+    /**
+     * Удаляет первый товар коллекции.
+     * @return удалённый товар или null, если коллекция была пуста.
+     */
+    Product removeFirst();
     /**
      * Возвращает товар с переданным номером или null, если такого нет.
      * @param id номер (ID) товара.
@@ -27,15 +43,141 @@ public interface IProductCollection extends Iterable<Product> {
      * @return true, если такой товар был и удалён, иначе false.
      */
     boolean removeProductByID(long id);
+    /**
+     * Запрашивает у пользователя новые значения полей товара с указанным номером.
+     * @param id номер (ID) товара.
+     * @return true, если такой товар есть, иначе false.
+     */
+    boolean updateProductByID(long id);
+    /**
+     * Заменяет значения полей товара с указанным номером значениями полей другого товара. Номер и положение товара в
+     * коллекции не меняются.
+     * @param id номер (ID) товара.
+     * @param values товар, значения полей которого нужно перенести.
+     * @return true, если такой товар есть, иначе false.
+     */
+    boolean updateProductByID(long id, Product values);
+    /**
+     * Удаляет все товары.
+     */
+    void clear();
+    /**
+     * Возвращает самый дорогой товар.
+     * @return товар или null, если коллекция пуста.
+     */
+    Product getMaxByPrice();
+    /**
+     * Возвращает товар с наибольшей суммой координат.
+     * @return товар или null, если коллекция пуста.
+     */
+    Product getMaxByCoordinates();
+    /**
+     * Возвращает товары владельца, имя которого идёт первым в алфавитном порядке.
+     * @return список товаров; пустой, если ни у одного товара нет владельца.
+     */
+    List<Product> getMinByOwner();
+    /**
+     * Возвращает владельцев товаров коллекции.
+     * @return список владельцев без повторений.
+     */
+    List<Person> getOwners();
+    /**
+     * Возвращает товары с ценой в указанных границах (включительно) в порядке возрастания или убывания цены, если
+     * коллекция ведёт упорядоченный индекс по цене. Товары с равной ценой идут в порядке номеров (при убывании - в
+     * обратном). Результат - представление индекса, которое нельзя изменять и которое следует обойти, пока коллекция не
+     * изменилась (для потокобезопасных коллекций обход слабо согласован).
+     * @param min наименьшая цена; {@link Double#NEGATIVE_INFINITY}, если ограничения снизу нет.
+     * @param max наибольшая цена; {@link Double#POSITIVE_INFINITY}, если ограничения сверху нет.
+     * @param descending true для порядка убывания цены.
+     * @return товары или null, если индекса по цене нет; по умолчанию null.
+     */
+    default Iterable<Product> getByPrice(double min, double max, boolean descending) {
+        return null;
+    }
+    /**
+     * Возвращает товары владельца с указанным номером паспорта, если коллекция отслеживает владение товарами.
+     * @param passportID номер паспорта.
+     * @return товары в неопределённом порядке или null, если коллекция не отслеживает владение; по умолчанию null.
+     */
+    default Collection<Product> getByOwner(String passportID) {
+        return null;
+    }
+    /**
+     * Возвращает пространственный индекс товаров (k-d дерево), если коллекция его ведёт.
+     * @param space пространство: координаты товаров или локации их владельцев.
+     * @return индекс, отражающий последующие изменения коллекции, или null, если коллекция индекс не ведёт; по
+     * умолчанию null.
+     */
+    default SpatialIndex getSpatialIndex(SpatialIndex.Space space) {
+        return null;
+    }
+    /**
+     * Вычисляет сводные характеристики товаров: сумму, наименьшее, наибольшее и среднее значения цены и координат,
+     * число товаров каждой единицы измерения и товар с наибольшей суммой координат.
+     * @return характеристики; по умолчанию вычисляются обходом объектов товаров ({@link ProductAggregates#of}).
+     */
+    default ProductAggregates aggregate() {
+        return ProductAggregates.of(this);
+    }
+    /**
+     * Возвращает количество товаров.
+     * @return размер коллекции.
+     */
+    int size();
+    /**
+     * Возвращает реестр людей, в котором ищутся и регистрируются владельцы товаров коллекции.
+     * @return реестр людей.
+     */
+    PersonRegistry getPersonRegistry();
     /**
      * Возвращает дату инициализации в виде строки.
      * @return строковое представление даты.
      */
     String getInitializationDataString();
+    /**
+     * Возвращает счётчик изменений: число, которое увеличивается при каждом добавлении, удалении и изменении товаров.
+     * Если счётчик не изменился, не изменилась и коллекция, так что её незачем сохранять заново.
+     * @return счётчик изменений.
+     */
+    long getModificationCount();
 
     /**
      * Возвращает объект {@link ParentTag}, описывающий эту коллекцию товаров.
      * @return тег с вложенными тегами даты инициализации и перечисления товаров.
      */
     ParentTag getTag();
+
+    /**
+     * Возвращает неизменяемый снимок текущего состояния коллекции, который можно сохранять в другом потоке, пока
+     * коллекция меняется. По умолчанию товары копируются; коллекции, не изменяющие хранимые товары, возвращают снимок,
+     * разделяющий с ними объекты товаров.
+     * @return снимок коллекции.
+     */
+    default CollectionSnapshot snapshot() {
+        Product[] products = new Product[size()];
+        int i = 0;
+        for (Product product: this)
+            products[i++] = product.copy(product.getID());
+        return new CollectionSnapshot(products, LocalDate.parse(getInitializationDataString()), getPersonRegistry(),
+                false);
+    }
+
+    /**
+     * Сообщает, отдаёт ли коллекция при каждом обращении одни и те же объекты товаров, пока они не изменены. На
+     * тождество объектов опираются кэш фрагментов ({@link project.parsing.save.FragmentCache}) и сохранение только
+     * изменившихся сегментов; для коллекций, создающих объекты товаров заново, они не используются.
+     * @return true, если объекты неизменённых товаров не пересоздаются; по умолчанию true.
+     */
+    default boolean keepsProducts() {
+        return true;
+    }
+
+    /**
+     * Сообщает, можно ли вызывать методы коллекции из нескольких потоков одновременно без внешней блокировки. Каждый
+     * метод такой коллекции выполняется атомарно, но последовательность вызовов - нет.
+     * @return true, если коллекция потокобезопасна; по умолчанию false.
+     */
+    default boolean isConcurrent() {
+        return false;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+package project.products.product_collection;
+
+import java.util.Arrays;
+
+/**
+ * Хеш-таблица с ключами примитивного типа long и открытой адресацией. В отличие от {@link java.util.HashMap} не
+ * упаковывает ключи в объекты {@link Long} и не создаёт узел на каждую запись. Значения не могут быть null.
+ * @param <V> тип значений.
+ */
+public class LongHashMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Создаёт пустую таблицу.
+     */
+    public LongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Создаёт пустую таблицу, рассчитанную на указанное количество записей без перестроения.
+     * @param expectedSize ожидаемое количество записей.
+     */
+    public LongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Возвращает значение по ключу.
+     * @param key ключ.
+     * @return значение или null, если записи с таким ключом нет.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    /**
+     * Проверяет наличие записи с указанным ключом.
+     * @param key ключ.
+     * @return true, если запись есть.
+     */
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Добавляет запись или заменяет значение существующей.
+     * @param key ключ.
+     * @param value значение (не null).
+     * @return прежнее значение или null, если записи не было.
+     * @exception NullPointerException если значение null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V oldValue = (V) values[i];
+                values[i] = value;
+                return oldValue;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > (mask + 1) / 4 * 3)
+            rehash((mask + 1) * 2);
+        return null;
+    }
+
+    /**
+     * Удаляет запись с указанным ключом.
+     * @param key ключ.
+     * @return удалённое значение или null, если записи не было.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+        V oldValue = (V) values[i];
+        size--;
+        int gap = i;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == null)
+                break;
+            int home = slot(keys[i]);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+        return oldValue;
+    }
+
+    /**
+     * Удаляет все записи.
+     */
+    public void clear() {
+        if (mask + 1 > MIN_CAPACITY * 4)
+            allocate(MIN_CAPACITY);
+        else
+            Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Возвращает количество записей.
+     * @return количество записей.
+     */
+    public int size() {
+        return size;
+    }
+
+    private int indexOf(long key) {
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key)
+                return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null)
+                continue;
+            int j = slot(oldKeys[i]);
+            while (values[j] != null)
+                j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 4 * 3 < expectedSize)
+            capacity *= 2;
+        return capacity;
+    }
+}
\ No newline at end of file
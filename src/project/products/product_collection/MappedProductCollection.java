@@ -0,0 +1,805 @@
+package project.products.product_collection;
+
+import project.parsing.tags.ParentTag;
+import project.parsing.tags.TextTag;
+import project.products.product.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Коллекция товаров, хранящаяся в отображённых в память файлах. Каждый товар занимает запись фиксированной длины в
+ * файле записей, а строки (наименования, имена, номера паспортов, названия локаций) хранятся в отдельном файле строк,
+ * на смещения в котором ссылаются записи. Объект {@link Product} создаётся только тогда, когда к товару обращается
+ * команда, и не хранится коллекцией: изменения товара записываются обратно в его запись. Поэтому открытие коллекции
+ * сводится к отображению файлов и проверке заголовка, а коллекция может быть больше кучи.
+ * <p>
+ * Порядок товаров - порядок записей. Удалённые записи помечаются и пропускаются. Строки удалённых товаров и строки,
+ * заменённые при изменении товаров, становятся мёртвыми; когда мёртвые байты составляют больше половины файла строк,
+ * живые строки сдвигаются к его началу, а ссылки на них в записях переписываются. Файлы отображаются участками
+ * ({@link MappedRegions}), поэтому могут быть больше 2 ГБ. Файлы растут и не укорачиваются (отображённый файл нельзя
+ * укоротить на всех платформах), так что в их конце может быть неиспользуемое место, которое занимается заново после
+ * сжатия строк или очистки коллекции; занятый размер хранится в заголовке. Номера товаров, как и в других форматах, не
+ * хранятся между запусками: при открытии записям выдаётся непрерывный диапазон номеров.
+ * <p>
+ * Читающие методы можно вызывать из нескольких потоков одновременно, если изменяющие вызываются не параллельно с ними:
+ * строки читаются через собственные представления буфера, а владельцы регистрируются в реестре под его монитором.
+ * @see Product
+ */
+public class MappedProductCollection implements IProductCollection {
+    private static final int MAGIC = 0x504D4150;
+    private static final short VERSION = 2;
+    private static final String STRINGS_SUFFIX = ".strings";
+    private static final int MIN_CAPACITY = 1024;
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    private static final int HEADER_SIZE = 40;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_DATE = 8;
+    private static final int HEADER_RECORDS = 16;
+    private static final int HEADER_LIVE = 20;
+    private static final int HEADER_STRINGS = 24;
+    private static final int HEADER_DEAD_STRINGS = 32;
+
+    private static final int RECORD_SIZE = 104;
+    private static final int FLAGS = 0;
+    private static final int UNIT = 1;
+    private static final int X = 4;
+    private static final int NAME = 8;
+    private static final int Y = 16;
+    private static final int PRICE = 24;
+    private static final int CREATION_DAY = 32;
+    private static final int CREATION_NANO = 40;
+    private static final int OWNER_PASSPORT = 48;
+    private static final int OWNER_NAME = 56;
+    private static final int LOCATION_NAME = 64;
+    private static final int OWNER_WEIGHT = 72;
+    private static final int OWNER_HEIGHT = 76;
+    private static final int LOCATION_X = 80;
+    private static final int LOCATION_Y = 84;
+    private static final int LOCATION_Z = 88;
+    private static final int ID = 96;
+
+    private static final byte LIVE = 1;
+    private static final byte HAS_UNIT = 2;
+    private static final byte HAS_OWNER = 4;
+    private static final byte HAS_HEIGHT = 8;
+    private static final byte HAS_LOCATION = 16;
+
+    private static final int[] STRING_FIELDS = {NAME, OWNER_PASSPORT, OWNER_NAME, LOCATION_NAME};
+    private static final UnitOfMeasure[] UNITS = UnitOfMeasure.values();
+
+    private final File file;
+    private final FileChannel recordsChannel;
+    private final FileChannel stringsChannel;
+    private MappedRegions records;
+    private MappedRegions strings;
+    private int recordCount;
+    private int liveCount;
+    private long stringsEnd;
+    private long deadStrings;
+    private int firstLive;
+    private long baseID;
+    private int baseCount;
+    private final LongHashMap<Integer> appendedSlots;
+    private final PersonRegistry personRegistry;
+    private volatile boolean registryFilled;
+    private volatile long modificationCount;
+    private LocalDate initializationDate;
+
+    private MappedProductCollection(File file, RandomAccessFile recordsFile, RandomAccessFile stringsFile) {
+        this.file = file;
+        recordsChannel = recordsFile.getChannel();
+        stringsChannel = stringsFile.getChannel();
+        appendedSlots = new LongHashMap<>();
+        personRegistry = new PersonRegistry();
+    }
+
+    /**
+     * Открывает существующее хранилище. Файлы отображаются в память, проверяются заголовок и размеры файлов; сами
+     * записи не читаются.
+     * @param path путь к файлу записей; файл строк имеет тот же путь с суффиксом ".strings".
+     * @return коллекция товаров.
+     * @throws IOException если файлы не удалось открыть или они не являются хранилищем коллекции.
+     */
+    public static MappedProductCollection open(String path) throws IOException {
+        File file = new File(path);
+        if (!file.exists() || !stringsFile(file).exists())
+            throw new FileNotFoundException("Файлы хранилища не найдены.");
+        RandomAccessFile recordsFile = new RandomAccessFile(file, "rw");
+        RandomAccessFile stringsFile;
+        try {
+            stringsFile = new RandomAccessFile(stringsFile(file), "rw");
+        } catch (IOException e) {
+            recordsFile.close();
+            throw e;
+        }
+        try {
+            return open(new MappedProductCollection(file, recordsFile, stringsFile));
+        } catch (IOException e) {
+            recordsFile.close();
+            stringsFile.close();
+            throw e;
+        }
+    }
+
+    private static MappedProductCollection open(MappedProductCollection collection) throws IOException {
+        long recordsSize = collection.recordsChannel.size();
+        long stringsSize = collection.stringsChannel.size();
+        if (recordsSize < HEADER_SIZE)
+            throw new IOException("Файл не является хранилищем коллекции.");
+        collection.records = new MappedRegions(collection.recordsChannel, recordsSize);
+        collection.strings = new MappedRegions(collection.stringsChannel, stringsSize);
+
+        MappedRegions records = collection.records;
+        if (records.getInt(HEADER_MAGIC) != MAGIC)
+            throw new IOException("Файл не является хранилищем коллекции.");
+        if (records.getShort(HEADER_VERSION) != VERSION)
+            throw new IOException("Неподдерживаемая версия хранилища: " + records.getShort(HEADER_VERSION) + ".");
+        collection.recordCount = records.getInt(HEADER_RECORDS);
+        collection.liveCount = records.getInt(HEADER_LIVE);
+        collection.stringsEnd = records.getLong(HEADER_STRINGS);
+        collection.deadStrings = records.getLong(HEADER_DEAD_STRINGS);
+        if (collection.recordCount < 0 || collection.liveCount < 0 || collection.liveCount > collection.recordCount
+                || position(collection.recordCount) > recordsSize || collection.stringsEnd < 0
+                || collection.stringsEnd > stringsSize || collection.deadStrings < 0
+                || collection.deadStrings > collection.stringsEnd)
+            throw new IOException("Заголовок хранилища повреждён.");
+        try {
+            collection.initializationDate = LocalDate.ofEpochDay(records.getLong(HEADER_DATE));
+        } catch (DateTimeException e) {
+            throw new IOException("Заголовок хранилища повреждён.");
+        }
+
+        collection.baseCount = collection.recordCount;
+        collection.baseID = Product.reserveIDs(collection.recordCount);
+        collection.firstLive = collection.nextLive(0);
+        return collection;
+    }
+
+    /**
+     * Записывает хранилище заново, копируя в него товары переданной коллекции. Существующие файлы перезаписываются.
+     * @param file файл записей; файл строк имеет тот же путь с суффиксом ".strings".
+     * @param productCollection коллекция товаров.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public static void write(File file, IProductCollection productCollection) throws IOException {
+        try (RandomAccessFile recordsFile = new RandomAccessFile(file, "rw");
+             RandomAccessFile stringsFile = new RandomAccessFile(stringsFile(file), "rw")) {
+            recordsFile.setLength(0);
+            stringsFile.setLength(0);
+            MappedProductCollection collection = new MappedProductCollection(file, recordsFile, stringsFile);
+            int capacity = Math.max(productCollection.size(), MIN_CAPACITY);
+            collection.records = new MappedRegions(collection.recordsChannel, position(capacity));
+            collection.strings = new MappedRegions(collection.stringsChannel, capacity * 32L);
+            collection.initializationDate = LocalDate.parse(productCollection.getInitializationDataString());
+            collection.records.putInt(HEADER_MAGIC, MAGIC);
+            collection.records.putShort(HEADER_VERSION, VERSION);
+            collection.records.putLong(HEADER_DATE, collection.initializationDate.toEpochDay());
+
+            HashMap<String, Long> internedStrings = new HashMap<>();
+            for (Product product: productCollection)
+                collection.append(product, internedStrings);
+            collection.force();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Возвращает файл записей этого хранилища.
+     * @return файл записей.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Сбрасывает на диск изменённые страницы обоих файлов. Заменяет полную перезапись файла при сохранении. Если
+     * мёртвых строк накопилось больше порога, файл строк перед этим сжимается.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    public void force() throws IOException {
+        try {
+            compactStringsIfNeeded();
+            writeHeader();
+            strings.force();
+            records.force();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Добавляет товар в конец коллекции.
+     * @param product новый товар.
+     * @return true, если товар добавлен; false, если товар с таким номером уже есть.
+     */
+    public boolean addProduct(Product product) {
+        if (slotOf(product.getID()) >= 0)
+            return false;
+        append(product, null);
+        modificationCount++;
+        writeHeader();
+        return true;
+    }
+
+    /**
+     * Возвращает первый товар коллекции.
+     * @return объект класса {@link Product} или null, если коллекция пуста.
+     */
+    public Product getFirst() {
+        return firstLive < recordCount ? materialize(firstLive) : null;
+    }
+
+    /**
+     * Удаляет первый товар коллекции.
+     * @return удалённый товар или null, если коллекция была пуста.
+     */
+    public Product removeFirst() {
+        if (firstLive >= recordCount)
+            return null;
+        Product product = materialize(firstLive);
+        removeSlot(firstLive);
+        return product;
+    }
+
+    /**
+     * Возвращает товар с переданным номером или null, если такого нет.
+     * @param id номер (ID) товара.
+     * @return объект класса {@link Product}, созданный по записи, или null.
+     */
+    public Product getProductByID(long id) {
+        int slot = slotOf(id);
+        return slot < 0 ? null : materialize(slot);
+    }
+
+    /**
+     * Удаляет товар с указанным номером.
+     * @param id номер (ID) товара.
+     * @return true, если такой продукт был и удалён, иначе false.
+     */
+    public boolean removeProductByID(long id) {
+        int slot = slotOf(id);
+        if (slot < 0)
+            return false;
+        removeSlot(slot);
+        return true;
+    }
+
+    /**
+     * Запрашивает у пользователя новые значения полей товара с указанным номером и записывает их в запись товара.
+     * @param id номер (ID) товара.
+     * @return true, если такой товар есть, иначе false.
+     */
+    public boolean updateProductByID(long id) {
+        int slot = slotOf(id);
+        if (slot < 0)
+            return false;
+        Product product = materialize(slot);
+        product.update(getPersonRegistry());
+        writeRecord(slot, product, true, null);
+        modificationCount++;
+        compactStringsIfNeeded();
+        writeHeader();
+        return true;
+    }
+
+    /**
+     * Записывает значения полей другого товара в запись товара с указанным номером.
+     * @param id номер (ID) товара.
+     * @param values товар, значения полей которого нужно перенести.
+     * @return true, если такой товар есть, иначе false.
+     */
+    public boolean updateProductByID(long id, Product values) {
+        int slot = slotOf(id);
+        if (slot < 0)
+            return false;
+        writeRecord(slot, values, true, null);
+        modificationCount++;
+        compactStringsIfNeeded();
+        writeHeader();
+        return true;
+    }
+
+    /**
+     * Удаляет все товары. Все строки становятся мёртвыми, и файл строк, как и файл записей, заполняется новыми товарами
+     * с начала; сами файлы при этом не укорачиваются.
+     */
+    public void clear() {
+        recordCount = 0;
+        liveCount = 0;
+        stringsEnd = 0;
+        deadStrings = 0;
+        firstLive = 0;
+        baseCount = 0;
+        appendedSlots.clear();
+        modificationCount++;
+        writeHeader();
+    }
+
+    /**
+     * Возвращает самый дорогой товар. Цены читаются прямо из записей.
+     * @return товар или null, если коллекция пуста.
+     */
+    public Product getMaxByPrice() {
+        int maxSlot = -1;
+        double maxPrice = 0;
+        for (int slot = firstLive; slot < recordCount; slot++) {
+            if (!isLive(slot))
+                continue;
+            double price = records.getDouble(position(slot) + PRICE);
+            if (maxSlot < 0 || Double.compare(price, maxPrice) >= 0) {
+                maxSlot = slot;
+                maxPrice = price;
+            }
+        }
+        return maxSlot < 0 ? null : materialize(maxSlot);
+    }
+
+    /**
+     * Возвращает товар с наибольшей суммой координат. Координаты читаются прямо из записей.
+     * @return товар или null, если коллекция пуста.
+     */
+    public Product getMaxByCoordinates() {
+        int maxSlot = -1;
+        double maxSum = 0;
+        for (int slot = firstLive; slot < recordCount; slot++) {
+            if (!isLive(slot))
+                continue;
+            long position = position(slot);
+            double sum = records.getFloat(position + X) + records.getDouble(position + Y);
+            if (maxSlot < 0 || Double.compare(sum, maxSum) >= 0) {
+                maxSlot = slot;
+                maxSum = sum;
+            }
+        }
+        return maxSlot < 0 ? null : materialize(maxSlot);
+    }
+
+    /**
+     * Возвращает товары владельца, имя которого идёт первым в алфавитном порядке. Если таких владельцев несколько,
+     * выбирается владелец с меньшим номером паспорта.
+     * @return товары в порядке коллекции; пустой список, если ни у одного товара нет владельца.
+     */
+    public List<Product> getMinByOwner() {
+        ArrayList<Integer> slots = new ArrayList<>();
+        String minName = null;
+        String minPassportID = null;
+        for (int slot = firstLive; slot < recordCount; slot++) {
+            long position = position(slot);
+            if ((records.get(position + FLAGS) & (LIVE | HAS_OWNER)) != (LIVE | HAS_OWNER))
+                continue;
+            String name = readString(records.getLong(position + OWNER_NAME));
+            int comparison = minName == null ? -1 : name.compareTo(minName);
+            if (comparison > 0)
+                continue;
+            String passportID = readString(records.getLong(position + OWNER_PASSPORT));
+            if (comparison == 0)
+                comparison = passportID.compareTo(minPassportID);
+            if (comparison < 0) {
+                slots.clear();
+                minName = name;
+                minPassportID = passportID;
+            }
+            if (comparison <= 0)
+                slots.add(slot);
+        }
+        ArrayList<Product> result = new ArrayList<>(slots.size());
+        for (int slot: slots)
+            result.add(materialize(slot));
+        return result;
+    }
+
+    /**
+     * Возвращает владельцев товаров коллекции.
+     * @return список владельцев без повторений в порядке первого появления.
+     */
+    public List<Person> getOwners() {
+        LinkedHashMap<String, Person> owners = new LinkedHashMap<>();
+        for (int slot = firstLive; slot < recordCount; slot++) {
+            long position = position(slot);
+            if ((records.get(position + FLAGS) & (LIVE | HAS_OWNER)) != (LIVE | HAS_OWNER))
+                continue;
+            String passportID = readString(records.getLong(position + OWNER_PASSPORT));
+            if (!owners.containsKey(passportID))
+                owners.put(passportID, materializeOwner(position, passportID));
+        }
+        return new ArrayList<>(owners.values());
+    }
+
+    /**
+     * Возвращает количество товаров.
+     * @return размер коллекции.
+     */
+    public int size() {
+        return liveCount;
+    }
+
+    /**
+     * Возвращает реестр людей, в котором ищутся и регистрируются владельцы товаров этой коллекции. При первом вызове
+     * регистрирует в нём всех владельцев из записей, чтобы новые люди проверялись на уникальность номера паспорта.
+     * @return реестр людей.
+     */
+    public PersonRegistry getPersonRegistry() {
+        if (!registryFilled) {
+            synchronized (personRegistry) {
+                if (!registryFilled) {
+                    getOwners();
+                    registryFilled = true;
+                }
+            }
+        }
+        return personRegistry;
+    }
+
+    /**
+     * Возвращает дату инициализации в виде строки.
+     * @return строковое представление даты.
+     */
+    @Override
+    public String getInitializationDataString() {
+        return initializationDate.toString();
+    }
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Возвращает снимок коллекции. Объекты товаров создаются заново и с записями не связаны, поэтому не копируются.
+     * @return снимок коллекции.
+     */
+    @Override
+    public CollectionSnapshot snapshot() {
+        Product[] products = new Product[liveCount];
+        int i = 0;
+        for (int slot = firstLive; slot < recordCount; slot++)
+            if (isLive(slot))
+                products[i++] = materialize(slot);
+        return new CollectionSnapshot(products, initializationDate, personRegistry, false);
+    }
+
+    /**
+     * Объекты товаров создаются заново при каждом чтении записей.
+     * @return false.
+     */
+    @Override
+    public boolean keepsProducts() {
+        return false;
+    }
+
+    /**
+     * Метод для получения тега, описывающего эту коллекцию. Создаёт объекты всех товаров.
+     * @return тег productCollection, содержащий теги initializationDate и products.
+     */
+    public ParentTag getTag() {
+        ParentTag productCollectionTag = new ParentTag("productCollection");
+        productCollectionTag.addTextTag(new TextTag("initializationDate", initializationDate.toString()));
+        ParentTag productsTag = new ParentTag("products");
+        for (Product product: this)
+            productsTag.addParentTag(product.getTag());
+        productCollectionTag.addParentTag(productsTag);
+        return productCollectionTag;
+    }
+
+    /**
+     * Возвращает итератор по товарам. Объекты товаров создаются по мере обхода. Итератор поддерживает удаление.
+     * @return итератор.
+     */
+    public Iterator<Product> iterator() {
+        return new Iterator<Product>() {
+            private int next = firstLive;
+            private int current = -1;
+
+            @Override
+            public boolean hasNext() {
+                next = nextLive(next);
+                return next < recordCount;
+            }
+
+            @Override
+            public Product next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                current = next++;
+                return materialize(current);
+            }
+
+            @Override
+            public void remove() {
+                if (current < 0)
+                    throw new IllegalStateException();
+                removeSlot(current);
+                current = -1;
+            }
+        };
+    }
+
+    private static File stringsFile(File file) {
+        return new File(file.getPath() + STRINGS_SUFFIX);
+    }
+
+    private static long position(int slot) {
+        return HEADER_SIZE + (long) slot * RECORD_SIZE;
+    }
+
+    private boolean isLive(int slot) {
+        return (records.get(position(slot) + FLAGS) & LIVE) != 0;
+    }
+
+    private int nextLive(int slot) {
+        while (slot < recordCount && !isLive(slot))
+            slot++;
+        return slot;
+    }
+
+    private long idOf(int slot) {
+        return slot < baseCount ? baseID + slot : records.getLong(position(slot) + ID);
+    }
+
+    /**
+     * Возвращает номер записи живого товара с указанным номером.
+     * @return номер записи или -1, если такого товара нет.
+     */
+    private int slotOf(long id) {
+        int slot;
+        if (id >= baseID && id < baseID + baseCount)
+            slot = (int) (id - baseID);
+        else {
+            Integer appendedSlot = appendedSlots.get(id);
+            if (appendedSlot == null)
+                return -1;
+            slot = appendedSlot;
+        }
+        return isLive(slot) ? slot : -1;
+    }
+
+    private void removeSlot(int slot) {
+        long position = position(slot);
+        byte flags = records.get(position + FLAGS);
+        for (int field: STRING_FIELDS)
+            if (hasString(flags, field))
+                addDeadString(records.getLong(position + field));
+        records.put(position + FLAGS, (byte) (flags & ~LIVE));
+        if (slot >= baseCount)
+            appendedSlots.remove(records.getLong(position + ID));
+        liveCount--;
+        if (slot == firstLive)
+            firstLive = nextLive(slot + 1);
+        modificationCount++;
+        compactStringsIfNeeded();
+        writeHeader();
+    }
+
+    private void append(Product product, Map<String, Long> internedStrings) {
+        ensureCapacity(recordCount + 1);
+        int slot = recordCount++;
+        writeRecord(slot, product, false, internedStrings);
+        records.putLong(position(slot) + ID, product.getID());
+        appendedSlots.put(product.getID(), slot);
+        liveCount++;
+    }
+
+    /**
+     * Записывает значения полей товара в запись. При перезаписи строки, совпадающие с уже записанными в этой записи,
+     * не дублируются.
+     * @param rewrite true, если запись уже содержит этот товар; false, если запись новая.
+     * @param internedStrings таблица уже записанных строк или null.
+     */
+    private void writeRecord(int slot, Product product, boolean rewrite, Map<String, Long> internedStrings) {
+        long position = position(slot);
+        byte oldFlags = rewrite ? records.get(position + FLAGS) : 0;
+        byte flags = LIVE;
+
+        records.putLong(position + NAME, stringRef(rewrite, position + NAME, product.getName(), internedStrings));
+        records.putFloat(position + X, product.getCoordinates().getX());
+        records.putDouble(position + Y, product.getCoordinates().getY());
+        records.putDouble(position + PRICE, product.getPrice());
+        records.putLong(position + CREATION_DAY, product.getCreationDate().toLocalDate().toEpochDay());
+        records.putLong(position + CREATION_NANO, product.getCreationDate().toLocalTime().toNanoOfDay());
+        if (product.getUnitOfMeasure() != null) {
+            flags |= HAS_UNIT;
+            records.put(position + UNIT, (byte) product.getUnitOfMeasure().ordinal());
+        }
+
+        Person owner = product.getOwner();
+        if (owner != null) {
+            boolean rewriteOwner = rewrite && (oldFlags & HAS_OWNER) != 0;
+            flags |= HAS_OWNER;
+            records.putLong(position + OWNER_PASSPORT,
+                    stringRef(rewriteOwner, position + OWNER_PASSPORT, owner.getPassportID(), internedStrings));
+            records.putLong(position + OWNER_NAME,
+                    stringRef(rewriteOwner, position + OWNER_NAME, owner.getName(), internedStrings));
+            records.putFloat(position + OWNER_WEIGHT, owner.getWeight());
+            if (owner.getHeight() != null) {
+                flags |= HAS_HEIGHT;
+                records.putFloat(position + OWNER_HEIGHT, owner.getHeight());
+            }
+            Location location = owner.getLocation();
+            if (location != null) {
+                flags |= HAS_LOCATION;
+                records.putLong(position + LOCATION_NAME, stringRef(rewriteOwner && (oldFlags & HAS_LOCATION) != 0,
+                        position + LOCATION_NAME, location.getName(), internedStrings));
+                records.putFloat(position + LOCATION_X, location.getX());
+                records.putInt(position + LOCATION_Y, location.getY());
+                records.putLong(position + LOCATION_Z, location.getZ());
+            }
+        }
+        for (int field: STRING_FIELDS)
+            if (hasString(oldFlags, field) && !hasString(flags, field))
+                addDeadString(records.getLong(position + field));
+        records.put(position + FLAGS, flags);
+    }
+
+    /**
+     * Возвращает ссылку на строку для поля записи. При перезаписи строка, отличающаяся от прежней, записывается заново,
+     * а прежняя считается мёртвой.
+     */
+    private long stringRef(boolean rewrite, long fieldPosition, String value, Map<String, Long> internedStrings) {
+        if (rewrite) {
+            long oldRef = records.getLong(fieldPosition);
+            if (readString(oldRef).equals(value))
+                return oldRef;
+            addDeadString(oldRef);
+        }
+        if (internedStrings == null)
+            return appendString(value);
+        Long ref = internedStrings.get(value);
+        if (ref == null)
+            internedStrings.put(value, ref = appendString(value));
+        return ref;
+    }
+
+    private long appendString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long ref = stringsEnd;
+        strings.ensureCapacity(ref + Integer.BYTES + bytes.length);
+        strings.putInt(ref, bytes.length);
+        strings.put(ref + Integer.BYTES, bytes);
+        stringsEnd = ref + Integer.BYTES + bytes.length;
+        return ref;
+    }
+
+    private String readString(long ref) {
+        byte[] bytes = new byte[strings.getInt(ref)];
+        strings.get(ref + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long stringSize(long ref) {
+        return Integer.BYTES + strings.getInt(ref);
+    }
+
+    /**
+     * Учитывает строку как мёртвую. Строки, записанные методом {@link #write(File, IProductCollection)}, бывают общими
+     * для нескольких записей, поэтому счётчик мёртвых байтов - оценка сверху, ограниченная занятой частью файла.
+     */
+    private void addDeadString(long ref) {
+        deadStrings = Math.min(stringsEnd, deadStrings + stringSize(ref));
+    }
+
+    private static boolean hasString(byte flags, int field) {
+        if ((flags & LIVE) == 0)
+            return false;
+        switch (field) {
+            case NAME:
+                return true;
+            case LOCATION_NAME:
+                return (flags & HAS_LOCATION) != 0;
+            default:
+                return (flags & HAS_OWNER) != 0;
+        }
+    }
+
+    /**
+     * Сжимает файл строк, если мёртвые байты составляют больше половины его занятой части.
+     */
+    private void compactStringsIfNeeded() {
+        if (deadStrings >= MIN_COMPACTION_BYTES && deadStrings > stringsEnd / 2)
+            compactStrings();
+    }
+
+    /**
+     * Сдвигает живые строки к началу файла строк в порядке их смещений и переписывает ссылки на них в записях. Строка
+     * может быть общей для нескольких записей, поэтому смещения сначала собираются и сортируются; новое смещение строки
+     * не больше старого, так что строки не затирают ещё не перенесённые.
+     */
+    private void compactStrings() {
+        long[] refs = new long[16];
+        int count = 0;
+        for (int slot = firstLive; slot < recordCount; slot++) {
+            long position = position(slot);
+            byte flags = records.get(position + FLAGS);
+            for (int field: STRING_FIELDS) {
+                if (!hasString(flags, field))
+                    continue;
+                if (count == refs.length)
+                    refs = Arrays.copyOf(refs, count * 2);
+                refs[count++] = records.getLong(position + field);
+            }
+        }
+        Arrays.sort(refs, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++)
+            if (distinct == 0 || refs[i] != refs[distinct - 1])
+                refs[distinct++] = refs[i];
+
+        long[] moved = new long[distinct];
+        long end = 0;
+        for (int i = 0; i < distinct; i++) {
+            byte[] bytes = new byte[(int) stringSize(refs[i])];
+            strings.get(refs[i], bytes);
+            strings.put(end, bytes);
+            moved[i] = end;
+            end += bytes.length;
+        }
+        for (int slot = firstLive; slot < recordCount; slot++) {
+            long position = position(slot);
+            byte flags = records.get(position + FLAGS);
+            for (int field: STRING_FIELDS)
+                if (hasString(flags, field))
+                    records.putLong(position + field,
+                            moved[Arrays.binarySearch(refs, 0, distinct, records.getLong(position + field))]);
+        }
+        stringsEnd = end;
+        deadStrings = 0;
+    }
+
+    private Product materialize(int slot) {
+        long position = position(slot);
+        byte flags = records.get(position + FLAGS);
+        Person owner = (flags & HAS_OWNER) == 0 ? null
+                : materializeOwner(position, readString(records.getLong(position + OWNER_PASSPORT)));
+        return new Product(
+                idOf(slot),
+                readString(records.getLong(position + NAME)),
+                new Coordinates(records.getFloat(position + X), records.getDouble(position + Y)),
+                LocalDateTime.of(LocalDate.ofEpochDay(records.getLong(position + CREATION_DAY)),
+                        LocalTime.ofNanoOfDay(records.getLong(position + CREATION_NANO))),
+                records.getDouble(position + PRICE),
+                (flags & HAS_UNIT) == 0 ? null : UNITS[records.get(position + UNIT)],
+                owner);
+    }
+
+    private Person materializeOwner(long position, String passportID) {
+        byte flags = records.get(position + FLAGS);
+        Location location = (flags & HAS_LOCATION) == 0 ? null : Location.newLocation(
+                readString(records.getLong(position + LOCATION_NAME)),
+                records.getFloat(position + LOCATION_X),
+                records.getInt(position + LOCATION_Y),
+                records.getLong(position + LOCATION_Z));
+        String name = readString(records.getLong(position + OWNER_NAME));
+        synchronized (personRegistry) {
+            return personRegistry.newPerson(
+                    passportID,
+                    name,
+                    (flags & HAS_HEIGHT) == 0 ? null : records.getFloat(position + OWNER_HEIGHT),
+                    records.getFloat(position + OWNER_WEIGHT),
+                    location);
+        }
+    }
+
+    private void writeHeader() {
+        records.putInt(HEADER_RECORDS, recordCount);
+        records.putInt(HEADER_LIVE, liveCount);
+        records.putLong(HEADER_STRINGS, stringsEnd);
+        records.putLong(HEADER_DEAD_STRINGS, deadStrings);
+    }
+
+    private void ensureCapacity(int recordsNumber) {
+        records.ensureCapacity(position(recordsNumber));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,214 @@
+package project.products.product_collection;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Файл, отображённый в память участками фиксированного размера. Один {@link MappedByteBuffer} адресуется смещениями
+ * типа int и не может быть больше 2 ГБ, поэтому файл делится на участки по 2^{@link #REGION_SHIFT} байт, и участок,
+ * содержащий байт со смещением position, имеет номер position >> REGION_SHIFT. Значение, пересекающее границу
+ * участков, читается и записывается по байтам.
+ * <p>
+ * Файл растёт удвоением, пока помещается в один участок, а дальше - целыми участками; при росте заново отображается
+ * только последний участок. Методы чтения можно вызывать из нескольких потоков, если изменяющие методы и
+ * {@link #ensureCapacity(long)} не вызываются параллельно с ними.
+ */
+final class MappedRegions {
+    /**
+     * Двоичный логарифм размера участка: 64 МБ.
+     */
+    static final int REGION_SHIFT = 26;
+    private static final long REGION_SIZE = 1L << REGION_SHIFT;
+    private static final long REGION_MASK = REGION_SIZE - 1;
+
+    private final FileChannel channel;
+    private MappedByteBuffer[] regions = new MappedByteBuffer[0];
+    private long capacity;
+
+    /**
+     * Отображает файл в память.
+     * @param channel канал файла, открытый для чтения и записи.
+     * @param capacity размер отображаемой части; если файл короче, он будет расширен.
+     * @throws IOException если файл не удалось отобразить.
+     */
+    MappedRegions(FileChannel channel, long capacity) throws IOException {
+        this.channel = channel;
+        map(capacity);
+    }
+
+    /**
+     * Возвращает размер отображённой части файла.
+     * @return размер в байтах.
+     */
+    long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Расширяет файл и его отображение, если текущего размера не хватает.
+     * @param required требуемый размер в байтах.
+     * @exception UncheckedIOException если файл не удалось расширить.
+     */
+    void ensureCapacity(long required) {
+        if (required <= capacity)
+            return;
+        long size = Math.max(required, capacity * 2);
+        if (size > REGION_SIZE)
+            size = (size + REGION_MASK) & ~REGION_MASK;
+        try {
+            map(size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Сбрасывает на диск изменённые страницы всех участков.
+     */
+    void force() {
+        for (MappedByteBuffer region: regions)
+            region.force();
+    }
+
+    byte get(long position) {
+        return regions[(int) (position >>> REGION_SHIFT)].get((int) (position & REGION_MASK));
+    }
+
+    void put(long position, byte value) {
+        regions[(int) (position >>> REGION_SHIFT)].put((int) (position & REGION_MASK), value);
+    }
+
+    short getShort(long position) {
+        int offset = (int) (position & REGION_MASK);
+        if (offset <= REGION_SIZE - Short.BYTES)
+            return regions[(int) (position >>> REGION_SHIFT)].getShort(offset);
+        return (short) getAcross(position, Short.BYTES);
+    }
+
+    void putShort(long position, short value) {
+        int offset = (int) (position & REGION_MASK);
+        if (offset <= REGION_SIZE - Short.BYTES)
+            regions[(int) (position >>> REGION_SHIFT)].putShort(offset, value);
+        else
+            putAcross(position, Short.BYTES, value);
+    }
+
+    int getInt(long position) {
+        int offset = (int) (position & REGION_MASK);
+        if (offset <= REGION_SIZE - Integer.BYTES)
+            return regions[(int) (position >>> REGION_SHIFT)].getInt(offset);
+        return (int) getAcross(position, Integer.BYTES);
+    }
+
+    void putInt(long position, int value) {
+        int offset = (int) (position & REGION_MASK);
+        if (offset <= REGION_SIZE - Integer.BYTES)
+            regions[(int) (position >>> REGION_SHIFT)].putInt(offset, value);
+        else
+            putAcross(position, Integer.BYTES, value);
+    }
+
+    long getLong(long position) {
+        int offset = (int) (position & REGION_MASK);
+        if (offset <= REGION_SIZE - Long.BYTES)
+            return regions[(int) (position >>> REGION_SHIFT)].getLong(offset);
+        return getAcross(position, Long.BYTES);
+    }
+
+    void putLong(long position, long value) {
+        int offset = (int) (position & REGION_MASK);
+        if (offset <= REGION_SIZE - Long.BYTES)
+            regions[(int) (position >>> REGION_SHIFT)].putLong(offset, value);
+        else
+            putAcross(position, Long.BYTES, value);
+    }
+
+    float getFloat(long position) {
+        return Float.intBitsToFloat(getInt(position));
+    }
+
+    void putFloat(long position, float value) {
+        putInt(position, Float.floatToRawIntBits(value));
+    }
+
+    double getDouble(long position) {
+        return Double.longBitsToDouble(getLong(position));
+    }
+
+    void putDouble(long position, double value) {
+        putLong(position, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Читает байты, начиная с указанного смещения; байты могут лежать в нескольких участках.
+     * @param position смещение первого байта.
+     * @param bytes массив, заполняемый целиком.
+     */
+    void get(long position, byte[] bytes) {
+        int done = 0;
+        while (done < bytes.length) {
+            ByteBuffer region = regions[(int) (position >>> REGION_SHIFT)];
+            ByteBuffer view = region.duplicate();
+            int offset = (int) (position & REGION_MASK);
+            int length = (int) Math.min(bytes.length - done, REGION_SIZE - offset);
+            ((Buffer) view).position(offset);
+            view.get(bytes, done, length);
+            done += length;
+            position += length;
+        }
+    }
+
+    /**
+     * Записывает байты, начиная с указанного смещения; байты могут лечь в несколько участков.
+     * @param position смещение первого байта.
+     * @param bytes записываемые байты.
+     */
+    void put(long position, byte[] bytes) {
+        int done = 0;
+        while (done < bytes.length) {
+            ByteBuffer region = regions[(int) (position >>> REGION_SHIFT)];
+            ByteBuffer view = region.duplicate();
+            int offset = (int) (position & REGION_MASK);
+            int length = (int) Math.min(bytes.length - done, REGION_SIZE - offset);
+            ((Buffer) view).position(offset);
+            view.put(bytes, done, length);
+            done += length;
+            position += length;
+        }
+    }
+
+    private long getAcross(long position, int size) {
+        long value = 0;
+        for (int i = 0; i < size; i++)
+            value = value << 8 | get(position + i) & 0xFF;
+        return value;
+    }
+
+    private void putAcross(long position, int size, long value) {
+        for (int i = size - 1; i >= 0; i--, value >>>= 8)
+            put(position + i, (byte) value);
+    }
+
+    /**
+     * Отображает файл с новым размером: полные участки остаются прежними, последний неполный участок и новые
+     * участки отображаются заново.
+     */
+    private void map(long size) throws IOException {
+        int count = (int) ((size + REGION_MASK) >>> REGION_SHIFT);
+        int kept = (int) (capacity >>> REGION_SHIFT);
+        MappedByteBuffer[] mapped = Arrays.copyOf(regions, count);
+        for (int i = kept; i < regions.length; i++)
+            regions[i].force();
+        for (int i = kept; i < count; i++) {
+            long start = (long) i << REGION_SHIFT;
+            mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(REGION_SIZE, size - start));
+        }
+        regions = mapped;
+        capacity = size;
+    }
+}
\ No newline at end of file
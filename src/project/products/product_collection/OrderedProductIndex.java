@@ -0,0 +1,96 @@
+package project.products.product_collection;
+
+import project.products.product.Product;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Упорядоченный вторичный индекс товаров на основе красно-чёрного дерева. Порядок задаётся компаратором, при равенстве
+ * ключей товары упорядочиваются по номеру, так что разные товары никогда не считаются равными. Индекс не следит за
+ * изменениями товаров сам: товар нужно удалить из индекса до изменения ключевых полей и добавить обратно после.
+ * @see ProductCollection
+ */
+public class OrderedProductIndex {
+    private final TreeSet<Product> products;
+    private final Predicate<Product> filter;
+
+    /**
+     * Создаёт индекс по всем товарам.
+     * @param comparator порядок товаров в индексе.
+     */
+    public OrderedProductIndex(Comparator<Product> comparator) {
+        this(comparator, product -> true);
+    }
+
+    /**
+     * Создаёт индекс, в который попадают только товары, удовлетворяющие условию.
+     * @param comparator порядок товаров в индексе.
+     * @param filter условие попадания в индекс.
+     */
+    public OrderedProductIndex(Comparator<Product> comparator, Predicate<Product> filter) {
+        products = new TreeSet<>(comparator.thenComparingLong(Product::getID));
+        this.filter = filter;
+    }
+
+    /**
+     * Добавляет товар в индекс, если он удовлетворяет условию индекса.
+     * @param product товар.
+     */
+    public void add(Product product) {
+        if (filter.test(product))
+            products.add(product);
+    }
+
+    /**
+     * Удаляет товар из индекса.
+     * @param product товар.
+     */
+    public void remove(Product product) {
+        if (filter.test(product))
+            products.remove(product);
+    }
+
+    /**
+     * Удаляет из индекса все товары.
+     */
+    public void clear() {
+        products.clear();
+    }
+
+    /**
+     * Возвращает первый товар в порядке индекса.
+     * @return товар или null, если индекс пуст.
+     */
+    public Product first() {
+        return products.isEmpty() ? null : products.first();
+    }
+
+    /**
+     * Возвращает последний товар в порядке индекса.
+     * @return товар или null, если индекс пуст.
+     */
+    public Product last() {
+        return products.isEmpty() ? null : products.last();
+    }
+
+    /**
+     * Возвращает итератор по товарам в порядке индекса.
+     * @return итератор.
+     */
+    public Iterator<Product> iterator() {
+        return products.iterator();
+    }
+
+    /**
+     * Возвращает товары индекса в виде неизменяемого упорядоченного множества, отражающего последующие изменения.
+     * @return множество товаров в порядке индекса.
+     */
+    public NavigableSet<Product> asSet() {
+        return Collections.unmodifiableNavigableSet(products);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package project.products.product_collection;
+
+import project.products.product.Coordinates;
+import project.products.product.Product;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.NavigableSet;
+
+/**
+ * Выборка диапазона цен из множества товаров, упорядоченного по цене и затем по номеру. Границы диапазона задаются
+ * товарами-ограничителями с нужной ценой и наименьшим или наибольшим номером, которые в коллекции не хранятся.
+ */
+class PriceRange {
+    private PriceRange() {}
+
+    /**
+     * Возвращает товары множества с ценой в указанных границах включительно.
+     * @param products множество товаров в порядке цены, при равной цене - номера.
+     * @param min наименьшая цена.
+     * @param max наибольшая цена.
+     * @param descending true для порядка убывания.
+     * @return представление части множества.
+     */
+    static NavigableSet<Product> select(NavigableSet<Product> products, double min, double max, boolean descending) {
+        if (Double.isNaN(min) || Double.isNaN(max) || min > max || max <= 0)
+            return Collections.emptyNavigableSet();
+        NavigableSet<Product> range;
+        if (min > 0 && max < Double.POSITIVE_INFINITY)
+            range = products.subSet(bound(min, Long.MIN_VALUE), true, bound(max, Long.MAX_VALUE), true);
+        else if (min > 0)
+            range = products.tailSet(bound(min, Long.MIN_VALUE), true);
+        else if (max < Double.POSITIVE_INFINITY)
+            range = products.headSet(bound(max, Long.MAX_VALUE), true);
+        else
+            range = products;
+        return descending ? range.descendingSet() : range;
+    }
+
+    private static Product bound(double price, long ID) {
+        return new Product(ID, "-", new Coordinates(0f, 0), LocalDateTime.MIN, price, null, null);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,317 @@
+package project.products.product_collection;
+
+import project.products.product.Product;
+import project.products.product.UnitOfMeasure;
+
+/**
+ * Сводные характеристики товаров: число товаров, сумма, наименьшее, наибольшее и среднее значения цены и координат,
+ * число товаров каждой единицы измерения и товар с наибольшей суммой координат.
+ * <p>
+ * Коллекции, хранящие поля по столбцам ({@link ColumnarProductCollection}), вычисляют характеристики ядрами этого
+ * класса - циклами по непрерывным отрезкам занятых ячеек, в которых нет проверки маски и переходов по ссылкам, а
+ * наименьшие и наибольшие значения выбираются без ветвлений. Все характеристики считаются за один проход по отрезку:
+ * отдельные проходы для каждой из них упираются в пропускную способность памяти. Остальные коллекции обходят объекты
+ * товаров ({@link #of(Iterable)}); из-за другого порядка сложения суммы в двух способах могут различаться в последних
+ * знаках.
+ * <p>
+ * Если JVM запущена с ключом {@code --add-modules jdk.incubator.vector}, вместо скалярных циклов работают ядра на
+ * векторах ({@link ColumnKernels}): они обрабатывают за одну команду процессора несколько ячеек и складывают суммы
+ * по дорожкам векторов, так что суммы и здесь могут отличаться от скалярных в последних знаках. Без модуля, на JVM
+ * старше 17 и в сборке без этих ядер остаются скалярные циклы ({@link #isVectorized()}).
+ * @see IProductCollection#aggregate()
+ */
+public class ProductAggregates {
+    private static final UnitOfMeasure[] UNITS = UnitOfMeasure.values();
+    private static final String VECTOR_KERNELS = "project.products.product_collection.VectorColumnKernels";
+    private static final ColumnKernels KERNELS = loadKernels();
+
+    long count;
+    double priceSum;
+    double minPrice = Double.POSITIVE_INFINITY;
+    double maxPrice = Double.NEGATIVE_INFINITY;
+    double xSum;
+    float minX = Float.POSITIVE_INFINITY;
+    float maxX = Float.NEGATIVE_INFINITY;
+    double ySum;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    final long[] unitCounts = new long[UNITS.length + 1];
+    private Product maxByCoordinates;
+    int maxSlot = -1;
+    double maxSum = Double.NEGATIVE_INFINITY;
+
+    ProductAggregates() {
+    }
+
+    /**
+     * Загружает ядра на векторах. Класс ядер при инициализации обращается к {@code jdk.incubator.vector}, поэтому
+     * без модуля загрузка заканчивается {@link NoClassDefFoundError}, а на JVM старше 17 -
+     * {@link UnsupportedClassVersionError}.
+     * @return ядра или null, если их нельзя загрузить.
+     */
+    private static ColumnKernels loadKernels() {
+        try {
+            return (ColumnKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Сообщает, вычисляются ли характеристики по столбцам ядрами на векторах.
+     * @return true, если загружены ядра {@code jdk.incubator.vector}; false, если работают скалярные циклы.
+     */
+    public static boolean isVectorized() {
+        return KERNELS != null;
+    }
+
+    /**
+     * Вычисляет характеристики, обходя объекты товаров.
+     * @param products товары.
+     * @return характеристики.
+     */
+    public static ProductAggregates of(Iterable<Product> products) {
+        ProductAggregates aggregates = new ProductAggregates();
+        double maxSum = 0;
+        for (Product product: products) {
+            double price = product.getPrice();
+            float x = product.getCoordinates().getX();
+            double y = product.getCoordinates().getY();
+            aggregates.count++;
+            aggregates.priceSum += price;
+            aggregates.minPrice = Math.min(aggregates.minPrice, price);
+            aggregates.maxPrice = Math.max(aggregates.maxPrice, price);
+            aggregates.xSum += x;
+            aggregates.minX = Math.min(aggregates.minX, x);
+            aggregates.maxX = Math.max(aggregates.maxX, x);
+            aggregates.ySum += y;
+            aggregates.minY = Math.min(aggregates.minY, y);
+            aggregates.maxY = Math.max(aggregates.maxY, y);
+            UnitOfMeasure unit = product.getUnitOfMeasure();
+            aggregates.unitCounts[unit == null ? UNITS.length : unit.ordinal()]++;
+            double sum = x + y;
+            Product best = aggregates.maxByCoordinates;
+            if (best == null || sum > maxSum || sum == maxSum && product.getID() > best.getID()) {
+                aggregates.maxByCoordinates = product;
+                maxSum = sum;
+            }
+        }
+        return aggregates;
+    }
+
+    /**
+     * Добавляет к характеристикам отрезок столбцов с from по to (не включая), все ячейки которого заняты товарами, и
+     * запоминает ячейку с наибольшей суммой координат. Все характеристики считаются за один проход: отрезок читается
+     * из памяти один раз.
+     */
+    void addColumns(long[] ids, double[] prices, float[] xs, double[] ys, byte[] units, long[] hasUnit, int from,
+                    int to) {
+        if (KERNELS != null)
+            KERNELS.addColumns(this, ids, prices, xs, ys, units, hasUnit, from, to);
+        else
+            scanColumns(ids, prices, xs, ys, units, hasUnit, from, to);
+    }
+
+    /**
+     * Скалярный цикл {@link #addColumns}; ядра на векторах обрабатывают им остаток отрезка, не заполняющий вектор.
+     */
+    void scanColumns(long[] ids, double[] prices, float[] xs, double[] ys, byte[] units, long[] hasUnit, int from,
+                     int to) {
+        double priceSum = 0, minPrice = this.minPrice, maxPrice = this.maxPrice;
+        double xSum = 0;
+        float minX = this.minX, maxX = this.maxX;
+        double ySum = 0, minY = this.minY, maxY = this.maxY;
+        int best = maxSlot;
+        double bestSum = maxSum;
+        for (int slot = from; slot < to; slot++) {
+            double price = prices[slot];
+            float x = xs[slot];
+            double y = ys[slot];
+            priceSum += price;
+            minPrice = price < minPrice ? price : minPrice;
+            maxPrice = price > maxPrice ? price : maxPrice;
+            xSum += x;
+            minX = x < minX ? x : minX;
+            maxX = x > maxX ? x : maxX;
+            ySum += y;
+            minY = y < minY ? y : minY;
+            maxY = y > maxY ? y : maxY;
+            unitCounts[(hasUnit[slot >>> 6] & 1L << slot) != 0 ? units[slot] : UNITS.length]++;
+            double sum = x + y;
+            if (sum >= bestSum && (best < 0 || sum > bestSum || ids[slot] > ids[best])) {
+                best = slot;
+                bestSum = sum;
+            }
+        }
+        count += to - from;
+        this.priceSum += priceSum;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.xSum += xSum;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.ySum += ySum;
+        this.minY = minY;
+        this.maxY = maxY;
+        maxSlot = best;
+        maxSum = bestSum;
+    }
+
+    /**
+     * Возвращает ячейку с наибольшей суммой координат среди отрезков, добавленных {@link #addColumns}, или -1.
+     */
+    int getMaxSlot() {
+        return maxSlot;
+    }
+
+    void setMaxByCoordinates(Product product) {
+        maxByCoordinates = product;
+    }
+
+    /**
+     * Возвращает ячейку отрезка с наибольшим значением, если оно не меньше указанного; при равных значениях - ячейку
+     * товара с наибольшим номером.
+     * @return ячейка или best, если такой ячейки нет.
+     */
+    static int argMax(double[] values, long[] ids, int from, int to, int best) {
+        if (KERNELS != null)
+            return KERNELS.argMax(values, ids, from, to, best);
+        return scanArgMax(values, ids, from, to, best);
+    }
+
+    /**
+     * Скалярный цикл {@link #argMax}; ядра на векторах проходят им отрезки, в которых мог смениться наибольший.
+     */
+    static int scanArgMax(double[] values, long[] ids, int from, int to, int best) {
+        double max = best < 0 ? Double.NEGATIVE_INFINITY : values[best];
+        for (int slot = from; slot < to; slot++) {
+            double value = values[slot];
+            if (value >= max && (best < 0 || value > max || ids[slot] > ids[best])) {
+                best = slot;
+                max = value;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Возвращает ячейку отрезка с наибольшей суммой координат, если она не меньше суммы в ячейке best; при равных
+     * суммах - ячейку товара с наибольшим номером.
+     * @return ячейка или best, если такой ячейки нет.
+     */
+    static int argMaxSum(float[] xs, double[] ys, long[] ids, int from, int to, int best) {
+        if (KERNELS != null)
+            return KERNELS.argMaxSum(xs, ys, ids, from, to, best);
+        return scanArgMaxSum(xs, ys, ids, from, to, best);
+    }
+
+    /**
+     * Скалярный цикл {@link #argMaxSum}; ядра на векторах проходят им отрезки, в которых могла смениться наибольшая
+     * сумма.
+     */
+    static int scanArgMaxSum(float[] xs, double[] ys, long[] ids, int from, int to, int best) {
+        double max = best < 0 ? Double.NEGATIVE_INFINITY : xs[best] + ys[best];
+        for (int slot = from; slot < to; slot++) {
+            double sum = xs[slot] + ys[slot];
+            if (sum >= max && (best < 0 || sum > max || ids[slot] > ids[best])) {
+                best = slot;
+                max = sum;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return число товаров.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return сумма цен.
+     */
+    public double getPriceSum() {
+        return priceSum;
+    }
+
+    /**
+     * @return наименьшая цена или {@link Double#NaN}, если товаров нет.
+     */
+    public double getMinPrice() {
+        return count == 0 ? Double.NaN : minPrice;
+    }
+
+    /**
+     * @return наибольшая цена или {@link Double#NaN}, если товаров нет.
+     */
+    public double getMaxPrice() {
+        return count == 0 ? Double.NaN : maxPrice;
+    }
+
+    /**
+     * @return средняя цена или {@link Double#NaN}, если товаров нет.
+     */
+    public double getMeanPrice() {
+        return count == 0 ? Double.NaN : priceSum / count;
+    }
+
+    /**
+     * @return наименьшая координата x или {@link Float#NaN}, если товаров нет.
+     */
+    public float getMinX() {
+        return count == 0 ? Float.NaN : minX;
+    }
+
+    /**
+     * @return наибольшая координата x или {@link Float#NaN}, если товаров нет.
+     */
+    public float getMaxX() {
+        return count == 0 ? Float.NaN : maxX;
+    }
+
+    /**
+     * @return средняя координата x или {@link Double#NaN}, если товаров нет.
+     */
+    public double getMeanX() {
+        return count == 0 ? Double.NaN : xSum / count;
+    }
+
+    /**
+     * @return наименьшая координата y или {@link Double#NaN}, если товаров нет.
+     */
+    public double getMinY() {
+        return count == 0 ? Double.NaN : minY;
+    }
+
+    /**
+     * @return наибольшая координата y или {@link Double#NaN}, если товаров нет.
+     */
+    public double getMaxY() {
+        return count == 0 ? Double.NaN : maxY;
+    }
+
+    /**
+     * @return средняя координата y или {@link Double#NaN}, если товаров нет.
+     */
+    public double getMeanY() {
+        return count == 0 ? Double.NaN : ySum / count;
+    }
+
+    /**
+     * Возвращает число товаров с единицей измерения.
+     * @param unit единица измерения или null для товаров без неё.
+     * @return число товаров.
+     */
+    public long getUnitCount(UnitOfMeasure unit) {
+        return unitCounts[unit == null ? UNITS.length : unit.ordinal()];
+    }
+
+    /**
+     * @return товар с наибольшей суммой координат (при равных суммах - с наибольшим номером) или null, если товаров
+     * нет.
+     */
+    public Product getMaxByCoordinates() {
+        return maxByCoordinates;
+    }
+}
\ No newline at end of file
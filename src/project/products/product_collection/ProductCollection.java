@@ -1,33 +1,65 @@
 package project.products.product_collection;
 
-import project.ConsoleReader;
 import project.parsing.tags.DuplicateTagException;
 import project.parsing.tags.InvalidTagException;
-import project.products.product.NotUniquePassportIDException;
 import project.products.product.Person;
+import project.products.product.PersonRegistry;
 import project.products.product.Product;
 import project.parsing.tags.ParentTag;
 import project.parsing.tags.TextTag;
 
-import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.*;
 
 /**
- * Класс-обёртка для коллекции товаров. Помимо Коллекции, представленной объектом класса {@link ArrayDeque}, хранит время создания спсика.
+ * Класс-обёртка для коллекции товаров. Помимо коллекции хранит время создания спсика. Товары хранятся в двусвязном
+ * списке в порядке добавления, а таблица {@link LongHashMap} сопоставляет номеру товара его звено списка, так что
+ * поиск, замена и удаление по номеру выполняются за константное время. Кроме того, коллекция поддерживает
+ * упорядоченные индексы {@link OrderedProductIndex} по цене, по сумме координат и по имени владельца, благодаря
+ * которым самый дорогой товар, товар с наибольшей суммой координат и товары первого по алфавиту владельца находятся
+ * за логарифмическое время, и пространственные индексы {@link SpatialIndex} по координатам товаров и по локациям
+ * владельцев.
+ * <p>
+ * Поля хранимых товаров не изменяются: изменение заменяет товар в звене его копией с новыми значениями. Поэтому снимок
+ * коллекции ({@link #snapshot()}) - это лишь массив ссылок на товары, который можно сохранять, пока коллекция меняется.
  * @see java.time.LocalDate
  * @see Product
  */
 public class ProductCollection implements IProductCollection {
-    private ArrayDeque<Product> products;
+    private final LongHashMap<Node> index;
+    private final PersonRegistry personRegistry;
+    private final OrderedProductIndex priceIndex;
+    private final OrderedProductIndex coordinatesIndex;
+    private final OrderedProductIndex ownerIndex;
+    private final SpatialIndex coordinatesSpace = new SpatialIndex(SpatialIndex.Space.COORDINATES);
+    private final SpatialIndex locationSpace = new SpatialIndex(SpatialIndex.Space.LOCATION);
+    private Node first;
+    private Node last;
     private LocalDate initializationDate;
+    private volatile long modificationCount;
 
     /**
      * Создаёт пустую коллекцию и устанавливает текущее время в качестве даты создания.
      */
     public ProductCollection() {
-        products = new ArrayDeque<>();
+        this(new PersonRegistry());
+    }
+
+    /**
+     * Создаёт пустую коллекцию, владельцы товаров которой будут искаться и регистрироваться в указанном реестре.
+     * Текущее время устанавливается в качестве даты создания.
+     * @param personRegistry реестр людей.
+     */
+    public ProductCollection(PersonRegistry personRegistry) {
+        index = new LongHashMap<>();
+        this.personRegistry = personRegistry;
+        priceIndex = new OrderedProductIndex(Comparator.naturalOrder());
+        coordinatesIndex = new OrderedProductIndex(Comparator.comparing(Product::getCoordinates));
+        ownerIndex = new OrderedProductIndex(
+                Comparator.comparing(Product::getOwner, Comparator.<Person>naturalOrder()
+                        .thenComparing(Person::getPassportID)),
+                product -> product.getOwner() != null);
         initializationDate = LocalDate.now();
     }
 
@@ -37,90 +69,40 @@ public class ProductCollection implements IProductCollection {
      * @exception InvalidTagException если тег не содержит необходимых вложенных тегов или в них некорректные данные.
      */
     public ProductCollection(ParentTag productCollectionTag) {
+        this(new PersonRegistry());
         try {
-            setInitializationDate(LocalDate.parse(productCollectionTag.getNestedTagContent("initializationDate")));
-        } catch (DateTimeParseException e) {
-            throw new InvalidTagException("ProductCollection", "Неверно записана дата инициализации.");
-        } catch (NullPointerException e) {
-            throw new InvalidTagException("ProductCollection", " Отсутствует тег с датой инициализации.");
+            setInitializationDate(parseInitializationDate(productCollectionTag.getNestedTagContent("initializationDate")));
         } catch (DuplicateTagException e) {
             throw new InvalidTagException("ProductCollection", e.getMessage());
         }
 
-        products = new ArrayDeque<>();
-        boolean wasIDConflict = false;
-        boolean saveProducts = false;
-        HashSet<String> invalidID = new HashSet<>();
-        HashSet<String> newID = new HashSet<>();
         ParentTag productsTag;
         try {
             productsTag = productCollectionTag.getNestedParentTag("products");
         } catch (InvalidTagException e) {
             throw new InvalidTagException("ProductCollection", e.getMessage());
         }
-        for (ParentTag tagInProducts: productsTag.getParentTags()) {
-            if (tagInProducts.getName().equals("product")) {
-                try {
-                    ParentTag tagOwner = tagInProducts.getNestedParentTag("owner");
-                    if (tagOwner == null)
-                        products.add(new Product(tagInProducts));
-                    else {
-                        try {
-                            String ID;
-                            if (invalidID.contains((ID = Person.newPerson(tagOwner).getPassportID()))) {
-                                if (Person.lastIsNew())
-                                    Person.removePerson(ID);
-                                if (saveProducts) {
-                                    tagInProducts.removeNestedParentTag("owner");
-                                    products.add(new Product(tagInProducts));
-                                }
-                            } else {
-                                if (Person.lastIsNew())
-                                    newID.add(ID);
-                                products.add(new Product(tagInProducts));
-                            }
-                        } catch (NotUniquePassportIDException e) {
-                            invalidID.add(e.getPassportID());
-
-                            if (!wasIDConflict) {
-                                wasIDConflict = true;
-                                System.out.print("При загрузке товаров в коллекцию из файла, были обнаружены такие," +
-                                        " у которых владельцы имеют совпадающие номера паспортов. Желаете ли вы сохранять" +
-                                        " эти товары (без информации о владельце)? Для подтверждения введите \"ok\": ");
-                                try {
-                                    if (ConsoleReader.readLine().equals("ok"))
-                                        saveProducts = true;
-                                } catch (IOException ioException) {
-                                    ioException.printStackTrace();
-                                }
-                            }
-
-                            if (newID.contains(e.getPassportID()))
-                                Person.removePerson(e.getPassportID());
-                            Iterator<Product> iterator = products.iterator();
-                            if (saveProducts) {
-                                while (iterator.hasNext()) {
-                                    Product product = iterator.next();
-                                    if (product.getOwner() != null && product.getOwner().getPassportID().equals(e.getPassportID()))
-                                        product.setOwner(null);
-                                }
-                                tagInProducts.removeNestedParentTag("owner");
-                                products.add(new Product(tagInProducts));
-                            } else {
-                                while (iterator.hasNext()) {
-                                    Person owner = iterator.next().getOwner();
-                                    if (owner != null && owner.getPassportID().equals(e.getPassportID()))
-                                        iterator.remove();
-                                }
-                            }
-                        }
-                    }
-                } catch (DuplicateTagException e) {
-                    System.out.println("Ошибка в структуре тега product. " + e.getMessage());
-                } catch (InvalidTagException e) {
-                    System.out.println(e.getMessage());
-                }
-            }
+        if (productsTag == null)
+            return;
+        ProductTagLoader productTagLoader = new ProductTagLoader(this);
+        for (ParentTag tagInProducts: productsTag.getParentTags())
+            if (tagInProducts.getName().equals("product"))
+                productTagLoader.addProduct(tagInProducts);
+    }
+
+    /**
+     * Получает дату инициализации из содержимого тега initializationDate.
+     * @param content содержимое тега или null, если тега нет.
+     * @return дата инициализации.
+     * @exception InvalidTagException если тега нет или дата записана неверно.
+     */
+    public static LocalDate parseInitializationDate(String content) {
+        try {
+            return LocalDate.parse(content);
+        } catch (DateTimeParseException e) {
+            throw new InvalidTagException("ProductCollection", "Неверно записана дата инициализации.");
+        } catch (NullPointerException e) {
+            throw new InvalidTagException("ProductCollection", " Отсутствует тег с датой инициализации.");
         }
     }
 
@@ -133,23 +115,61 @@ public class ProductCollection implements IProductCollection {
         ParentTag productCollectionTag = new ParentTag("productCollection");
         productCollectionTag.addTextTag(new TextTag("initializationDate", initializationDate.toString()));
         ParentTag productsTag = new ParentTag("products");
-        for (Product product: products)
+        for (Product product: this)
             productsTag.addParentTag(product.getTag());
         productCollectionTag.addParentTag(productsTag);
         return productCollectionTag;
     }
 
+    /**
+     * Добавляет товар в конец коллекции.
+     * @param product новый товар.
+     * @return true, если товар добавлен; false, если товар с таким номером уже есть.
+     */
+    public boolean addProduct(Product product) {
+        if (index.containsKey(product.getID()))
+            return false;
+        Node node = new Node(product);
+        node.previous = last;
+        if (last == null)
+            first = node;
+        else
+            last.next = node;
+        last = node;
+        index.put(product.getID(), node);
+        addToIndexes(product);
+        modificationCount++;
+        return true;
+    }
+
+    /**
+     * Возвращает первый товар коллекции.
+     * @return объект класса {@link Product} или null, если коллекция пуста.
+     */
+    public Product getFirst() {
+        return first == null ? null : first.product;
+    }
+
+    /**
+     * Удаляет первый товар коллекции.
+     * @return удалённый товар или null, если коллекция была пуста.
+     */
+    public Product removeFirst() {
+        if (first == null)
+            return null;
+        Node node = first;
+        unlink(node);
+        return node.product;
+    }
+
     /**
      * Возвращает товар с переданным номером или null, если такого нет.
      * @param id номер (ID) товара.
      * @return ссылка на объект класса {@link Product} или null.
      */
     public Product getProductByID(long id) {
-        for (Product product: products) {
-            if (product.getID() == id)
-                return product;
-        }
-        return null;
+        Node node = index.get(id);
+        return node == null ? null : node.product;
     }
 
     /**
@@ -158,32 +178,252 @@ public class ProductCollection implements IProductCollection {
      * @return true, если такой продукт был и удалён, иначе false.
      */
     public boolean removeProductByID(long id) {
-        Iterator<Product> iterator = iterator();
-        while (iterator.hasNext()) {
-            if (iterator.next().getID() == id) {
-                iterator.remove();
-                return true;
-            }
-        }
-        return false;
+        Node node = index.get(id);
+        if (node == null)
+            return false;
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Запрашивает у пользователя новые значения полей товара с указанным номером.
+     * @param id номер (ID) товара.
+     * @return true, если такой товар есть, иначе false.
+     */
+    public boolean updateProductByID(long id) {
+        Node node = index.get(id);
+        if (node == null)
+            return false;
+        Product product = node.product.copy(id);
+        product.update(personRegistry);
+        replace(node, product);
+        return true;
+    }
+
+    /**
+     * Заменяет значения полей товара с указанным номером значениями полей другого товара. Номер и положение товара в
+     * коллекции не меняются.
+     * @param id номер (ID) товара.
+     * @param values товар, значения полей которого нужно перенести.
+     * @return true, если такой товар есть, иначе false.
+     */
+    public boolean updateProductByID(long id, Product values) {
+        Node node = index.get(id);
+        if (node == null)
+            return false;
+        replace(node, values.copy(id));
+        return true;
+    }
+
+    /**
+     * Меняет владельца товара, находящегося в коллекции.
+     * @param product товар из этой коллекции.
+     * @param owner новый владелец или null.
+     */
+    void changeOwner(Product product, Person owner) {
+        Node node = index.get(product.getID());
+        if (node == null)
+            return;
+        Product changed = node.product.copy(product.getID());
+        changed.setOwner(owner);
+        replace(node, changed);
+    }
+
+    private void replace(Node node, Product product) {
+        removeFromIndexes(node.product);
+        node.product = product;
+        addToIndexes(product);
+        modificationCount++;
+    }
+
+    /**
+     * Удаляет все товары.
+     */
+    public void clear() {
+        personRegistry.clearOwnership();
+        priceIndex.clear();
+        coordinatesIndex.clear();
+        ownerIndex.clear();
+        coordinatesSpace.clear();
+        locationSpace.clear();
+        index.clear();
+        first = null;
+        last = null;
+        modificationCount++;
+    }
+
+    /**
+     * Возвращает количество товаров.
+     * @return размер коллекции.
+     */
+    public int size() {
+        return index.size();
     }
 
     /**
-     * Метод, позволяющий непосредственно получить итератор по списку товаров.
+     * Метод, позволяющий непосредственно получить итератор по списку товаров. Итератор поддерживает удаление.
      * @return итератор.
      */
     public Iterator<Product> iterator() {
-        return products.iterator();
+        return new Iterator<Product>() {
+            private Node next = first;
+            private Node current;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Product next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                current = next;
+                next = next.next;
+                return current.product;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null)
+                    throw new IllegalStateException();
+                unlink(current);
+                current = null;
+            }
+        };
     }
 
     /**
-     * Возвращает ссылку на коллекцию товаров.
-     * @return коллекция (двусторонняя очередь).
+     * Возвращает самый дорогой товар.
+     * @return товар или null, если коллекция пуста.
      */
-    public ArrayDeque<Product> getProducts() {
+    public Product getMaxByPrice() {
+        return priceIndex.last();
+    }
+
+    /**
+     * Возвращает товар с наибольшей суммой координат.
+     * @return товар или null, если коллекция пуста.
+     */
+    public Product getMaxByCoordinates() {
+        return coordinatesIndex.last();
+    }
+
+    /**
+     * Возвращает товары владельца, имя которого идёт первым в алфавитном порядке. Если таких владельцев несколько,
+     * выбирается владелец с меньшим номером паспорта.
+     * @return товары в порядке номеров; пустой список, если ни у одного товара нет владельца.
+     */
+    public List<Product> getMinByOwner() {
+        ArrayList<Product> result = new ArrayList<>();
+        Iterator<Product> iterator = ownerIndex.iterator();
+        if (!iterator.hasNext())
+            return result;
+        Product product = iterator.next();
+        Person minOwner = product.getOwner();
+        do {
+            result.add(product);
+        } while (iterator.hasNext() && (product = iterator.next()).getOwner() == minOwner);
+        return result;
+    }
+
+    /**
+     * Возвращает товары с ценой в указанных границах по индексу цен.
+     * @param min наименьшая цена.
+     * @param max наибольшая цена.
+     * @param descending true для порядка убывания цены.
+     * @return представление индекса.
+     */
+    @Override
+    public Iterable<Product> getByPrice(double min, double max, boolean descending) {
+        return PriceRange.select(priceIndex.asSet(), min, max, descending);
+    }
+
+    /**
+     * Возвращает товары владельца с указанным номером паспорта, найденные через реестр людей.
+     * @param passportID номер паспорта.
+     * @return товары владельца, хранящиеся в этой коллекции.
+     */
+    @Override
+    public Collection<Product> getByOwner(String passportID) {
+        ArrayList<Product> products = new ArrayList<>();
+        for (Product product: personRegistry.getProducts(passportID))
+            if (getProductByID(product.getID()) == product)
+                products.add(product);
         return products;
     }
 
+    /**
+     * Возвращает пространственный индекс коллекции.
+     * @param space пространство индекса.
+     * @return индекс, который коллекция обновляет при каждом изменении.
+     */
+    @Override
+    public SpatialIndex getSpatialIndex(SpatialIndex.Space space) {
+        return space == SpatialIndex.Space.COORDINATES ? coordinatesSpace : locationSpace;
+    }
+
+    /**
+     * Возвращает владельцев товаров коллекции.
+     * @return список владельцев без повторений.
+     */
+    public List<Person> getOwners() {
+        return personRegistry.getOwners();
+    }
+
+    private void addToIndexes(Product product) {
+        personRegistry.addOwnership(product);
+        priceIndex.add(product);
+        coordinatesIndex.add(product);
+        ownerIndex.add(product);
+        coordinatesSpace.add(product);
+        locationSpace.add(product);
+    }
+
+    private void removeFromIndexes(Product product) {
+        personRegistry.removeOwnership(product);
+        priceIndex.remove(product);
+        coordinatesIndex.remove(product);
+        ownerIndex.remove(product);
+        coordinatesSpace.remove(product);
+        locationSpace.remove(product);
+    }
+
+    private void unlink(Node node) {
+        index.remove(node.product.getID());
+        removeFromIndexes(node.product);
+        if (node.previous == null)
+            first = node.next;
+        else
+            node.previous.next = node.next;
+        if (node.next == null)
+            last = node.previous;
+        else
+            node.next.previous = node.previous;
+        modificationCount++;
+    }
+
+    /**
+     * Возвращает снимок коллекции: массив ссылок на товары в порядке добавления.
+     * @return снимок, разделяющий с коллекцией объекты товаров.
+     */
+    @Override
+    public CollectionSnapshot snapshot() {
+        Product[] products = new Product[size()];
+        int i = 0;
+        for (Node node = first; node != null; node = node.next)
+            products[i++] = node.product;
+        return new CollectionSnapshot(products, initializationDate, personRegistry);
+    }
+
+    /**
+     * Возвращает реестр людей, в котором ищутся и регистрируются владельцы товаров этой коллекции.
+     * @return реестр людей.
+     */
+    public PersonRegistry getPersonRegistry() {
+        return personRegistry;
+    }
+
     /**
      * Возвращает дату инициализации.
      * @return объект LocalDate, представляющий дату создания.
@@ -198,6 +438,7 @@ public class ProductCollection implements IProductCollection {
      */
     public void setInitializationDate(LocalDate initializationDate) {
         this.initializationDate = initializationDate;
+        modificationCount++;
     }
 
     /**
@@ -209,13 +450,35 @@ public class ProductCollection implements IProductCollection {
         return initializationDate.toString();
     }
 
+    @Override
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
     /**
      * Сортирует коллекцию.
      */
     public void sort() {
-        Product[] productsArray = products.toArray(new Product[0]);
+        Product[] productsArray = new Product[size()];
+        int i = 0;
+        for (Product product: this)
+            productsArray[i++] = product;
         Arrays.sort(productsArray);
-        products.clear();
-        Collections.addAll(products, productsArray);
+        clear();
+        for (Product product: productsArray)
+            addProduct(product);
+    }
+
+    /**
+     * Звено двусвязного списка товаров.
+     */
+    private static class Node {
+        private Product product;
+        private Node previous;
+        private Node next;
+
+        private Node(Product product) {
+            this.product = product;
+        }
     }
 }
\ No newline at end of file
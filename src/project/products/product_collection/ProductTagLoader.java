@@ -0,0 +1,192 @@
+package project.products.product_collection;
+
+import project.ConsoleReader;
+import project.metrics.ProductBuildEvent;
+import project.parsing.tags.DuplicateTagException;
+import project.parsing.tags.InvalidTagException;
+import project.parsing.tags.ParentTag;
+import project.products.product.NotUniquePassportIDException;
+import project.products.product.Person;
+import project.products.product.PersonRegistry;
+import project.products.product.Product;
+
+import java.io.IOException;
+import java.util.HashSet;
+
+/**
+ * Добавляет товары в коллекцию по их тегам, по одному. Позволяет загружать товары по мере чтения файла, не держа в
+ * памяти теги всех товаров сразу. Конфликты номеров паспортов владельцев разрешаются одинаково для всех товаров одной
+ * загрузки: пользователь один раз решает, сохранять ли такие товары без информации о владельце.
+ * @see ProductCollection
+ */
+public class ProductTagLoader {
+    private final ProductCollection productCollection;
+    private final PersonRegistry personRegistry;
+    private boolean wasIDConflict;
+    private boolean saveProducts;
+    private final HashSet<String> invalidID;
+    private final HashSet<String> newID;
+
+    /**
+     * Создаёт загрузчик, добавляющий товары в указанную коллекцию.
+     * @param productCollection коллекция товаров.
+     */
+    public ProductTagLoader(ProductCollection productCollection) {
+        this.productCollection = productCollection;
+        personRegistry = productCollection.getPersonRegistry();
+        wasIDConflict = false;
+        saveProducts = false;
+        invalidID = new HashSet<>();
+        newID = new HashSet<>();
+    }
+
+    /**
+     * Создаёт товар по тегу и добавляет его в коллекцию. Если тег некорректен, сообщает об этом пользователю и
+     * пропускает товар. Построение товара отмечается событием JFR {@link ProductBuildEvent}.
+     * @param productTag тег product.
+     */
+    public void addProduct(ParentTag productTag) {
+        try {
+            Product product;
+            ProductBuildEvent event = new ProductBuildEvent();
+            event.begin();
+            try {
+                product = new Product(productTag, personRegistry);
+            } catch (NotUniquePassportIDException e) {
+                resolveConflict(e.getPassportID(), productTag);
+                return;
+            }
+            commit(event, product);
+            add(product);
+        } catch (DuplicateTagException e) {
+            System.out.println("Ошибка в структуре тега product. " + e.getMessage());
+        } catch (InvalidTagException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Регистрирует владельца заранее построенного товара и добавляет товар в коллекцию. Результат, сообщения
+     * пользователю и разрешение конфликтов номеров паспортов те же, что и у {@link #addProduct(ParentTag)} для тега,
+     * по которому построен товар, если товары добавляются в том же порядке.
+     * @param preparedProduct товар, построенный методом {@link #prepare(long, ParentTag)}.
+     */
+    public void addProduct(PreparedProduct preparedProduct) {
+        try {
+            if (preparedProduct.owner != null) {
+                Person owner;
+                try {
+                    owner = personRegistry.register(preparedProduct.owner);
+                } catch (NotUniquePassportIDException e) {
+                    resolveConflict(e.getPassportID(), preparedProduct.productTag);
+                    return;
+                }
+                if (preparedProduct.error == null)
+                    preparedProduct.product.setOwner(owner);
+            }
+            if (preparedProduct.error != null)
+                throw preparedProduct.error;
+            add(preparedProduct.product);
+        } catch (DuplicateTagException e) {
+            System.out.println("Ошибка в структуре тега product. " + e.getMessage());
+        } catch (InvalidTagException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Строит товар по тегу, не обращаясь к реестру людей и к коллекции. Метод не изменяет общего состояния и может
+     * вызываться из нескольких потоков одновременно; ошибка в теге не выбрасывается, а сохраняется до добавления товара.
+     * Построение товара отмечается событием JFR {@link ProductBuildEvent}.
+     * @param ID номер товара, заранее полученный методом {@link Product#reserveIDs(int)}.
+     * @param productTag тег product.
+     * @return построенный товар с незарегистрированным владельцем.
+     */
+    public static PreparedProduct prepare(long ID, ParentTag productTag) {
+        PreparedProduct preparedProduct = new PreparedProduct(productTag);
+        ProductBuildEvent event = new ProductBuildEvent();
+        event.begin();
+        try {
+            preparedProduct.product = new Product(ID, productTag,
+                    ownerTag -> preparedProduct.owner = ownerTag == null ? null : Person.fromTag(ownerTag));
+            commit(event, preparedProduct.product);
+        } catch (RuntimeException e) {
+            preparedProduct.error = e;
+        }
+        return preparedProduct;
+    }
+
+    private static void commit(ProductBuildEvent event, Product product) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.id = product.getID();
+            event.commit();
+        }
+    }
+
+    private void add(Product product) {
+        Person owner = product.getOwner();
+        if (owner != null) {
+            String ID = owner.getPassportID();
+            if (invalidID.contains(ID)) {
+                if (personRegistry.lastIsNew())
+                    personRegistry.removePerson(ID);
+                if (!saveProducts)
+                    return;
+                product.setOwner(null);
+            } else if (personRegistry.lastIsNew())
+                newID.add(ID);
+        }
+        productCollection.addProduct(product);
+    }
+
+    /**
+     * Обрабатывает товар, владелец которого имеет тот же номер паспорта, что и другой, уже известный человек. Один раз за
+     * загрузку спрашивает пользователя, сохранять ли такие товары. Товары владельцев с этим номером паспорта, уже
+     * попавшие в коллекцию, находятся через реестр людей и либо лишаются владельца, либо удаляются.
+     */
+    private void resolveConflict(String passportID, ParentTag productTag) {
+        invalidID.add(passportID);
+
+        if (!wasIDConflict) {
+            wasIDConflict = true;
+            System.out.print("При загрузке товаров в коллекцию из файла, были обнаружены такие," +
+                    " у которых владельцы имеют совпадающие номера паспортов. Желаете ли вы сохранять" +
+                    " эти товары (без информации о владельце)? Для подтверждения введите \"ok\": ");
+            try {
+                if (ConsoleReader.readLine().equals("ok"))
+                    saveProducts = true;
+            } catch (IOException ioException) {
+                ioException.printStackTrace();
+            }
+        }
+
+        if (newID.contains(passportID))
+            personRegistry.removePerson(passportID);
+        Product[] ownedProducts = personRegistry.getProducts(passportID).toArray(new Product[0]);
+        if (saveProducts) {
+            for (Product product: ownedProducts)
+                productCollection.changeOwner(product, null);
+            productTag.removeNestedParentTag("owner");
+            productCollection.addProduct(new Product(productTag, personRegistry));
+        } else {
+            for (Product product: ownedProducts)
+                productCollection.removeProductByID(product.getID());
+        }
+    }
+
+    /**
+     * Товар, построенный по тегу без регистрации владельца. Хранит тег, владельца и ошибку построения, чтобы при
+     * добавлении в коллекцию повторить обработку, которую получил бы тег при последовательной загрузке.
+     */
+    public static class PreparedProduct {
+        private final ParentTag productTag;
+        private Product product;
+        private Person owner;
+        private RuntimeException error;
+
+        private PreparedProduct(ParentTag productTag) {
+            this.productTag = productTag;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,596 @@
+package project.products.product_collection;
+
+import project.products.product.Coordinates;
+import project.products.product.Location;
+import project.products.product.Person;
+import project.products.product.Product;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Пространственный индекс товаров - k-d дерево по координатам товара (двумерное) или по локации владельца
+ * (трёхмерное). Узел дерева на глубине d делит товары по оси d mod k; при равных значениях по оси товары
+ * упорядочиваются по номеру, так что путь к каждому товару однозначен. Каждый узел хранит ограничивающий
+ * прямоугольник своего поддерева, по которому отсекаются ветви при поиске в параллелепипеде, поиске ближайших соседей и
+ * поиске товара с наибольшей суммой координат.
+ * <p>
+ * Дерево поддерживается сбалансированным по схеме scapegoat-дерева: если товар при добавлении оказался глубже
+ * log<sub>1/α</sub>(n), ближайшее к нему несбалансированное поддерево перестраивается по медианам. Удалённые товары
+ * помечаются и выбрасываются при перестройке; когда помеченных становится больше, чем оставшихся, дерево
+ * перестраивается целиком. Поэтому добавление и удаление занимают амортизированно O(log n), поиск товара с наибольшей
+ * суммой координат - обычно O(log n), поиск в параллелепипеде - O(n<sup>1-1/k</sup> + m) для m найденных товаров.
+ * <p>
+ * Как и {@link OrderedProductIndex}, индекс не следит за изменениями товаров: товар удаляется из него до изменения
+ * координат и добавляется после. Индекс можно изменять из нескольких потоков, не блокируя их: добавление и удаление
+ * лишь ставят изменение в неблокирующую очередь, а дерево применяет накопленные изменения под своей блокировкой перед
+ * каждым поиском, а также в изменяющем потоке, когда их накопилось {@value #DRAIN_THRESHOLD} и блокировка свободна.
+ * Изменения одного товара должны ставиться в очередь в том порядке, в каком они выполнены; коллекции выполняют их под
+ * блокировкой этого товара.
+ * @see ProductCollection
+ * @see ConcurrentProductCollection
+ */
+public class SpatialIndex {
+    private static final double ALPHA = 0.7;
+    private static final int DRAIN_THRESHOLD = 1024;
+
+    /**
+     * Пространство, в котором индексируются товары.
+     */
+    public enum Space {
+        /**
+         * Координаты товара (x, y).
+         */
+        COORDINATES("coordinates", 2),
+        /**
+         * Локация владельца (x, y, z); товары без владельца или без локации в индекс не попадают.
+         */
+        LOCATION("location", 3);
+
+        private final String name;
+        private final int dimensions;
+
+        Space(String name, int dimensions) {
+            this.name = name;
+            this.dimensions = dimensions;
+        }
+
+        /**
+         * Находит пространство по названию.
+         * @param name coordinates или location.
+         * @return пространство или null, если такого нет.
+         */
+        public static Space byName(String name) {
+            for (Space space: values())
+                if (space.name.equals(name))
+                    return space;
+            return null;
+        }
+
+        /**
+         * @return число измерений пространства.
+         */
+        public int getDimensions() {
+            return dimensions;
+        }
+
+        /**
+         * Возвращает точку товара в этом пространстве.
+         * @param product товар.
+         * @return координаты точки или null, если товар в пространстве не представлен.
+         */
+        public double[] point(Product product) {
+            if (this == COORDINATES) {
+                Coordinates coordinates = product.getCoordinates();
+                return new double[]{coordinates.getX(), coordinates.getY()};
+            }
+            Person owner = product.getOwner();
+            Location location = owner == null ? null : owner.getLocation();
+            if (location == null)
+                return null;
+            return new double[]{location.getX(), location.getY(), location.getZ()};
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final Space space;
+    private final int dimensions;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ConcurrentLinkedQueue<Change> changes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingChanges = new AtomicInteger();
+    private Node root;
+    private int live;
+    private int removed;
+
+    /**
+     * Создаёт пустой индекс.
+     * @param space пространство индекса.
+     */
+    public SpatialIndex(Space space) {
+        this.space = space;
+        dimensions = space.dimensions;
+    }
+
+    /**
+     * Строит сбалансированный индекс по товарам. Используется для коллекций, которые индекс не ведут.
+     * @param space пространство индекса.
+     * @param products товары.
+     * @return индекс.
+     */
+    public static SpatialIndex of(Space space, Iterable<Product> products) {
+        SpatialIndex index = new SpatialIndex(space);
+        ArrayList<Node> nodes = new ArrayList<>();
+        for (Product product: products) {
+            double[] point = space.point(product);
+            if (point != null)
+                nodes.add(new Node(product, point));
+        }
+        index.root = index.build(nodes, 0, nodes.size(), 0);
+        index.live = nodes.size();
+        return index;
+    }
+
+    /**
+     * Добавляет товар в индекс, если он представлен в пространстве индекса.
+     * @param product товар.
+     */
+    public void add(Product product) {
+        double[] point = space.point(product);
+        if (point != null)
+            enqueue(new Change(product, point, true));
+    }
+
+    /**
+     * Удаляет товар из индекса.
+     * @param product товар с теми же координатами, с которыми он был добавлен.
+     */
+    public void remove(Product product) {
+        double[] point = space.point(product);
+        if (point != null)
+            enqueue(new Change(product, point, false));
+    }
+
+    /**
+     * Удаляет из индекса все товары, в том числе изменения, ещё не применённые к дереву. Во время очистки индекс не
+     * должны изменять.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            changes.clear();
+            pendingChanges.set(0);
+            root = null;
+            live = 0;
+            removed = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return пространство индекса.
+     */
+    public Space getSpace() {
+        return space;
+    }
+
+    /**
+     * @return число товаров в индексе.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            apply();
+            return live;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает товары, точки которых лежат в параллелепипеде (включая границы).
+     * @param min наименьшие значения по каждой оси.
+     * @param max наибольшие значения по каждой оси.
+     * @return товары в порядке номеров.
+     */
+    public List<Product> inBox(double[] min, double[] max) {
+        ArrayList<Product> products = new ArrayList<>();
+        lock.lock();
+        try {
+            apply();
+            inBox(root, min, max, products);
+        } finally {
+            lock.unlock();
+        }
+        products.sort(Comparator.comparingLong(Product::getID));
+        return products;
+    }
+
+    /**
+     * Возвращает товары, ближайшие к точке по евклидову расстоянию.
+     * @param point точка.
+     * @param count наибольшее число товаров.
+     * @return товары в порядке удаления от точки, при равном расстоянии - в порядке номеров.
+     */
+    public List<Product> nearest(double[] point, int count) {
+        lock.lock();
+        try {
+            apply();
+            return nearestApplied(point, count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Product> nearestApplied(double[] point, int count) {
+        ArrayList<Product> products = new ArrayList<>();
+        if (root == null || count <= 0)
+            return products;
+        Comparator<Candidate> closer = Comparator.<Candidate>comparingDouble(candidate -> candidate.distance)
+                .thenComparingLong(candidate -> candidate.node.product.getID());
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(
+                Comparator.comparingDouble(candidate -> candidate.distance));
+        PriorityQueue<Candidate> best = new PriorityQueue<>(closer.reversed());
+        frontier.add(new Candidate(root, root.boxDistance(point)));
+        while (!frontier.isEmpty()) {
+            Candidate candidate = frontier.poll();
+            if (best.size() == count && candidate.distance > best.peek().distance)
+                break;
+            Node node = candidate.node;
+            if (!node.removed) {
+                Candidate found = new Candidate(node, squaredDistance(node.point, point));
+                if (best.size() < count)
+                    best.add(found);
+                else if (closer.compare(found, best.peek()) < 0) {
+                    best.poll();
+                    best.add(found);
+                }
+            }
+            for (Node child: new Node[]{node.left, node.right})
+                if (child != null) {
+                    double distance = child.boxDistance(point);
+                    if (best.size() < count || distance <= best.peek().distance)
+                        frontier.add(new Candidate(child, distance));
+                }
+        }
+        ArrayList<Candidate> candidates = new ArrayList<>(best);
+        candidates.sort(closer);
+        for (Candidate candidate: candidates)
+            products.add(candidate.node.product);
+        return products;
+    }
+
+    /**
+     * Возвращает товар с наибольшей суммой координат точки; при равных суммах - с наибольшим номером.
+     * @return товар или null, если индекс пуст.
+     */
+    public Product maxBySum() {
+        lock.lock();
+        try {
+            apply();
+            return maxBySumApplied();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Product maxBySumApplied() {
+        if (root == null)
+            return null;
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(
+                Comparator.<Candidate>comparingDouble(candidate -> candidate.distance).reversed());
+        frontier.add(new Candidate(root, root.maxSum()));
+        Node best = null;
+        double bestSum = 0;
+        while (!frontier.isEmpty()) {
+            Candidate candidate = frontier.poll();
+            if (best != null && candidate.distance < bestSum)
+                break;
+            Node node = candidate.node;
+            if (!node.removed) {
+                double sum = sum(node.point);
+                if (best == null || sum > bestSum || sum == bestSum && node.product.getID() > best.product.getID()) {
+                    best = node;
+                    bestSum = sum;
+                }
+            }
+            if (node.left != null)
+                frontier.add(new Candidate(node.left, node.left.maxSum()));
+            if (node.right != null)
+                frontier.add(new Candidate(node.right, node.right.maxSum()));
+        }
+        return best == null ? null : best.product;
+    }
+
+    /**
+     * Возвращает евклидово расстояние от точки товара до указанной.
+     * @param product товар, представленный в пространстве индекса.
+     * @param point точка.
+     * @return расстояние.
+     */
+    public double distance(Product product, double[] point) {
+        return Math.sqrt(squaredDistance(space.point(product), point));
+    }
+
+    /**
+     * Ставит изменение в очередь и, если накопилось достаточно изменений, а дерево никто не держит, применяет их.
+     */
+    private void enqueue(Change change) {
+        changes.add(change);
+        if (pendingChanges.incrementAndGet() < DRAIN_THRESHOLD || !lock.tryLock())
+            return;
+        try {
+            apply();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Применяет к дереву изменения из очереди в порядке их постановки. Вызывается под блокировкой дерева.
+     */
+    private void apply() {
+        Change change;
+        while ((change = changes.poll()) != null) {
+            pendingChanges.decrementAndGet();
+            if (change.added)
+                insert(change.product, change.point);
+            else
+                delete(change.product, change.point);
+        }
+    }
+
+    private void insert(Product product, double[] point) {
+        Node node = new Node(product, point);
+        live++;
+        if (root == null) {
+            root = node;
+            return;
+        }
+        ArrayList<Node> path = new ArrayList<>();
+        Node current = root;
+        while (current != null) {
+            path.add(current);
+            current.size++;
+            current.expand(point);
+            boolean left = before(node, current, (path.size() - 1) % dimensions);
+            Node next = left ? current.left : current.right;
+            if (next == null) {
+                if (left)
+                    current.left = node;
+                else
+                    current.right = node;
+            }
+            current = next;
+        }
+        if (path.size() > Math.log(root.size) / Math.log(1 / ALPHA))
+            rebalance(path, node);
+    }
+
+    private void delete(Product product, double[] point) {
+        Node target = new Node(product, point);
+        Node current = root;
+        int depth = 0;
+        while (current != null && (current.removed || current.product.getID() != product.getID()))
+            current = before(target, current, depth++ % dimensions) ? current.left : current.right;
+        if (current == null)
+            return;
+        current.removed = true;
+        live--;
+        removed++;
+        if (removed > live) {
+            ArrayList<Node> nodes = new ArrayList<>(live);
+            collect(root, nodes);
+            root = build(nodes, 0, nodes.size(), 0);
+            removed = 0;
+        }
+    }
+
+    private static void inBox(Node node, double[] min, double[] max, List<Product> products) {
+        if (node == null || !node.intersects(min, max))
+            return;
+        if (!node.removed && inside(node.point, min, max))
+            products.add(node.product);
+        inBox(node.left, min, max, products);
+        inBox(node.right, min, max, products);
+    }
+
+    /**
+     * Перестраивает ближайшее к добавленному товару поддерево, один из потомков которого содержит больше доли α его
+     * узлов, и уменьшает размеры вышележащих поддеревьев на число выброшенных удалённых товаров.
+     */
+    private void rebalance(List<Node> path, Node added) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node parent = path.get(i);
+            Node child = i + 1 < path.size() ? path.get(i + 1) : added;
+            if (child.size <= ALPHA * parent.size)
+                continue;
+            ArrayList<Node> nodes = new ArrayList<>(parent.size);
+            collect(parent, nodes);
+            Node rebuilt = build(nodes, 0, nodes.size(), i);
+            int dropped = parent.size - nodes.size();
+            removed -= dropped;
+            if (i == 0)
+                root = rebuilt;
+            else {
+                Node grandparent = path.get(i - 1);
+                if (grandparent.left == parent)
+                    grandparent.left = rebuilt;
+                else
+                    grandparent.right = rebuilt;
+                for (int j = 0; j < i; j++)
+                    path.get(j).size -= dropped;
+            }
+            return;
+        }
+    }
+
+    /**
+     * Собирает неудалённые узлы поддерева.
+     */
+    private static void collect(Node node, List<Node> nodes) {
+        if (node == null)
+            return;
+        collect(node.left, nodes);
+        if (!node.removed)
+            nodes.add(node);
+        collect(node.right, nodes);
+    }
+
+    /**
+     * Строит сбалансированное поддерево из узлов с from по to (не включая), корень которого находится на указанной
+     * глубине: корнем становится медиана по оси этой глубины.
+     */
+    private Node build(List<Node> nodes, int from, int to, int depth) {
+        if (from >= to)
+            return null;
+        int axis = depth % dimensions;
+        nodes.subList(from, to).sort((a, b) -> before(a, b, axis) ? -1 : before(b, a, axis) ? 1 : 0);
+        int middle = (from + to) >>> 1;
+        Node node = nodes.get(middle);
+        node.left = build(nodes, from, middle, depth + 1);
+        node.right = build(nodes, middle + 1, to, depth + 1);
+        node.size = to - from;
+        node.resetBox();
+        if (node.left != null)
+            node.include(node.left);
+        if (node.right != null)
+            node.include(node.right);
+        return node;
+    }
+
+    /**
+     * Проверяет, идёт ли узел a раньше узла b по оси: по значению координаты, при равенстве - по номеру товара.
+     */
+    private static boolean before(Node a, Node b, int axis) {
+        int comparison = Double.compare(a.point[axis], b.point[axis]);
+        return comparison < 0 || comparison == 0 && a.product.getID() < b.product.getID();
+    }
+
+    private static boolean inside(double[] point, double[] min, double[] max) {
+        for (int i = 0; i < point.length; i++)
+            if (point[i] < min[i] || point[i] > max[i])
+                return false;
+        return true;
+    }
+
+    private static double squaredDistance(double[] a, double[] b) {
+        double distance = 0;
+        for (int i = 0; i < a.length; i++)
+            distance += (a[i] - b[i]) * (a[i] - b[i]);
+        return distance;
+    }
+
+    private static double sum(double[] point) {
+        double sum = 0;
+        for (double value: point)
+            sum += value;
+        return sum;
+    }
+
+    /**
+     * Узел дерева: товар, его точка, ограничивающий прямоугольник поддерева (сначала наименьшие значения по осям, затем
+     * наибольшие) и число узлов поддерева, включая удалённые.
+     */
+    private static class Node {
+        private final Product product;
+        private final double[] point;
+        private final double[] box;
+        private Node left;
+        private Node right;
+        private int size = 1;
+        private boolean removed;
+
+        private Node(Product product, double[] point) {
+            this.product = product;
+            this.point = point;
+            box = new double[point.length * 2];
+            resetBox();
+        }
+
+        private void resetBox() {
+            System.arraycopy(point, 0, box, 0, point.length);
+            System.arraycopy(point, 0, box, point.length, point.length);
+        }
+
+        private void expand(double[] other) {
+            for (int i = 0; i < point.length; i++) {
+                box[i] = Math.min(box[i], other[i]);
+                box[point.length + i] = Math.max(box[point.length + i], other[i]);
+            }
+        }
+
+        private void include(Node child) {
+            for (int i = 0; i < point.length; i++) {
+                box[i] = Math.min(box[i], child.box[i]);
+                box[point.length + i] = Math.max(box[point.length + i], child.box[point.length + i]);
+            }
+        }
+
+        private boolean intersects(double[] min, double[] max) {
+            for (int i = 0; i < point.length; i++)
+                if (box[point.length + i] < min[i] || box[i] > max[i])
+                    return false;
+            return true;
+        }
+
+        /**
+         * Возвращает квадрат расстояния от точки до прямоугольника поддерева.
+         */
+        private double boxDistance(double[] other) {
+            double distance = 0;
+            for (int i = 0; i < point.length; i++) {
+                double gap = Math.max(0, Math.max(box[i] - other[i], other[i] - box[point.length + i]));
+                distance += gap * gap;
+            }
+            return distance;
+        }
+
+        /**
+         * Возвращает наибольшую сумму координат, возможную в прямоугольнике поддерева.
+         */
+        private double maxSum() {
+            double sum = 0;
+            for (int i = 0; i < point.length; i++)
+                sum += box[point.length + i];
+            return sum;
+        }
+    }
+
+    /**
+     * Изменение индекса, ожидающее применения к дереву: добавление или удаление товара с точкой.
+     */
+    private static class Change {
+        private final Product product;
+        private final double[] point;
+        private final boolean added;
+
+        private Change(Product product, double[] point, boolean added) {
+            this.product = product;
+            this.point = point;
+            this.added = added;
+        }
+    }
+
+    /**
+     * Узел в очереди поиска с оценкой: квадратом расстояния до точки или наибольшей суммой координат.
+     */
+    private static class Candidate {
+        private final Node node;
+        private final double distance;
+
+        private Candidate(Node node, double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,253 @@
+package project.query;
+
+import project.products.product.Product;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Условие отбора товаров в запросе. Сравнение с отсутствующим значением поля (например, с именем владельца у товара
+ * без владельца) ложно; такие товары отбираются условием is null.
+ * @see QueryParser
+ */
+public interface Condition extends Predicate<Product> {
+    /**
+     * Операция сравнения поля с литералом.
+     */
+    enum Operator {
+        EQUAL("="), NOT_EQUAL("!="), LESS("<"), LESS_OR_EQUAL("<="), GREATER(">"), GREATER_OR_EQUAL(">=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        private boolean holds(int comparison) {
+            switch (this) {
+                case EQUAL:
+                    return comparison == 0;
+                case NOT_EQUAL:
+                    return comparison != 0;
+                case LESS:
+                    return comparison < 0;
+                case LESS_OR_EQUAL:
+                    return comparison <= 0;
+                case GREATER:
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return symbol;
+        }
+    }
+
+    /**
+     * Сравнение значения поля с литералом.
+     */
+    class Comparison implements Condition {
+        final Field field;
+        final Operator operator;
+        final Comparable<?> value;
+
+        Comparison(Field field, Operator operator, Comparable<?> value) {
+            this.field = field;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        public boolean test(Product product) {
+            Comparable<?> actual = field.get(product);
+            return actual != null && operator.holds(compare(actual, value));
+        }
+
+        @Override
+        public String toString() {
+            return field + " " + operator + " " + literal(value);
+        }
+    }
+
+    /**
+     * Принадлежность значения поля отрезку.
+     */
+    class Between implements Condition {
+        final Field field;
+        final Comparable<?> from;
+        final Comparable<?> to;
+
+        Between(Field field, Comparable<?> from, Comparable<?> to) {
+            this.field = field;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean test(Product product) {
+            Comparable<?> actual = field.get(product);
+            return actual != null && compare(actual, from) >= 0 && compare(actual, to) <= 0;
+        }
+
+        @Override
+        public String toString() {
+            return field + " between " + literal(from) + " and " + literal(to);
+        }
+    }
+
+    /**
+     * Проверка отсутствия (или наличия) значения поля.
+     */
+    class IsNull implements Condition {
+        final Field field;
+        final boolean negated;
+
+        IsNull(Field field, boolean negated) {
+            this.field = field;
+            this.negated = negated;
+        }
+
+        @Override
+        public boolean test(Product product) {
+            return (field.get(product) == null) != negated;
+        }
+
+        @Override
+        public String toString() {
+            return field + (negated ? " is not null" : " is null");
+        }
+    }
+
+    /**
+     * Вхождение подстроки в значение строкового поля.
+     */
+    class Contains implements Condition {
+        final Field field;
+        final String text;
+
+        Contains(Field field, String text) {
+            this.field = field;
+            this.text = text;
+        }
+
+        @Override
+        public boolean test(Product product) {
+            Object actual = field.get(product);
+            return actual != null && ((String) actual).contains(text);
+        }
+
+        @Override
+        public String toString() {
+            return field + " contains " + literal(text);
+        }
+    }
+
+    /**
+     * Конъюнкция условий.
+     */
+    class And implements Condition {
+        final List<Condition> conditions;
+
+        And(List<Condition> conditions) {
+            this.conditions = conditions;
+        }
+
+        @Override
+        public boolean test(Product product) {
+            for (Condition condition: conditions)
+                if (!condition.test(product))
+                    return false;
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return join(conditions, " and ");
+        }
+    }
+
+    /**
+     * Дизъюнкция условий.
+     */
+    class Or implements Condition {
+        final List<Condition> conditions;
+
+        Or(List<Condition> conditions) {
+            this.conditions = conditions;
+        }
+
+        @Override
+        public boolean test(Product product) {
+            for (Condition condition: conditions)
+                if (condition.test(product))
+                    return true;
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return join(conditions, " or ");
+        }
+    }
+
+    /**
+     * Отрицание условия.
+     */
+    class Not implements Condition {
+        final Condition condition;
+
+        Not(Condition condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        public boolean test(Product product) {
+            return !condition.test(product);
+        }
+
+        @Override
+        public String toString() {
+            return "not (" + condition + ")";
+        }
+    }
+
+    /**
+     * Сравнивает значение поля с литералом того же типа.
+     * @param actual значение поля.
+     * @param value литерал, преобразованный методом {@link Field#parse(String)}.
+     * @return результат {@link Comparable#compareTo(Object)}.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Comparable<?> actual, Comparable<?> value) {
+        return ((Comparable) actual).compareTo(Objects.requireNonNull(value));
+    }
+
+    /**
+     * Записывает литерал так, как он записывается в запросе.
+     * @param value литерал.
+     * @return строки - в кавычках, остальные значения - как есть.
+     */
+    static String literal(Comparable<?> value) {
+        return value instanceof String ? "'" + value + "'" : String.valueOf(value);
+    }
+
+    /**
+     * Записывает условия через разделитель в скобках.
+     * @param conditions условия.
+     * @param separator разделитель.
+     * @return запись условий.
+     */
+    static String join(List<Condition> conditions, String separator) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < conditions.size(); i++) {
+            if (i > 0)
+                builder.append(separator);
+            builder.append(conditions.get(i));
+        }
+        return builder.append(")").toString();
+    }
+}
\ No newline at end of file
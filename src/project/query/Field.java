@@ -0,0 +1,134 @@
+package project.query;
+
+import project.products.product.Location;
+import project.products.product.Person;
+import project.products.product.Product;
+import project.products.product.UnitOfMeasure;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.function.Function;
+
+/**
+ * Поле товара, доступное в запросах. Поля владельца и его локации записываются через точку, как вложенные теги в файле
+ * коллекции. Значения целых полей приводятся к {@link Long}, вещественные остаются {@link Float} или
+ * {@link Double}, как в товаре: так их можно сравнивать с литералами запроса того же типа, а выводятся они так же, как
+ * в команде show. Значение поля отсутствующего владельца или локации - null.
+ */
+public enum Field {
+    ID("id", Type.INTEGER, Product::getID),
+    NAME("name", Type.STRING, Product::getName),
+    COORDINATES_X("coordinates.x", Type.FLOAT, product -> product.getCoordinates().getX()),
+    COORDINATES_Y("coordinates.y", Type.REAL, product -> product.getCoordinates().getY()),
+    CREATION_DATE("creationDate", Type.DATE_TIME, Product::getCreationDate),
+    PRICE("price", Type.REAL, Product::getPrice),
+    UNIT_OF_MEASURE("unitOfMeasure", Type.UNIT, Product::getUnitOfMeasure),
+    OWNER_NAME("owner.name", Type.STRING, product -> owner(product, Person::getName)),
+    OWNER_HEIGHT("owner.height", Type.FLOAT, product -> owner(product, Person::getHeight)),
+    OWNER_WEIGHT("owner.weight", Type.FLOAT, product -> owner(product, Person::getWeight)),
+    OWNER_PASSPORT_ID("owner.passportID", Type.STRING, product -> owner(product, Person::getPassportID)),
+    LOCATION_X("owner.location.x", Type.FLOAT, product -> location(product, Location::getX)),
+    LOCATION_Y("owner.location.y", Type.INTEGER, product -> location(product, location ->
+            location.getY() == null ? null : (long) location.getY())),
+    LOCATION_Z("owner.location.z", Type.INTEGER, product -> location(product, Location::getZ)),
+    LOCATION_NAME("owner.location.name", Type.STRING, product -> location(product, Location::getName));
+
+    private final String path;
+    private final Type type;
+    private final Function<Product, Comparable<?>> getter;
+
+    Field(String path, Type type, Function<Product, Comparable<?>> getter) {
+        this.path = path;
+        this.type = type;
+        this.getter = getter;
+    }
+
+    /**
+     * Находит поле по записи в запросе.
+     * @param path запись поля, например price или owner.name.
+     * @return поле.
+     * @exception QueryException если такого поля нет.
+     */
+    public static Field byPath(String path) {
+        for (Field field: values())
+            if (field.path.equals(path))
+                return field;
+        throw new QueryException("Неизвестное поле: " + path + ".");
+    }
+
+    /**
+     * @return запись поля в запросе.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Возвращает значение поля товара.
+     * @param product товар.
+     * @return значение или null, если его нет.
+     */
+    public Comparable<?> get(Product product) {
+        return getter.apply(product);
+    }
+
+    /**
+     * Преобразует литерал запроса в значение, сравнимое со значениями этого поля.
+     * @param literal текст литерала без кавычек.
+     * @return значение.
+     * @exception QueryException если литерал не подходит к типу поля.
+     */
+    public Comparable<?> parse(String literal) {
+        try {
+            switch (type) {
+                case INTEGER:
+                    return Long.parseLong(literal);
+                case FLOAT:
+                    return Float.parseFloat(literal);
+                case REAL:
+                    return Double.parseDouble(literal);
+                case DATE_TIME:
+                    return literal.contains("T") ? LocalDateTime.parse(literal)
+                            : LocalDate.parse(literal).atStartOfDay();
+                case UNIT:
+                    return UnitOfMeasure.valueOf(literal.toUpperCase());
+                default:
+                    return literal;
+            }
+        } catch (NumberFormatException e) {
+            throw new QueryException("Поле " + path + " сравнивается с числом, а не с \"" + literal + "\".");
+        } catch (DateTimeParseException e) {
+            throw new QueryException("Поле " + path + " сравнивается с датой вида 2024-01-31 или 2024-01-31T12:00, "
+                    + "а не с \"" + literal + "\".");
+        } catch (IllegalArgumentException e) {
+            throw new QueryException("Единица измерения \"" + literal + "\" не существует.");
+        }
+    }
+
+    /**
+     * @return true, если значения поля - строки.
+     */
+    public boolean isText() {
+        return type == Type.STRING;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    private static Comparable<?> owner(Product product, Function<Person, Comparable<?>> getter) {
+        Person owner = product.getOwner();
+        return owner == null ? null : getter.apply(owner);
+    }
+
+    private static Comparable<?> location(Product product, Function<Location, Comparable<?>> getter) {
+        Person owner = product.getOwner();
+        return owner == null || owner.getLocation() == null ? null : getter.apply(owner.getLocation());
+    }
+
+    private enum Type {
+        INTEGER, FLOAT, REAL, STRING, DATE_TIME, UNIT
+    }
+}
\ No newline at end of file
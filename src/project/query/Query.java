@@ -0,0 +1,70 @@
+package project.query;
+
+import project.products.product.Product;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Разобранный запрос к коллекции товаров: выводимые поля, условие отбора, порядок и наибольшее число товаров.
+ * @see QueryParser
+ * @see QueryPlan
+ */
+public class Query {
+    final List<Field> selection;
+    final Condition condition;
+    final List<OrderKey> order;
+    final long limit;
+
+    /**
+     * Ключ сортировки: поле и направление.
+     */
+    public static class OrderKey {
+        final Field field;
+        final boolean descending;
+
+        OrderKey(Field field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+
+        @Override
+        public String toString() {
+            return field + (descending ? " desc" : " asc");
+        }
+    }
+
+    Query(List<Field> selection, Condition condition, List<OrderKey> order, long limit) {
+        this.selection = selection;
+        this.condition = condition;
+        this.order = order;
+        this.limit = limit;
+    }
+
+    /**
+     * @return выводимые поля; пустой список, если выводятся товары целиком.
+     */
+    public List<Field> getSelection() {
+        return selection;
+    }
+
+    /**
+     * Возвращает порядок, заданный частью order by. Отсутствующие значения идут раньше остальных, а товары с равными
+     * ключами упорядочиваются по номеру в направлении последнего ключа - так же, как их перебирает индекс.
+     * @return компаратор или null, если порядок не задан.
+     */
+    Comparator<Product> comparator() {
+        if (order.isEmpty())
+            return null;
+        Comparator<Product> comparator = null;
+        for (OrderKey key: order) {
+            Comparator<Product> next = Comparator.comparing(key.field::get,
+                    Comparator.nullsFirst(Condition::compare));
+            if (key.descending)
+                next = next.reversed();
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        Comparator<Product> byID = Comparator.comparingLong(Product::getID);
+        return comparator.thenComparing(order.get(order.size() - 1).descending ? byID.reversed() : byID);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package project.query;
+
+/**
+ * Исключение, бросаемое при разборе запроса с синтаксической ошибкой, неизвестным полем или литералом, не подходящим к
+ * типу поля.
+ */
+public class QueryException extends RuntimeException {
+    /**
+     * Конструктор, создающий исключение с указанным сообщением.
+     * @param message сообщение ошибки.
+     */
+    public QueryException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
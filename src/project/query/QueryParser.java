@@ -0,0 +1,218 @@
+package project.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Разбор запросов к коллекции товаров. Запрос состоит из необязательных частей, идущих в таком порядке:
+ * <pre>
+ * select поле, ...                 выводимые поля (по умолчанию товары выводятся целиком)
+ * where условие                    условие отбора
+ * order by поле [asc|desc], ...    порядок (по умолчанию - порядок, в котором товары перебирает план)
+ * limit N                          наибольшее число товаров
+ * </pre>
+ * Условие составляется из сравнений поля с литералом (=, !=, &lt;, &lt;=, &gt;, &gt;=), проверок
+ * "поле between a and b", "поле is [not] null" и "поле contains 'текст'", связок and, or, not и скобок. Строки
+ * записываются в одинарных или двойных кавычках, даты - в виде 2024-01-31 или 2024-01-31T12:00, единицы измерения -
+ * названиями констант. Ключевые слова нечувствительны к регистру, названия полей ({@link Field}) - чувствительны.
+ * Пример: {@code where price between 10 and 100 and owner.name contains 'Ив' order by price desc limit 5}.
+ */
+public class QueryParser {
+    private static final String SYMBOLS = "(),=<>!";
+
+    private final List<String> tokens;
+    private final List<Boolean> quoted;
+    private int position;
+
+    private QueryParser(String text) {
+        tokens = new ArrayList<>();
+        quoted = new ArrayList<>();
+        tokenize(text);
+    }
+
+    /**
+     * Разбирает запрос.
+     * @param text текст запроса; пустой текст выбирает все товары.
+     * @return запрос.
+     * @exception QueryException если запрос записан с ошибкой.
+     */
+    public static Query parse(String text) {
+        return new QueryParser(text).query();
+    }
+
+    private Query query() {
+        List<Field> selection = Collections.emptyList();
+        Condition condition = null;
+        List<Query.OrderKey> order = Collections.emptyList();
+        long limit = -1;
+        if (acceptKeyword("select")) {
+            selection = new ArrayList<>();
+            do
+                selection.add(field());
+            while (accept(","));
+        }
+        if (acceptKeyword("where"))
+            condition = or();
+        if (acceptKeyword("order")) {
+            expectKeyword("by");
+            order = new ArrayList<>();
+            do {
+                Field field = field();
+                boolean descending = acceptKeyword("desc");
+                if (!descending)
+                    acceptKeyword("asc");
+                order.add(new Query.OrderKey(field, descending));
+            } while (accept(","));
+        }
+        if (acceptKeyword("limit")) {
+            String token = next("число товаров");
+            try {
+                limit = Long.parseLong(token);
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+            if (limit < 0)
+                throw new QueryException("После limit должно идти неотрицательное целое число, а не \""
+                        + token + "\".");
+        }
+        if (position < tokens.size())
+            throw new QueryException("Неожиданное продолжение запроса: \"" + tokens.get(position) + "\".");
+        return new Query(selection, condition, order, limit);
+    }
+
+    private Condition or() {
+        List<Condition> conditions = new ArrayList<>();
+        do
+            conditions.add(and());
+        while (acceptKeyword("or"));
+        return conditions.size() == 1 ? conditions.get(0) : new Condition.Or(conditions);
+    }
+
+    private Condition and() {
+        List<Condition> conditions = new ArrayList<>();
+        do
+            conditions.add(not());
+        while (acceptKeyword("and"));
+        return conditions.size() == 1 ? conditions.get(0) : new Condition.And(conditions);
+    }
+
+    private Condition not() {
+        if (acceptKeyword("not"))
+            return new Condition.Not(not());
+        if (accept("(")) {
+            Condition condition = or();
+            expect(")");
+            return condition;
+        }
+        Field field = field();
+        if (acceptKeyword("is")) {
+            boolean negated = acceptKeyword("not");
+            expectKeyword("null");
+            return new Condition.IsNull(field, negated);
+        }
+        if (acceptKeyword("between")) {
+            Comparable<?> from = field.parse(literal());
+            expectKeyword("and");
+            return new Condition.Between(field, from, field.parse(literal()));
+        }
+        if (acceptKeyword("contains")) {
+            if (!field.isText())
+                throw new QueryException("Условие contains применимо только к строковым полям, а не к " + field + ".");
+            return new Condition.Contains(field, literal());
+        }
+        Condition.Operator operator = operator();
+        return new Condition.Comparison(field, operator, field.parse(literal()));
+    }
+
+    private Condition.Operator operator() {
+        String token = next("операция сравнения");
+        for (Condition.Operator operator: Condition.Operator.values())
+            if (operator.toString().equals(token))
+                return operator;
+        if (token.equals("<>"))
+            return Condition.Operator.NOT_EQUAL;
+        throw new QueryException("Ожидалась операция сравнения, а не \"" + token + "\".");
+    }
+
+    private Field field() {
+        if (position < tokens.size() && quoted.get(position))
+            throw new QueryException("Ожидалось поле, а не строка \"" + tokens.get(position) + "\".");
+        return Field.byPath(next("поле"));
+    }
+
+    private String literal() {
+        if (position < tokens.size() && !quoted.get(position) && SYMBOLS.indexOf(tokens.get(position).charAt(0)) >= 0)
+            throw new QueryException("Ожидалось значение, а не \"" + tokens.get(position) + "\".");
+        return next("значение");
+    }
+
+    private String next(String expected) {
+        if (position >= tokens.size())
+            throw new QueryException("Запрос оборвался: ожидалось " + expected + ".");
+        return tokens.get(position++);
+    }
+
+    private boolean accept(String symbol) {
+        if (position < tokens.size() && !quoted.get(position) && tokens.get(position).equals(symbol)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String symbol) {
+        if (!accept(symbol))
+            throw new QueryException("Ожидалось \"" + symbol + "\".");
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (position < tokens.size() && !quoted.get(position) && tokens.get(position).equalsIgnoreCase(keyword)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword))
+            throw new QueryException("Ожидалось ключевое слово " + keyword + ".");
+    }
+
+    /**
+     * Делит текст на слова, строки в кавычках и знаки: скобки, запятые и операции сравнения.
+     */
+    private void tokenize(String text) {
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'' || c == '"') {
+                int end = text.indexOf(c, i + 1);
+                if (end < 0)
+                    throw new QueryException("Строка не закрыта кавычкой: " + text.substring(i) + ".");
+                add(text.substring(i + 1, end), true);
+                i = end + 1;
+            } else if (SYMBOLS.indexOf(c) >= 0) {
+                int end = i + 1;
+                if (end < text.length() && (text.charAt(end) == '=' || c == '<' && text.charAt(end) == '>'))
+                    end++;
+                add(text.substring(i, end), false);
+                i = end;
+            } else {
+                int end = i;
+                while (end < text.length() && !Character.isWhitespace(text.charAt(end))
+                        && SYMBOLS.indexOf(text.charAt(end)) < 0 && text.charAt(end) != '\'' && text.charAt(end) != '"')
+                    end++;
+                add(text.substring(i, end), false);
+                i = end;
+            }
+        }
+    }
+
+    private void add(String token, boolean isQuoted) {
+        tokens.add(token);
+        quoted.add(isQuoted);
+    }
+}
\ No newline at end of file
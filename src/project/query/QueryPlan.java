@@ -0,0 +1,233 @@
+package project.query;
+
+import project.products.product.Product;
+import project.products.product_collection.IProductCollection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * План выполнения запроса: способ доступа к товарам, фильтр, сортировка и ограничение числа товаров. Планировщик
+ * выбирает способ доступа по условиям, связанным с остальными через and:
+ * <ol>
+ * <li>условие id = N - поиск товара по номеру;</li>
+ * <li>условие owner.passportID = 'X' - товары владельца, если коллекция отслеживает владение
+ * ({@link IProductCollection#getByOwner(String)});</li>
+ * <li>ограничения цены (=, &lt;, &lt;=, &gt;, &gt;=, between) или порядок order by price - диапазон индекса цен,
+ * если он есть ({@link IProductCollection#getByPrice(double, double, boolean)});</li>
+ * <li>иначе - один просмотр коллекции.</li>
+ * </ol>
+ * Ко всем товарам, полученным способом доступа, применяется условие запроса целиком. Если порядок доступа совпадает с
+ * order by (или порядок не задан), товары не сортируются, и при limit просмотр прекращается, как только найдено нужное
+ * число товаров. Иначе при limit отбираются лучшие товары в куче ограниченного размера, без limit - сортируются все
+ * найденные.
+ */
+public class QueryPlan {
+    private enum Access {
+        ID, OWNER, PRICE, SCAN
+    }
+
+    private final Query query;
+    private final Access access;
+    private final Iterable<Product> source;
+    private final boolean ordered;
+    private final String accessDescription;
+    private long examined;
+
+    private QueryPlan(Query query, Access access, Iterable<Product> source, boolean ordered,
+                      String accessDescription) {
+        this.query = query;
+        this.access = access;
+        this.source = source;
+        this.ordered = ordered;
+        this.accessDescription = accessDescription;
+    }
+
+    /**
+     * Выбирает план выполнения запроса над коллекцией.
+     * @param query запрос.
+     * @param productCollection коллекция товаров.
+     * @return план.
+     */
+    public static QueryPlan plan(Query query, IProductCollection productCollection) {
+        Long id = null;
+        String passportID = null;
+        double min = Double.NEGATIVE_INFINITY;
+        double max = Double.POSITIVE_INFINITY;
+        for (Condition condition: conjuncts(query.condition)) {
+            if (condition instanceof Condition.Comparison) {
+                Condition.Comparison comparison = (Condition.Comparison) condition;
+                if (comparison.field == Field.ID && comparison.operator == Condition.Operator.EQUAL)
+                    id = (Long) comparison.value;
+                else if (comparison.field == Field.OWNER_PASSPORT_ID
+                        && comparison.operator == Condition.Operator.EQUAL)
+                    passportID = (String) comparison.value;
+                else if (comparison.field == Field.PRICE) {
+                    double value = (Double) comparison.value;
+                    switch (comparison.operator) {
+                        case EQUAL:
+                            min = Math.max(min, value);
+                            max = Math.min(max, value);
+                            break;
+                        case LESS:
+                        case LESS_OR_EQUAL:
+                            max = Math.min(max, value);
+                            break;
+                        case GREATER:
+                        case GREATER_OR_EQUAL:
+                            min = Math.max(min, value);
+                            break;
+                        default:
+                    }
+                }
+            } else if (condition instanceof Condition.Between && ((Condition.Between) condition).field == Field.PRICE) {
+                Condition.Between between = (Condition.Between) condition;
+                min = Math.max(min, (Double) between.from);
+                max = Math.min(max, (Double) between.to);
+            }
+        }
+
+        if (id != null) {
+            Product product = productCollection.getProductByID(id);
+            return new QueryPlan(query, Access.ID,
+                    product == null ? Collections.<Product>emptyList() : Collections.singletonList(product),
+                    true, "поиск товара по номеру " + id);
+        }
+        if (passportID != null) {
+            Collection<Product> owned = productCollection.getByOwner(passportID);
+            if (owned != null) {
+                ArrayList<Product> products = new ArrayList<>(owned);
+                products.sort(Comparator.comparingLong(Product::getID));
+                return new QueryPlan(query, Access.OWNER, products, query.order.isEmpty(),
+                        "товары владельца с номером паспорта '" + passportID + "' (" + products.size()
+                                + ") в порядке номеров");
+            }
+        }
+        boolean priceOrder = query.order.size() == 1 && query.order.get(0).field == Field.PRICE;
+        boolean descending = priceOrder && query.order.get(0).descending;
+        boolean bounded = min > Double.NEGATIVE_INFINITY || max < Double.POSITIVE_INFINITY;
+        if (bounded || priceOrder) {
+            Iterable<Product> range = productCollection.getByPrice(min, max, descending);
+            if (range != null)
+                return new QueryPlan(query, Access.PRICE, range, query.order.isEmpty() || priceOrder,
+                        "индекс цен" + describeRange(min, max) + (descending ? " по убыванию" : " по возрастанию"));
+        }
+        return new QueryPlan(query, Access.SCAN, productCollection, query.order.isEmpty(),
+                "просмотр всей коллекции (" + productCollection.size() + " товаров) в порядке добавления");
+    }
+
+    /**
+     * Выполняет запрос.
+     * @return отобранные товары в порядке запроса.
+     */
+    public List<Product> execute() {
+        examined = 0;
+        ArrayList<Product> result = new ArrayList<>();
+        if (query.limit == 0)
+            return result;
+        Comparator<Product> comparator = query.comparator();
+        if (ordered || comparator == null) {
+            for (Product product: source) {
+                examined++;
+                if (matches(product)) {
+                    result.add(product);
+                    if (result.size() == query.limit)
+                        break;
+                }
+            }
+            return result;
+        }
+        if (query.limit > 0) {
+            PriorityQueue<Product> best = new PriorityQueue<>(comparator.reversed());
+            for (Product product: source) {
+                examined++;
+                if (matches(product)) {
+                    best.add(product);
+                    if (best.size() > query.limit)
+                        best.poll();
+                }
+            }
+            result.addAll(best);
+        } else
+            for (Product product: source) {
+                examined++;
+                if (matches(product))
+                    result.add(product);
+            }
+        result.sort(comparator);
+        return result;
+    }
+
+    /**
+     * @return число товаров, просмотренных при последнем выполнении.
+     */
+    public long getExamined() {
+        return examined;
+    }
+
+    /**
+     * Описывает план для пользователя.
+     * @return строки описания: способ доступа, фильтр, сортировка, ограничение и выводимые поля.
+     */
+    public List<String> explain() {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("Доступ: " + accessDescription + ".");
+        lines.add("Фильтр: " + (query.condition == null ? "нет" : query.condition.toString()) + ".");
+        if (query.order.isEmpty())
+            lines.add("Сортировка: нет.");
+        else if (ordered)
+            lines.add("Сортировка: не нужна, " + (access == Access.ID ? "найден не больше чем один товар"
+                    : "порядок доступа совпадает с " + describeOrder()) + ".");
+        else if (query.limit > 0)
+            lines.add("Сортировка: отбор " + query.limit + " лучших в куче по " + describeOrder() + ".");
+        else
+            lines.add("Сортировка: всех найденных по " + describeOrder() + ".");
+        if (query.limit < 0)
+            lines.add("Ограничение: нет.");
+        else if (ordered || query.order.isEmpty())
+            lines.add("Ограничение: " + query.limit + ", просмотр прекращается после " + query.limit
+                    + "-го найденного товара.");
+        else
+            lines.add("Ограничение: " + query.limit + ", после просмотра всех товаров доступа.");
+        if (query.selection.isEmpty())
+            lines.add("Вывод: товары целиком.");
+        else
+            lines.add("Вывод: поля " + query.selection.toString().replaceAll("[\\[\\]]", "") + ".");
+        return lines;
+    }
+
+    private boolean matches(Product product) {
+        return query.condition == null || query.condition.test(product);
+    }
+
+    private String describeOrder() {
+        return "order by " + query.order.toString().replaceAll("[\\[\\]]", "");
+    }
+
+    private static String describeRange(double min, double max) {
+        if (min > Double.NEGATIVE_INFINITY && max < Double.POSITIVE_INFINITY)
+            return ", цены от " + min + " до " + max;
+        if (min > Double.NEGATIVE_INFINITY)
+            return ", цены от " + min;
+        if (max < Double.POSITIVE_INFINITY)
+            return ", цены до " + max;
+        return " целиком";
+    }
+
+    /**
+     * Возвращает условия, которые должны выполняться одновременно: части вложенных друг в друга конъюнкций.
+     */
+    private static List<Condition> conjuncts(Condition condition) {
+        ArrayList<Condition> conjuncts = new ArrayList<>();
+        if (condition instanceof Condition.And)
+            for (Condition part: ((Condition.And) condition).conditions)
+                conjuncts.addAll(conjuncts(part));
+        else if (condition != null)
+            conjuncts.add(condition);
+        return conjuncts;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package project.server;
+
+import project.ConsoleReader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Консольный клиент сервера команд. Пересылает серверу строки, введённые пользователем, и выводит полученный текст.
+ * Кадры сервера читает отдельный поток, поэтому сообщения о событиях, завершившихся в фоне, появляются сразу.
+ * @see Protocol
+ * @see CommandServer
+ */
+public class Client {
+    private static final byte DISCONNECTED = -1;
+
+    /**
+     * Подключается к серверу и ведёт диалог с пользователем до завершения работы.
+     * @param args аргументы командной строки: адрес сервера (по умолчанию localhost) и порт (по умолчанию
+     *             {@link Protocol#DEFAULT_PORT}).
+     */
+    public static void main(String[] args) {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = Protocol.DEFAULT_PORT;
+        if (args.length > 1) {
+            try {
+                port = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                System.out.println("Ошибка! Порт должен быть числом.");
+                System.exit(1);
+            }
+        }
+
+        ConsoleReader.init();
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            BlockingQueue<Byte> requests = new LinkedBlockingQueue<>();
+            Thread reader = new Thread(() -> receive(in, requests), "client-reader");
+            reader.setDaemon(true);
+            reader.start();
+            while (true) {
+                byte request = requests.take();
+                if (request == Protocol.DONE)
+                    System.out.print("\nВведите команду: ");
+                else if (request != Protocol.INPUT)
+                    break;
+                send(out, ConsoleReader.readLine());
+            }
+            System.out.println("\nСоединение с сервером закрыто.");
+        } catch (IOException e) {
+            System.out.println("\nОшибка соединения с сервером: " + e.getMessage());
+        } catch (InterruptedException e) {
+            System.out.println("\nРабота клиента прервана.");
+        } finally {
+            ConsoleReader.close();
+        }
+    }
+
+    /**
+     * Читает кадры сервера в отдельном потоке: текст выводится сразу, даже пока пользователь набирает строку, а
+     * запросы ввода передаются основному потоку. По окончании соединения передаёт ему {@link #DISCONNECTED}.
+     */
+    private static void receive(DataInputStream in, BlockingQueue<Byte> requests) {
+        try {
+            while (true) {
+                byte type = in.readByte();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                switch (type) {
+                    case Protocol.OUTPUT:
+                        System.out.print(new String(data, Protocol.CHARSET));
+                        break;
+                    case Protocol.INPUT:
+                    case Protocol.DONE:
+                        System.out.flush();
+                        requests.add(type);
+                        break;
+                    default:
+                        throw new IOException("неизвестный тип кадра " + type);
+                }
+            }
+        } catch (EOFException ignored) {
+        } catch (IOException e) {
+            System.out.println("\nОшибка соединения с сервером: " + e.getMessage());
+        }
+        requests.add(DISCONNECTED);
+    }
+
+    private static void send(OutputStream out, String line) throws IOException {
+        out.write((line + "\n").getBytes(Protocol.CHARSET));
+        out.flush();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,285 @@
+package project.server;
+
+import project.commands.command_map.CommandMap;
+import project.parsing.save.ISaver;
+import project.products.product_collection.IProductCollection;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Сервер, выполняющий команды клиентов над одной коллекцией. Все соединения обслуживает один поток с селектором: он
+ * принимает подключения, читает строки и отправляет вывод, не блокируясь на медленных клиентах. Сами команды
+ * выполняются небольшим пулом исполнителей, так что тысячи простаивающих соединений не занимают потоков. Команды всех
+ * клиентов выполняются под общей блокировкой чтения-записи коллекции: читающие команды разных клиентов - одновременно,
+ * изменяющие - по одной.
+ * @see Protocol
+ * @see Client
+ */
+public class CommandServer implements Closeable {
+    /**
+     * Число исполнителей команд по умолчанию.
+     */
+    public static final int DEFAULT_WORKERS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private final IProductCollection productCollection;
+    private final ISaver saver;
+    private final ReadWriteLock lock;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService workers;
+    private final ConcurrentLinkedQueue<Session> writeRequests = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(1 << 16);
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    /**
+     * Открывает серверный сокет.
+     * @param address адрес, на котором принимаются подключения.
+     * @param productCollection коллекция, над которой выполняются команды.
+     * @param saver объект класса сохранения.
+     * @param workerCount число исполнителей команд.
+     * @throws IOException если сокет не удалось открыть.
+     */
+    public CommandServer(InetSocketAddress address, IProductCollection productCollection, ISaver saver,
+                         int workerCount) throws IOException {
+        this(address, productCollection, saver, workerCount, new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Открывает серверный сокет. Команды клиентов будут выполняться под переданной блокировкой коллекции.
+     * @param address адрес, на котором принимаются подключения.
+     * @param productCollection коллекция, над которой выполняются команды.
+     * @param saver объект класса сохранения.
+     * @param workerCount число исполнителей команд.
+     * @param lock блокировка коллекции (повторно входимая).
+     * @throws IOException если сокет не удалось открыть.
+     */
+    public CommandServer(InetSocketAddress address, IProductCollection productCollection, ISaver saver,
+                         int workerCount, ReadWriteLock lock) throws IOException {
+        this.productCollection = productCollection;
+        this.saver = saver;
+        this.lock = lock;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address, 1024);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        AtomicInteger workerNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "command-worker-" + workerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает поток, обслуживающий соединения, и перенаправляет стандартный вывод так, чтобы вывод команд попадал к
+     * клиентам.
+     */
+    public synchronized void start() {
+        if (selectorThread != null)
+            return;
+        RoutingOutputStream.install();
+        running = true;
+        selectorThread = new Thread(this::serve, "command-server");
+        selectorThread.start();
+    }
+
+    /**
+     * @return порт, на котором сервер принимает подключения.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return число открытых соединений.
+     */
+    public int getSessionCount() {
+        return sessionCount.get();
+    }
+
+    /**
+     * Ждёт остановки сервера.
+     * @throws InterruptedException если ожидание прервано.
+     */
+    public void await() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Останавливает сервер и закрывает все соединения.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        Thread thread;
+        synchronized (this) {
+            thread = selectorThread;
+        }
+        if (thread == null)
+            shutdown();
+        else if (thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Создаёт набор команд для новой сессии.
+     */
+    CommandMap newCommandMap() {
+        return new CommandMap(productCollection, saver, lock);
+    }
+
+    /**
+     * Передаёт строку с командой исполнителям.
+     */
+    void submit(Session session, String line) {
+        try {
+            workers.execute(() -> session.execute(line));
+        } catch (RejectedExecutionException e) {
+            session.close();
+        }
+    }
+
+    /**
+     * Просит поток селектора отправить накопленные сессией кадры.
+     */
+    void requestWrite(Session session) {
+        writeRequests.add(session);
+        selector.wakeup();
+    }
+
+    /**
+     * Снимает закрытую сессию с учёта.
+     */
+    void closed(Session session) {
+        sessionCount.decrementAndGet();
+    }
+
+    private void serve() {
+        try {
+            while (running) {
+                selector.select();
+                Session session;
+                while ((session = writeRequests.poll()) != null)
+                    write(session);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable())
+                        accept();
+                    else {
+                        if (key.isReadable())
+                            read(key);
+                        if (key.isValid() && key.isWritable())
+                            write((Session) key.attachment());
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.out.println("Сервер остановлен из-за ошибки: " + e.getMessage());
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Session session = new Session(this, channel);
+            channel.register(selector, SelectionKey.OP_READ, session);
+            sessionCount.incrementAndGet();
+            session.greet();
+        }
+    }
+
+    private void read(SelectionKey key) {
+        Session session = (Session) key.attachment();
+        readBuffer.clear();
+        int count;
+        try {
+            count = session.getChannel().read(readBuffer);
+        } catch (IOException e) {
+            count = -1;
+        }
+        if (count < 0) {
+            session.close();
+            return;
+        }
+        readBuffer.flip();
+        if (!session.onBytes(readBuffer))
+            session.close();
+        else if (session.isReadPaused())
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+    }
+
+    /**
+     * Отправляет накопленные сессией кадры и обновляет события, которых ждёт её ключ: запись - пока остались
+     * неотправленные кадры, чтение - если сессия не приостановила его из-за переполнения очереди строк.
+     */
+    private void write(Session session) {
+        SelectionKey key = session.getChannel().keyFor(selector);
+        if (key == null || !key.isValid())
+            return;
+        try {
+            int operations = session.writePending() ? 0 : SelectionKey.OP_WRITE;
+            if (!session.isReadPaused())
+                operations |= SelectionKey.OP_READ;
+            key.interestOps(operations);
+        } catch (IOException e) {
+            session.close();
+        } catch (RuntimeException e) {
+            if (key.isValid())
+                throw e;
+        }
+    }
+
+    private void shutdown() {
+        workers.shutdownNow();
+        try {
+            for (SelectionKey key: selector.keys())
+                if (key.attachment() instanceof Session)
+                    ((Session) key.attachment()).close();
+            serverChannel.close();
+            selector.close();
+        } catch (IOException | ClosedSelectorException ignored) {
+        }
+        stopped.countDown();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package project.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Описание протокола обмена между сервером команд и клиентом. Клиент посылает строки в кодировке UTF-8, каждая
+ * заканчивается символом перевода строки: первая строка - команда, следующие - ответы на запросы ввода. Сервер посылает
+ * кадры: байт типа, длина данных (int) и сами данные. Типы кадров:
+ * <ul>
+ *     <li>{@link #OUTPUT} - текст, выведенный командой, в кодировке UTF-8;</li>
+ *     <li>{@link #INPUT} - команда ждёт от клиента строку (данных нет);</li>
+ *     <li>{@link #DONE} - команда выполнена, сервер ждёт следующую (данных нет).</li>
+ * </ul>
+ * Строки, присланные во время выполнения команды и не запрошенные ею, выполняются как следующие команды. После
+ * команды exit сервер закрывает соединение.
+ * @see CommandServer
+ * @see Client
+ */
+public class Protocol {
+    /**
+     * Порт сервера по умолчанию.
+     */
+    public static final int DEFAULT_PORT = 5555;
+    /**
+     * Кодировка строк и текста.
+     */
+    public static final Charset CHARSET = StandardCharsets.UTF_8;
+    /**
+     * Наибольшая длина строки, присылаемой клиентом, в байтах.
+     */
+    public static final int MAX_LINE_LENGTH = 1 << 16;
+    /**
+     * Тип кадра с выведенным текстом.
+     */
+    public static final byte OUTPUT = 'O';
+    /**
+     * Тип кадра с запросом строки.
+     */
+    public static final byte INPUT = 'I';
+    /**
+     * Тип кадра, завершающего выполнение команды.
+     */
+    public static final byte DONE = 'D';
+
+    private Protocol() {}
+
+    /**
+     * Создаёт кадр.
+     * @param type тип кадра.
+     * @param data массив с данными.
+     * @param offset начало данных в массиве.
+     * @param length длина данных.
+     * @return буфер с кадром, готовый к записи.
+     */
+    public static ByteBuffer frame(byte type, byte[] data, int offset, int length) {
+        ByteBuffer frame = ByteBuffer.allocate(5 + length);
+        frame.put(type).putInt(length).put(data, offset, length);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Создаёт кадр без данных.
+     * @param type тип кадра.
+     * @return буфер с кадром, готовый к записи.
+     */
+    public static ByteBuffer frame(byte type) {
+        return frame(type, new byte[0], 0, 0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+package project.server;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Поток вывода, который устанавливается вместо стандартного и направляет текст, выведенный при выполнении команды
+ * клиента, этому клиенту, а остальной текст - в прежний стандартный поток. Команды пишут в {@link System#out}, поэтому
+ * так их вывод попадает к нужному клиенту без изменения самих команд.
+ */
+class RoutingOutputStream extends OutputStream {
+    private final PrintStream console;
+
+    private RoutingOutputStream(PrintStream console) {
+        this.console = console;
+    }
+
+    /**
+     * Заменяет стандартный поток вывода направляющим, если это ещё не сделано.
+     */
+    static synchronized void install() {
+        if (System.out instanceof RoutingPrintStream)
+            return;
+        try {
+            System.setOut(new RoutingPrintStream(new RoutingOutputStream(System.out)));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        Session session = Session.current();
+        if (session != null)
+            session.write(bytes, offset, length);
+        else
+            console.print(new String(bytes, offset, length, Protocol.CHARSET));
+    }
+
+    @Override
+    public void flush() {
+        Session session = Session.current();
+        if (session != null)
+            session.flushOutput();
+        else
+            console.flush();
+    }
+
+    private static class RoutingPrintStream extends PrintStream {
+        private RoutingPrintStream(RoutingOutputStream out) throws UnsupportedEncodingException {
+            super(out, true, Protocol.CHARSET.name());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,335 @@
+package project.server;
+
+import project.ConsoleReader;
+import project.commands.CommandException;
+import project.commands.command_map.CommandMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * Соединение с одним клиентом сервера. Поток цикла событий передаёт сессии прочитанные байты и забирает у неё кадры для
+ * отправки; команды клиента выполняются в потоках исполнителей по одной, в порядке получения. Во время выполнения
+ * команды сессия служит ей источником строк ({@link ConsoleReader.Source}) и приёмником вывода.
+ * <p>
+ * Очереди сессии ограничены в обе стороны. Если клиент не забирает вывод, команда ждёт отправки. Если клиент присылает
+ * строки быстрее, чем выполняются команды, и невыполненных строк накопилось больше {@link #MAX_PENDING_LINE_CHARS}
+ * символов, сервер перестаёт читать из соединения; чтение возобновляется, когда очередь сократится вдвое.
+ */
+class Session implements ConsoleReader.Source {
+    /**
+     * Наибольший объём неотправленных данных, после которого вывод команды приостанавливается.
+     */
+    static final int MAX_PENDING_BYTES = 1 << 22;
+    /**
+     * Наибольший объём присланных, но ещё не выполненных строк в символах, после которого чтение из соединения
+     * приостанавливается.
+     */
+    static final int MAX_PENDING_LINE_CHARS = 1 << 20;
+    /**
+     * Время ожидания ответа на запрос ввода в миллисекундах. Команда всё это время удерживает блокировку коллекции,
+     * поэтому молчащий клиент отключается.
+     */
+    static final long INPUT_TIMEOUT_MILLIS = 120_000;
+    private static final int OUTPUT_FRAME_SIZE = 8192;
+    private static final ThreadLocal<Session> current = new ThreadLocal<>();
+
+    private final CommandServer server;
+    private final SocketChannel channel;
+    private CommandMap commandMap;
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final ArrayDeque<String> lines = new ArrayDeque<>();
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private long pendingBytes;
+    private long pendingLineChars;
+    private boolean readPaused;
+    private boolean running;
+    private boolean closeAfterFlush;
+    private boolean closed;
+
+    Session(CommandServer server, SocketChannel channel) {
+        this.server = server;
+        this.channel = channel;
+    }
+
+    /**
+     * Возвращает сессию, команда которой выполняется в текущем потоке.
+     * @return сессия или null.
+     */
+    static Session current() {
+        return current.get();
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Отправляет клиенту приветствие. Вызывается потоком цикла событий сразу после подключения.
+     */
+    void greet() {
+        byte[] greeting = "Подключение к серверу установлено. Введите help, чтобы получить список команд.\n"
+                .getBytes(Protocol.CHARSET);
+        enqueue(Protocol.frame(Protocol.OUTPUT, greeting, 0, greeting.length));
+        enqueue(Protocol.frame(Protocol.DONE));
+    }
+
+    /**
+     * Разбирает прочитанные байты на строки. Вызывается потоком цикла событий.
+     * @param bytes прочитанные байты.
+     * @return false, если клиент прислал слишком длинную строку и соединение нужно закрыть.
+     */
+    boolean onBytes(ByteBuffer bytes) {
+        while (bytes.hasRemaining()) {
+            byte b = bytes.get();
+            if (b != '\n') {
+                partialLine.write(b);
+                if (partialLine.size() > Protocol.MAX_LINE_LENGTH)
+                    return false;
+                continue;
+            }
+            String line = new String(partialLine.toByteArray(), Protocol.CHARSET);
+            partialLine.reset();
+            if (line.endsWith("\r"))
+                line = line.substring(0, line.length() - 1);
+            onLine(line);
+        }
+        synchronized (this) {
+            if (pendingLineChars > MAX_PENDING_LINE_CHARS)
+                readPaused = true;
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет, приостановлено ли чтение из соединения из-за переполнения очереди строк. Вызывается потоком цикла
+     * событий после чтения и при смене интересующих его событий.
+     * @return true, если читать из соединения пока не нужно.
+     */
+    synchronized boolean isReadPaused() {
+        return readPaused;
+    }
+
+    private void onLine(String line) {
+        synchronized (this) {
+            if (closed)
+                return;
+            if (running) {
+                lines.add(line);
+                pendingLineChars += line.length();
+                notifyAll();
+                return;
+            }
+            running = true;
+        }
+        server.submit(this, line);
+    }
+
+    /**
+     * Забирает следующую строку из очереди. Если чтение было приостановлено, а очередь сократилась вдвое, просит поток
+     * цикла событий снова читать из соединения.
+     * @return строка или null, если очередь пуста.
+     */
+    private String pollLine() {
+        String line;
+        synchronized (this) {
+            line = lines.poll();
+            if (line == null)
+                return null;
+            pendingLineChars -= line.length();
+            if (!readPaused || pendingLineChars > MAX_PENDING_LINE_CHARS / 2)
+                return line;
+            readPaused = false;
+        }
+        server.requestWrite(this);
+        return line;
+    }
+
+    /**
+     * Выполняет команду клиента, затем следующую из уже присланных строк, если такая есть. Вызывается исполнителем.
+     * @param line строка с командой.
+     */
+    void execute(String line) {
+        current.set(this);
+        ConsoleReader.setSource(this);
+        try {
+            if (commandMap == null)
+                commandMap = server.newCommandMap();
+            commandMap.execute(line);
+        } catch (CommandException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Повторите ввод команды.");
+        } catch (SessionClosedException ignored) {
+        } catch (RuntimeException e) {
+            System.out.println("Ошибка при выполнении команды: " + e);
+        } finally {
+            try {
+                flushOutput();
+                if (!isClosing())
+                    enqueue(Protocol.frame(Protocol.DONE));
+            } catch (SessionClosedException ignored) {
+            }
+            ConsoleReader.setSource(null);
+            current.remove();
+        }
+        String next;
+        synchronized (this) {
+            next = isClosing() ? null : pollLine();
+            if (next == null)
+                running = false;
+        }
+        if (next != null)
+            server.submit(this, next);
+    }
+
+    private synchronized boolean isClosing() {
+        return closed || closeAfterFlush;
+    }
+
+    /**
+     * Запрашивает у клиента строку и ждёт её не дольше {@link #INPUT_TIMEOUT_MILLIS} мс.
+     * @return строка от клиента.
+     * @exception SessionClosedException если соединение закрыто или клиент не ответил вовремя.
+     */
+    @Override
+    public String readLine() {
+        flushOutput();
+        enqueue(Protocol.frame(Protocol.INPUT));
+        long deadline = System.currentTimeMillis() + INPUT_TIMEOUT_MILLIS;
+        synchronized (this) {
+            while (lines.isEmpty() && !closed) {
+                long timeout = deadline - System.currentTimeMillis();
+                if (timeout <= 0)
+                    break;
+                try {
+                    wait(timeout);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (!lines.isEmpty() && !closed)
+                return pollLine();
+        }
+        close();
+        throw new SessionClosedException("Клиент не ответил на запрос ввода.");
+    }
+
+    /**
+     * Завершает работу с клиентом: соединение закрывается, как только клиент получит уже выведенный текст.
+     * @exception SessionClosedException всегда, чтобы прервать выполнение команды.
+     */
+    @Override
+    public void exit() {
+        System.out.println("Завершение работы с сервером.");
+        flushOutput();
+        synchronized (this) {
+            closeAfterFlush = true;
+        }
+        server.requestWrite(this);
+        throw new SessionClosedException("Клиент завершил работу.");
+    }
+
+    /**
+     * Отправляет клиенту сообщение вне очереди вывода команды. Не ждёт освобождения очереди отправки и молча ничего не
+     * делает, если соединение уже закрывается.
+     * @param text текст сообщения.
+     */
+    @Override
+    public void message(String text) {
+        byte[] bytes = ("\n" + text + "\n").getBytes(Protocol.CHARSET);
+        synchronized (this) {
+            if (closed || closeAfterFlush)
+                return;
+            outbound.add(Protocol.frame(Protocol.OUTPUT, bytes, 0, bytes.length));
+            pendingBytes += bytes.length;
+        }
+        server.requestWrite(this);
+    }
+
+    /**
+     * Накапливает текст, выведенный командой.
+     */
+    void write(byte[] bytes, int offset, int length) {
+        output.write(bytes, offset, length);
+        if (output.size() >= OUTPUT_FRAME_SIZE)
+            flushOutput();
+    }
+
+    /**
+     * Отправляет накопленный текст клиенту.
+     */
+    void flushOutput() {
+        if (output.size() == 0)
+            return;
+        byte[] bytes = output.toByteArray();
+        output.reset();
+        enqueue(Protocol.frame(Protocol.OUTPUT, bytes, 0, bytes.length));
+    }
+
+    /**
+     * Ставит кадр в очередь на отправку. Если клиент не успевает забирать данные, ждёт, пока очередь сократится.
+     * @exception SessionClosedException если соединение закрыто.
+     */
+    private void enqueue(ByteBuffer frame) {
+        synchronized (this) {
+            while (pendingBytes > MAX_PENDING_BYTES && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SessionClosedException("Отправка прервана.");
+                }
+            }
+            if (closed)
+                throw new SessionClosedException("Соединение закрыто.");
+            outbound.add(frame);
+            pendingBytes += frame.remaining();
+        }
+        server.requestWrite(this);
+    }
+
+    /**
+     * Отправляет клиенту накопленные кадры, сколько позволяет сокет. Вызывается потоком цикла событий.
+     * @return true, если все кадры отправлены.
+     * @throws IOException если произошла ошибка при записи.
+     */
+    synchronized boolean writePending() throws IOException {
+        while (!outbound.isEmpty()) {
+            ByteBuffer frame = outbound.peek();
+            int written = channel.write(frame);
+            pendingBytes -= written;
+            if (frame.hasRemaining())
+                break;
+            outbound.poll();
+        }
+        notifyAll();
+        if (!outbound.isEmpty())
+            return false;
+        if (closeAfterFlush)
+            close();
+        return true;
+    }
+
+    /**
+     * Закрывает соединение и будит команду, ожидающую ввода или отправки.
+     */
+    void close() {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            outbound.clear();
+            notifyAll();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        server.closed(this);
+    }
+}
\ No newline at end of file
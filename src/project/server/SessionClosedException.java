@@ -0,0 +1,15 @@
+package project.server;
+
+/**
+ * Исключение, прерывающее выполнение команды, когда соединение с клиентом закрыто: клиент отключился, не ответил на
+ * запрос ввода вовремя или выполнил команду exit.
+ */
+public class SessionClosedException extends RuntimeException {
+    /**
+     * Конструктор, создающий исключение с указанным сообщением.
+     * @param message сообщение ошибки.
+     */
+    public SessionClosedException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
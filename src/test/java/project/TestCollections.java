@@ -0,0 +1,108 @@
+package project;
+
+import project.benchmark.ProductFileGenerator;
+import project.parsing.load.Loader;
+import project.products.product.Location;
+import project.products.product.Person;
+import project.products.product.Product;
+import project.products.product_collection.IProductCollection;
+import project.products.product_collection.ProductCollection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Общие для тестов данные: синтетические файлы коллекции ({@link ProductFileGenerator}) и описание коллекции, по
+ * которому сравниваются коллекции, загруженные разными способами.
+ */
+public final class TestCollections {
+    /**
+     * Начальное значение генератора синтетических коллекций.
+     */
+    public static final long SEED = 42;
+
+    private TestCollections() {
+    }
+
+    /**
+     * Записывает синтетический файл коллекции: у половины товаров владелец общий с другими товарами, у каждого пятого
+     * нет единицы измерения, у части владельцев нет роста или местоположения.
+     * @param file файл коллекции.
+     * @param products количество товаров.
+     * @return тот же файл.
+     * @throws IOException если файл не удалось записать.
+     */
+    public static File writeCollection(File file, int products) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            ProductFileGenerator.withOwnerSharing(products, 0.5, SEED).generate(writer);
+        }
+        return file;
+    }
+
+    /**
+     * Создаёт синтетическую коллекцию.
+     * @param directory каталог для промежуточного файла.
+     * @param products количество товаров.
+     * @return коллекция.
+     * @throws IOException если не удалось записать промежуточный файл.
+     */
+    public static ProductCollection collection(File directory, int products) throws IOException {
+        return Loader.load(writeCollection(new File(directory, "generated.xml"), products).getPath());
+    }
+
+    /**
+     * Копирует товары коллекции в список, чтобы коллекцию можно было изменять во время обхода списка.
+     * @param productCollection коллекция.
+     * @return товары в порядке обхода.
+     */
+    public static List<Product> products(IProductCollection productCollection) {
+        ArrayList<Product> products = new ArrayList<>(productCollection.size());
+        for (Product product: productCollection)
+            products.add(product);
+        return products;
+    }
+
+    /**
+     * Описывает коллекцию построчно: дата создания, затем все поля каждого товара, кроме номера, в порядке обхода.
+     * Номера товаров не сохраняются в файлах и назначаются заново при загрузке, поэтому в описание не входят.
+     * @param productCollection коллекция.
+     * @return строки описания.
+     */
+    public static List<String> describe(IProductCollection productCollection) {
+        ArrayList<String> lines = new ArrayList<>(productCollection.size() + 1);
+        lines.add(productCollection.getInitializationDataString());
+        for (Product product: productCollection)
+            lines.add(describe(product));
+        return lines;
+    }
+
+    /**
+     * Описывает все поля товара, кроме номера.
+     * @param product товар.
+     * @return строка описания.
+     */
+    public static String describe(Product product) {
+        StringBuilder line = new StringBuilder()
+                .append(product.getName()).append(';')
+                .append(product.getCoordinates().getX()).append(';')
+                .append(product.getCoordinates().getY()).append(';')
+                .append(product.getCreationDate()).append(';')
+                .append(product.getPrice()).append(';')
+                .append(product.getUnitOfMeasure());
+        Person owner = product.getOwner();
+        if (owner == null)
+            return line.toString();
+        line.append(';').append(owner.getPassportID()).append(';').append(owner.getName()).append(';')
+                .append(owner.getWeight()).append(';').append(owner.getHeight());
+        Location location = owner.getLocation();
+        if (location != null)
+            line.append(';').append(location.getName()).append(';').append(location.getX()).append(';')
+                    .append(location.getY()).append(';').append(location.getZ());
+        return line.toString();
+    }
+}
\ No newline at end of file
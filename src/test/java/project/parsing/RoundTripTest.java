@@ -0,0 +1,104 @@
+package project.parsing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import project.TestCollections;
+import project.parsing.load.Loader;
+import project.parsing.load.ParallelLoader;
+import project.parsing.load.PipelinedLoader;
+import project.parsing.mapped.MappedLoader;
+import project.parsing.mapped.MappedSaver;
+import project.parsing.tags.TagReader;
+import project.products.product.Product;
+import project.products.product_collection.IProductCollection;
+import project.products.product_collection.MappedProductCollection;
+import project.products.product_collection.ProductCollection;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки загрузки и сохранения: все способы загрузки текстового файла строят одну и ту же коллекцию, а коллекция,
+ * сохранённая в любом формате ({@link FileFormat}) и загруженная обратно, совпадает с исходной.
+ */
+class RoundTripTest {
+    /**
+     * Количество товаров: текст такой коллекции занимает несколько частей {@link ParallelLoader#CHUNK_SIZE}.
+     */
+    private static final int PRODUCTS = 5000;
+
+    @TempDir
+    File directory;
+
+    @Test
+    void textLoadersBuildSameCollection() throws IOException {
+        File file = TestCollections.writeCollection(new File(directory, "products.xml"), PRODUCTS);
+        assertTrue(file.length() > 4L * ParallelLoader.CHUNK_SIZE);
+        ProductCollection sequential;
+        try (TagReader tagReader = new TagReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8))) {
+            sequential = Loader.load(tagReader);
+        }
+        List<String> expected = TestCollections.describe(sequential);
+        assertEquals(PRODUCTS + 1, expected.size());
+        assertEquals(expected, TestCollections.describe(ParallelLoader.load(file)));
+        assertEquals(expected, TestCollections.describe(new PipelinedLoader(file.getPath()).load()));
+        assertEquals(expected, TestCollections.describe(Loader.load(file.getPath())));
+    }
+
+    @ParameterizedTest
+    @EnumSource(FileFormat.class)
+    void savedCollectionLoadsBack(FileFormat format) throws IOException {
+        ProductCollection productCollection = TestCollections.collection(directory, PRODUCTS);
+        removeEveryThird(productCollection);
+        String path = new File(directory, "saved").getPath();
+        format.saver(path).save(productCollection);
+        assertEquals(TestCollections.describe(productCollection),
+                TestCollections.describe(format.loader(path).load()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(FileFormat.class)
+    void emptyCollectionLoadsBack(FileFormat format) throws IOException {
+        ProductCollection productCollection = new ProductCollection();
+        String path = new File(directory, "empty").getPath();
+        format.saver(path).save(productCollection);
+        IProductCollection loaded = format.loader(path).load();
+        assertEquals(0, loaded.size());
+        assertEquals(TestCollections.describe(productCollection), TestCollections.describe(loaded));
+    }
+
+    /**
+     * Хранилище в отображённых файлах изменяется на месте: изменения, сохранённые через {@link MappedSaver}, видны при
+     * повторном открытии.
+     */
+    @Test
+    void mappedChangesSurviveReopening() throws IOException {
+        String path = new File(directory, "products.map").getPath();
+        new MappedSaver(path).save(TestCollections.collection(directory, PRODUCTS));
+        MappedProductCollection mapped = new MappedLoader(path).load();
+        Product first = mapped.getFirst();
+        mapped.updateProductByID(first.getID(), mapped.getMaxByPrice());
+        removeEveryThird(mapped);
+        mapped.addProduct(first.copy(Product.reserveIDs(1)));
+        mapped.removeFirst();
+        new MappedSaver(path).save(mapped);
+        assertEquals(TestCollections.describe(mapped), TestCollections.describe(new MappedLoader(path).load()));
+    }
+
+    private static void removeEveryThird(IProductCollection productCollection) {
+        int position = 0;
+        for (Product product: TestCollections.products(productCollection))
+            if (position++ % 3 == 1)
+                productCollection.removeProductByID(product.getID());
+    }
+}
\ No newline at end of file
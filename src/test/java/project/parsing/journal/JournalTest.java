@@ -0,0 +1,162 @@
+package project.parsing.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import project.TestCollections;
+import project.parsing.FileFormat;
+import project.parsing.save.SaveQueue;
+import project.products.product.Product;
+import project.products.product_collection.IProductCollection;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки восстановления коллекции по журналу после сбоя. Сбой изображается тем, что журнал не закрывается: записи,
+ * изменения которых вернули управление, уже на диске, а коллекция восстанавливается загрузкой снимка и применением
+ * журнала ({@link Journal#open}), как при следующем запуске.
+ */
+class JournalTest {
+    private static final int PRODUCTS = 300;
+    private static final int OPERATIONS = 500;
+
+    @TempDir
+    File directory;
+    private String path;
+    private final List<Journal> journals = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        path = TestCollections.writeCollection(new File(directory, "products.xml"), PRODUCTS).getPath();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (Journal journal: journals)
+            journal.close();
+    }
+
+    @Test
+    void replayRestoresChanges() throws IOException {
+        IProductCollection crashed = change(OPERATIONS, false);
+        assertEquals(TestCollections.describe(crashed), TestCollections.describe(recover()));
+    }
+
+    @Test
+    void replayAfterSaveRestoresChanges() throws IOException {
+        IProductCollection crashed = change(OPERATIONS, true);
+        assertEquals(TestCollections.describe(crashed), TestCollections.describe(recover()));
+    }
+
+    @Test
+    void tornTailIsDropped() throws IOException {
+        IProductCollection crashed = change(OPERATIONS, false);
+        File segment = lastSegment();
+        long length = segment.length();
+        try (FileOutputStream output = new FileOutputStream(segment, true)) {
+            output.write(new byte[]{0, 0, 0, 40, 2, 7, 7});
+        }
+        assertEquals(TestCollections.describe(crashed), TestCollections.describe(recover()));
+        assertEquals(length, segment.length());
+    }
+
+    @Test
+    void corruptedSegmentIsRejected() throws IOException {
+        change(OPERATIONS, false);
+        File segment = lastSegment();
+        int beginLength;
+        try (DataInputStream input = new DataInputStream(new FileInputStream(segment))) {
+            beginLength = input.readInt() + 9;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(beginLength + 5);
+            int value = file.read();
+            file.seek(beginLength + 5);
+            file.write(value ^ 0xFF);
+        }
+        assertEquals(TestCollections.describe(FileFormat.TEXT.loader(path).load()),
+                TestCollections.describe(recover()));
+        assertTrue(new File(segment.getPath() + ".rejected").exists());
+    }
+
+    /**
+     * Загружает снимок, открывает журнал и выполняет случайные изменения через {@link JournaledProductCollection}.
+     * @param operations число изменений.
+     * @param save сохранить ли коллекцию на середине, чтобы журнал начал новый сегмент.
+     * @return коллекция в состоянии на момент сбоя.
+     */
+    private IProductCollection change(int operations, boolean save) throws IOException {
+        IProductCollection productCollection = FileFormat.TEXT.loader(path).load();
+        Journal journal = open(productCollection);
+        JournaledProductCollection journaled = new JournaledProductCollection(productCollection, journal);
+        Random random = new Random(TestCollections.SEED);
+        for (int i = 0; i < operations; i++) {
+            List<Product> products = TestCollections.products(journaled);
+            Product product = products.get(random.nextInt(products.size()));
+            int operation = random.nextInt(10);
+            if (operation < 4)
+                journaled.addProduct(new Product(product.getName() + i, product.getCoordinates(),
+                        product.getCreationDate(), product.getPrice() + i, product.getUnitOfMeasure(),
+                        product.getOwner()));
+            else if (operation < 7)
+                journaled.updateProductByID(product.getID(), products.get(random.nextInt(products.size())));
+            else if (operation < 9)
+                journaled.removeProductByID(product.getID());
+            else
+                journaled.removeFirst();
+            if (save && i == operations / 2) {
+                journal.save(journaled);
+                SaveQueue.awaitAll();
+            }
+        }
+        return journaled;
+    }
+
+    private IProductCollection recover() throws IOException {
+        IProductCollection productCollection = FileFormat.TEXT.loader(path).load();
+        open(productCollection);
+        return productCollection;
+    }
+
+    private Journal open(IProductCollection productCollection) throws IOException {
+        Journal journal = Journal.open(path, FileFormat.TEXT, productCollection);
+        journals.add(journal);
+        return journal;
+    }
+
+    /**
+     * @return сегмент журнала с наибольшим номером, не считая отложенных.
+     */
+    private File lastSegment() {
+        File last = null;
+        long lastNumber = -1;
+        File[] files = directory.listFiles();
+        assertNotNull(files);
+        String prefix = new File(path).getName() + ".journal.";
+        for (File file: files) {
+            String name = file.getName();
+            if (!name.startsWith(prefix) || name.endsWith(".rejected"))
+                continue;
+            long number = Long.parseLong(name.substring(prefix.length()));
+            if (number > lastNumber) {
+                last = file;
+                lastNumber = number;
+            }
+        }
+        assertNotNull(last);
+        return last;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+package project.parsing.segmented;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import project.TestCollections;
+import project.products.product.Product;
+import project.products.product_collection.ProductCollection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки сохранения в сегментированном формате: после изменения коллекции переписываются только сегменты
+ * изменённых товаров, мелкие сегменты сливаются с соседними, а раскладка, которую переписал другой объект сохранения,
+ * не используется. После каждого сохранения коллекция, загруженная из манифеста, совпадает с сохранённой.
+ */
+class IncrementalSaveTest {
+    /**
+     * Три полных сегмента и неполный четвёртый.
+     */
+    private static final int PRODUCTS = 3 * SegmentedFormat.SEGMENT_SIZE + 100;
+
+    @TempDir
+    File directory;
+    private File manifest;
+    private ProductCollection productCollection;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        productCollection = TestCollections.collection(directory, PRODUCTS);
+        File segmented = new File(directory, "segmented");
+        assertTrue(segmented.mkdir());
+        manifest = new File(segmented, "products" + SegmentedFormat.EXTENSION);
+    }
+
+    @Test
+    void updateRewritesOnlyItsSegment() throws IOException {
+        SegmentedSaver saver = new SegmentedSaver(manifest.getPath());
+        saver.save(productCollection);
+        Set<String> before = segmentFiles();
+        assertEquals(4, before.size());
+
+        Product product = TestCollections.products(productCollection).get(SegmentedFormat.SEGMENT_SIZE + 10);
+        productCollection.updateProductByID(product.getID(), productCollection.getMaxByPrice());
+        saver.save(productCollection);
+        assertEquals(1, changed(before, segmentFiles()));
+        assertLoadsBack();
+    }
+
+    @Test
+    void loadedLayoutIsReused() throws IOException {
+        new SegmentedSaver(manifest.getPath()).save(productCollection);
+        Set<String> before = segmentFiles();
+        productCollection = new SegmentedLoader(manifest.getPath()).load();
+        productCollection.removeProductByID(productCollection.getFirst().getID());
+        productCollection.addProduct(productCollection.getMaxByPrice().copy(Product.reserveIDs(1)));
+        new SegmentedSaver(manifest.getPath()).save(productCollection);
+        assertEquals(2, changed(before, segmentFiles()));
+        assertLoadsBack();
+    }
+
+    @Test
+    void unchangedCollectionIsNotRewritten() throws IOException {
+        SegmentedSaver saver = new SegmentedSaver(manifest.getPath());
+        saver.save(productCollection);
+        Set<String> before = segmentFiles();
+        long modified = manifest.lastModified();
+        saver.save(productCollection);
+        assertEquals(before, segmentFiles());
+        assertEquals(modified, manifest.lastModified());
+    }
+
+    @Test
+    void smallSegmentMergesWithNeighbour() throws IOException {
+        SegmentedSaver saver = new SegmentedSaver(manifest.getPath());
+        saver.save(productCollection);
+        List<Product> products = TestCollections.products(productCollection);
+        for (int i = 2 * SegmentedFormat.SEGMENT_SIZE; i < 3 * SegmentedFormat.SEGMENT_SIZE; i++)
+            if (i % 4 != 0)
+                productCollection.removeProductByID(products.get(i).getID());
+        saver.save(productCollection);
+        assertEquals(3, segmentFiles().size());
+        assertLoadsBack();
+    }
+
+    @Test
+    void manifestWrittenByAnotherSaverIsRewritten() throws IOException {
+        SegmentedSaver saver = new SegmentedSaver(manifest.getPath());
+        saver.save(productCollection);
+        ProductCollection other = TestCollections.collection(directory, 10);
+        new SegmentedSaver(manifest.getPath()).save(other);
+        productCollection.removeFirst();
+        saver.save(productCollection);
+        assertLoadsBack();
+    }
+
+    private void assertLoadsBack() {
+        assertEquals(TestCollections.describe(productCollection),
+                TestCollections.describe(new SegmentedLoader(manifest.getPath()).load()));
+    }
+
+    private Set<String> segmentFiles() {
+        HashSet<String> names = new HashSet<>();
+        File[] files = manifest.getParentFile().listFiles();
+        if (files != null)
+            for (File file: files)
+                if (!file.equals(manifest))
+                    names.add(file.getName());
+        return names;
+    }
+
+    /**
+     * @return число сегментов, которых не было в прежнем наборе.
+     */
+    private static int changed(Set<String> before, Set<String> after) {
+        int changed = 0;
+        for (String name: after)
+            if (!before.contains(name))
+                changed++;
+        return changed;
+    }
+}
\ No newline at end of file
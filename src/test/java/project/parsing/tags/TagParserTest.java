@@ -0,0 +1,71 @@
+package project.parsing.tags;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверки построения дерева тегов {@link TagParser} по событиям {@link TagReader}.
+ */
+class TagParserTest {
+    @Test
+    void buildsNestedTags() throws IOException {
+        Tag tag = new TagParser("<?xml version=\"1.0\"?>\n<product name=\"bread\" kind = \"food\">\n" +
+                "\t<price>12.5</price>\n\t<coordinates><x>1</x><y>-2</y></coordinates>\n</product>").parse();
+        ParentTag product = assertInstanceOf(ParentTag.class, tag);
+        assertEquals("product", product.getName());
+        assertEquals("bread", product.getArguments().get("name"));
+        assertEquals("food", product.getArguments().get("kind"));
+        assertEquals("12.5", product.getNestedTagContent("price"));
+        ParentTag coordinates = product.getNestedParentTag("coordinates");
+        assertEquals("1", coordinates.getNestedTagContent("x"));
+        assertEquals("-2", coordinates.getNestedTagContent("y"));
+        assertNull(product.getNestedTagContent("unitOfMeasure"));
+    }
+
+    @Test
+    void keepsTextWithLessThanSign() throws IOException {
+        TextTag tag = assertInstanceOf(TextTag.class, new TagParser("<name>a < b</name>").parse());
+        assertEquals("a < b", tag.getContent());
+    }
+
+    @Test
+    void readsTextLongerThanBuffer() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++)
+            text.append(i).append(' ');
+        TagParser tagParser = new TagParser(new TagReader(new StringReader("<a><b>" + text + "</b><c>x</c></a>")));
+        ParentTag tag = assertInstanceOf(ParentTag.class, tagParser.parse());
+        assertEquals(text.toString(), tag.getNestedTagContent("b"));
+    }
+
+    @Test
+    void parsesTopLevelTagsOneByOne() throws IOException {
+        TagParser tagParser = new TagParser("<a>1</a> text <b>2</b>");
+        assertEquals("1", assertInstanceOf(TextTag.class, tagParser.parse()).getContent());
+        assertEquals("2", assertInstanceOf(TextTag.class, tagParser.parse()).getContent());
+        assertNull(tagParser.parse());
+    }
+
+    @Test
+    void rejectsUnclosedTag() {
+        assertThrows(InvalidTagException.class, () -> new TagParser("<a><b>1</b>").parse());
+    }
+
+    @Test
+    void rejectsOverlappingTags() {
+        assertThrows(InvalidTagException.class, () -> new TagParser("<a><b>1</a></b>").parse());
+    }
+
+    @Test
+    void rejectsDuplicateNestedTag() throws IOException {
+        ParentTag tag = assertInstanceOf(ParentTag.class, new TagParser("<a><b>1</b><b>2</b></a>").parse());
+        assertThrows(DuplicateTagException.class, () -> tag.getNestedTagContent("b"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+package project.products.product_collection;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import project.parsing.FileFormat;
+import project.parsing.journal.Journal;
+import project.parsing.journal.JournaledProductCollection;
+import project.parsing.save.SaveQueue;
+import project.products.product.Coordinates;
+import project.products.product.Location;
+import project.products.product.Person;
+import project.products.product.PersonRegistry;
+import project.products.product.Product;
+import project.products.product.UnitOfMeasure;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Многопоточная проверка {@link ConcurrentProductCollection} под журналом ({@link JournaledProductCollection}).
+ * Несколько потоков одновременно добавляют, изменяют и удаляют товары, пока ещё один поток выполняет поиск по индексам;
+ * журнал при этом уплотняется. После остановки потоков проверяется, что размер коллекции совпадает с размером индекса
+ * номеров, каждый товар есть во всех индексах, товары каждого потока идут в порядке их добавления, а журнал,
+ * применённый к записанному снимку, восстанавливает то же состояние коллекции.
+ */
+class ConcurrentProductCollectionTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 10000;
+    private static final int PERSONS = 40;
+
+    @TempDir
+    File directory;
+
+    @Test
+    void concurrentChangesKeepIndexesAndJournal() throws Exception {
+        String path = new File(directory, "collection.xml").getPath();
+        ConcurrentProductCollection collection = new ConcurrentProductCollection();
+        Journal journal = Journal.open(path, FileFormat.TEXT, collection);
+        JournaledProductCollection journaled = new JournaledProductCollection(collection, journal);
+        Person[] persons = registerPersons(collection.getPersonRegistry());
+
+        List<List<Product>> added = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ArrayList<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            List<Product> products = new ArrayList<>();
+            added.add(products);
+            int seed = i;
+            writers.add(start(() -> write(journaled, persons, products, new Random(seed), start), failure));
+        }
+        Thread reader = start(() -> read(journaled, start, writers), failure);
+        start.countDown();
+        for (Thread writer: writers)
+            writer.join();
+        reader.join();
+        assertNull(failure.get(), () -> "Поток завершился с ошибкой: " + failure.get());
+
+        collection.checkIndexes();
+        int size = 0;
+        for (Product ignored: journaled)
+            size++;
+        assertEquals(journaled.size(), size, "Размер коллекции не совпадает с числом товаров при обходе.");
+        checkOrder(journaled, added);
+
+        SaveQueue.awaitAll();
+        journal.close();
+        IProductCollection restored = new File(path).exists()
+                ? FileFormat.TEXT.loader(path).load() : new ProductCollection();
+        Journal.open(path, FileFormat.TEXT, restored).close();
+        assertEquals(Journal.fingerprint(journaled), Journal.fingerprint(restored),
+                "Журнал восстановил состояние, отличное от состояния коллекции.");
+    }
+
+    private static Person[] registerPersons(PersonRegistry personRegistry) {
+        Person[] persons = new Person[PERSONS];
+        for (int i = 0; i < PERSONS; i++) {
+            Location location = i % 3 == 0 ? null : Location.newLocation("loc" + i, i, i * 2, (long) i * 3);
+            persons[i] = personRegistry.newPerson("pass" + i, "owner" + i % 7, null, 50 + i, location);
+        }
+        return persons;
+    }
+
+    private static void write(IProductCollection collection, Person[] persons, List<Product> added, Random random,
+                              CountDownLatch start) {
+        await(start);
+        for (int i = 0; i < OPERATIONS; i++) {
+            int operation = random.nextInt(20);
+            if (operation < 8 || added.isEmpty()) {
+                Product product = newProduct(persons, random);
+                if (collection.addProduct(product))
+                    added.add(product);
+            } else if (operation < 13)
+                collection.updateProductByID(randomID(added, random), newProduct(persons, random));
+            else if (operation < 18)
+                collection.removeProductByID(randomID(added, random));
+            else
+                collection.removeFirst();
+        }
+    }
+
+    private static void read(IProductCollection collection, CountDownLatch start, List<Thread> writers) {
+        await(start);
+        SpatialIndex coordinates = collection.getSpatialIndex(SpatialIndex.Space.COORDINATES);
+        SpatialIndex locations = collection.getSpatialIndex(SpatialIndex.Space.LOCATION);
+        while (writers.stream().anyMatch(Thread::isAlive)) {
+            coordinates.nearest(new double[]{0, 0}, 5);
+            locations.inBox(new double[]{0, 0, 0}, new double[]{20, 40, 60});
+            coordinates.maxBySum();
+            collection.getOwners();
+            collection.getByOwner("pass1");
+            Thread.yield();
+        }
+    }
+
+    private static Product newProduct(Person[] persons, Random random) {
+        UnitOfMeasure[] units = UnitOfMeasure.values();
+        return new Product("product", new Coordinates((float) random.nextInt(500), (double) random.nextInt(500)),
+                LocalDateTime.of(2020, 1, 1, 0, 0), 1 + random.nextInt(1000),
+                random.nextBoolean() ? null : units[random.nextInt(units.length)],
+                random.nextInt(4) == 0 ? null : persons[random.nextInt(persons.length)]);
+    }
+
+    private static long randomID(List<Product> added, Random random) {
+        return added.get(random.nextInt(added.size())).getID();
+    }
+
+    /**
+     * Проверяет, что товары, добавленные каждым потоком и оставшиеся в коллекции, идут при обходе в порядке добавления.
+     */
+    private static void checkOrder(IProductCollection collection, List<List<Product>> added) {
+        HashMap<Long, int[]> positions = new HashMap<>();
+        for (int thread = 0; thread < added.size(); thread++)
+            for (int i = 0; i < added.get(thread).size(); i++)
+                positions.put(added.get(thread).get(i).getID(), new int[]{thread, i});
+        int[] last = new int[added.size()];
+        Arrays.fill(last, -1);
+        for (Product product: collection) {
+            int[] position = positions.get(product.getID());
+            assertNotNull(position, "В коллекции есть товар, который никто не добавлял.");
+            assertTrue(position[1] > last[position[0]], "Порядок товаров не совпадает с порядком добавления.");
+            last[position[0]] = position[1];
+        }
+    }
+
+    private static Thread start(Runnable task, AtomicReference<Throwable> failure) {
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,140 @@
+package project.products.product_collection;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import project.TestCollections;
+import project.products.product.UnitOfMeasure;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Проверки сводных характеристик: ядра {@link ProductAggregates#addColumns}, {@link ProductAggregates#argMax} и
+ * {@link ProductAggregates#argMaxSum} (на векторах, если тесты запущены с модулем jdk.incubator.vector) совпадают со
+ * скалярными циклами, а характеристики коллекции по столбцам - с вычисленными обходом объектов товаров. Суммы
+ * сравниваются с допуском: порядок сложения в этих способах разный.
+ */
+class ProductAggregatesTest {
+    private static final int SLOTS = 10000;
+    private static final double SUM_TOLERANCE = 1e-9;
+
+    @TempDir
+    File directory;
+
+    @Test
+    void vectorKernelsAreLoaded() {
+        String version = System.getProperty("java.specification.version");
+        assumeTrue(!version.startsWith("1.") && Integer.parseInt(version) >= 17);
+        assertTrue(ProductAggregates.isVectorized());
+    }
+
+    @Test
+    void kernelsMatchScalarLoops() {
+        for (int seed = 0; seed < 20; seed++) {
+            Columns columns = new Columns(new Random(seed), seed % 2 == 0);
+            ProductAggregates kernels = new ProductAggregates();
+            ProductAggregates scalar = new ProductAggregates();
+            int best = -1;
+            int bestSum = -1;
+            int scalarBest = -1;
+            int scalarBestSum = -1;
+            Random random = new Random(seed);
+            for (int from = random.nextInt(10), to; from < SLOTS; from = to + random.nextInt(10)) {
+                to = Math.min(SLOTS, from + 1 + random.nextInt(seed < 10 ? 40 : 2000));
+                columns.addTo(kernels, from, to, false);
+                columns.addTo(scalar, from, to, true);
+                best = ProductAggregates.argMax(columns.prices, columns.ids, from, to, best);
+                scalarBest = ProductAggregates.scanArgMax(columns.prices, columns.ids, from, to, scalarBest);
+                bestSum = ProductAggregates.argMaxSum(columns.xs, columns.ys, columns.ids, from, to, bestSum);
+                scalarBestSum = ProductAggregates.scanArgMaxSum(columns.xs, columns.ys, columns.ids, from, to,
+                        scalarBestSum);
+            }
+            assertSame(scalar, kernels);
+            assertEquals(scalar.getMaxSlot(), kernels.getMaxSlot());
+            assertEquals(scalarBest, best);
+            assertEquals(scalarBestSum, bestSum);
+        }
+    }
+
+    @Test
+    void columnarAggregatesMatchProductScan() throws IOException {
+        ProductCollection productCollection = TestCollections.collection(directory, 5000);
+        ColumnarProductCollection columnar = new ColumnarProductCollection(productCollection);
+        int position = 0;
+        for (long id: idsOf(columnar))
+            if (position++ % 7 == 3)
+                columnar.removeProductByID(id);
+        ProductAggregates expected = ProductAggregates.of(columnar);
+        ProductAggregates actual = columnar.aggregate();
+        assertSame(expected, actual);
+        assertEquals(expected.getMaxByCoordinates().getID(), actual.getMaxByCoordinates().getID());
+        assertEquals(expected.getMaxByCoordinates().getID(), columnar.getMaxByCoordinates().getID());
+    }
+
+    private static long[] idsOf(IProductCollection productCollection) {
+        return TestCollections.products(productCollection).stream().mapToLong(product -> product.getID()).toArray();
+    }
+
+    private static void assertSame(ProductAggregates expected, ProductAggregates actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getMinPrice(), actual.getMinPrice());
+        assertEquals(expected.getMaxPrice(), actual.getMaxPrice());
+        assertEquals(expected.getMinX(), actual.getMinX());
+        assertEquals(expected.getMaxX(), actual.getMaxX());
+        assertEquals(expected.getMinY(), actual.getMinY());
+        assertEquals(expected.getMaxY(), actual.getMaxY());
+        assertSum(expected.getPriceSum(), actual.getPriceSum());
+        assertSum(expected.getMeanX(), actual.getMeanX());
+        assertSum(expected.getMeanY(), actual.getMeanY());
+        for (UnitOfMeasure unit: UnitOfMeasure.values())
+            assertEquals(expected.getUnitCount(unit), actual.getUnitCount(unit));
+        assertEquals(expected.getUnitCount(null), actual.getUnitCount(null));
+    }
+
+    private static void assertSum(double expected, double actual) {
+        if (Double.isNaN(expected))
+            assertTrue(Double.isNaN(actual));
+        else
+            assertEquals(expected, actual, Math.abs(expected) * SUM_TOLERANCE);
+    }
+
+    /**
+     * Случайные столбцы, устроенные как в {@link ColumnarProductCollection}: отсутствующая единица измерения хранится
+     * нулём и отмечается сброшенным битом маски. С ties координаты и цены - небольшие целые числа, так что наибольшие
+     * значения повторяются и выбираются по номеру товара; иначе среди цен встречаются NaN.
+     */
+    private static class Columns {
+        private final long[] ids = new long[SLOTS];
+        private final double[] prices = new double[SLOTS];
+        private final float[] xs = new float[SLOTS];
+        private final double[] ys = new double[SLOTS];
+        private final byte[] units = new byte[SLOTS];
+        private final long[] hasUnit = new long[(SLOTS + 63) >>> 6];
+
+        private Columns(Random random, boolean ties) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                ids[slot] = random.nextInt(1 << 30);
+                prices[slot] = ties ? 1 + random.nextInt(5)
+                        : random.nextInt(500) == 0 ? Double.NaN : 1 + random.nextDouble() * 10000;
+                xs[slot] = ties ? random.nextInt(5) : random.nextFloat() * 1000 - 200;
+                ys[slot] = ties ? random.nextInt(5) : random.nextDouble() * 1000 - 500;
+                if (random.nextInt(5) != 0) {
+                    units[slot] = (byte) random.nextInt(UnitOfMeasure.values().length);
+                    hasUnit[slot >>> 6] |= 1L << slot;
+                }
+            }
+        }
+
+        private void addTo(ProductAggregates aggregates, int from, int to, boolean scalar) {
+            if (scalar)
+                aggregates.scanColumns(ids, prices, xs, ys, units, hasUnit, from, to);
+            else
+                aggregates.addColumns(ids, prices, xs, ys, units, hasUnit, from, to);
+        }
+    }
+}
\ No newline at end of file
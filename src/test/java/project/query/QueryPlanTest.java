@@ -0,0 +1,118 @@
+package project.query;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import project.TestCollections;
+import project.products.product.Product;
+import project.products.product_collection.ProductCollection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки планировщика запросов: план, выбранный по индексам коллекции, отбирает те же товары в том же порядке, что и
+ * просмотр всех товаров с условием запроса и сортировкой.
+ */
+class QueryPlanTest {
+    private static final int PRODUCTS = 3000;
+
+    @TempDir
+    static File directory;
+    private static ProductCollection productCollection;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        productCollection = TestCollections.collection(directory, PRODUCTS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "where owner.passportID = 'pass7'",
+            "where owner.passportID = 'pass7' order by price desc",
+            "where owner.passportID = 'nobody'",
+            "where price between 100 and 2000",
+            "where price < 500 order by price desc limit 10",
+            "where price >= 9000 and unitOfMeasure = LITERS",
+            "where price > 100 and price < 50",
+            "where price = 1",
+            "order by price limit 7",
+            "order by price desc, coordinates.x limit 30",
+            "where coordinates.x > 100 order by coordinates.y desc limit 20",
+            "where owner.name contains 'owner1' and price between 10 and 5000 order by price",
+            "where unitOfMeasure is null or price <= 300 order by creationDate desc limit 15",
+            "where not (price > 1000) and owner.location.x is not null order by owner.weight, price",
+            "where price between 1000 and 3000 limit 5",
+    })
+    void planMatchesScan(String text) {
+        Query query = QueryParser.parse(text);
+        List<Product> expected = scan(query);
+        List<Product> actual = QueryPlan.plan(query, productCollection).execute();
+        if (query.order.isEmpty() && query.limit >= 0) {
+            assertEquals(Math.min(query.limit, expected.size()), actual.size());
+            assertTrue(new HashSet<>(expected).containsAll(actual));
+        } else if (query.order.isEmpty())
+            assertEquals(ids(expected, true), ids(actual, true));
+        else
+            assertEquals(ids(expected, false), ids(actual, false));
+    }
+
+    @Test
+    void idLookupExaminesOneProduct() {
+        Product product = TestCollections.products(productCollection).get(PRODUCTS / 2);
+        QueryPlan plan = QueryPlan.plan(QueryParser.parse("where id = " + product.getID()), productCollection);
+        assertEquals(1, plan.execute().size());
+        assertEquals(1, plan.getExamined());
+    }
+
+    @Test
+    void priceRangeExaminesOnlyRange() {
+        Query query = QueryParser.parse("where price between 100 and 200");
+        QueryPlan plan = QueryPlan.plan(query, productCollection);
+        assertEquals(scan(query).size(), plan.execute().size());
+        assertEquals(plan.execute().size(), plan.getExamined());
+    }
+
+    @Test
+    void orderedLimitStopsEarly() {
+        QueryPlan plan = QueryPlan.plan(QueryParser.parse("order by price desc limit 3"), productCollection);
+        assertEquals(3, plan.execute().size());
+        assertEquals(3, plan.getExamined());
+    }
+
+    /**
+     * Отбирает товары просмотром всей коллекции: условие, затем сортировка и ограничение числа товаров.
+     */
+    private static List<Product> scan(Query query) {
+        ArrayList<Product> result = new ArrayList<>();
+        for (Product product: productCollection)
+            if (query.condition == null || query.condition.test(product))
+                result.add(product);
+        Comparator<Product> comparator = query.comparator();
+        if (comparator != null) {
+            result.sort(comparator);
+            if (query.limit >= 0 && result.size() > query.limit)
+                return new ArrayList<>(result.subList(0, (int) query.limit));
+        }
+        return result;
+    }
+
+    private static List<Long> ids(List<Product> products, boolean sorted) {
+        ArrayList<Long> ids = new ArrayList<>();
+        for (Product product: products)
+            ids.add(product.getID());
+        if (sorted)
+            ids.sort(null);
+        return ids;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+package project.products.product_collection;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+import project.products.product.UnitOfMeasure;
+
+/**
+ * Ядра сводных характеристик на векторах {@code jdk.incubator.vector}. Вектор цен и координат y занимает регистр
+ * наибольшей длины, которую поддерживает процессор ({@link DoubleVector#SPECIES_PREFERRED}), вектор координат x -
+ * вдвое более короткий регистр с тем же числом дорожек; x переводятся в double для сумм.
+ * <p>
+ * Суммы, наименьшие и наибольшие значения копятся по дорожкам и сводятся в конце отрезка. Наименьшие и наибольшие
+ * значения выбираются сравнением и смешиванием, как в скалярном цикле: NaN в них не попадает. Наибольший элемент не
+ * ищется по дорожкам: векторное сравнение лишь проверяет, есть ли в векторе значение не меньше текущего наибольшего, и
+ * только такие векторы проходятся скалярным циклом {@link ProductAggregates}. На случайных данных наибольшее меняется
+ * редко, а номера товаров, нужные лишь при равенстве, не читаются из памяти. Единицы измерения считаются отдельным
+ * проходом по столбцу байтов: отсутствующая единица хранится в нём нулём, поэтому по столбцу считаются только
+ * ненулевые единицы, а остальные делятся между первой единицей и её отсутствием подсчётом битов маски.
+ * <p>
+ * Класс требует JDK 17 и компилируется отдельно от остального кода; {@link ProductAggregates} загружает его через
+ * отражение, если JVM запущена с ключом {@code --add-modules jdk.incubator.vector}. Без модуля инициализация класса
+ * заканчивается {@link NoClassDefFoundError}.
+ */
+final class VectorColumnKernels implements ColumnKernels {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS =
+            VectorSpecies.of(float.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final int UNITS = UnitOfMeasure.values().length;
+
+    VectorColumnKernels() {
+    }
+
+    @Override
+    public void addColumns(ProductAggregates aggregates, long[] ids, double[] prices, float[] xs, double[] ys,
+                           byte[] units, long[] hasUnit, int from, int to) {
+        int lanes = DOUBLES.length();
+        int bound = from + DOUBLES.loopBound(to - from);
+        DoubleVector priceSum = DoubleVector.zero(DOUBLES);
+        DoubleVector minPrice = DoubleVector.broadcast(DOUBLES, aggregates.minPrice);
+        DoubleVector maxPrice = DoubleVector.broadcast(DOUBLES, aggregates.maxPrice);
+        DoubleVector xSum = DoubleVector.zero(DOUBLES);
+        FloatVector minX = FloatVector.broadcast(FLOATS, aggregates.minX);
+        FloatVector maxX = FloatVector.broadcast(FLOATS, aggregates.maxX);
+        DoubleVector ySum = DoubleVector.zero(DOUBLES);
+        DoubleVector minY = DoubleVector.broadcast(DOUBLES, aggregates.minY);
+        DoubleVector maxY = DoubleVector.broadcast(DOUBLES, aggregates.maxY);
+        int best = aggregates.maxSlot;
+        DoubleVector bestSum = DoubleVector.broadcast(DOUBLES, aggregates.maxSum);
+        for (int slot = from; slot < bound; slot += lanes) {
+            DoubleVector price = DoubleVector.fromArray(DOUBLES, prices, slot);
+            FloatVector xf = FloatVector.fromArray(FLOATS, xs, slot);
+            DoubleVector x = (DoubleVector) xf.convertShape(VectorOperators.F2D, DOUBLES, 0);
+            DoubleVector y = DoubleVector.fromArray(DOUBLES, ys, slot);
+            priceSum = priceSum.add(price);
+            minPrice = minPrice.blend(price, price.lt(minPrice));
+            maxPrice = maxPrice.blend(price, maxPrice.lt(price));
+            xSum = xSum.add(x);
+            minX = minX.blend(xf, xf.lt(minX));
+            maxX = maxX.blend(xf, maxX.lt(xf));
+            ySum = ySum.add(y);
+            minY = minY.blend(y, y.lt(minY));
+            maxY = maxY.blend(y, maxY.lt(y));
+            if (x.add(y).compare(VectorOperators.GE, bestSum).anyTrue()) {
+                best = ProductAggregates.scanArgMaxSum(xs, ys, ids, slot, slot + lanes, best);
+                bestSum = DoubleVector.broadcast(DOUBLES, xs[best] + ys[best]);
+            }
+        }
+        aggregates.count += bound - from;
+        aggregates.priceSum += priceSum.reduceLanes(VectorOperators.ADD);
+        aggregates.minPrice = minPrice.reduceLanes(VectorOperators.MIN);
+        aggregates.maxPrice = maxPrice.reduceLanes(VectorOperators.MAX);
+        aggregates.xSum += xSum.reduceLanes(VectorOperators.ADD);
+        aggregates.minX = minX.reduceLanes(VectorOperators.MIN);
+        aggregates.maxX = maxX.reduceLanes(VectorOperators.MAX);
+        aggregates.ySum += ySum.reduceLanes(VectorOperators.ADD);
+        aggregates.minY = minY.reduceLanes(VectorOperators.MIN);
+        aggregates.maxY = maxY.reduceLanes(VectorOperators.MAX);
+        aggregates.maxSlot = best;
+        aggregates.maxSum = bestSum.lane(0);
+        countUnits(aggregates.unitCounts, units, hasUnit, from, bound);
+        aggregates.scanColumns(ids, prices, xs, ys, units, hasUnit, bound, to);
+    }
+
+    @Override
+    public int argMax(double[] values, long[] ids, int from, int to, int best) {
+        int lanes = DOUBLES.length();
+        int bound = from + DOUBLES.loopBound(to - from);
+        DoubleVector max = DoubleVector.broadcast(DOUBLES, best < 0 ? Double.NEGATIVE_INFINITY : values[best]);
+        for (int slot = from; slot < bound; slot += lanes) {
+            DoubleVector value = DoubleVector.fromArray(DOUBLES, values, slot);
+            if (value.compare(VectorOperators.GE, max).anyTrue()) {
+                best = ProductAggregates.scanArgMax(values, ids, slot, slot + lanes, best);
+                max = DoubleVector.broadcast(DOUBLES, values[best]);
+            }
+        }
+        return ProductAggregates.scanArgMax(values, ids, bound, to, best);
+    }
+
+    @Override
+    public int argMaxSum(float[] xs, double[] ys, long[] ids, int from, int to, int best) {
+        int lanes = DOUBLES.length();
+        int bound = from + DOUBLES.loopBound(to - from);
+        DoubleVector max = DoubleVector.broadcast(DOUBLES, best < 0 ? Double.NEGATIVE_INFINITY : xs[best] + ys[best]);
+        for (int slot = from; slot < bound; slot += lanes) {
+            DoubleVector x = (DoubleVector) FloatVector.fromArray(FLOATS, xs, slot)
+                    .convertShape(VectorOperators.F2D, DOUBLES, 0);
+            DoubleVector sum = x.add(DoubleVector.fromArray(DOUBLES, ys, slot));
+            if (sum.compare(VectorOperators.GE, max).anyTrue()) {
+                best = ProductAggregates.scanArgMaxSum(xs, ys, ids, slot, slot + lanes, best);
+                max = DoubleVector.broadcast(DOUBLES, xs[best] + ys[best]);
+            }
+        }
+        return ProductAggregates.scanArgMaxSum(xs, ys, ids, bound, to, best);
+    }
+
+    /**
+     * Добавляет к счётчикам единиц измерения ячейки с from по to (не включая). Последний счётчик - товары без
+     * единицы измерения.
+     */
+    private static void countUnits(long[] unitCounts, byte[] units, long[] hasUnit, int from, int to) {
+        if (from == to)
+            return;
+        int lanes = BYTES.length();
+        int bound = from + BYTES.loopBound(to - from);
+        long[] counts = new long[UNITS];
+        for (int slot = from; slot < bound; slot += lanes) {
+            ByteVector unit = ByteVector.fromArray(BYTES, units, slot);
+            for (int ordinal = 1; ordinal < UNITS; ordinal++)
+                counts[ordinal] += unit.eq((byte) ordinal).trueCount();
+        }
+        for (int slot = bound; slot < to; slot++)
+            counts[units[slot]]++;
+        long withUnit = bitCount(hasUnit, from, to);
+        long other = 0;
+        for (int ordinal = 1; ordinal < UNITS; ordinal++) {
+            unitCounts[ordinal] += counts[ordinal];
+            other += counts[ordinal];
+        }
+        unitCounts[0] += withUnit - other;
+        unitCounts[UNITS] += to - from - withUnit;
+    }
+
+    /**
+     * Возвращает число установленных битов маски с from по to (не включая), to > from.
+     */
+    private static long bitCount(long[] bits, int from, int to) {
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        if (first == last)
+            return Long.bitCount(bits[first] & -1L << from & -1L >>> -to);
+        long count = Long.bitCount(bits[first] & -1L << from);
+        for (int word = first + 1; word < last; word++)
+            count += Long.bitCount(bits[word]);
+        return count + Long.bitCount(bits[last] & -1L >>> -to);
+    }
+}
\ No newline at end of file